@@ -0,0 +1,62 @@
+package io.github.serkutyildirim.kafka.benchmark;
+
+import io.github.serkutyildirim.kafka.model.DemoTransaction;
+import io.github.serkutyildirim.kafka.service.MessageValidationService;
+import io.github.serkutyildirim.kafka.service.TransactionViolation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sequential loop versus fork/join validation of a whole {@code KafkaService.sendBatch} payload.
+ *
+ * <p>Use the crossover point on the target hardware to choose {@code app.validation.parallel-threshold}.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class BatchValidationBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int batchSize;
+
+    private MessageValidationService sequential;
+    private MessageValidationService parallel;
+    private List<DemoTransaction> batch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sequential = new MessageValidationService();
+        ReflectionTestUtils.setField(sequential, "parallelThreshold", Integer.MAX_VALUE);
+        parallel = new MessageValidationService();
+        ReflectionTestUtils.setField(parallel, "parallelThreshold", 0);
+        batch = Arrays.asList(BenchmarkPayloads.transactions(batchSize, 32));
+    }
+
+    @Benchmark
+    public List<TransactionViolation> sequentialLoop() {
+        return sequential.validateBatch(batch);
+    }
+
+    @Benchmark
+    public List<TransactionViolation> forkJoin() {
+        return parallel.validateBatch(batch);
+    }
+}
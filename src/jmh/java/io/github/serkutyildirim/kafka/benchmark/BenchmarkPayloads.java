@@ -0,0 +1,52 @@
+package io.github.serkutyildirim.kafka.benchmark;
+
+import io.github.serkutyildirim.kafka.model.DemoTransaction;
+import io.github.serkutyildirim.kafka.model.MessageStatus;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Deterministic payload factory shared by all benchmarks.
+ *
+ * <p>A fixed seed keeps runs comparable across machines: the same identifiers, amounts, and description text are generated every time.</p>
+ */
+final class BenchmarkPayloads {
+
+    private static final long SEED = 42L;
+    private static final String[] CURRENCIES = {"USD", "EUR", "GBP", "JPY", "CHF"};
+
+    private BenchmarkPayloads() {
+    }
+
+    /**
+     * Builds {@code count} valid transactions whose description is exactly {@code descriptionLength} characters.
+     */
+    static DemoTransaction[] transactions(int count, int descriptionLength) {
+        Random random = new Random(SEED);
+        DemoTransaction[] transactions = new DemoTransaction[count];
+        for (int i = 0; i < count; i++) {
+            transactions[i] = DemoTransaction.builder()
+                .messageId(new UUID(random.nextLong(), random.nextLong()))
+                .timestamp(Instant.ofEpochSecond(1_700_000_000L + i, random.nextInt(1_000_000) * 1_000L))
+                .sourceId("ACC-" + (100_000 + random.nextInt(900_000)))
+                .targetId("ACC-" + (100_000 + random.nextInt(900_000)))
+                .amount(BigDecimal.valueOf(1 + random.nextInt(1_000_000), 2))
+                .currency(CURRENCIES[random.nextInt(CURRENCIES.length)])
+                .status(MessageStatus.CREATED)
+                .description(description(random, descriptionLength))
+                .build();
+        }
+        return transactions;
+    }
+
+    private static String description(Random random, int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append((char) ('a' + random.nextInt(26)));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,102 @@
+package io.github.serkutyildirim.kafka.benchmark;
+
+import io.github.serkutyildirim.kafka.service.IdempotencyStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput of the duplicate check behind {@code MessageValidationService.checkDuplicateTransaction}, on the heap and
+ * memory-mapped, with four threads sharing one store.
+ *
+ * <p>{@code reserveAndComplete} is the send path for new IDs; the table is kept full, so it includes the eviction of the oldest
+ * ID. {@code rejectDuplicate} is a retry of an ID that was already sent.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class IdempotencyStoreBenchmark {
+
+    private static final int CAPACITY = 1 << 18;
+    private static final int KNOWN_IDS = 1 << 16;
+
+    @Param({"heap", "mmap"})
+    public String storage;
+
+    private final AtomicLong threadIds = new AtomicLong();
+    private IdempotencyStore store;
+    private Path file;
+    private UUID[] known;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        if ("mmap".equals(storage)) {
+            file = Files.createTempFile("idempotency-benchmark", ".dat");
+        }
+        store = new IdempotencyStore(CAPACITY, 64, TimeUnit.HOURS.toMillis(24), TimeUnit.MINUTES.toMillis(5),
+                file == null ? "" : file.toString());
+        known = new UUID[KNOWN_IDS];
+        for (int i = 0; i < KNOWN_IDS; i++) {
+            known[i] = UUID.randomUUID();
+            store.reserve(known[i]);
+            store.complete(known[i]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        store.close();
+        if (file != null) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Benchmark
+    public boolean reserveAndComplete(Sequence sequence) {
+        UUID id = new UUID(sequence.prefix, sequence.next++);
+        return store.reserve(id) == IdempotencyStore.Reservation.ACQUIRED && store.complete(id);
+    }
+
+    @Benchmark
+    public IdempotencyStore.Reservation rejectDuplicate() {
+        return store.reserve(known[ThreadLocalRandom.current().nextInt(KNOWN_IDS)]);
+    }
+
+    /**
+     * Per-thread source of IDs that no other thread generates.
+     */
+    @State(Scope.Thread)
+    public static class Sequence {
+
+        private long prefix;
+        private long next;
+
+        @Setup(Level.Trial)
+        public void setUp(IdempotencyStoreBenchmark benchmark) {
+            prefix = benchmark.threadIds.incrementAndGet() << 48 | ThreadLocalRandom.current().nextLong() >>> 16;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package io.github.serkutyildirim.kafka.benchmark;
+
+import io.github.serkutyildirim.kafka.model.DemoTransaction;
+import io.github.serkutyildirim.kafka.model.MessageStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building a {@link DemoTransaction}, split into the builder itself and the {@code @Builder.Default} metadata.
+ *
+ * <p>{@code UUID.randomUUID()} draws from {@code SecureRandom} and {@code Instant.now()} reads the system clock; comparing
+ * {@link #builderWithDefaults()} with {@link #builderWithExplicitMetadata()} shows how much of the construction cost they account for.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class MessageConstructionBenchmark {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("100.50");
+    private static final UUID FIXED_ID = new UUID(42L, 42L);
+    private static final Instant FIXED_TIME = Instant.ofEpochSecond(1_700_000_000L);
+
+    @Benchmark
+    public DemoTransaction builderWithDefaults() {
+        return DemoTransaction.builder()
+            .sourceId("ACC-001")
+            .targetId("ACC-002")
+            .amount(AMOUNT)
+            .currency("USD")
+            .status(MessageStatus.CREATED)
+            .description("Payment for order #12345")
+            .build();
+    }
+
+    @Benchmark
+    public DemoTransaction builderWithExplicitMetadata() {
+        return DemoTransaction.builder()
+            .messageId(FIXED_ID)
+            .timestamp(FIXED_TIME)
+            .sourceId("ACC-001")
+            .targetId("ACC-002")
+            .amount(AMOUNT)
+            .currency("USD")
+            .status(MessageStatus.CREATED)
+            .description("Payment for order #12345")
+            .build();
+    }
+
+    @Benchmark
+    public UUID randomUuid() {
+        return UUID.randomUUID();
+    }
+
+    @Benchmark
+    public Instant instantNow() {
+        return Instant.now();
+    }
+}
@@ -0,0 +1,99 @@
+package io.github.serkutyildirim.kafka.benchmark;
+
+import io.github.serkutyildirim.kafka.model.BaseMessage;
+import io.github.serkutyildirim.kafka.model.DemoTransaction;
+import io.github.serkutyildirim.kafka.serialization.SerializationFormat;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Value serde cost for every {@link SerializationFormat}, configured the same way as the producer and consumer factories.
+ *
+ * <p>Serializers and deserializers are created through their no-arg constructors and {@code configure(...)}, exactly as the Kafka
+ * client does, so the JSON numbers reflect the {@code JsonSerializer}/{@code JsonDeserializer} setup in the config classes.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class SerializationBenchmark {
+
+    private static final String TOPIC = "demo-messages";
+    private static final int POOL_SIZE = 1024;
+
+    @Param({"JSON", "TYPED_JSON", "BINARY"})
+    public SerializationFormat format;
+
+    @Param({"16", "255", "1024"})
+    public int descriptionLength;
+
+    private Serializer<BaseMessage> serializer;
+    private Deserializer<BaseMessage> deserializer;
+    private DemoTransaction[] transactions;
+    private byte[][] payloads;
+    private RecordHeaders[] headers;
+    private int index;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUp() throws ReflectiveOperationException {
+        Map<String, Object> consumerConfigs = Map.of(
+            JsonDeserializer.TRUSTED_PACKAGES, "*",
+            JsonDeserializer.VALUE_DEFAULT_TYPE, DemoTransaction.class);
+        serializer = format.serializerClass().getDeclaredConstructor().newInstance();
+        serializer.configure(Map.of(), false);
+        deserializer = format.deserializerClass().getDeclaredConstructor().newInstance();
+        deserializer.configure(consumerConfigs, false);
+
+        transactions = BenchmarkPayloads.transactions(POOL_SIZE, descriptionLength);
+        payloads = new byte[POOL_SIZE][];
+        headers = new RecordHeaders[POOL_SIZE];
+        for (int i = 0; i < POOL_SIZE; i++) {
+            headers[i] = new RecordHeaders();
+            payloads[i] = serializer.serialize(TOPIC, headers[i], transactions[i]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        serializer.close();
+        deserializer.close();
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        int i = next();
+        return serializer.serialize(TOPIC, new RecordHeaders(), transactions[i]);
+    }
+
+    @Benchmark
+    public BaseMessage deserialize() {
+        int i = next();
+        return deserializer.deserialize(TOPIC, headers[i], payloads[i]);
+    }
+
+    private int next() {
+        index = (index + 1) & (POOL_SIZE - 1);
+        return index;
+    }
+}
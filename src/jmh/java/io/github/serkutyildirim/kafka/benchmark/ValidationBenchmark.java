@@ -0,0 +1,77 @@
+package io.github.serkutyildirim.kafka.benchmark;
+
+import io.github.serkutyildirim.kafka.model.DemoTransaction;
+import io.github.serkutyildirim.kafka.service.MessageValidationService;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-record validation cost: the service-layer business rules versus full Bean Validation of the model annotations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class ValidationBenchmark {
+
+    private static final int POOL_SIZE = 1024;
+
+    @Param({"16", "255"})
+    public int descriptionLength;
+
+    private MessageValidationService validationService;
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+    private DemoTransaction[] transactions;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        validationService = new MessageValidationService();
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+        transactions = BenchmarkPayloads.transactions(POOL_SIZE, descriptionLength);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public DemoTransaction validateTransaction() {
+        DemoTransaction transaction = next();
+        validationService.validateTransaction(transaction);
+        return transaction;
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<DemoTransaction>> beanValidation() {
+        return validator.validate(next());
+    }
+
+    private DemoTransaction next() {
+        index = (index + 1) & (POOL_SIZE - 1);
+        return transactions[index];
+    }
+}
@@ -0,0 +1,66 @@
+package io.github.serkutyildirim.kafka.benchmark;
+
+import io.github.serkutyildirim.kafka.model.DemoTransaction;
+import io.github.serkutyildirim.kafka.serialization.BinaryMessageCodec;
+import io.github.serkutyildirim.kafka.serialization.DemoTransactionView;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Typical consumer filter (positive amount, no marker in the description) on a fully decoded object versus the flyweight view.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class ViewAccessBenchmark {
+
+    private static final int POOL_SIZE = 1024;
+
+    @Param({"16", "255", "1024"})
+    public int descriptionLength;
+
+    private byte[][] payloads;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        DemoTransaction[] transactions = BenchmarkPayloads.transactions(POOL_SIZE, descriptionLength);
+        payloads = new byte[POOL_SIZE][];
+        for (int i = 0; i < POOL_SIZE; i++) {
+            payloads[i] = BinaryMessageCodec.encode(transactions[i]);
+        }
+    }
+
+    @Benchmark
+    public boolean decodeAndFilter() {
+        DemoTransaction transaction = (DemoTransaction) BinaryMessageCodec.decode(next());
+        return transaction.getAmount().signum() > 0
+            && !transaction.getDescription().toUpperCase().contains("INVALID");
+    }
+
+    @Benchmark
+    public boolean viewAndFilter() {
+        DemoTransactionView view = DemoTransactionView.wrap(next());
+        return view.amountSignum() > 0 && !view.descriptionContainsIgnoreCase("INVALID");
+    }
+
+    private byte[] next() {
+        index = (index + 1) & (POOL_SIZE - 1);
+        return payloads[index];
+    }
+}
@@ -1,24 +1,52 @@
 package io.github.serkutyildirim.kafka.config;
 
+import io.github.serkutyildirim.kafka.consumer.AdaptivePollSizer;
+import io.github.serkutyildirim.kafka.consumer.BatchConsumer;
+import io.github.serkutyildirim.kafka.consumer.ConfirmedAckPipeline;
+import io.github.serkutyildirim.kafka.consumer.DlqPublisher;
+import io.github.serkutyildirim.kafka.consumer.FanOutDispatcher;
+import io.github.serkutyildirim.kafka.consumer.KeyOrderedParallelListener;
+import io.github.serkutyildirim.kafka.consumer.LagAwareModeController;
+import io.github.serkutyildirim.kafka.consumer.PartitionRetryTracker;
 import io.github.serkutyildirim.kafka.model.DemoTransaction;
+import io.github.serkutyildirim.kafka.serialization.DemoTransactionView;
+import io.github.serkutyildirim.kafka.serialization.DemoTransactionViewDeserializer;
+import io.github.serkutyildirim.kafka.serialization.RawValueRetainingDeserializer;
+import io.github.serkutyildirim.kafka.serialization.SerializationFormat;
+import io.github.serkutyildirim.kafka.serialization.TypedJsonSerializer;
+import io.github.serkutyildirim.kafka.service.DlqReplayService;
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.kafka.listener.DefaultErrorHandler;
 import org.springframework.kafka.listener.ContainerProperties.AckMode;
 import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.util.backoff.FixedBackOff;
 
+import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Central Kafka consumer configuration for the learning project.
@@ -46,6 +74,13 @@ import java.util.Map;
  * <ul>
  *   <li>The wrapper prevents deserialization failures from crashing the entire listener thread immediately.</li>
  *   <li>It captures deserialization problems as structured errors so listeners and error handlers can route bad records to a DLQ.</li>
+ *   <li>Factories whose listeners dead-letter put {@link RawValueRetainingDeserializer} in between, so {@link DlqPublisher} can forward the original bytes.</li>
+ * </ul>
+ *
+ * <p><b>Value format:</b></p>
+ * <ul>
+ *   <li>{@code app.kafka.serialization.format} selects JSON (default) or BINARY delegates; {@code app.kafka.serialization.factories.<beanName>} overrides one factory.</li>
+ *   <li>The BINARY delegate still reads JSON records, so switch consumers first and producers second when migrating a topic.</li>
  * </ul>
  *
  * <p><b>When to use each consumer type:</b></p>
@@ -53,20 +88,71 @@ import java.util.Map;
  *   <li>Use the standard consumer when simplicity matters most.</li>
  *   <li>Use manual acknowledgment when a record must only advance its offset after downstream work succeeds.</li>
  *   <li>Use batch consumers for high-volume pipelines where throughput matters more than per-message latency.</li>
+ *   <li>Use the view factory for hot paths that read a few fields of binary-encoded records without materializing the object graph.</li>
  * </ul>
+ *
+ * <p><b>Key-ordered parallel mode:</b> with {@code app.kafka.consumers.parallel.enabled=true} the standard factory switches to
+ * manual async acknowledgements and fans each partition out to virtual threads, one ordered lane per key
+ * (see {@link KeyOrderedParallelListener}). Throughput then scales with the number of distinct keys instead of partitions.</p>
+ *
+ * <p><b>Catch-up mode:</b> with {@code app.kafka.consumers.catch-up.enabled=true} {@link LagAwareModeController} swaps the
+ * simple consumer from its record container to a {@code catchUpListenerContainerFactory} batch container while lag is high.</p>
+ *
+ * <p><b>Fan-out mode:</b> with {@code app.kafka.consumers.fan-out.enabled=true} the five demo listeners on {@code demo-messages}
+ * stay stopped and {@link FanOutDispatcher} fetches and decodes each record once on their behalf.</p>
  */
 @Configuration
 @EnableKafka
 @Slf4j
 public class KafkaConsumerConfig {
 
+    private static final long BATCH_RETRY_BACKOFF_MS = 500L;
+    private static final long DLQ_SEND_TIMEOUT_SECONDS = 10L;
+
     @Value("${spring.kafka.bootstrap-servers:localhost:9093}")
     private String bootstrapServers;
 
+    @Value("${app.kafka.serialization.format:JSON}")
+    private SerializationFormat defaultSerializationFormat;
+
+    @Value("${app.json.blackbird.enabled:true}")
+    private boolean blackbirdEnabled = true;
+
+    @Value("${app.kafka.consumers.parallel.enabled:false}")
+    private boolean parallelEnabled;
+
+    @Value("${app.kafka.consumers.parallel.max-in-flight:256}")
+    private int parallelMaxInFlight;
+
+    // Deliveries of a failing batch record, first attempt included, before it is dead-lettered.
+    // Lower values unblock the partition sooner; higher values ride out longer transient outages.
+    // Each retry redelivers only the tail of the batch starting at the failing record.
+    @Value("${app.kafka.consumers.batch.max-attempts:3}")
+    private int batchMaxAttempts;
+
+    @Value("${app.kafka.consumers.batch.accumulate.enabled:false}")
+    private boolean batchAccumulateEnabled;
+
+    @Value("${app.kafka.consumers.batch.accumulate.max-linger-ms:1000}")
+    private long batchAccumulateMaxLingerMs;
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private PartitionRetryTracker partitionRetryTracker;
+
+    @Autowired
+    private ConfirmedAckPipeline confirmedAckPipeline;
+
+    @Autowired
+    private AdaptivePollSizer adaptivePollSizer;
+
     @Bean
     @Primary
     public ConsumerFactory<String, DemoTransaction> consumerFactory() {
-        Map<String, Object> configs = baseConsumerConfigs("demo-consumer-group", true);
+        // Parallel mode commits from listener acknowledgements; auto-commit would run ahead of unfinished records.
+        Map<String, Object> configs = baseConsumerConfigs("demo-consumer-group", !parallelEnabled, serializationFormat("consumerFactory"));
         log.info("Creating standard consumer factory for group demo-consumer-group");
         return new DefaultKafkaConsumerFactory<>(configs);
     }
@@ -80,13 +166,25 @@ public class KafkaConsumerConfig {
         // That matches the 3-partition demo-messages topic nicely and demonstrates parallel consumption.
         // More threads than partitions would not increase throughput for a single group.
         factory.setConcurrency(3);
+        if (parallelEnabled) {
+            // Records of one partition run concurrently, one lane per key, so completions arrive out of offset order.
+            // asyncAcks holds back out-of-order acknowledgements and commits only the highest contiguous completed offset.
+            // The container pauses after each poll until that poll is fully acknowledged, which bounds redelivery after a crash.
+            factory.getContainerProperties().setAckMode(AckMode.MANUAL);
+            factory.getContainerProperties().setAsyncAcks(true);
+            factory.setContainerCustomizer(container -> KeyOrderedParallelListener.install(container, parallelMaxInFlight));
+            log.info("Creating standard listener container factory with concurrency=3 and key-ordered parallel processing (maxInFlight={})",
+                    parallelMaxInFlight);
+            return factory;
+        }
         log.info("Creating standard listener container factory with concurrency=3 and auto-commit enabled");
         return factory;
     }
 
     @Bean
     public ConsumerFactory<String, DemoTransaction> manualAckConsumerFactory() {
-        Map<String, Object> configs = baseConsumerConfigs("manual-ack-group", false);
+        Map<String, Object> configs = baseConsumerConfigs("manual-ack-group", false, serializationFormat("manualAckConsumerFactory"));
+        retainRawValues(configs);
         log.info("Creating manual-ack consumer factory for group manual-ack-group");
         return new DefaultKafkaConsumerFactory<>(configs);
     }
@@ -99,6 +197,10 @@ public class KafkaConsumerConfig {
         // That gives an at-least-once delivery guarantee because failed records are re-read until acknowledged.
         // The trade-off is that consumers must be idempotent, otherwise retries can apply the same effect twice.
         factory.getContainerProperties().setAckMode(AckMode.MANUAL);
+        // Retry counters live in per-partition tables that follow the assignment.
+        // Dropping them on revocation keeps the heap flat; the new owner of a partition simply starts counting again.
+        // Acknowledgements still waiting for a DLQ or retry send are dropped too, so a late send cannot commit a lost partition.
+        factory.getContainerProperties().setConsumerRebalanceListener(inOrder(confirmedAckPipeline, partitionRetryTracker));
         // Concurrency 3 lines up with topics that have up to 3 partitions and shows parallel manual-ack processing.
         factory.setConcurrency(3);
         log.info("Creating manual-ack listener container factory with AckMode.MANUAL and concurrency=3");
@@ -107,7 +209,8 @@ public class KafkaConsumerConfig {
 
     @Bean
     public ConsumerFactory<String, DemoTransaction> batchConsumerFactory() {
-        Map<String, Object> configs = baseConsumerConfigs("batch-consumer-group", false);
+        Map<String, Object> configs = baseConsumerConfigs("batch-consumer-group", false, serializationFormat("batchConsumerFactory"));
+        retainRawValues(configs);
         // max.poll.records limits how many records one poll returns.
         // 100 is a modest batch size that improves throughput without creating very large in-memory batches.
         // Larger batches reduce overhead but also increase per-batch failure impact and end-to-end latency.
@@ -117,23 +220,147 @@ public class KafkaConsumerConfig {
     }
 
     @Bean(name = "batchListenerContainerFactory")
-    public ConcurrentKafkaListenerContainerFactory<String, DemoTransaction> batchListenerContainerFactory() {
+    public ConcurrentKafkaListenerContainerFactory<String, DemoTransaction> batchListenerContainerFactory(
+            DlqPublisher dlqPublisher,
+            @Lazy BatchConsumer batchConsumer) {
         ConcurrentKafkaListenerContainerFactory<String, DemoTransaction> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(batchConsumerFactory());
         // Batch listeners reduce listener invocation overhead and can improve throughput for high-volume topics.
         // The main trade-off is higher latency because records may wait to accumulate into a batch.
         // Batch failures are also harder because one bad record can affect how the entire batch is retried.
-        // AckMode.BATCH commits offsets only after the listener method returns successfully,
-        // which gives this demo the requested all-or-nothing retry behavior without manual acknowledgments.
+        // AckMode.BATCH commits offsets only after the listener method returns successfully.
+        // When the listener throws BatchListenerFailedException, DefaultErrorHandler commits the records before the failing index
+        // and redelivers only the tail; after maxAttempts the failing record goes to the DLQ and consumption continues behind it.
         factory.setBatchListener(true);
         factory.getContainerProperties().setAckMode(AckMode.BATCH);
+        // The recoverer forwards the retained raw bytes like the listeners do, instead of re-encoding through a typed template.
+        // It waits for the broker: if the DLQ write fails, the recoverer throws and the record is retried instead of committed.
+        factory.setCommonErrorHandler(new DefaultErrorHandler(
+            (record, ex) -> publishToDlqOrThrow(dlqPublisher, record, ex),
+            new FixedBackOff(BATCH_RETRY_BACKOFF_MS, batchMaxAttempts - 1L)));
+        // The poll sizer starts from this factory's max.poll.records and may resize it at runtime (off by default).
+        factory.setContainerCustomizer(container ->
+            adaptivePollSizer.track(container.getListenerId(), batchConsumerFactory().getConfigurationProperties()));
+        // Drops (and rewinds) records buffered across polls when partitions move; a no-op without accumulation.
+        factory.getContainerProperties().setConsumerRebalanceListener(batchConsumer);
+        if (batchAccumulateEnabled) {
+            // The listener only buffers, so the container must not commit when it returns; BatchConsumer commits after each flush.
+            // Idle events fire on the consumer thread once nothing arrived for the linger time, which flushes a quiet buffer.
+            factory.getContainerProperties().setAckMode(AckMode.MANUAL);
+            factory.getContainerProperties().setIdleEventInterval(batchAccumulateMaxLingerMs);
+        }
         // Concurrency 2 is intentional here: fewer concurrent batch workers can reduce resource spikes while still improving throughput.
         factory.setConcurrency(2);
-        log.info("Creating batch listener container factory with batch mode enabled, AckMode.BATCH, autoCommit=false and concurrency=2");
+        log.info("Creating batch listener container factory with batch mode enabled, AckMode.{}, autoCommit=false, concurrency=2, maxAttempts={} before DLQ and crossPollAccumulation={}",
+            factory.getContainerProperties().getAckMode(),
+            batchMaxAttempts,
+            batchAccumulateEnabled);
         return factory;
     }
 
-    private Map<String, Object> baseConsumerConfigs(String groupId, boolean enableAutoCommit) {
+    @Bean
+    public ConsumerFactory<String, DemoTransaction> catchUpConsumerFactory() {
+        Map<String, Object> configs = baseConsumerConfigs("demo-consumer-group", false, serializationFormat("catchUpConsumerFactory"));
+        // Catch-up polls are five times the batch factory's: the point is to drain a backlog, not to bound latency.
+        configs.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 500);
+        log.info("Creating catch-up consumer factory with maxPollRecords=500 and autoCommit=false");
+        return new DefaultKafkaConsumerFactory<>(configs);
+    }
+
+    @Bean(name = "catchUpListenerContainerFactory")
+    public ConcurrentKafkaListenerContainerFactory<String, DemoTransaction> catchUpListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, DemoTransaction> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(catchUpConsumerFactory());
+        // Batch twin of kafkaListenerContainerFactory for the same group; LagAwareModeController runs one of the two at a time.
+        // Same concurrency as the record factory, so a switch keeps one consumer per demo-messages partition.
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(AckMode.BATCH);
+        factory.setConcurrency(3);
+        log.info("Creating catch-up listener container factory with batch mode enabled, AckMode.BATCH and concurrency=3");
+        return factory;
+    }
+
+    @Bean
+    public ConsumerFactory<String, DemoTransaction> fanOutConsumerFactory() {
+        Map<String, Object> configs = baseConsumerConfigs(FanOutDispatcher.GROUP_ID, false, serializationFormat("fanOutConsumerFactory"));
+        retainRawValues(configs);
+        // Same poll size as the batch factory, because the batch handler receives the fan-out poll directly.
+        configs.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 100);
+        log.info("Creating fan-out consumer factory for group {} with maxPollRecords=100 and autoCommit=false", FanOutDispatcher.GROUP_ID);
+        return new DefaultKafkaConsumerFactory<>(configs);
+    }
+
+    @Bean(name = "fanOutListenerContainerFactory")
+    public ConcurrentKafkaListenerContainerFactory<String, DemoTransaction> fanOutListenerContainerFactory(@Lazy FanOutDispatcher fanOutDispatcher) {
+        ConcurrentKafkaListenerContainerFactory<String, DemoTransaction> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(fanOutConsumerFactory());
+        // One fetch and one deserialization per record feed all five logical groups instead of five separate consumers.
+        // The dispatcher commits itself (lowest handler position, per-handler positions in the commit metadata),
+        // so the container runs in MANUAL mode and is never asked to acknowledge anything.
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(AckMode.MANUAL);
+        // Lazy proxy: the dispatcher's own @KafkaListener resolves this factory while the dispatcher is still being created.
+        factory.getContainerProperties().setConsumerRebalanceListener(fanOutDispatcher);
+        factory.setConcurrency(3);
+        log.info("Creating fan-out listener container factory with batch mode, dispatcher-managed commits and concurrency=3");
+        return factory;
+    }
+
+    @Bean
+    public ConsumerFactory<String, DemoTransactionView> viewConsumerFactory() {
+        Map<String, Object> configs = baseConsumerConfigs("view-consumer-group", true, SerializationFormat.BINARY);
+        // The view deserializer wraps binary record bytes in a flyweight instead of decoding every field up front.
+        // Listeners pay only for the fields they read, which removes most per-record allocation on the consume path.
+        // JSON records are still accepted but are converted on the slow path, so pair this factory with BINARY producers.
+        configs.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, DemoTransactionViewDeserializer.class);
+        log.info("Creating view consumer factory for group view-consumer-group with DemoTransactionViewDeserializer");
+        return new DefaultKafkaConsumerFactory<>(configs);
+    }
+
+    @Bean(name = "viewListenerContainerFactory")
+    public ConcurrentKafkaListenerContainerFactory<String, DemoTransactionView> viewListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, DemoTransactionView> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(viewConsumerFactory());
+        // Same concurrency as the standard factory so the two are directly comparable on the 3-partition demo topic.
+        factory.setConcurrency(3);
+        log.info("Creating view listener container factory with concurrency=3 and auto-commit enabled");
+        return factory;
+    }
+
+    @Bean
+    public ConsumerFactory<byte[], byte[]> dlqReplayConsumerFactory() {
+        Map<String, Object> configs = new LinkedHashMap<>();
+        configs.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+
+        // The replay readers assign partitions manually, so this group never rebalances; it only stores checkpoints.
+        // Committed offsets of dlq-replay-group are where a stopped or crashed replay resumes.
+        // Reusing a listener's group here would make the replay and that listener overwrite each other's positions.
+        configs.put(ConsumerConfig.GROUP_ID_CONFIG, DlqReplayService.REPLAY_GROUP_ID);
+
+        // Replay forwards dead letters as they are stored, so keys and values stay raw bytes end to end.
+        // Nothing is decoded unless a messageId filter needs the payload, which keeps a large replay cheap.
+        // A typed deserializer here would also fail on exactly the malformed records the DLQ exists to keep.
+        configs.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+        configs.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+
+        // Readers commit a checkpoint after the broker confirmed each poll's replayed records.
+        // Auto-commit could checkpoint records whose replay was still in flight and lose them on a crash.
+        // The replay rate, not the poll size, bounds the load on the original topics.
+        configs.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        configs.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        configs.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 500);
+        log.info("Creating DLQ replay consumer factory for group {} with byte-array deserializers and maxPollRecords=500", DlqReplayService.REPLAY_GROUP_ID);
+        return new DefaultKafkaConsumerFactory<>(configs);
+    }
+
+    private SerializationFormat serializationFormat(String factoryName) {
+        SerializationFormat format = environment.getProperty(
+                "app.kafka.serialization.factories." + factoryName, SerializationFormat.class, defaultSerializationFormat);
+        log.debug("event=consumer_serialization_format factory={} format={}", factoryName, format);
+        return format;
+    }
+
+    private Map<String, Object> baseConsumerConfigs(String groupId, boolean enableAutoCommit, SerializationFormat format) {
         Map<String, Object> configs = new LinkedHashMap<>();
 
         // Bootstrap servers tell consumers where to find the Kafka cluster.
@@ -157,7 +384,12 @@ public class KafkaConsumerConfig {
 
         // The delegate deserializer does the actual JSON-to-object conversion after the wrapper intercepts failures.
         // JsonDeserializer keeps payloads readable for a learning project, though schema-based formats can be stricter in production.
-        configs.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, JsonDeserializer.class);
+        // The BINARY delegate decodes the compact format and falls back to JSON, so mixed topics keep working mid-migration.
+        configs.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, format.deserializerClass());
+
+        // Kafka instantiates the delegate itself, so the Blackbird switch reaches TYPED_JSON only through the client config.
+        // Other deserializers ignore the unknown key.
+        configs.put(TypedJsonSerializer.BLACKBIRD_ENABLED, blackbirdEnabled);
 
         // Trusted packages control which Java types can be deserialized from Kafka payload metadata.
         // We use * here for convenience in a sandbox project, but production code should trust only the application's packages.
@@ -192,9 +424,58 @@ public class KafkaConsumerConfig {
         return configs;
     }
 
+    private void publishToDlqOrThrow(DlqPublisher dlqPublisher, ConsumerRecord<?, ?> record, Exception ex) {
+        try {
+            dlqPublisher.publish(record, "batch-consumer-group", batchMaxAttempts, ex).get(DLQ_SEND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while dead-lettering offset " + record.offset(), interrupted);
+        } catch (ExecutionException | TimeoutException failed) {
+            throw new IllegalStateException("Dead-letter send failed for " + record.topic() + "-" + record.partition()
+                    + "@" + record.offset() + "; the record will be retried", failed);
+        }
+    }
+
+    private void retainRawValues(Map<String, Object> configs) {
+        // Factories whose listeners dead-letter keep each record's undecoded value bytes in a process-local header.
+        // DlqPublisher forwards those bytes unchanged, so a poison record is never encoded a second time or lost when decoding failed.
+        // The header holds the array the Kafka client already allocated per record; nothing is copied.
+        configs.put(RawValueRetainingDeserializer.DELEGATE_CLASS, configs.get(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS));
+        configs.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, RawValueRetainingDeserializer.class);
+    }
+
+    private static ConsumerAwareRebalanceListener inOrder(ConsumerAwareRebalanceListener first, ConsumerAwareRebalanceListener second) {
+        // A container takes a single rebalance listener; this one forwards every callback to both, first to last.
+        return new ConsumerAwareRebalanceListener() {
+            @Override
+            public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+                first.onPartitionsRevokedBeforeCommit(consumer, partitions);
+                second.onPartitionsRevokedBeforeCommit(consumer, partitions);
+            }
+
+            @Override
+            public void onPartitionsRevokedAfterCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+                first.onPartitionsRevokedAfterCommit(consumer, partitions);
+                second.onPartitionsRevokedAfterCommit(consumer, partitions);
+            }
+
+            @Override
+            public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+                first.onPartitionsLost(consumer, partitions);
+                second.onPartitionsLost(consumer, partitions);
+            }
+
+            @Override
+            public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+                first.onPartitionsAssigned(consumer, partitions);
+                second.onPartitionsAssigned(consumer, partitions);
+            }
+        };
+    }
+
     @PostConstruct
     public void logConsumerConfigurationSummary() {
-        log.info("Kafka consumer summary -> bootstrapServers={}, defaultGroup=demo-consumer-group, autoOffsetReset=earliest, sessionTimeoutMs=10000, heartbeatIntervalMs=3000", bootstrapServers);
+        log.info("Kafka consumer summary -> bootstrapServers={}, defaultGroup=demo-consumer-group, autoOffsetReset=earliest, sessionTimeoutMs=10000, heartbeatIntervalMs=3000, valueFormat={}", bootstrapServers, defaultSerializationFormat);
         log.debug("Additional consumer modes -> manualAckGroup=manual-ack-group (autoCommit=false, AckMode.MANUAL), batchGroup=batch-consumer-group (autoCommit=false, AckMode.BATCH, maxPollRecords=100, concurrency=2)");
     }
 }
@@ -1,20 +1,24 @@
 package io.github.serkutyildirim.kafka.config;
 
 import io.github.serkutyildirim.kafka.model.DemoTransaction;
+import io.github.serkutyildirim.kafka.serialization.SerializationFormat;
+import io.github.serkutyildirim.kafka.serialization.TypedJsonSerializer;
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
-import org.springframework.kafka.support.serializer.JsonSerializer;
 
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -47,10 +51,17 @@ import java.util.UUID;
  *   <li>Compression reduces bandwidth and broker disk usage, but it adds some CPU cost on producer and broker sides.</li>
  * </ul>
  *
+ * <p><b>Value format:</b></p>
+ * <ul>
+ *   <li>{@code app.kafka.serialization.format} selects JSON (default) or the compact BINARY format for every producer factory.</li>
+ *   <li>{@code app.kafka.serialization.factories.<beanName>} overrides the format for a single factory, which allows gradual migrations.</li>
+ * </ul>
+ *
  * <p><b>When to use each producer type:</b></p>
  * <ul>
  *   <li>Use the standard producer for most demo events, logs, notifications, and fire-and-forget learning scenarios.</li>
  *   <li>Use the transactional producer when a group of Kafka writes must commit or roll back together, especially in exactly-once pipelines.</li>
+ *   <li>The byte-array DLQ producer forwards dead letters exactly as they were read, without encoding them a second time.</li>
  * </ul>
  */
 @Configuration
@@ -64,9 +75,18 @@ public class KafkaProducerConfig {
     @Value("${app.kafka.transaction-id-prefix:kafka-demo-tx-}")
     private String transactionIdPrefix;
 
+    @Value("${app.kafka.serialization.format:JSON}")
+    private SerializationFormat defaultSerializationFormat;
+
+    @Value("${app.json.blackbird.enabled:true}")
+    private boolean blackbirdEnabled = true;
+
+    @Autowired
+    private Environment environment;
+
     @Bean(name = "demoTransactionProducerFactory")
     public ProducerFactory<String, DemoTransaction> demoTransactionProducerFactory() {
-        Map<String, Object> configs = standardProducerConfigs();
+        Map<String, Object> configs = standardProducerConfigs(serializationFormat("demoTransactionProducerFactory"));
         log.info("Creating DemoTransaction producer factory for DLQ and typed consumer flows");
         return new DefaultKafkaProducerFactory<>(configs);
     }
@@ -80,7 +100,7 @@ public class KafkaProducerConfig {
     @Bean
     @Primary
     public ProducerFactory<String, DemoTransaction> producerFactory() {
-        Map<String, Object> configs = standardProducerConfigs();
+        Map<String, Object> configs = standardProducerConfigs(serializationFormat("producerFactory"));
         log.info("Creating standard Kafka producer factory for bootstrap servers {}", bootstrapServers);
         return new DefaultKafkaProducerFactory<>(configs);
     }
@@ -94,7 +114,7 @@ public class KafkaProducerConfig {
 
     @Bean
     public ProducerFactory<String, DemoTransaction> transactionalProducerFactory() {
-        Map<String, Object> configs = transactionalProducerConfigs();
+        Map<String, Object> configs = transactionalProducerConfigs(serializationFormat("transactionalProducerFactory"));
         DefaultKafkaProducerFactory<String, DemoTransaction> producerFactory = new DefaultKafkaProducerFactory<>(configs);
         producerFactory.setTransactionIdPrefix(transactionIdPrefix);
         log.info("Creating transactional Kafka producer factory with transactionIdPrefix={}", transactionIdPrefix);
@@ -114,7 +134,40 @@ public class KafkaProducerConfig {
         return template;
     }
 
-    private Map<String, Object> standardProducerConfigs() {
+    @Bean
+    public ProducerFactory<byte[], byte[]> dlqProducerFactory() {
+        Map<String, Object> configs = standardProducerConfigs(defaultSerializationFormat);
+
+        // Dead letters are forwarded as the bytes the consumer read, so both serializers are plain pass-throughs.
+        // Skipping the typed serializer means a poison record costs a copy into the batch buffer instead of another encode.
+        // It also lets records that never decoded reach the DLQ, which a typed serializer could not write at all.
+        configs.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        configs.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+
+        // DLQ traffic arrives in bursts (a bad deploy, a poison batch), and nobody waits on it with a latency budget.
+        // A longer linger and a larger batch fold such a burst into a few produce requests per partition.
+        // The cost is up to 50 ms before a dead letter is durable, which listeners that wait for the send must tolerate.
+        configs.put(ProducerConfig.LINGER_MS_CONFIG, 50);
+        configs.put(ProducerConfig.BATCH_SIZE_CONFIG, 256 * 1024);
+
+        log.info("Creating byte-array DLQ producer factory with lingerMs=50 and batchSize=262144");
+        return new DefaultKafkaProducerFactory<>(configs);
+    }
+
+    @Bean(name = "dlqKafkaTemplate")
+    public KafkaTemplate<byte[], byte[]> dlqKafkaTemplate() {
+        log.info("Creating byte-array KafkaTemplate bean for dead letters");
+        return new KafkaTemplate<>(dlqProducerFactory());
+    }
+
+    private SerializationFormat serializationFormat(String factoryName) {
+        SerializationFormat format = environment.getProperty(
+                "app.kafka.serialization.factories." + factoryName, SerializationFormat.class, defaultSerializationFormat);
+        log.debug("event=producer_serialization_format factory={} format={}", factoryName, format);
+        return format;
+    }
+
+    private Map<String, Object> standardProducerConfigs(SerializationFormat format) {
         Map<String, Object> configs = new LinkedHashMap<>();
 
         // Kafka bootstrap servers tell the producer where the cluster entry point is.
@@ -129,8 +182,12 @@ public class KafkaProducerConfig {
 
         // JsonSerializer converts Java objects into JSON so the learning project can send rich message payloads.
         // JSON is easy to inspect during learning, though it is larger and slower than compact binary formats such as Avro or Protobuf.
-        // This trade-off is worth it here because readability matters more than wire efficiency.
-        configs.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        // BINARY swaps in a versioned fixed-layout codec for hot paths; consumers must use the binary-aware deserializer first.
+        configs.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, format.serializerClass());
+
+        // Kafka instantiates the serializer itself, so the Blackbird switch reaches TYPED_JSON only through the client config.
+        // Other serializers ignore the unknown key.
+        configs.put(TypedJsonSerializer.BLACKBIRD_ENABLED, blackbirdEnabled);
 
         // acks=all means the leader waits for every in-sync replica before acknowledging the write.
         // We choose the safest durability mode to demonstrate reliable producer behavior.
@@ -165,8 +222,8 @@ public class KafkaProducerConfig {
         return configs;
     }
 
-    private Map<String, Object> transactionalProducerConfigs() {
-        Map<String, Object> configs = new LinkedHashMap<>(standardProducerConfigs());
+    private Map<String, Object> transactionalProducerConfigs(SerializationFormat format) {
+        Map<String, Object> configs = new LinkedHashMap<>(standardProducerConfigs(format));
 
         // A transactional.id uniquely identifies the transactional producer instance to Kafka.
         // We derive it from a stable prefix plus a UUID so multiple application instances do not fence each other accidentally.
@@ -183,7 +240,7 @@ public class KafkaProducerConfig {
 
     @PostConstruct
     public void logProducerConfigurationSummary() {
-        log.info("Kafka producer summary -> bootstrapServers={}, acks=all, retries=3, idempotence=true, lingerMs=10, compression=snappy, maxInFlight=5", bootstrapServers);
+        log.info("Kafka producer summary -> bootstrapServers={}, acks=all, retries=3, idempotence=true, lingerMs=10, compression=snappy, maxInFlight=5, valueFormat={}", bootstrapServers, defaultSerializationFormat);
         log.debug("Transactional producer summary -> transactionIdPrefix={}, exactly-once capable with higher latency and lower throughput than the standard producer", transactionIdPrefix);
     }
 }
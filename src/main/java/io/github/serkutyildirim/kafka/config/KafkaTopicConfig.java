@@ -52,6 +52,13 @@ public class KafkaTopicConfig {
     public static final String DEMO_PRIORITY_TOPIC = "demo-priority";
     public static final String DEMO_DLQ_TOPIC = "demo-dlq";
 
+    /**
+     * Delay-tiered retry topics used by the non-blocking retry pipeline in {@code ErrorHandlingConsumer}.
+     * The suffix is the delay every record in the topic waits before it is reprocessed.
+     */
+    public static final String DEMO_RETRY_250MS_TOPIC = "demo-messages-retry-250ms";
+    public static final String DEMO_RETRY_500MS_TOPIC = "demo-messages-retry-500ms";
+
     /**
      * Legacy constant kept for other learning examples that still reference a transaction-specific topic name.
      * Topic creation for this exercise focuses on the four topics requested above.
@@ -110,13 +117,36 @@ public class KafkaTopicConfig {
                 .build();
     }
 
+    @Bean
+    public NewTopic demoRetry250msTopic() {
+        return retryTopic(DEMO_RETRY_250MS_TOPIC);
+    }
+
+    @Bean
+    public NewTopic demoRetry500msTopic() {
+        return retryTopic(DEMO_RETRY_500MS_TOPIC);
+    }
+
+    private NewTopic retryTopic(String name) {
+        log.info("Creating topic bean for {}", name);
+        return TopicBuilder.name(name)
+                // Every record in a tier waits the same delay, so records become due in offset order.
+                // That lets the retry container pause the whole partition until the head record is due without starving later ones.
+                // One partition is plenty because only failing records ever land here.
+                .partitions(1)
+                .replicas(1)
+                .build();
+    }
+
     @PostConstruct
     public void logTopicSummary() {
-        log.info("Kafka topic summary -> messages: {} (3 partitions), notifications: {} (2 partitions), priority: {} (1 partition), dlq: {} (1 partition)",
+        log.info("Kafka topic summary -> messages: {} (3 partitions), notifications: {} (2 partitions), priority: {} (1 partition), dlq: {} (1 partition), retry tiers: {}, {} (1 partition each)",
                 DEMO_MESSAGES_TOPIC,
                 DEMO_NOTIFICATIONS_TOPIC,
                 DEMO_PRIORITY_TOPIC,
-                DEMO_DLQ_TOPIC);
+                DEMO_DLQ_TOPIC,
+                DEMO_RETRY_250MS_TOPIC,
+                DEMO_RETRY_500MS_TOPIC);
         log.debug("Local development uses replication factor 1 for all demo topics; production environments usually increase this to 3.");
     }
 }
@@ -0,0 +1,247 @@
+package io.github.serkutyildirim.kafka.consumer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Feedback controller that sizes {@code max.poll.records} and {@code fetch.min.bytes} of a listener container from the
+ * processing time it actually observes.
+ *
+ * <p><b>Why:</b> a fixed poll size is either too small (a round trip per handful of fast records) or too large (slow records
+ * push one poll's processing past {@code max.poll.interval.ms}, and the consumer is kicked out of the group). Listeners report
+ * every processed batch to {@link #observe}; the controller keeps an EWMA of the time and bytes per record and aims for a poll
+ * that uses {@code headroom} of the poll interval:</p>
+ * <pre>
+ *   max.poll.records = clamp(headroom * max.poll.interval.ms / timePerRecord, min-records, max-records)
+ *   fetch.min.bytes  = clamp(max.poll.records * bytesPerRecord / 4, 1, 1 MiB)
+ * </pre>
+ *
+ * <p><b>How it is applied:</b> the Kafka client reads both settings only when a consumer is created, so an adjustment is
+ * written to the container's consumer property overrides and the container is restarted, which costs one rebalance.
+ * Adjustments therefore need a change of at least {@code min-change} and at least {@code min-interval-ms} since the previous
+ * one. {@code fetch.max.wait.ms} keeps its default, which bounds the latency a larger {@code fetch.min.bytes} can add.</p>
+ *
+ * <p><b>Metrics:</b> {@code kafka.consumer.poll.max.records}, {@code kafka.consumer.poll.record.time} (EWMA, ms),
+ * {@code kafka.consumer.poll.interval.headroom} (share of {@code max.poll.interval.ms} a full poll leaves unused), and the
+ * {@code kafka.consumer.poll.adjustments} counter, all tagged with {@code listener}.</p>
+ */
+@Component
+@Slf4j
+public class AdaptivePollSizer {
+
+    private static final double EWMA_WEIGHT = 0.2;
+    private static final int WARM_UP_OBSERVATIONS = 5;
+    private static final int DEFAULT_MAX_POLL_RECORDS = 500;
+    private static final long DEFAULT_MAX_POLL_INTERVAL_MS = 300_000L;
+    private static final long MAX_FETCH_MIN_BYTES = 1024L * 1024L;
+
+    @Value("${app.kafka.consumers.poll-sizing.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.kafka.consumers.poll-sizing.headroom:0.5}")
+    private double headroom = 0.5;
+
+    @Value("${app.kafka.consumers.poll-sizing.min-records:10}")
+    private int minRecords = 10;
+
+    @Value("${app.kafka.consumers.poll-sizing.max-records:1000}")
+    private int maxRecords = 1000;
+
+    @Value("${app.kafka.consumers.poll-sizing.min-change:0.25}")
+    private double minChange = 0.25;
+
+    @Value("${app.kafka.consumers.poll-sizing.min-interval-ms:60000}")
+    private long minIntervalMs = 60_000L;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry registry;
+
+    private final Map<String, Sizing> sizings = new ConcurrentHashMap<>();
+    // Restarts block until the consumers have left the group, so they never run on a consumer thread.
+    private final ExecutorService restarter =
+            Executors.newSingleThreadExecutor(Thread.ofPlatform().name("poll-sizer-restart").daemon().factory());
+
+    /**
+     * Reports one processed batch. Cheap enough to call on every poll from the consumer thread.
+     */
+    public void observe(String listenerId, List<? extends ConsumerRecord<?, ?>> records, long elapsedNanos) {
+        if (records.isEmpty()) {
+            return;
+        }
+        long bytes = 0;
+        for (ConsumerRecord<?, ?> record : records) {
+            bytes += Math.max(0, record.serializedKeySize()) + Math.max(0, record.serializedValueSize());
+        }
+
+        Sizing sizing = sizings.computeIfAbsent(listenerId, id -> register(id, Map.of()));
+        Integer target;
+        synchronized (sizing) {
+            sizing.observe((double) elapsedNanos / records.size(), (double) bytes / records.size());
+            target = enabled ? sizing.adjustment(System.nanoTime()) : null;
+        }
+        if (target != null) {
+            restarter.execute(() -> apply(listenerId, sizing, target));
+        }
+    }
+
+    /**
+     * Registers a container with the consumer configs of its factory, so the controller starts from the real poll size.
+     * Containers that are never registered start from the Kafka client defaults.
+     */
+    public void track(String listenerId, Map<String, Object> consumerConfigs) {
+        sizings.computeIfAbsent(listenerId, id -> register(id, consumerConfigs));
+    }
+
+    /**
+     * @return the poll size the controller would choose for the observed processing time, ignoring the change thresholds
+     */
+    int targetRecords(String listenerId) {
+        Sizing sizing = sizings.get(listenerId);
+        return sizing == null ? -1 : sizing.target();
+    }
+
+    int currentRecords(String listenerId) {
+        Sizing sizing = sizings.get(listenerId);
+        return sizing == null ? -1 : sizing.current;
+    }
+
+    @PreDestroy
+    public void stop() {
+        restarter.shutdownNow();
+    }
+
+    private Sizing register(String listenerId, Map<String, Object> consumerConfigs) {
+        MessageListenerContainer container = registry.getListenerContainer(listenerId);
+        Sizing sizing = new Sizing(
+            (int) consumerSetting(container, consumerConfigs, ConsumerConfig.MAX_POLL_RECORDS_CONFIG, DEFAULT_MAX_POLL_RECORDS),
+            consumerSetting(container, consumerConfigs, ConsumerConfig.MAX_POLL_INTERVAL_MS_CONFIG, DEFAULT_MAX_POLL_INTERVAL_MS));
+
+        Gauge.builder("kafka.consumer.poll.max.records", sizing, value -> value.current)
+            .description("max.poll.records currently applied to the listener container")
+            .tag("listener", listenerId)
+            .register(Metrics.globalRegistry);
+        Gauge.builder("kafka.consumer.poll.record.time", sizing, value -> value.nanosPerRecord / 1e6)
+            .description("EWMA of listener processing time per record in milliseconds")
+            .tag("listener", listenerId)
+            .register(Metrics.globalRegistry);
+        Gauge.builder("kafka.consumer.poll.interval.headroom", sizing, Sizing::headroom)
+            .description("Share of max.poll.interval.ms a full poll leaves unused at the observed processing time")
+            .tag("listener", listenerId)
+            .register(Metrics.globalRegistry);
+        return sizing;
+    }
+
+    private void apply(String listenerId, Sizing sizing, int target) {
+        MessageListenerContainer container = registry.getListenerContainer(listenerId);
+        if (container == null || !container.isRunning()) {
+            return;
+        }
+        int previous = sizing.current;
+        long fetchMinBytes = Math.clamp((long) (target * sizing.bytesPerRecord / 4), 1L, MAX_FETCH_MIN_BYTES);
+        // A copy, because containers of one factory share the factory's override Properties instance.
+        Properties overrides = new Properties();
+        overrides.putAll(container.getContainerProperties().getKafkaConsumerProperties());
+        overrides.setProperty(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(target));
+        overrides.setProperty(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, String.valueOf(fetchMinBytes));
+        container.getContainerProperties().setKafkaConsumerProperties(overrides);
+
+        // New consumers pick up the overrides; committed offsets carry over, so the restart only costs a rebalance.
+        container.stop();
+        container.start();
+        sizing.current = target;
+
+        Counter.builder("kafka.consumer.poll.adjustments")
+            .description("Runtime changes of max.poll.records and fetch.min.bytes")
+            .tag("listener", listenerId)
+            .tag("direction", target > previous ? "up" : "down")
+            .register(Metrics.globalRegistry)
+            .increment();
+        log.info("event=poll_size_adjusted listenerId={} maxPollRecords={} previousMaxPollRecords={} fetchMinBytes={} msPerRecord={} headroom={}",
+            listenerId,
+            target,
+            previous,
+            fetchMinBytes,
+            String.format(java.util.Locale.US, "%.3f", sizing.nanosPerRecord / 1e6),
+            String.format(java.util.Locale.US, "%.2f", sizing.headroom()));
+    }
+
+    private static long consumerSetting(MessageListenerContainer container, Map<String, Object> consumerConfigs, String name, long fallback) {
+        // Container overrides win over the consumer factory, the same precedence the container uses itself.
+        String override = container == null ? null : container.getContainerProperties().getKafkaConsumerProperties().getProperty(name);
+        if (override != null) {
+            return Long.parseLong(override);
+        }
+        Object configured = consumerConfigs.get(name);
+        if (configured != null) {
+            return Long.parseLong(configured.toString());
+        }
+        return fallback;
+    }
+
+    private final class Sizing {
+
+        private final long maxPollIntervalMs;
+        private volatile int current;
+        private volatile double nanosPerRecord;
+        private volatile double bytesPerRecord;
+        private int observations;
+        private long lastAdjustedNanos;
+
+        private Sizing(int current, long maxPollIntervalMs) {
+            this.current = current;
+            this.maxPollIntervalMs = maxPollIntervalMs;
+        }
+
+        private void observe(double nanos, double bytes) {
+            nanosPerRecord = observations == 0 ? nanos : nanosPerRecord + EWMA_WEIGHT * (nanos - nanosPerRecord);
+            bytesPerRecord = observations == 0 ? bytes : bytesPerRecord + EWMA_WEIGHT * (bytes - bytesPerRecord);
+            observations++;
+        }
+
+        private int target() {
+            double budgetNanos = headroom * maxPollIntervalMs * 1_000_000.0;
+            long target = (long) (budgetNanos / Math.max(nanosPerRecord, 1.0));
+            return (int) Math.clamp(target, minRecords, maxRecords);
+        }
+
+        /**
+         * @return the new poll size if it is worth a restart now, otherwise {@code null}
+         */
+        private Integer adjustment(long nowNanos) {
+            if (observations < WARM_UP_OBSERVATIONS) {
+                return null;
+            }
+            if (lastAdjustedNanos != 0 && nowNanos - lastAdjustedNanos < minIntervalMs * 1_000_000L) {
+                return null;
+            }
+            int target = target();
+            if (Math.abs(target - current) < current * minChange) {
+                return null;
+            }
+            lastAdjustedNanos = nowNanos;
+            return target;
+        }
+
+        private double headroom() {
+            double pollNanos = nanosPerRecord * current;
+            return 1.0 - pollNanos / (maxPollIntervalMs * 1_000_000.0);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package io.github.serkutyildirim.kafka.consumer;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records gathered across polls until a target size or a maximum linger time is reached.
+ *
+ * <p>One accumulator belongs to one consumer. Buffered records are already past the consumer's fetch position but not
+ * committed yet, so whoever owns the accumulator must either flush and commit them, or seek back to {@link #firstOffsets()}
+ * before dropping it.</p>
+ *
+ * <p>Not thread-safe. It is only touched from its consumer's thread: the listener, the container idle event, and the
+ * rebalance callbacks all run there.</p>
+ */
+final class BatchAccumulator<K, V> {
+
+    private final int targetSize;
+    private final long maxLingerNanos;
+    private final List<ConsumerRecord<K, V>> buffer;
+    private long firstAddedNanos;
+
+    BatchAccumulator(int targetSize, Duration maxLinger) {
+        if (targetSize <= 0) {
+            throw new IllegalArgumentException("targetSize must be positive");
+        }
+        this.targetSize = targetSize;
+        this.maxLingerNanos = maxLinger.toNanos();
+        this.buffer = new ArrayList<>(targetSize);
+    }
+
+    void add(List<ConsumerRecord<K, V>> records, long nowNanos) {
+        if (buffer.isEmpty()) {
+            firstAddedNanos = nowNanos;
+        }
+        buffer.addAll(records);
+    }
+
+    /**
+     * @return whether the buffer holds at least {@code targetSize} records, or its oldest record waited {@code maxLinger}
+     */
+    boolean isDue(long nowNanos) {
+        return !buffer.isEmpty() && (buffer.size() >= targetSize || nowNanos - firstAddedNanos >= maxLingerNanos);
+    }
+
+    /**
+     * Hands out every buffered record in arrival order and empties the buffer.
+     */
+    List<ConsumerRecord<K, V>> drain() {
+        List<ConsumerRecord<K, V>> drained = new ArrayList<>(buffer);
+        buffer.clear();
+        return drained;
+    }
+
+    /**
+     * @return the lowest buffered offset of each partition, i.e. where to seek so nothing buffered is lost
+     */
+    Map<TopicPartition, Long> firstOffsets() {
+        Map<TopicPartition, Long> first = new LinkedHashMap<>();
+        for (ConsumerRecord<K, V> record : buffer) {
+            first.putIfAbsent(new TopicPartition(record.topic(), record.partition()), record.offset());
+        }
+        return first;
+    }
+
+    int size() {
+        return buffer.size();
+    }
+}
@@ -2,26 +2,107 @@ package io.github.serkutyildirim.kafka.consumer;
 
 import io.github.serkutyildirim.kafka.config.KafkaTopicConfig;
 import io.github.serkutyildirim.kafka.model.DemoTransaction;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
 import org.springframework.kafka.support.serializer.DeserializationException;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Batch Kafka consumer implementation.
  *
  * <p>Batch consumption improves throughput by amortizing listener invocation cost, serialization overhead, and downstream I/O across multiple records.</p>
+ *
+ * <p><b>Parallel sub-batches:</b> a poll is cut into sub-batches of {@value #SUB_BATCH_SIZE} records, and up to
+ * {@code app.kafka.consumers.batch.sub-batch-parallelism} of them run at once on virtual threads. The listener still
+ * waits for every sub-batch and rethrows the failure with the lowest index, so no record after an unprocessed one is ever committed.
+ * {@code kafka.consumer.batch.duration}, tagged with {@code parallelism} and {@code outcome}, shows what each setting buys.</p>
+ *
+ * <p><b>Partial acknowledgment:</b> failures are thrown as {@link BatchListenerFailedException} with the index of the failing
+ * record. The container's {@code DefaultErrorHandler} commits the offsets before that index, redelivers only the tail, and
+ * after {@code app.kafka.consumers.batch.max-attempts} routes the poison record to {@code demo-dlq} and moves on.</p>
+ *
+ * <p><b>Cross-poll accumulation:</b> with {@code app.kafka.consumers.batch.accumulate.enabled=true} the listener only buffers
+ * each poll in a {@link BatchAccumulator} and returns, so the consumer keeps polling and heartbeating. The buffer is
+ * flushed once it holds {@code target-size} records or its oldest record waited {@code max-linger-ms}; a quiet partition
+ * is flushed from the container idle event. Offsets are committed only after a flush, and a failed flush commits the
+ * processed prefix and seeks back to the failing record, counting attempts before the record goes to {@code demo-dlq}.
+ * The commit moves past a dead-lettered record only once the broker confirmed the DLQ write.</p>
+ *
+ * <p><b>Poll sizing:</b> every processed batch is reported to {@link AdaptivePollSizer}, which can resize
+ * {@code max.poll.records} of this listener's container from the observed time per record.</p>
  */
 @Component
 @Slf4j
-public class BatchConsumer {
+public class BatchConsumer implements ConsumerAwareRebalanceListener {
 
-    private static final String GROUP_ID = "batch-consumer-group";
+    static final String GROUP_ID = "batch-consumer-group";
+    static final String LISTENER_ID = "batch-consumer";
     private static final int SUB_BATCH_SIZE = 25;
+    private static final long DLQ_SEND_TIMEOUT_SECONDS = 10L;
+
+    // Sub-batches in flight per listener invocation; 1 restores sequential processing on the consumer thread.
+    // Higher values cut batch latency towards the slowest sub-batch, but multiply the load on the downstream store.
+    // Keep it at or below what the store's connection pool can serve for all batch consumer threads together.
+    @Value("${app.kafka.consumers.batch.sub-batch-parallelism:4}")
+    private int subBatchParallelism = 4;
+
+    @Value("${app.kafka.consumers.batch.max-attempts:3}")
+    private int maxAttempts = 3;
+
+    @Value("${app.kafka.consumers.batch.accumulate.enabled:false}")
+    private boolean accumulateEnabled;
+
+    @Value("${app.kafka.consumers.batch.accumulate.target-size:500}")
+    private int accumulateTargetSize = 500;
+
+    @Value("${app.kafka.consumers.batch.accumulate.max-linger-ms:1000}")
+    private long accumulateMaxLingerMs = 1000;
+
+    @Autowired
+    private DlqPublisher dlqPublisher;
+
+    @Autowired
+    private PartitionRetryTracker retryTracker;
+
+    @Autowired
+    private AdaptivePollSizer pollSizer;
+
+    // One buffer per consumer thread of the container; concurrency 2 means two independent accumulators.
+    private final Map<Consumer<?, ?>, BatchAccumulator<String, DemoTransaction>> accumulators = new ConcurrentHashMap<>();
+
+    // Owned by this bean and closed with it, so a context restart does not leave sub-batches running.
+    private final ExecutorService subBatchWorkers =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("kafka-sub-batch-", 0).factory());
 
     /**
      * Pattern name: Batch Consumer.
@@ -31,10 +112,56 @@ public class BatchConsumer {
      * Trade-off: Higher latency, trickier partial-failure handling, and more careful batch-size tuning.
      */
     @KafkaListener(
+        id = LISTENER_ID,
         topics = KafkaTopicConfig.DEMO_MESSAGES_TOPIC,
         groupId = GROUP_ID,
-        containerFactory = "batchListenerContainerFactory"
+        containerFactory = "batchListenerContainerFactory",
+        autoStartup = "#{!${app.kafka.consumers.fan-out.enabled:false}}"
     )
+    public void consume(List<ConsumerRecord<String, DemoTransaction>> records, Consumer<?, ?> consumer) {
+        if (!accumulateEnabled) {
+            long startTime = System.nanoTime();
+            try {
+                consumeBatch(records);
+            } finally {
+                pollSizer.observe(LISTENER_ID, records, System.nanoTime() - startTime);
+            }
+            return;
+        }
+
+        BatchAccumulator<String, DemoTransaction> accumulator = accumulators.computeIfAbsent(consumer,
+            ignored -> new BatchAccumulator<>(accumulateTargetSize, Duration.ofMillis(accumulateMaxLingerMs)));
+        long now = System.nanoTime();
+        accumulator.add(records, now);
+        log.debug("event=batch_accumulate pattern=batch groupId={} memberId={} polled={} buffered={} targetSize={}",
+            GROUP_ID,
+            currentMemberId(),
+            records.size(),
+            accumulator.size(),
+            accumulateTargetSize);
+
+        if (accumulator.isDue(now)) {
+            flush(accumulator, consumer, "poll");
+        }
+    }
+
+    /**
+     * Flushes a lingering buffer when no new records arrive. Idle events are published on the consumer thread,
+     * so the consumer can be used here just like inside the listener.
+     */
+    @EventListener(condition = "event.listenerId.startsWith('" + LISTENER_ID + "-')")
+    public void onIdle(ListenerContainerIdleEvent event) {
+        BatchAccumulator<String, DemoTransaction> accumulator = accumulators.get(event.getConsumer());
+        if (accumulator != null && accumulator.isDue(System.nanoTime())) {
+            flush(accumulator, event.getConsumer(), "idle");
+        }
+    }
+
+    /**
+     * Processes one batch, whether it is a single poll or an accumulated flush.
+     *
+     * @throws BatchListenerFailedException with the index of the first record that was not processed
+     */
     public void consumeBatch(List<ConsumerRecord<String, DemoTransaction>> records) {
         long startTime = System.nanoTime();
         String memberId = currentMemberId();
@@ -45,8 +172,9 @@ public class BatchConsumer {
         try {
             List<DemoTransaction> messages = new ArrayList<>(records.size());
 
-            for (ConsumerRecord<String, DemoTransaction> record : records) {
-                DemoTransaction message = requirePayload(record);
+            for (int index = 0; index < records.size(); index++) {
+                ConsumerRecord<String, DemoTransaction> record = records.get(index);
+                DemoTransaction message = requirePayload(record, index);
                 messages.add(message);
 
                 log.info("event=batch_record pattern=batch groupId={} memberId={} partition={} offset={} key={} messageId={} sourceId={} targetId={} amount={}",
@@ -65,6 +193,7 @@ public class BatchConsumer {
             // In real systems this is where you'd replace N single-row writes with one bulk insert/update.
             // Tune the batch size carefully: too small wastes throughput, too large increases memory pressure and retry blast radius.
             processInSubBatches(messages, SUB_BATCH_SIZE);
+            recordBatchDuration(startTime, "success");
 
             long durationMs = elapsedMillis(startTime);
             double throughput = calculateThroughput(records.size(), durationMs);
@@ -75,6 +204,7 @@ public class BatchConsumer {
                 durationMs,
                 String.format(java.util.Locale.US, "%.2f", throughput));
         } catch (DeserializationException ex) {
+            recordBatchDuration(startTime, "failure");
             log.error("event=batch_failure pattern=batch groupId={} memberId={} batchSize={} durationMs={} errorType=deserialization error={}",
                 GROUP_ID,
                 memberId,
@@ -83,10 +213,23 @@ public class BatchConsumer {
                 ex.getMessage(),
                 ex);
             throw ex;
-        } catch (RuntimeException ex) {
+        } catch (BatchListenerFailedException ex) {
             // Partial failures are the hard part of batch listeners.
-            // This example intentionally uses all-or-nothing semantics: one bad record fails the entire batch so Kafka retries the full batch.
-            // That is simple to reason about, but the trade-off is duplicate work when only one record in the batch is bad.
+            // The exception carries the failing index: the error handler commits the records before it
+            // and redelivers only the tail, so an intermittent failure costs O(tail) instead of O(batch) reprocessing.
+            recordBatchDuration(startTime, "failure");
+            log.error("event=batch_failure pattern=batch groupId={} memberId={} batchSize={} durationMs={} errorType=business failedIndex={} failedOffset={} error={}",
+                GROUP_ID,
+                memberId,
+                records.size(),
+                elapsedMillis(startTime),
+                ex.getIndex(),
+                records.get(ex.getIndex()).offset(),
+                ex.getMessage());
+            throw ex;
+        } catch (RuntimeException ex) {
+            // Failures without a record index fall back to whole-batch retry, the classic all-or-nothing behavior.
+            recordBatchDuration(startTime, "failure");
             log.error("event=batch_failure pattern=batch groupId={} memberId={} batchSize={} durationMs={} errorType=business error={}",
                 GROUP_ID,
                 memberId,
@@ -98,32 +241,208 @@ public class BatchConsumer {
         }
     }
 
+    /**
+     * Waits for sub-batches that are still running, then releases the executor. The containers stop before this runs,
+     * so normally nothing is left to wait for.
+     */
+    @PreDestroy
+    public void stop() {
+        subBatchWorkers.close();
+    }
+
+    @Override
+    public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        BatchAccumulator<String, DemoTransaction> accumulator = accumulators.remove(consumer);
+        if (accumulator != null) {
+            // Revoked partitions are redelivered to the new owner from the last commit. Kept partitions were fetched past
+            // the buffered records, so rewind them or those records would be skipped.
+            accumulator.firstOffsets().forEach((partition, offset) -> {
+                if (!partitions.contains(partition)) {
+                    consumer.seek(partition, offset);
+                }
+            });
+            log.info("event=batch_buffer_dropped pattern=batch groupId={} memberId={} reason=revoked buffered={} partitions={}",
+                GROUP_ID,
+                currentMemberId(),
+                accumulator.size(),
+                partitions);
+        }
+        retryTracker.release(GROUP_ID, partitions);
+    }
+
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        accumulators.remove(consumer);
+        retryTracker.release(GROUP_ID, partitions);
+    }
+
+    private void flush(BatchAccumulator<String, DemoTransaction> accumulator, Consumer<?, ?> consumer, String trigger) {
+        List<ConsumerRecord<String, DemoTransaction>> batch = accumulator.drain();
+        int processed = batch.size();
+        long startTime = System.nanoTime();
+        try {
+            consumeBatch(batch);
+        } catch (BatchListenerFailedException ex) {
+            processed = ex.getIndex();
+            ConsumerRecord<String, DemoTransaction> failed = batch.get(processed);
+            int attempts = retryTracker.recordFailure(GROUP_ID, failed);
+            // A failed DLQ write leaves the record unprocessed: the rewind redelivers it and the next flush tries the DLQ again.
+            if (attempts >= maxAttempts && sendToDlq(failed, attempts, ex)) {
+                retryTracker.clear(GROUP_ID, failed);
+                processed++;
+            }
+        } catch (RuntimeException ex) {
+            // No index means no record is known to be done; the whole flush is redelivered.
+            processed = 0;
+        }
+        // The error handler cannot help here: its indexes refer to the current poll, not to records buffered across polls.
+        commitAndRewind(consumer, batch, processed);
+        pollSizer.observe(LISTENER_ID, batch, System.nanoTime() - startTime);
+
+        log.info("event=batch_flush pattern=batch groupId={} memberId={} trigger={} batchSize={} processed={}",
+            GROUP_ID,
+            currentMemberId(),
+            trigger,
+            batch.size(),
+            processed);
+    }
+
+    private void commitAndRewind(Consumer<?, ?> consumer, List<ConsumerRecord<String, DemoTransaction>> batch, int processed) {
+        Map<TopicPartition, OffsetAndMetadata> commits = new HashMap<>();
+        Map<TopicPartition, Long> rewinds = new HashMap<>();
+        for (int index = 0; index < batch.size(); index++) {
+            ConsumerRecord<String, DemoTransaction> record = batch.get(index);
+            TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+            if (index < processed) {
+                // Records of one partition arrive in offset order, so the last processed one wins.
+                commits.put(partition, new OffsetAndMetadata(record.offset() + 1));
+            } else {
+                rewinds.putIfAbsent(partition, record.offset());
+            }
+        }
+        if (!commits.isEmpty()) {
+            consumer.commitSync(commits);
+        }
+        rewinds.forEach(consumer::seek);
+    }
+
+    private boolean sendToDlq(ConsumerRecord<String, DemoTransaction> record, int attempts, Exception ex) {
+        try {
+            // Same bound as the container's batch recoverer: the commit after this flush must not pass a record that is not in the DLQ.
+            dlqPublisher.publish(record, GROUP_ID, attempts, ex).get(DLQ_SEND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException failed) {
+            log.error("event=dlq_send_failure pattern=batch groupId={} dlqTopic={} partition={} offset={} attempts={} error={}",
+                GROUP_ID,
+                KafkaTopicConfig.DEMO_DLQ_TOPIC,
+                record.partition(),
+                record.offset(),
+                attempts,
+                failed.getMessage());
+            return false;
+        }
+        log.warn("event=dlq_send pattern=batch groupId={} dlqTopic={} partition={} offset={} attempts={} messageId={} error={}",
+            GROUP_ID,
+            KafkaTopicConfig.DEMO_DLQ_TOPIC,
+            record.partition(),
+            record.offset(),
+            attempts,
+            record.value() == null ? null : record.value().getMessageId(),
+            ex.getMessage());
+        return true;
+    }
+
     private void processInSubBatches(List<DemoTransaction> messages, int batchSize) {
+        if (subBatchParallelism <= 1 || messages.size() <= batchSize) {
+            for (int fromIndex = 0; fromIndex < messages.size(); fromIndex += batchSize) {
+                processSubBatch(messages, fromIndex, Math.min(fromIndex + batchSize, messages.size()));
+            }
+            return;
+        }
+
+        Semaphore permits = new Semaphore(subBatchParallelism);
+        AtomicReference<BatchListenerFailedException> firstFailure = new AtomicReference<>();
+        List<CompletableFuture<Void>> runs = new ArrayList<>();
         for (int fromIndex = 0; fromIndex < messages.size(); fromIndex += batchSize) {
-            int toIndex = Math.min(fromIndex + batchSize, messages.size());
-            List<DemoTransaction> subBatch = messages.subList(fromIndex, toIndex);
+            int from = fromIndex;
+            int to = Math.min(fromIndex + batchSize, messages.size());
+            acquire(permits);
+            runs.add(CompletableFuture.runAsync(() -> {
+                try {
+                    // Everything before the lowest failed index gets committed, so only sub-batches after it may be skipped.
+                    BatchListenerFailedException failure = firstFailure.get();
+                    if (failure == null || from < failure.getIndex()) {
+                        processSubBatch(messages, from, to);
+                    }
+                } catch (BatchListenerFailedException ex) {
+                    firstFailure.accumulateAndGet(ex, (current, candidate) ->
+                        current == null || candidate.getIndex() < current.getIndex() ? candidate : current);
+                } finally {
+                    permits.release();
+                }
+            }, subBatchWorkers));
+        }
 
-            if (subBatch.stream().anyMatch(this::shouldFailBatch)) {
-                throw new IllegalStateException("Simulated batch failure to demonstrate whole-batch retry semantics");
+        // Wait for every sub-batch before returning or throwing: nothing of this poll may still run when the container
+        // commits offsets or seeks back for redelivery.
+        try {
+            CompletableFuture.allOf(runs.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
             }
+            throw ex;
+        }
+        if (firstFailure.get() != null) {
+            throw firstFailure.get();
+        }
+    }
 
-            // Sub-batches are a practical compromise when the broker poll size is larger than what the database can handle efficiently.
-            try {
-                Thread.sleep(Math.min(40L * subBatch.size(), 200L));
-            } catch (InterruptedException ex) {
-                Thread.currentThread().interrupt();
-                throw new IllegalStateException("Batch processing interrupted", ex);
+    private void processSubBatch(List<DemoTransaction> messages, int fromIndex, int toIndex) {
+        for (int index = fromIndex; index < toIndex; index++) {
+            if (shouldFailBatch(messages.get(index))) {
+                // The index tells DefaultErrorHandler to commit the records before it and redeliver only from here.
+                throw new BatchListenerFailedException("Simulated batch failure to demonstrate partial batch retry semantics", index);
             }
         }
+
+        // Sub-batches are a practical compromise when the broker poll size is larger than what the database can handle efficiently.
+        try {
+            Thread.sleep(Math.min(40L * (toIndex - fromIndex), 200L));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Batch processing interrupted", ex);
+        }
+    }
+
+    private void acquire(Semaphore permits) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Batch processing interrupted", ex);
+        }
+    }
+
+    private void recordBatchDuration(long startTime, String outcome) {
+        Timer.builder("kafka.consumer.batch.duration")
+            .description("Batch listener latency per sub-batch parallelism level")
+            .tag("groupId", GROUP_ID)
+            .tag("parallelism", String.valueOf(Math.max(1, subBatchParallelism)))
+            .tag("outcome", outcome)
+            .register(Metrics.globalRegistry)
+            .record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
     }
 
     private boolean shouldFailBatch(DemoTransaction transaction) {
         return transaction.getDescription() != null && transaction.getDescription().toUpperCase().contains("FAIL_BATCH");
     }
 
-    private DemoTransaction requirePayload(ConsumerRecord<String, DemoTransaction> record) {
+    private DemoTransaction requirePayload(ConsumerRecord<String, DemoTransaction> record, int index) {
         if (record == null || record.value() == null) {
-            throw new IllegalArgumentException("Batch payload is null. Null values usually indicate malformed input or deserialization problems that should fail the full batch.");
+            throw new BatchListenerFailedException("Batch payload is null. Null values usually indicate malformed input or deserialization problems.", index);
         }
         return record.value();
     }
@@ -0,0 +1,188 @@
+package io.github.serkutyildirim.kafka.consumer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Acknowledges a record only after the write that took it over (DLQ or retry topic) is confirmed, without blocking the
+ * consumer thread.
+ *
+ * <p><b>Why?</b> Sending to {@code demo-dlq} and acknowledging right away loses the record if the send fails: the offset is
+ * already committed. Waiting for the send on the consumer thread is safe but costs a broker round trip per dead letter.
+ * Here the listener hands over the send future and moves on; the acknowledgement runs when the future completes.</p>
+ *
+ * <p><b>Ordering:</b> with {@code AckMode.MANUAL} acknowledging an offset commits everything before it, so a later record must
+ * not be acknowledged while an earlier one still waits for its send. Each group and partition has one lane: acknowledgements
+ * are chained and run in offset order, however the sends complete. While a lane has nothing pending, acknowledging is a
+ * direct call, so healthy traffic pays nothing.</p>
+ *
+ * <p><b>Failed sends:</b> the failed record and everything behind it on the lane stay unacknowledged. The next time the
+ * listener gets a record of that partition, {@link #rewindIfFailed} seeks back to the failed record, so it is processed (and
+ * dead-lettered) again: at-least-once, the same as a synchronous send. Without a {@link Consumer} (fan-out mode) the lane
+ * simply stays blocked, so the committed offset stops before the failed record until the next rebalance or restart.</p>
+ *
+ * <p><b>How it is wired:</b> {@code KafkaConsumerConfig} registers this bean as a rebalance listener of
+ * {@code manualAckListenerContainerFactory}. Lanes of revoked partitions are dropped before the container commits, so a
+ * send that completes later cannot commit an offset for a partition this consumer no longer owns.</p>
+ *
+ * <p><b>Metrics:</b> {@code kafka.consumer.ack.pending} (acknowledgements waiting for a send) and
+ * {@code kafka.consumer.ack.withheld} (sends that failed, tagged with {@code group}).</p>
+ */
+@Component
+@Slf4j
+public class ConfirmedAckPipeline implements ConsumerAwareRebalanceListener {
+
+    private static final long NONE = -1L;
+    private static final CompletableFuture<Void> CONFIRMED = CompletableFuture.completedFuture(null);
+
+    private final Map<GroupPartition, Lane> lanes = new ConcurrentHashMap<>();
+    private final AtomicInteger pending = new AtomicInteger();
+
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("kafka.consumer.ack.pending", pending, AtomicInteger::get)
+            .description("Acknowledgements waiting for a DLQ or retry send to be confirmed")
+            .register(Metrics.globalRegistry);
+    }
+
+    /**
+     * Acknowledges a record that needs no write; still waits behind earlier pending acknowledgements of its partition.
+     */
+    public void acknowledge(String groupId, ConsumerRecord<?, ?> record, Acknowledgment ack) {
+        acknowledgeWhen(groupId, record, ack, CONFIRMED);
+    }
+
+    /**
+     * Acknowledges the record once {@code confirmation} and every earlier acknowledgement of its partition have completed.
+     * Returns immediately; the acknowledgement may run on the producer's callback thread.
+     */
+    public void acknowledgeWhen(String groupId, ConsumerRecord<?, ?> record, Acknowledgment ack, CompletableFuture<?> confirmation) {
+        Lane lane = lanes.computeIfAbsent(GroupPartition.of(groupId, record), ignored -> new Lane());
+        synchronized (lane) {
+            if (lane.failedOffset != NONE) {
+                // Acknowledging would commit past the failed record; the rewind redelivers this one as well.
+                return;
+            }
+            if (lane.tail.isDone() && confirmation.isDone() && !confirmation.isCompletedExceptionally()) {
+                ack.acknowledge();
+                return;
+            }
+            pending.incrementAndGet();
+            lane.tail = lane.tail
+                .thenCompose(ignored -> confirmation)
+                .handle((result, ex) -> {
+                    pending.decrementAndGet();
+                    complete(groupId, lane, record, ack, ex);
+                    return null;
+                });
+        }
+    }
+
+    /**
+     * Seeks the partition back to its failed record, if a send on its lane failed. Must be called on the consumer thread,
+     * before processing.
+     *
+     * @return {@code true} if the partition was rewound; the listener must then skip the record without acknowledging
+     */
+    public boolean rewindIfFailed(String groupId, ConsumerRecord<?, ?> record, Consumer<?, ?> consumer) {
+        GroupPartition key = GroupPartition.of(groupId, record);
+        Lane lane = lanes.get(key);
+        if (consumer == null || lane == null || lane.failedOffset == NONE) {
+            return false;
+        }
+        long rewindTo;
+        synchronized (lane) {
+            // Sends still pending on the old lane finish without acknowledging; they are behind the failed record.
+            lane.released = true;
+            rewindTo = Math.min(lane.failedOffset, record.offset());
+        }
+        lanes.remove(key, lane);
+        consumer.seek(key.partition(), rewindTo);
+        log.warn("event=ack_rewind groupId={} topic={} partition={} offset={} reason=send_failed",
+            groupId,
+            record.topic(),
+            record.partition(),
+            rewindTo);
+        return true;
+    }
+
+    @Override
+    public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        release(consumer.groupMetadata().groupId(), partitions);
+    }
+
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        release(consumer.groupMetadata().groupId(), partitions);
+    }
+
+    /**
+     * Drops the lanes of {@code groupId} for the given partitions. Containers that fetch on behalf of other groups
+     * (see {@link FanOutDispatcher}) call this from their own rebalance callbacks.
+     */
+    public void release(String groupId, Collection<TopicPartition> partitions) {
+        for (TopicPartition partition : partitions) {
+            Lane lane = lanes.remove(new GroupPartition(groupId, partition));
+            if (lane != null) {
+                synchronized (lane) {
+                    lane.released = true;
+                }
+            }
+        }
+    }
+
+    private void complete(String groupId, Lane lane, ConsumerRecord<?, ?> record, Acknowledgment ack, Throwable failure) {
+        synchronized (lane) {
+            if (lane.released || lane.failedOffset != NONE) {
+                return;
+            }
+            if (failure == null) {
+                ack.acknowledge();
+                return;
+            }
+            lane.failedOffset = record.offset();
+        }
+        Counter.builder("kafka.consumer.ack.withheld")
+            .description("Records left unacknowledged because the write that took them over failed")
+            .tag("group", groupId)
+            .register(Metrics.globalRegistry)
+            .increment();
+        log.error("event=ack_withheld groupId={} topic={} partition={} offset={} error={}",
+            groupId,
+            record.topic(),
+            record.partition(),
+            record.offset(),
+            failure.getMessage(),
+            failure);
+    }
+
+    private static final class Lane {
+
+        // Completes after the lane's last acknowledgement ran; guarded by the lane.
+        private CompletableFuture<?> tail = CONFIRMED;
+        private volatile long failedOffset = NONE;
+        private boolean released;
+    }
+
+    private record GroupPartition(String groupId, TopicPartition partition) {
+
+        private static GroupPartition of(String groupId, ConsumerRecord<?, ?> record) {
+            return new GroupPartition(groupId, new TopicPartition(record.topic(), record.partition()));
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package io.github.serkutyildirim.kafka.consumer;
+
+import io.github.serkutyildirim.kafka.config.KafkaTopicConfig;
+import io.github.serkutyildirim.kafka.serialization.RawValueRetainingDeserializer;
+import io.github.serkutyildirim.kafka.serialization.SerializationFormat;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.Serializer;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.log.LogAccessor;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ListenerExecutionFailedException;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Forwards failed records to {@code demo-dlq} as the bytes they were read with, plus headers describing the failure.
+ *
+ * <p><b>Why raw bytes?</b> Sending {@code record.value()} through the typed template encodes every poison record a second
+ * time, and a record that failed to decode has no value to send at all, so it used to be dropped. Consumer factories that
+ * dead-letter wrap their value deserializer in {@link RawValueRetainingDeserializer}; this publisher sends that retained array
+ * through a byte-array producer, so forwarding a dead letter is a buffer copy. The key is re-encoded as UTF-8, which is
+ * byte-for-byte what {@code StringSerializer} wrote.</p>
+ *
+ * <p><b>Value source, in order:</b> the retained raw value header, the raw bytes {@code ErrorHandlingDeserializer} stores with
+ * a decoding failure, and only for records from a factory without the wrapper, a fresh encode with the default format.</p>
+ *
+ * <p><b>Headers:</b> the original headers are kept, minus the process-local raw value and deserializer exception headers.
+ * The publisher adds {@value #EXCEPTION_CLASS_HEADER}, {@value #EXCEPTION_MESSAGE_HEADER}, {@value #ATTEMPTS_HEADER},
+ * {@value #ORIGINAL_TOPIC_HEADER}, {@value #ORIGINAL_PARTITION_HEADER}, {@value #ORIGINAL_OFFSET_HEADER} and
+ * {@value #GROUP_HEADER} as plain UTF-8 text. For a record read from a retry tier, the original location is the one in its
+ * {@code retry-original-*} headers, so the dead letter points at {@code demo-messages} and not at the tier it failed on last.</p>
+ *
+ * <p><b>Batching:</b> sends are asynchronous and the {@code dlqKafkaTemplate} producer lingers longer than the standard one,
+ * so a burst of dead letters leaves in a few produce requests. The returned future completes once the broker has the record.</p>
+ *
+ * <p><b>Metrics:</b> {@code kafka.consumer.dlq.forwarded}, tagged with {@code group} and {@code source}
+ * ({@code raw}, {@code deserialization-failure} or {@code reserialized}).</p>
+ */
+@Component
+@Slf4j
+public class DlqPublisher {
+
+    public static final String EXCEPTION_CLASS_HEADER = "dlq-exception-class";
+    public static final String EXCEPTION_MESSAGE_HEADER = "dlq-exception-message";
+    public static final String ATTEMPTS_HEADER = "dlq-attempts";
+    public static final String ORIGINAL_TOPIC_HEADER = "dlq-original-topic";
+    public static final String ORIGINAL_PARTITION_HEADER = "dlq-original-partition";
+    public static final String ORIGINAL_OFFSET_HEADER = "dlq-original-offset";
+    public static final String GROUP_HEADER = "dlq-group";
+
+    private static final LogAccessor HEADER_LOG = new LogAccessor(DlqPublisher.class);
+
+    private final KafkaTemplate<byte[], byte[]> dlqKafkaTemplate;
+    private final Serializer<Object> fallbackSerializer;
+
+    @SuppressWarnings("unchecked")
+    public DlqPublisher(
+            @Qualifier("dlqKafkaTemplate") KafkaTemplate<byte[], byte[]> dlqKafkaTemplate,
+            @Value("${app.kafka.serialization.format:JSON}") SerializationFormat defaultSerializationFormat) {
+        this.dlqKafkaTemplate = dlqKafkaTemplate;
+        this.fallbackSerializer = BeanUtils.instantiateClass(defaultSerializationFormat.serializerClass());
+        this.fallbackSerializer.configure(Map.of(), false);
+    }
+
+    /**
+     * Sends the record to {@code demo-dlq}. Never throws for a failed send; inspect the returned future instead.
+     *
+     * @param groupId  consumer group that gave up on the record
+     * @param attempts processing attempts made, the last one included
+     * @param ex       the failure that sent the record here; listener wrappers are unwrapped to their cause
+     */
+    public CompletableFuture<SendResult<byte[], byte[]>> publish(ConsumerRecord<?, ?> record, String groupId, int attempts, Exception ex) {
+        Throwable failure = ex instanceof ListenerExecutionFailedException && ex.getCause() != null ? ex.getCause() : ex;
+
+        String source;
+        byte[] value = lastHeaderValue(record.headers(), RawValueRetainingDeserializer.RAW_VALUE_HEADER);
+        if (value != null) {
+            source = "raw";
+        } else if (record.headers().lastHeader(SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER) != null) {
+            // Only reached without the retaining wrapper; the wrapper's header is added before decoding can fail.
+            value = rawBytesOfDeserializationFailure(record);
+            source = "deserialization-failure";
+        } else {
+            value = record.value() == null ? null : fallbackSerializer.serialize(KafkaTopicConfig.DEMO_DLQ_TOPIC, record.value());
+            source = "reserialized";
+        }
+        byte[] key = record.key() == null ? null : String.valueOf(record.key()).getBytes(StandardCharsets.UTF_8);
+
+        Headers headers = new RecordHeaders();
+        for (Header header : record.headers()) {
+            if (!isProcessLocal(header.key())) {
+                headers.add(header);
+            }
+        }
+        headers.add(EXCEPTION_CLASS_HEADER, headerValue(failure.getClass().getName()))
+            .add(EXCEPTION_MESSAGE_HEADER, headerValue(failure.getMessage()))
+            .add(ATTEMPTS_HEADER, headerValue(attempts))
+            .add(ORIGINAL_TOPIC_HEADER, originalLocation(record, ErrorHandlingConsumer.RETRY_ORIGINAL_TOPIC_HEADER, record.topic()))
+            .add(ORIGINAL_PARTITION_HEADER, originalLocation(record, ErrorHandlingConsumer.RETRY_ORIGINAL_PARTITION_HEADER, record.partition()))
+            .add(ORIGINAL_OFFSET_HEADER, originalLocation(record, ErrorHandlingConsumer.RETRY_ORIGINAL_OFFSET_HEADER, record.offset()))
+            .add(GROUP_HEADER, headerValue(groupId));
+
+        Counter.builder("kafka.consumer.dlq.forwarded")
+            .description("Records forwarded to the DLQ, by where the forwarded value bytes came from")
+            .tag("group", groupId)
+            .tag("source", source)
+            .register(Metrics.globalRegistry)
+            .increment();
+        log.debug("event=dlq_forward groupId={} topic={} partition={} offset={} attempts={} valueSource={} valueBytes={}",
+            groupId,
+            record.topic(),
+            record.partition(),
+            record.offset(),
+            attempts,
+            source,
+            value == null ? -1 : value.length);
+
+        // No explicit partition: the DLQ may have a different partition count, so the key picks the partition.
+        return dlqKafkaTemplate.send(new ProducerRecord<>(KafkaTopicConfig.DEMO_DLQ_TOPIC, null, key, value, headers));
+    }
+
+    private byte[] rawBytesOfDeserializationFailure(ConsumerRecord<?, ?> record) {
+        var exception = SerializationUtils.getExceptionFromHeader(record,
+            SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER, HEADER_LOG);
+        return exception == null ? null : exception.getData();
+    }
+
+    private static boolean isProcessLocal(String key) {
+        return RawValueRetainingDeserializer.RAW_VALUE_HEADER.equals(key)
+            || SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER.equals(key)
+            || SerializationUtils.KEY_DESERIALIZER_EXCEPTION_HEADER.equals(key);
+    }
+
+    private static byte[] lastHeaderValue(Headers headers, String key) {
+        Header header = headers.lastHeader(key);
+        return header == null ? null : header.value();
+    }
+
+    private static byte[] originalLocation(ConsumerRecord<?, ?> record, String retryHeader, Object current) {
+        // The retry headers are already plain UTF-8 text, so they are copied as they are.
+        byte[] retried = lastHeaderValue(record.headers(), retryHeader);
+        return retried != null ? retried : headerValue(current);
+    }
+
+    private static byte[] headerValue(Object value) {
+        // Plain text keeps the headers readable in kafka-ui and kafka-console-consumer.
+        return String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+    }
+}
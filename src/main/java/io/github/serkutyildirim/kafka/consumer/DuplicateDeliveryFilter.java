@@ -0,0 +1,199 @@
+package io.github.serkutyildirim.kafka.consumer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Detects redelivered message IDs in manual-ack listeners so an already processed record is acknowledged without
+ * repeating its side effect.
+ *
+ * <p><b>Why?</b> Manual acknowledgement is at-least-once: after a crash, a rebalance before the commit, or a rewind past
+ * records that already succeeded (see {@link ConfirmedAckPipeline}), the same {@code messageId} is delivered again.
+ * Processing must be idempotent, but the listener can cheaply catch most of these repeats itself.</p>
+ *
+ * <p><b>Two stages per group and partition:</b></p>
+ * <ul>
+ *   <li>A {@link RotatingBloomFilter} answers "never seen" for first-time IDs with a few bit reads and no map lookup. That
+ *       is the path nearly every record takes.</li>
+ *   <li>Only when the filter says "maybe" is the exact {@link RecentIdSet} consulted. A record is skipped only if that set
+ *       confirms the ID, so a Bloom false positive costs one extra lookup, never a lost record.</li>
+ * </ul>
+ *
+ * <p><b>Only successes are remembered:</b> listeners call {@link #remember} after processing succeeded, so a record
+ * redelivered for a retry is processed again as intended.</p>
+ *
+ * <p><b>Sizing:</b> the filter is sized for {@code expected-ids-per-window} IDs per partition at
+ * {@code false-positive-rate}, or at a fixed {@code memory-per-million-ids-kb} when that is set. IDs are remembered for
+ * between {@code (generations - 1) / generations} of {@code window-ms} and the whole window, and never longer than the
+ * last {@code recent-ids-per-partition} IDs of the partition.</p>
+ *
+ * <p><b>Lifecycle:</b> state is kept per group and partition and is not dropped on revocation. Redeliveries happen mostly
+ * right after a rebalance, so a partition that moves to another consumer thread of this instance keeps its history.
+ * Memory is therefore bounded by the partitions the groups consume, not by traffic.</p>
+ *
+ * <p><b>Metrics:</b> {@code kafka.consumer.dedup.duplicates} (skipped records, tagged with {@code group}),
+ * {@code kafka.consumer.dedup.bloom.false.positives} (Bloom hits the exact set did not confirm), and
+ * {@code kafka.consumer.dedup.memory.bytes}.</p>
+ */
+@Component
+@Slf4j
+public class DuplicateDeliveryFilter {
+
+    @Value("${app.kafka.consumers.dedup.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${app.kafka.consumers.dedup.window-ms:600000}")
+    private long windowMs = 600_000L;
+
+    @Value("${app.kafka.consumers.dedup.generations:4}")
+    private int generations = 4;
+
+    @Value("${app.kafka.consumers.dedup.expected-ids-per-window:100000}")
+    private int expectedIdsPerWindow = 100_000;
+
+    @Value("${app.kafka.consumers.dedup.false-positive-rate:0.01}")
+    private double falsePositiveRate = 0.01;
+
+    @Value("${app.kafka.consumers.dedup.memory-per-million-ids-kb:0}")
+    private int memoryPerMillionIdsKb = 0;
+
+    @Value("${app.kafka.consumers.dedup.recent-ids-per-partition:10000}")
+    private int recentIdsPerPartition = 10_000;
+
+    private LongSupplier clock = System::currentTimeMillis;
+
+    private final Map<GroupPartition, Lane> lanes = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("kafka.consumer.dedup.memory.bytes", this, DuplicateDeliveryFilter::memoryBytes)
+            .description("Bloom filters and recent-ID sets held for duplicate detection")
+            .register(Metrics.globalRegistry);
+        double bitsPerId = bitsPerId();
+        log.info("event=dedup_configured enabled={} windowMs={} generations={} expectedIdsPerWindow={} bitsPerId={} hashes={} "
+                + "kbPerMillionIds={} falsePositiveRate={} recentIdsPerPartition={}",
+            enabled,
+            windowMs,
+            generations,
+            expectedIdsPerWindow,
+            String.format("%.1f", bitsPerId),
+            hashes(bitsPerId),
+            Math.round(bitsPerId * 1_000_000 / Byte.SIZE / 1024),
+            String.format("%.2e", effectiveFalsePositiveRate(bitsPerId)),
+            recentIdsPerPartition);
+    }
+
+    /**
+     * Checks whether the record's message ID was already processed successfully on its partition. Counts and logs a hit.
+     *
+     * @return {@code true} if the record should be acknowledged without processing
+     */
+    public boolean isDuplicate(String groupId, ConsumerRecord<?, ?> record, UUID messageId) {
+        if (!enabled || messageId == null) {
+            return false;
+        }
+        Lane lane = lane(groupId, record);
+        long msb = messageId.getMostSignificantBits();
+        long lsb = messageId.getLeastSignificantBits();
+        synchronized (lane) {
+            if (!lane.bloom.mightContain(msb, lsb, clock.getAsLong())) {
+                return false;
+            }
+            if (!lane.recent.contains(msb, lsb)) {
+                Counter.builder("kafka.consumer.dedup.bloom.false.positives")
+                    .description("Bloom filter hits that the exact recent-ID set did not confirm")
+                    .tag("group", groupId)
+                    .register(Metrics.globalRegistry)
+                    .increment();
+                return false;
+            }
+        }
+        Counter.builder("kafka.consumer.dedup.duplicates")
+            .description("Redelivered records acknowledged without processing")
+            .tag("group", groupId)
+            .register(Metrics.globalRegistry)
+            .increment();
+        log.info("event=duplicate_skipped groupId={} topic={} partition={} offset={} messageId={}",
+            groupId,
+            record.topic(),
+            record.partition(),
+            record.offset(),
+            messageId);
+        return true;
+    }
+
+    /**
+     * Records the message ID of a record that was processed successfully.
+     */
+    public void remember(String groupId, ConsumerRecord<?, ?> record, UUID messageId) {
+        if (!enabled || messageId == null) {
+            return;
+        }
+        Lane lane = lane(groupId, record);
+        long msb = messageId.getMostSignificantBits();
+        long lsb = messageId.getLeastSignificantBits();
+        synchronized (lane) {
+            lane.bloom.put(msb, lsb, clock.getAsLong());
+            lane.recent.add(msb, lsb);
+        }
+    }
+
+    private Lane lane(String groupId, ConsumerRecord<?, ?> record) {
+        GroupPartition key = new GroupPartition(groupId, new TopicPartition(record.topic(), record.partition()));
+        Lane lane = lanes.get(key);
+        return lane != null ? lane : lanes.computeIfAbsent(key, ignored -> newLane());
+    }
+
+    private Lane newLane() {
+        double bitsPerId = bitsPerId();
+        int idsPerGeneration = Math.max(1, expectedIdsPerWindow / generations);
+        return new Lane(
+            new RotatingBloomFilter(generations, idsPerGeneration, bitsPerId, hashes(bitsPerId),
+                Math.max(1L, windowMs / generations), clock.getAsLong()),
+            new RecentIdSet(recentIdsPerPartition));
+    }
+
+    private double bitsPerId() {
+        if (memoryPerMillionIdsKb > 0) {
+            return memoryPerMillionIdsKb * 1024.0 * Byte.SIZE / 1_000_000;
+        }
+        // A lookup checks every generation, so each one gets its share of the target rate: m/n = -ln(p) / ln(2)^2.
+        double perGeneration = falsePositiveRate / generations;
+        return -Math.log(perGeneration) / (Math.log(2) * Math.log(2));
+    }
+
+    private static int hashes(double bitsPerId) {
+        return Math.max(1, (int) Math.round(bitsPerId * Math.log(2)));
+    }
+
+    private double effectiveFalsePositiveRate(double bitsPerId) {
+        int k = hashes(bitsPerId);
+        return Math.min(1.0, generations * Math.pow(1 - Math.exp(-k / bitsPerId), k));
+    }
+
+    private double memoryBytes() {
+        long bytes = 0;
+        for (Lane lane : lanes.values()) {
+            bytes += lane.bloom.sizeInBytes() + lane.recent.sizeInBytes();
+        }
+        return bytes;
+    }
+
+    private record Lane(RotatingBloomFilter bloom, RecentIdSet recent) {
+    }
+
+    private record GroupPartition(String groupId, TopicPartition partition) {
+    }
+}
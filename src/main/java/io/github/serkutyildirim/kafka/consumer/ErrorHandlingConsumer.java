@@ -3,35 +3,97 @@ package io.github.serkutyildirim.kafka.consumer;
 import io.github.serkutyildirim.kafka.config.KafkaTopicConfig;
 import io.github.serkutyildirim.kafka.model.DemoTransaction;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.kafka.support.serializer.DeserializationException;
 import org.springframework.stereotype.Component;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Error handling consumer example with retry and DLQ.
  *
  * <p>This listener demonstrates how to separate temporary failures from permanent ones so healthy traffic keeps moving and poison-pill records are isolated.</p>
+ *
+ * <p><b>Retry modes</b> ({@code app.kafka.consumers.error-handling.retry-mode}):</p>
+ * <ul>
+ *   <li>{@code TOPICS} (default): a retryable failure is acknowledged and re-published to a delay-tiered retry topic
+ *       ({@code demo-messages-retry-250ms}, then {@code demo-messages-retry-500ms}), and finally to {@code demo-dlq}.
+ *       The main partition never waits, so healthy records keep flowing at full speed while a poison record retries.</li>
+ *   <li>{@code PAUSE}: for topics where extra retry topics are not allowed. The partition is rewound to the failed record and
+ *       paused, and {@link PartitionPauseRetryScheduler} resumes it when the backoff expires. Partition order is kept and
+ *       no thread sleeps, but the paused partition waits for the failing record.</li>
+ *   <li>{@code BLOCKING}: the classic approach that sleeps on the consumer thread between attempts. Simple, but every
+ *       record behind the failing one waits too, and long backoffs risk exceeding {@code max.poll.interval.ms}.</li>
+ * </ul>
+ *
+ * <p>The retry listener does not sleep either: a record that is not yet due is handed to {@link PartitionPauseRetryScheduler}
+ * with its remaining delay, which pauses only that retry partition until the record is due.</p>
+ *
+ * <p>A record handed to a retry topic or the DLQ is acknowledged only once the broker confirmed that write.
+ * {@link ConfirmedAckPipeline} runs the acknowledgement when the send completes, in offset order per partition, so the
+ * consumer thread keeps processing meanwhile.</p>
+ *
+ * <p>Redelivered records whose {@code messageId} already succeeded on the same partition are acknowledged without being
+ * processed again (see {@link DuplicateDeliveryFilter}).</p>
  */
 @Component
 @Slf4j
 public class ErrorHandlingConsumer {
 
-    private static final String GROUP_ID = "error-handling-group";
+    static final String GROUP_ID = "error-handling-group";
+    static final String LISTENER_ID = "error-handling-consumer";
+    static final String RETRY_LISTENER_ID = "error-handling-retry-consumer";
     private static final int MAX_RETRY_ATTEMPTS = 3;
     private static final long BASE_BACKOFF_MS = 250L;
 
+    // One tier per retry; index = attempts already failed - 1. Delays match exponentialBackoff(1) and exponentialBackoff(2).
+    private static final List<String> RETRY_TIER_TOPICS = List.of(
+        KafkaTopicConfig.DEMO_RETRY_250MS_TOPIC,
+        KafkaTopicConfig.DEMO_RETRY_500MS_TOPIC);
+
+    static final String RETRY_ATTEMPTS_HEADER = "retry-attempts";
+    static final String RETRY_DUE_AT_HEADER = "retry-due-at";
+    static final String RETRY_ORIGINAL_TOPIC_HEADER = "retry-original-topic";
+    static final String RETRY_ORIGINAL_PARTITION_HEADER = "retry-original-partition";
+    static final String RETRY_ORIGINAL_OFFSET_HEADER = "retry-original-offset";
+    static final String RETRY_ERROR_HEADER = "retry-error";
+
+    enum RetryMode {
+        TOPICS,
+        PAUSE,
+        BLOCKING
+    }
+
     @Autowired
     private KafkaTemplate<String, DemoTransaction> kafkaTemplate;
 
-    private final Map<String, AtomicInteger> retryCounters = new ConcurrentHashMap<>();
+    @Autowired
+    private DlqPublisher dlqPublisher;
+
+    @Autowired
+    private PartitionPauseRetryScheduler retryScheduler;
+
+    @Value("${app.kafka.consumers.error-handling.retry-mode:TOPICS}")
+    private RetryMode retryMode = RetryMode.TOPICS;
+
+    @Autowired
+    private PartitionRetryTracker retryTracker;
+
+    @Autowired
+    private ConfirmedAckPipeline ackPipeline;
+
+    @Autowired
+    private DuplicateDeliveryFilter duplicateFilter;
 
     /**
      * Pattern name: Error Handling Consumer with DLQ.
@@ -40,20 +102,35 @@ public class ErrorHandlingConsumer {
      * 2. DLQ: Permanent failures such as validation problems or malformed data.
      * 3. SKIP: Optional for non-critical errors when a business workflow can safely continue.
      * DLQ pattern: Failed messages are moved to a separate topic for investigation and controlled replay.
-     * Retry policy: Maximum 3 attempts with exponential backoff.
+     * Retry policy: Maximum 3 attempts with exponential backoff, either through retry topics or in place (see class docs).
      */
     @KafkaListener(
+        id = LISTENER_ID,
         topics = KafkaTopicConfig.DEMO_MESSAGES_TOPIC,
         groupId = GROUP_ID,
-        containerFactory = "manualAckListenerContainerFactory"
+        containerFactory = "manualAckListenerContainerFactory",
+        autoStartup = "#{!${app.kafka.consumers.fan-out.enabled:false}}"
     )
-    public void consume(ConsumerRecord<String, DemoTransaction> record, Acknowledgment ack) {
+    public void consume(ConsumerRecord<String, DemoTransaction> record, Acknowledgment ack, Consumer<?, ?> consumer) {
+        if (ackPipeline.rewindIfFailed(GROUP_ID, record, consumer) || retryScheduler.isRewound(record, consumer)) {
+            // Fetched before an earlier record of this partition was rewound for retry; it will be redelivered after the resume.
+            return;
+        }
+        process(record, ack, consumer, LISTENER_ID);
+    }
+
+    private void process(ConsumerRecord<String, DemoTransaction> record, Acknowledgment ack, Consumer<?, ?> consumer, String listenerId) {
         long startTime = System.nanoTime();
         String memberId = currentMemberId();
-        String retryKey = retryKey(record);
 
         try {
             DemoTransaction message = requirePayload(record);
+            if (duplicateFilter.isDuplicate(GROUP_ID, record, message.getMessageId())) {
+                // Already processed on this partition; redelivered because its offset was not committed yet.
+                ackPipeline.acknowledge(GROUP_ID, record, ack);
+                retryTracker.clear(GROUP_ID, record);
+                return;
+            }
             log.info("Processing message: {}", message);
             log.info("event=consume_start pattern=error-handling groupId={} memberId={} topic={} partition={} offset={} key={} messageId={} attemptsSoFar={}",
                 GROUP_ID,
@@ -63,7 +140,7 @@ public class ErrorHandlingConsumer {
                 record.offset(),
                 record.key(),
                 message.getMessageId(),
-                currentAttempts(retryKey));
+                attemptsSoFar(record));
             log.info("event=message_details pattern=error-handling groupId={} memberId={} sourceId={} targetId={} amount={}",
                 GROUP_ID,
                 memberId,
@@ -72,11 +149,12 @@ public class ErrorHandlingConsumer {
                 message.getAmount());
 
             processMessage(message);
+            duplicateFilter.remember(GROUP_ID, record, message.getMessageId());
 
             // Success path: process first, then acknowledge.
             // Keeping the ack after business success preserves at-least-once delivery for transient failures.
-            ack.acknowledge();
-            retryCounters.remove(retryKey);
+            ackPipeline.acknowledge(GROUP_ID, record, ack);
+            retryTracker.clear(GROUP_ID, record);
             log.info("event=consume_success pattern=error-handling groupId={} memberId={} partition={} offset={} durationMs={} status=acknowledged",
                 GROUP_ID,
                 memberId,
@@ -84,11 +162,13 @@ public class ErrorHandlingConsumer {
                 record.offset(),
                 elapsedMillis(startTime));
         } catch (RetryableProcessingException ex) {
-            int attempts = retryCounters.computeIfAbsent(retryKey, key -> new AtomicInteger()).incrementAndGet();
+            int attempts = retryMode == RetryMode.TOPICS
+                ? attemptsSoFar(record) + 1
+                : retryTracker.recordFailure(GROUP_ID, record);
             long backoffMs = exponentialBackoff(attempts);
 
             // Retryable errors are temporary infrastructure or dependency failures.
-            // We intentionally do not acknowledge here so Kafka redelivers the record later.
+            // In TOPICS mode the attempt count travels with the record in headers; otherwise we keep it locally and do not acknowledge.
             // After three attempts, we stop retrying and move the record to DLQ to avoid an endless poison-pill loop.
             log.error("event=retryable_failure pattern=error-handling groupId={} memberId={} partition={} offset={} durationMs={} attempt={} maxAttempts={} backoffMs={} error={}",
                 GROUP_ID,
@@ -103,9 +183,8 @@ public class ErrorHandlingConsumer {
                 ex);
 
             if (attempts >= MAX_RETRY_ATTEMPTS) {
-                sendToDlq(record, memberId, attempts, ex);
-                ack.acknowledge();
-                retryCounters.remove(retryKey);
+                ackPipeline.acknowledgeWhen(GROUP_ID, record, ack, sendToDlq(record, memberId, attempts, ex));
+                retryTracker.clear(GROUP_ID, record);
                 log.warn("event=retryable_to_dlq pattern=error-handling groupId={} memberId={} partition={} offset={} attempts={} action=dlq_then_ack",
                     GROUP_ID,
                     memberId,
@@ -115,19 +194,68 @@ public class ErrorHandlingConsumer {
                 return;
             }
 
-            sleepBackoff(backoffMs);
+            if (retryMode == RetryMode.TOPICS) {
+                // Hand the record to the next delay tier and move on: the main partition is never held up by a poison record.
+                ackPipeline.acknowledgeWhen(GROUP_ID, record, ack, sendToRetryTier(record, memberId, attempts, backoffMs, ex));
+                return;
+            }
+
+            if (retryMode == RetryMode.PAUSE) {
+                // Rewind and pause only this partition; the consumer thread returns to polling immediately.
+                retryScheduler.retryLater(listenerId, record, consumer, backoffMs);
+                return;
+            }
+
+            sleepBackoff(listenerId, backoffMs);
         } catch (DeserializationException ex) {
-            handlePermanentFailure(record, ack, retryKey, memberId, startTime, "deserialization", ex);
+            handlePermanentFailure(record, ack, memberId, startTime, "deserialization", ex);
         } catch (NonRetryableProcessingException | IllegalArgumentException ex) {
             // Permanent errors should not be retried because they will keep failing on every redelivery.
             // The dead-letter queue pattern preserves the bad record for investigation, replay tooling, and operator alerts.
             // Monitoring the DLQ is critical; otherwise failures are merely displaced instead of operationally resolved.
-            handlePermanentFailure(record, ack, retryKey, memberId, startTime, "non-retryable", ex);
+            handlePermanentFailure(record, ack, memberId, startTime, "non-retryable", ex);
         } catch (Exception ex) {
-            handlePermanentFailure(record, ack, retryKey, memberId, startTime, "unexpected", ex);
+            handlePermanentFailure(record, ack, memberId, startTime, "unexpected", ex);
         }
     }
 
+    /**
+     * Consumes the delay-tiered retry topics.
+     *
+     * <p>Records in one tier share the same delay, so they become due in offset order. A record that is not due yet is
+     * rewound and its retry partition paused for the remaining delay; the container keeps polling so the group membership
+     * stays alive, and redelivers the record once the partition resumes. Due records go through the normal processing path.</p>
+     *
+     * <p>Starts only in {@code TOPICS} mode, the only mode that publishes to the tiers. Unlike the main listener it keeps
+     * running in fan-out mode: {@link FanOutDispatcher} reads {@code demo-messages} only, and its error-handling handler
+     * still publishes retries here.</p>
+     */
+    @KafkaListener(
+        id = RETRY_LISTENER_ID,
+        topics = {KafkaTopicConfig.DEMO_RETRY_250MS_TOPIC, KafkaTopicConfig.DEMO_RETRY_500MS_TOPIC},
+        groupId = GROUP_ID,
+        containerFactory = "manualAckListenerContainerFactory",
+        autoStartup = "#{'${app.kafka.consumers.error-handling.retry-mode:TOPICS}' == 'TOPICS'}"
+    )
+    public void consumeRetry(ConsumerRecord<String, DemoTransaction> record, Acknowledgment ack, Consumer<?, ?> consumer) {
+        if (ackPipeline.rewindIfFailed(GROUP_ID, record, consumer) || retryScheduler.isRewound(record, consumer)) {
+            return;
+        }
+        long remainingMs = longHeader(record, RETRY_DUE_AT_HEADER, 0L) - System.currentTimeMillis();
+        if (remainingMs > 0) {
+            log.debug("event=retry_not_due pattern=error-handling groupId={} memberId={} topic={} partition={} offset={} remainingMs={} action=pause_partition",
+                GROUP_ID,
+                currentMemberId(),
+                record.topic(),
+                record.partition(),
+                record.offset(),
+                remainingMs);
+            retryScheduler.retryLater(RETRY_LISTENER_ID, record, consumer, remainingMs);
+            return;
+        }
+        process(record, ack, consumer, RETRY_LISTENER_ID);
+    }
+
     private void processMessage(DemoTransaction message) throws InterruptedException {
         String description = message.getDescription() == null ? "" : message.getDescription().toUpperCase();
 
@@ -148,7 +276,6 @@ public class ErrorHandlingConsumer {
     private void handlePermanentFailure(
             ConsumerRecord<String, DemoTransaction> record,
             Acknowledgment ack,
-            String retryKey,
             String memberId,
             long startTime,
             String errorType,
@@ -164,9 +291,8 @@ public class ErrorHandlingConsumer {
             ex.getMessage(),
             ex);
 
-        sendToDlq(record, memberId, MAX_RETRY_ATTEMPTS, ex);
-        ack.acknowledge();
-        retryCounters.remove(retryKey);
+        ackPipeline.acknowledgeWhen(GROUP_ID, record, ack, sendToDlq(record, memberId, MAX_RETRY_ATTEMPTS, ex));
+        retryTracker.clear(GROUP_ID, record);
         log.warn("event=permanent_to_dlq pattern=error-handling groupId={} memberId={} partition={} offset={} action=dlq_then_ack",
             GROUP_ID,
             memberId,
@@ -174,19 +300,9 @@ public class ErrorHandlingConsumer {
             record.offset());
     }
 
-    private void sendToDlq(ConsumerRecord<String, DemoTransaction> record, String memberId, int attempts, Exception ex) {
-        if (record.value() == null) {
-            log.warn("event=dlq_skip pattern=error-handling groupId={} memberId={} partition={} offset={} attempts={} reason=null_payload error={}",
-                GROUP_ID,
-                memberId,
-                record.partition(),
-                record.offset(),
-                attempts,
-                ex.getMessage());
-            return;
-        }
-
-        kafkaTemplate.send(KafkaTopicConfig.DEMO_DLQ_TOPIC, record.key(), record.value());
+    private CompletableFuture<?> sendToDlq(ConsumerRecord<String, DemoTransaction> record, String memberId, int attempts, Exception ex) {
+        // Forwards the bytes that were read, so records that never decoded reach the DLQ too.
+        CompletableFuture<?> sent = dlqPublisher.publish(record, GROUP_ID, attempts, ex);
         log.warn("event=dlq_send pattern=error-handling groupId={} memberId={} dlqTopic={} partition={} offset={} attempts={} messageId={} error={}",
             GROUP_ID,
             memberId,
@@ -194,13 +310,45 @@ public class ErrorHandlingConsumer {
             record.partition(),
             record.offset(),
             attempts,
-            record.value().getMessageId(),
+            record.value() == null ? null : record.value().getMessageId(),
             ex.getMessage());
+        return sent;
+    }
+
+    private CompletableFuture<?> sendToRetryTier(
+            ConsumerRecord<String, DemoTransaction> record,
+            String memberId,
+            int attempts,
+            long backoffMs,
+            Exception ex) {
+
+        String retryTopic = RETRY_TIER_TOPICS.get(attempts - 1);
+        ProducerRecord<String, DemoTransaction> retryRecord = new ProducerRecord<>(retryTopic, record.key(), record.value());
+        // Keep pointing at the first failure so operators can trace a record back through every tier.
+        retryRecord.headers()
+            .add(RETRY_ATTEMPTS_HEADER, headerValue(attempts))
+            .add(RETRY_DUE_AT_HEADER, headerValue(System.currentTimeMillis() + backoffMs))
+            .add(RETRY_ORIGINAL_TOPIC_HEADER, headerValue(stringHeader(record, RETRY_ORIGINAL_TOPIC_HEADER, record.topic())))
+            .add(RETRY_ORIGINAL_PARTITION_HEADER, headerValue(longHeader(record, RETRY_ORIGINAL_PARTITION_HEADER, record.partition())))
+            .add(RETRY_ORIGINAL_OFFSET_HEADER, headerValue(longHeader(record, RETRY_ORIGINAL_OFFSET_HEADER, record.offset())))
+            .add(RETRY_ERROR_HEADER, headerValue(String.valueOf(ex.getMessage())));
+
+        CompletableFuture<?> sent = kafkaTemplate.send(retryRecord);
+        log.warn("event=retry_scheduled pattern=error-handling groupId={} memberId={} retryTopic={} partition={} offset={} attempts={} backoffMs={} messageId={}",
+            GROUP_ID,
+            memberId,
+            retryTopic,
+            record.partition(),
+            record.offset(),
+            attempts,
+            backoffMs,
+            record.value().getMessageId());
+        return sent;
     }
 
     private DemoTransaction requirePayload(ConsumerRecord<String, DemoTransaction> record) {
         if (record == null || record.value() == null) {
-            throw new IllegalArgumentException("DemoTransaction payload is null. In production, consider a raw-byte DLQ for malformed records that cannot be deserialized into typed objects.");
+            throw new IllegalArgumentException("DemoTransaction payload is null. Its original bytes still reach the DLQ through DlqPublisher.");
         }
         return record.value();
     }
@@ -209,7 +357,8 @@ public class ErrorHandlingConsumer {
         return Math.min(BASE_BACKOFF_MS * (1L << Math.max(0, attempt - 1)), 2_000L);
     }
 
-    private void sleepBackoff(long backoffMs) {
+    private void sleepBackoff(String listenerId, long backoffMs) {
+        PartitionPauseRetryScheduler.recordBackoff(listenerId, true, backoffMs);
         try {
             Thread.sleep(backoffMs);
         } catch (InterruptedException interruptedException) {
@@ -223,12 +372,26 @@ public class ErrorHandlingConsumer {
         }
     }
 
-    private String retryKey(ConsumerRecord<String, DemoTransaction> record) {
-        return record.topic() + '-' + record.partition() + '-' + record.offset();
+    private int attemptsSoFar(ConsumerRecord<String, DemoTransaction> record) {
+        if (retryMode == RetryMode.TOPICS) {
+            return (int) longHeader(record, RETRY_ATTEMPTS_HEADER, 0L);
+        }
+        return retryTracker.attempts(GROUP_ID, record);
+    }
+
+    private long longHeader(ConsumerRecord<String, DemoTransaction> record, String name, long defaultValue) {
+        String value = stringHeader(record, name, null);
+        return value == null ? defaultValue : Long.parseLong(value);
+    }
+
+    private String stringHeader(ConsumerRecord<String, DemoTransaction> record, String name, String defaultValue) {
+        Header header = record.headers().lastHeader(name);
+        return header == null || header.value() == null ? defaultValue : new String(header.value(), StandardCharsets.UTF_8);
     }
 
-    private int currentAttempts(String retryKey) {
-        return retryCounters.getOrDefault(retryKey, new AtomicInteger(0)).get();
+    private byte[] headerValue(Object value) {
+        // Plain decimal text keeps the headers readable in kafka-ui and kafka-console-consumer.
+        return String.valueOf(value).getBytes(StandardCharsets.UTF_8);
     }
 
     private String currentMemberId() {
@@ -0,0 +1,454 @@
+package io.github.serkutyildirim.kafka.consumer;
+
+import io.github.serkutyildirim.kafka.config.KafkaTopicConfig;
+import io.github.serkutyildirim.kafka.model.DemoTransaction;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Single-fetch fan-out: one consumer reads {@code demo-messages} once and feeds every logical consumer group in the JVM.
+ *
+ * <p><b>Why fan out?</b> {@link SimpleConsumer}, {@link GroupedConsumer}, {@link ManualAckConsumer},
+ * {@link ErrorHandlingConsumer} and {@link BatchConsumer} each subscribe under their own group, so every record is fetched,
+ * decompressed and deserialized five times. In fan-out mode ({@code app.kafka.consumers.fan-out.enabled=true}) their own
+ * containers stay stopped and this dispatcher does the fetch and decode once.</p>
+ *
+ * <p><b>Independent positions per logical group:</b> each handler has its own next offset per partition, advanced
+ * according to its commit semantics (see {@link FanOutHandler}). The dispatcher commits the <em>lowest</em> position for its
+ * own group and stores every handler's position in the commit metadata ({@code fanout-v1:group=offset,...}). After a restart
+ * or rebalance, handlers that were ahead skip what they already processed, so a slow or failing handler never makes
+ * the others re-run records.</p>
+ *
+ * <p><b>Redelivery:</b> after the commit, each partition is sought back to the lowest position of its record and batch
+ * handlers, so records a batch handler failed on are fetched again and handed only to the handlers that still need them.
+ * A batch failure is retried up to {@code app.kafka.consumers.batch.max-attempts} times, like the batch container's
+ * {@code DefaultErrorHandler}, then the failing record (or the whole slice, without a record index) goes to
+ * {@code demo-dlq}. Manual-ack handlers are left out of the rewind: as with {@code AckMode.MANUAL}, a missing
+ * acknowledgement alone does not redeliver, and their confirmed acknowledgements may still be in flight.</p>
+ *
+ * <p><b>Threading:</b> handlers run concurrently on virtual threads, each over its own ordered slice of the batch. The
+ * poll thread waits for all of them before committing. Manual-ack handlers may acknowledge later, from the producer thread
+ * that confirmed a retry or DLQ write, so positions are atomic and only ever move forward. Handlers never get the Kafka consumer, so in-place retry with
+ * pause/resume is not available here. Use the retry topics of {@link ErrorHandlingConsumer} instead.</p>
+ *
+ * <p><b>Common pitfalls:</b></p>
+ * <ul>
+ *   <li>The slowest handler sets the pace of the shared poll loop; keep per-batch work well under {@code max.poll.interval.ms}.</li>
+ *   <li>Blocking retries ({@code retry-mode=BLOCKING}) stall every handler, not just the one that sleeps.</li>
+ *   <li>Handlers keep their group names for logs and positions, but the broker only sees {@value #GROUP_ID}; lag tools must read it there.</li>
+ * </ul>
+ */
+@Component
+@Slf4j
+public class FanOutDispatcher implements ConsumerAwareRebalanceListener {
+
+    public static final String GROUP_ID = "demo-messages-fanout-group";
+    static final String LISTENER_ID = "fan-out-dispatcher";
+    private static final String METADATA_PREFIX = "fanout-v1:";
+    private static final long UNKNOWN = -1L;
+    private static final long DLQ_SEND_TIMEOUT_SECONDS = 10L;
+
+    private final List<FanOutHandler> handlers;
+    private final Map<TopicPartition, AtomicLongArray> positions = new ConcurrentHashMap<>();
+    // Owned by this bean and closed with it, so a context restart does not leave handler runs behind.
+    private final ExecutorService workers =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("kafka-fanout-", 0).factory());
+    // Next offset already handed to each manual-ack handler; a rewind for another handler must not repeat those records.
+    private final Map<TopicPartition, long[]> handedOut = new ConcurrentHashMap<>();
+
+    @Value("${app.kafka.consumers.batch.max-attempts:3}")
+    private int batchMaxAttempts = 3;
+
+    @Autowired
+    private DlqPublisher dlqPublisher;
+
+    @Autowired
+    private PartitionRetryTracker retryTracker;
+
+    @Autowired
+    private ConfirmedAckPipeline ackPipeline;
+
+    @Autowired
+    public FanOutDispatcher(
+            SimpleConsumer simpleConsumer,
+            GroupedConsumer groupedConsumer,
+            ManualAckConsumer manualAckConsumer,
+            ErrorHandlingConsumer errorHandlingConsumer,
+            BatchConsumer batchConsumer) {
+        // A null Consumer tells the manual-ack handlers they do not own the fetch position and must not seek it.
+        this(List.of(
+            FanOutHandler.records(SimpleConsumer.GROUP_ID, simpleConsumer::consume),
+            FanOutHandler.records(GroupedConsumer.GROUP_ID, groupedConsumer::consume),
+            FanOutHandler.acknowledging(ManualAckConsumer.GROUP_ID, (record, ack) -> manualAckConsumer.consume(record, ack, null)),
+            FanOutHandler.acknowledging(ErrorHandlingConsumer.GROUP_ID, (record, ack) -> errorHandlingConsumer.consume(record, ack, null)),
+            FanOutHandler.batch(BatchConsumer.GROUP_ID, batchConsumer::consumeBatch)));
+    }
+
+    FanOutDispatcher(List<FanOutHandler> handlers) {
+        this.handlers = List.copyOf(handlers);
+    }
+
+    /**
+     * Dispatches one poll to every handler, commits the lowest handler position per partition, then seeks back to
+     * what a record or batch handler still has to process.
+     */
+    @KafkaListener(
+        id = LISTENER_ID,
+        topics = KafkaTopicConfig.DEMO_MESSAGES_TOPIC,
+        groupId = GROUP_ID,
+        containerFactory = "fanOutListenerContainerFactory",
+        autoStartup = "${app.kafka.consumers.fan-out.enabled:false}"
+    )
+    public void dispatch(List<ConsumerRecord<String, DemoTransaction>> records, Consumer<?, ?> consumer) {
+        if (records.isEmpty()) {
+            return;
+        }
+        Map<TopicPartition, AtomicLongArray> touched = resolvePositions(records);
+
+        List<CompletableFuture<Void>> runs = new ArrayList<>(handlers.size());
+        for (int index = 0; index < handlers.size(); index++) {
+            List<ConsumerRecord<String, DemoTransaction>> pending = pendingFor(index, records);
+            if (pending.isEmpty()) {
+                continue;
+            }
+            int handlerIndex = index;
+            runs.add(CompletableFuture.runAsync(() -> deliver(handlerIndex, pending), workers));
+        }
+        CompletableFuture.allOf(runs.toArray(CompletableFuture[]::new)).join();
+
+        commit(consumer, touched);
+        rewind(consumer, records);
+    }
+
+    /**
+     * Waits for handler runs that are still in progress, then releases the executor. The container stops before this runs,
+     * so normally nothing is left to wait for.
+     */
+    @PreDestroy
+    public void stop() {
+        workers.close();
+    }
+
+    @Override
+    public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        if (partitions.isEmpty()) {
+            return;
+        }
+        Map<TopicPartition, OffsetAndMetadata> committed = consumer.committed(new HashSet<>(partitions));
+        for (TopicPartition partition : partitions) {
+            positions.put(partition, decode(committed.get(partition)));
+        }
+        log.info("event=fan_out_assigned groupId={} partitions={} handlers={}", GROUP_ID, partitions, handlers.size());
+    }
+
+    @Override
+    public void onPartitionsRevokedAfterCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        release(partitions, "revoked");
+    }
+
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        release(partitions, "lost");
+    }
+
+    /**
+     * Next offset the handler of {@code groupId} will process on the partition, or -1 if unknown.
+     */
+    long position(String groupId, TopicPartition partition) {
+        AtomicLongArray partitionPositions = positions.get(partition);
+        int index = indexOf(groupId);
+        return partitionPositions == null || index < 0 ? UNKNOWN : partitionPositions.get(index);
+    }
+
+    private Map<TopicPartition, AtomicLongArray> resolvePositions(List<ConsumerRecord<String, DemoTransaction>> records) {
+        Map<TopicPartition, AtomicLongArray> touched = new LinkedHashMap<>();
+        for (ConsumerRecord<String, DemoTransaction> record : records) {
+            TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+            if (touched.containsKey(partition)) {
+                continue;
+            }
+            AtomicLongArray partitionPositions = positions.computeIfAbsent(partition, ignored -> unknownPositions());
+            handedOut.computeIfAbsent(partition, ignored -> new long[handlers.size()]);
+            // No commit yet: the first fetched record (auto.offset.reset) is where every handler starts.
+            for (int index = 0; index < partitionPositions.length(); index++) {
+                partitionPositions.compareAndSet(index, UNKNOWN, record.offset());
+            }
+            touched.put(partition, partitionPositions);
+        }
+        return touched;
+    }
+
+    private List<ConsumerRecord<String, DemoTransaction>> pendingFor(int index, List<ConsumerRecord<String, DemoTransaction>> records) {
+        boolean acknowledging = handlers.get(index) instanceof FanOutHandler.Acknowledging;
+        List<ConsumerRecord<String, DemoTransaction>> pending = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, DemoTransaction> record : records) {
+            TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+            // Records below the handler's position were processed before the last restart, rebalance or rewind.
+            long from = positions.get(partition).get(index);
+            long[] handed = handedOut.get(partition);
+            if (acknowledging) {
+                // Their acknowledgement may still be on its way from the producer thread.
+                from = Math.max(from, handed[index]);
+            }
+            if (record.offset() >= from) {
+                pending.add(record);
+                if (acknowledging) {
+                    handed[index] = record.offset() + 1;
+                }
+            }
+        }
+        return pending;
+    }
+
+    private void deliver(int index, List<ConsumerRecord<String, DemoTransaction>> pending) {
+        FanOutHandler handler = handlers.get(index);
+        switch (handler) {
+            case FanOutHandler.Records records -> {
+                for (ConsumerRecord<String, DemoTransaction> record : pending) {
+                    invoke(handler, record, () -> records.listener().accept(record));
+                    // Container-managed commit: a record counts as consumed once the listener returned or its failure was logged.
+                    advance(index, record);
+                }
+            }
+            case FanOutHandler.Acknowledging acknowledging -> {
+                for (ConsumerRecord<String, DemoTransaction> record : pending) {
+                    invoke(handler, record, () -> acknowledging.listener().accept(record, () -> advance(index, record)));
+                }
+            }
+            case FanOutHandler.Batch batch -> {
+                int processed = pending.size();
+                try {
+                    batch.listener().accept(pending);
+                } catch (RuntimeException ex) {
+                    int failed = ex instanceof BatchListenerFailedException listenerFailed ? failedIndex(listenerFailed, pending) : -1;
+                    // Same as AckMode.BATCH with DefaultErrorHandler: only the records before the failing one count as consumed,
+                    // and the failing record (or, without an index, the whole slice) is dead-lettered once attempts run out.
+                    processed = failed < 0
+                        ? recover(index, pending, ex)
+                        : failed + recover(index, pending.subList(failed, failed + 1), ex);
+                }
+                for (int i = 0; i < processed; i++) {
+                    advance(index, pending.get(i));
+                }
+            }
+        }
+    }
+
+    private void invoke(FanOutHandler handler, ConsumerRecord<String, DemoTransaction> record, Runnable call) {
+        try {
+            call.run();
+        } catch (RuntimeException ex) {
+            logFailure(handler, record, ex);
+        }
+    }
+
+    private static int failedIndex(BatchListenerFailedException ex, List<ConsumerRecord<String, DemoTransaction>> pending) {
+        int failed = ex.getRecord() != null ? pending.indexOf(ex.getRecord()) : ex.getIndex();
+        // An index outside the slice tells us nothing about what succeeded, so it is handled like a failure without one.
+        return failed < 0 || failed >= pending.size() ? -1 : failed;
+    }
+
+    /**
+     * Counts a failed batch attempt and dead-letters {@code failing} once the attempts are used up.
+     *
+     * @return how many of the failing records were dead-lettered and now count as consumed
+     */
+    private int recover(int index, List<ConsumerRecord<String, DemoTransaction>> failing, RuntimeException ex) {
+        FanOutHandler handler = handlers.get(index);
+        ConsumerRecord<String, DemoTransaction> first = failing.getFirst();
+        logFailure(handler, first, ex);
+        int attempts = retryTracker.recordFailure(handler.groupId(), first);
+        if (attempts < batchMaxAttempts) {
+            // The rewind after the commit fetches it again on the next poll.
+            return 0;
+        }
+        int recovered = 0;
+        for (ConsumerRecord<String, DemoTransaction> record : failing) {
+            if (!deadLetter(handler, record, attempts, ex)) {
+                // Stays unconsumed; the next poll retries the DLQ write, since the attempt count is already used up.
+                break;
+            }
+            recovered++;
+        }
+        if (recovered == failing.size()) {
+            retryTracker.clear(handler.groupId(), first);
+        }
+        return recovered;
+    }
+
+    private boolean deadLetter(FanOutHandler handler, ConsumerRecord<String, DemoTransaction> record, int attempts, RuntimeException ex) {
+        try {
+            // Waits for the broker, like the batch container's recoverer: the position must not pass a record that is not in the DLQ.
+            dlqPublisher.publish(record, handler.groupId(), attempts, ex).get(DLQ_SEND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException failed) {
+            log.error("event=dlq_send_failure pattern=fan-out groupId={} handlerGroup={} partition={} offset={} attempts={} error={}",
+                GROUP_ID,
+                handler.groupId(),
+                record.partition(),
+                record.offset(),
+                attempts,
+                failed.getMessage());
+            return false;
+        }
+        log.warn("event=dlq_send pattern=fan-out groupId={} handlerGroup={} dlqTopic={} partition={} offset={} attempts={} error={}",
+            GROUP_ID,
+            handler.groupId(),
+            KafkaTopicConfig.DEMO_DLQ_TOPIC,
+            record.partition(),
+            record.offset(),
+            attempts,
+            ex.getMessage());
+        return true;
+    }
+
+    private void logFailure(FanOutHandler handler, ConsumerRecord<String, DemoTransaction> record, RuntimeException ex) {
+        // One handler's failure must not hold back the others; its own position policy decides what is redelivered.
+        log.error("event=consume_failure pattern=fan-out groupId={} handlerGroup={} partition={} offset={} errorType=unhandled error={}",
+            GROUP_ID,
+            handler.groupId(),
+            record.partition(),
+            record.offset(),
+            ex.getMessage(),
+            ex);
+    }
+
+    private void advance(int index, ConsumerRecord<String, DemoTransaction> record) {
+        AtomicLongArray partitionPositions = positions.get(new TopicPartition(record.topic(), record.partition()));
+        if (partitionPositions == null) {
+            // A late acknowledgement for a partition that was revoked in the meantime; the new owner redelivers it.
+            return;
+        }
+        // Same rule as AckMode.MANUAL: acknowledging an offset commits everything before it.
+        partitionPositions.accumulateAndGet(index, record.offset() + 1, Math::max);
+    }
+
+    private void commit(Consumer<?, ?> consumer, Map<TopicPartition, AtomicLongArray> touched) {
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        touched.forEach((partition, current) -> {
+            // One snapshot per partition, so the committed offset and the metadata agree even if an acknowledgement lands now.
+            long[] partitionPositions = snapshot(current);
+            offsets.put(partition, new OffsetAndMetadata(Arrays.stream(partitionPositions).min().orElseThrow(), encode(partitionPositions)));
+        });
+        consumer.commitSync(offsets);
+        log.debug("event=fan_out_commit groupId={} offsets={}", GROUP_ID, offsets);
+    }
+
+    private void rewind(Consumer<?, ?> consumer, List<ConsumerRecord<String, DemoTransaction>> records) {
+        Map<TopicPartition, Long> fetched = new LinkedHashMap<>();
+        for (ConsumerRecord<String, DemoTransaction> record : records) {
+            fetched.put(new TopicPartition(record.topic(), record.partition()), record.offset() + 1);
+        }
+        fetched.forEach((partition, next) -> {
+            AtomicLongArray partitionPositions = positions.get(partition);
+            long from = next;
+            for (int index = 0; index < handlers.size(); index++) {
+                if (!(handlers.get(index) instanceof FanOutHandler.Acknowledging)) {
+                    from = Math.min(from, partitionPositions.get(index));
+                }
+            }
+            if (from < next) {
+                // Without the seek the next poll starts after the failed records and a later batch moves the position past them.
+                consumer.seek(partition, from);
+                log.debug("event=fan_out_rewind groupId={} partition={} offset={}", GROUP_ID, partition, from);
+            }
+        });
+    }
+
+    private String encode(long[] partitionPositions) {
+        StringBuilder metadata = new StringBuilder(METADATA_PREFIX);
+        for (int index = 0; index < handlers.size(); index++) {
+            if (index > 0) {
+                metadata.append(',');
+            }
+            metadata.append(handlers.get(index).groupId()).append('=').append(partitionPositions[index]);
+        }
+        return metadata.toString();
+    }
+
+    private AtomicLongArray decode(OffsetAndMetadata committed) {
+        long[] partitionPositions = new long[handlers.size()];
+        Arrays.fill(partitionPositions, committed == null ? UNKNOWN : committed.offset());
+        String metadata = committed == null ? null : committed.metadata();
+        if (metadata == null || !metadata.startsWith(METADATA_PREFIX)) {
+            return new AtomicLongArray(partitionPositions);
+        }
+        for (String entry : metadata.substring(METADATA_PREFIX.length()).split(",")) {
+            int separator = entry.lastIndexOf('=');
+            int index = separator < 0 ? -1 : indexOf(entry.substring(0, separator));
+            if (index >= 0) {
+                // Never start below the committed offset: those records are gone for the fan-out group.
+                partitionPositions[index] = Math.max(committed.offset(), Long.parseLong(entry.substring(separator + 1)));
+            }
+        }
+        return new AtomicLongArray(partitionPositions);
+    }
+
+    private void release(Collection<TopicPartition> partitions, String reason) {
+        for (TopicPartition partition : partitions) {
+            positions.remove(partition);
+            handedOut.remove(partition);
+        }
+        // Manual-ack and batch handlers count retries, and manual-ack handlers chain acknowledgements, under their own group;
+        // neither sees this container's rebalances.
+        for (FanOutHandler handler : handlers) {
+            if (handler instanceof FanOutHandler.Acknowledging) {
+                retryTracker.release(handler.groupId(), partitions);
+                ackPipeline.release(handler.groupId(), partitions);
+            } else if (handler instanceof FanOutHandler.Batch) {
+                retryTracker.release(handler.groupId(), partitions);
+            }
+        }
+        log.info("event=fan_out_released groupId={} reason={} partitions={}", GROUP_ID, reason, partitions);
+    }
+
+    private AtomicLongArray unknownPositions() {
+        return decode(null);
+    }
+
+    private static long[] snapshot(AtomicLongArray partitionPositions) {
+        long[] copy = new long[partitionPositions.length()];
+        for (int index = 0; index < copy.length; index++) {
+            copy[index] = partitionPositions.get(index);
+        }
+        return copy;
+    }
+
+    private int indexOf(String groupId) {
+        for (int index = 0; index < handlers.size(); index++) {
+            if (handlers.get(index).groupId().equals(groupId)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,50 @@
+package io.github.serkutyildirim.kafka.consumer;
+
+import io.github.serkutyildirim.kafka.model.DemoTransaction;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * One logical consumer group served by {@link FanOutDispatcher}.
+ *
+ * <p>The three shapes mirror the container modes the handlers use when they run standalone:</p>
+ * <ul>
+ *   <li>{@link Records}: record listener with container-managed commits; the position advances after every record.</li>
+ *   <li>{@link Acknowledging}: record listener with {@code AckMode.MANUAL}; the position advances only on {@code acknowledge()}.</li>
+ *   <li>{@link Batch}: batch listener with {@code AckMode.BATCH}; the position advances after the whole batch returns, only up
+ *       to the failing record on {@code BatchListenerFailedException}, and not at all on any other exception. Failed records
+ *       are fetched again and dead-lettered after {@code app.kafka.consumers.batch.max-attempts}.</li>
+ * </ul>
+ */
+public sealed interface FanOutHandler {
+
+    /**
+     * Logical group whose position this handler owns.
+     */
+    String groupId();
+
+    static FanOutHandler records(String groupId, Consumer<ConsumerRecord<String, DemoTransaction>> listener) {
+        return new Records(groupId, listener);
+    }
+
+    static FanOutHandler acknowledging(String groupId, BiConsumer<ConsumerRecord<String, DemoTransaction>, Acknowledgment> listener) {
+        return new Acknowledging(groupId, listener);
+    }
+
+    static FanOutHandler batch(String groupId, Consumer<List<ConsumerRecord<String, DemoTransaction>>> listener) {
+        return new Batch(groupId, listener);
+    }
+
+    record Records(String groupId, Consumer<ConsumerRecord<String, DemoTransaction>> listener) implements FanOutHandler {
+    }
+
+    record Acknowledging(String groupId, BiConsumer<ConsumerRecord<String, DemoTransaction>, Acknowledgment> listener) implements FanOutHandler {
+    }
+
+    record Batch(String groupId, Consumer<List<ConsumerRecord<String, DemoTransaction>>> listener) implements FanOutHandler {
+    }
+}
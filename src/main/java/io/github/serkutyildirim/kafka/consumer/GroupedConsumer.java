@@ -19,7 +19,7 @@ import org.springframework.stereotype.Component;
 @Slf4j
 public class GroupedConsumer {
 
-    private static final String GROUP_ID = "grouped-consumer-1";
+    static final String GROUP_ID = "grouped-consumer-1";
 
     /**
      * Pattern name: Grouped Consumer Example.
@@ -30,7 +30,8 @@ public class GroupedConsumer {
     @KafkaListener(
         topics = KafkaTopicConfig.DEMO_MESSAGES_TOPIC,
         groupId = GROUP_ID,
-        containerFactory = "kafkaListenerContainerFactory"
+        containerFactory = "kafkaListenerContainerFactory",
+        autoStartup = "#{!${app.kafka.consumers.fan-out.enabled:false}}"
     )
     public void consume(ConsumerRecord<String, DemoTransaction> record) {
         long startTime = System.nanoTime();
@@ -0,0 +1,153 @@
+package io.github.serkutyildirim.kafka.consumer;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Minimal hashed timer wheel for many short, coarse-grained timeouts such as retry backoffs.
+ *
+ * <p><b>How it works:</b> time is cut into ticks of {@code tickMs}. A timeout lands in bucket
+ * {@code deadlineTick % wheelSize} together with the number of full wheel rotations still to wait. One worker thread
+ * advances a tick at a time and fires the timeouts in the current bucket whose rotation count has reached zero.</p>
+ *
+ * <p><b>Why not {@code ScheduledExecutorService}?</b> Scheduling and expiry are O(1) instead of O(log n) heap operations,
+ * and callers never contend on a shared heap: new timeouts are handed over through a lock-free queue. The price is
+ * precision: a timeout fires up to one tick late.</p>
+ *
+ * <p>Tasks run on the wheel thread and must be short; anything slow delays every other timeout.</p>
+ */
+@Slf4j
+public class HashedTimerWheel implements AutoCloseable {
+
+    private final String name;
+    private final long tickNanos;
+    private final int mask;
+    private final Queue<Timeout>[] buckets;
+    private final Queue<Timeout> incoming = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final long startNanos = System.nanoTime();
+
+    private volatile Thread worker;
+    private volatile boolean closed;
+    private long tick;
+
+    /**
+     * @param wheelSize number of buckets, rounded up to a power of two
+     */
+    @SuppressWarnings("unchecked")
+    public HashedTimerWheel(String name, long tickMs, int wheelSize) {
+        if (tickMs <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("tickMs and wheelSize must be positive");
+        }
+        int size = wheelSize == 1 ? 1 : Integer.highestOneBit(wheelSize - 1) << 1;
+        this.name = name;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMs);
+        this.mask = size - 1;
+        this.buckets = new Queue[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+    }
+
+    /**
+     * Runs {@code task} on the wheel thread once {@code delayMs} has elapsed (rounded up to the next tick).
+     *
+     * @throws IllegalStateException if the wheel has been closed
+     */
+    public void schedule(long delayMs, Runnable task) {
+        if (closed) {
+            throw new IllegalStateException("Timer wheel " + name + " is closed");
+        }
+        long deadline = System.nanoTime() - startNanos + TimeUnit.MILLISECONDS.toNanos(Math.max(0L, delayMs));
+        pending.incrementAndGet();
+        incoming.add(new Timeout(deadline, task));
+        startIfNecessary();
+    }
+
+    /**
+     * Timeouts scheduled but not fired yet.
+     */
+    public int pendingTimeouts() {
+        return pending.get();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        Thread current = worker;
+        if (current != null) {
+            current.interrupt();
+        }
+    }
+
+    private void startIfNecessary() {
+        if (worker != null) {
+            return;
+        }
+        synchronized (this) {
+            if (worker == null && !closed) {
+                // Started lazily so beans that never retry do not own an idle thread.
+                worker = Thread.ofPlatform().name(name).daemon().start(this::run);
+            }
+        }
+    }
+
+    private void run() {
+        while (!closed) {
+            long sleepNanos = (tick + 1) * tickNanos - (System.nanoTime() - startNanos);
+            if (sleepNanos > 0) {
+                LockSupport.parkNanos(this, sleepNanos);
+                continue;
+            }
+            transferIncoming();
+            expire(buckets[(int) (tick & mask)]);
+            tick++;
+        }
+        log.debug("event=timer_wheel_stopped name={} pendingTimeouts={}", name, pending.get());
+    }
+
+    private void transferIncoming() {
+        Timeout timeout;
+        while ((timeout = incoming.poll()) != null) {
+            // Deadlines already in the past go into the current bucket so they fire on this tick.
+            long deadlineTick = Math.max(tick, Math.ceilDiv(timeout.deadlineNanos, tickNanos) - 1);
+            timeout.remainingRounds = (deadlineTick - tick) / buckets.length;
+            buckets[(int) (deadlineTick & mask)].add(timeout);
+        }
+    }
+
+    private void expire(Queue<Timeout> bucket) {
+        for (Iterator<Timeout> iterator = bucket.iterator(); iterator.hasNext(); ) {
+            Timeout timeout = iterator.next();
+            if (timeout.remainingRounds > 0) {
+                timeout.remainingRounds--;
+                continue;
+            }
+            iterator.remove();
+            pending.decrementAndGet();
+            try {
+                timeout.task.run();
+            } catch (RuntimeException ex) {
+                log.error("event=timer_task_failure name={} error={}", name, ex.getMessage(), ex);
+            }
+        }
+    }
+
+    private static final class Timeout {
+        private final long deadlineNanos;
+        private final Runnable task;
+        private long remainingRounds;
+
+        private Timeout(long deadlineNanos, Runnable task) {
+            this.deadlineNanos = deadlineNanos;
+            this.task = task;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package io.github.serkutyildirim.kafka.consumer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.listener.AbstractMessageListenerContainer;
+import org.springframework.kafka.listener.AcknowledgingConsumerAwareMessageListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.kafka.listener.GenericMessageListener;
+import org.springframework.kafka.listener.ListenerType;
+import org.springframework.kafka.listener.ListenerUtils;
+import org.springframework.kafka.listener.MessageListener;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Container-level wrapper that runs an ordinary record listener on virtual threads, one ordered lane per record key.
+ *
+ * <p><b>Pattern name:</b> Key-ordered parallel consumer.</p>
+ * <p><b>Characteristics:</b> records with the same key run strictly one after another in offset order; records with
+ * different keys (or on different partitions) run concurrently. Parallelism is no longer capped by the partition count.</p>
+ * <p><b>Delivery guarantee:</b> at-least-once. Every record is acknowledged when its lane finishes it, and the container
+ * runs with {@code AckMode.MANUAL} plus {@code asyncAcks=true}, so out-of-order acknowledgements are held back and the
+ * committed offset only advances to the highest contiguous completed offset.</p>
+ *
+ * <p><b>How it is wired:</b> {@code KafkaConsumerConfig} installs the wrapper through a container customizer when
+ * {@code app.kafka.consumers.parallel.enabled=true}. Listener methods do not change; they simply start running on
+ * threads named {@code kafka-parallel-N}.</p>
+ *
+ * <p><b>Common pitfalls:</b></p>
+ * <ul>
+ *   <li>Records without a key share one lane per partition, so they keep partition ordering but gain no parallelism.</li>
+ *   <li>Listener methods must not declare {@code Acknowledgment} or {@code Consumer} parameters; the wrapper owns acknowledgement
+ *       and the Kafka consumer must never be touched from worker threads.</li>
+ *   <li>A listener exception is logged and the record is acknowledged anyway, so one poison record cannot stall its partition.
+ *       Listeners that need retries or a DLQ must handle them internally, as the demo consumers already do.</li>
+ *   <li>After a rebalance, acknowledgements for revoked partitions are dropped and those records are redelivered to the new owner.
+ *       Processing must be idempotent.</li>
+ * </ul>
+ *
+ * <p><b>Lifecycle:</b> each wrapper owns its worker executor. The container registers every consumer thread through
+ * {@link ConsumerSeekAware}; when the last one stops, the queued lanes are drained and the executor is closed. A restarted
+ * container gets a fresh executor.</p>
+ */
+@Slf4j
+public class KeyOrderedParallelListener<K, V> implements AcknowledgingConsumerAwareMessageListener<K, V>, ConsumerSeekAware {
+
+    private final GenericMessageListener<ConsumerRecord<K, V>> delegate;
+    private final ListenerType delegateType;
+    private final Semaphore inFlight;
+    private final Map<Lane, CompletableFuture<Void>> lanes = new ConcurrentHashMap<>();
+    private final Set<Thread> consumerThreads = new HashSet<>();
+    private volatile ExecutorService workers = newWorkers();
+
+    KeyOrderedParallelListener(GenericMessageListener<ConsumerRecord<K, V>> delegate, int maxInFlight) {
+        this.delegate = delegate;
+        this.delegateType = ListenerUtils.determineListenerType(delegate);
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    /**
+     * Replaces the container's record listener with a key-ordered parallel wrapper around it.
+     *
+     * @param maxInFlight records dispatched but not yet finished before the consumer thread waits for a free slot
+     * @throws IllegalStateException if the container uses a batch listener
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> void install(AbstractMessageListenerContainer<K, V> container, int maxInFlight) {
+        Object listener = container.getContainerProperties().getMessageListener();
+        if (!(listener instanceof MessageListener<?, ?>) && !(listener instanceof AcknowledgingConsumerAwareMessageListener<?, ?>)) {
+            throw new IllegalStateException("Key-ordered parallel mode supports record listeners only, but "
+                    + container.getListenerId() + " uses " + listener.getClass().getSimpleName());
+        }
+        container.setupMessageListener(new KeyOrderedParallelListener<>(
+                (GenericMessageListener<ConsumerRecord<K, V>>) listener, maxInFlight));
+        log.info("event=parallel_listener_installed listenerId={} maxInFlight={}", container.getListenerId(), maxInFlight);
+    }
+
+    @Override
+    public void onMessage(ConsumerRecord<K, V> record, Acknowledgment acknowledgment, Consumer<?, ?> consumer) {
+        try {
+            // Backpressure: the consumer thread waits here instead of buffering an unbounded number of records in memory.
+            inFlight.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a parallel worker slot", ex);
+        }
+
+        Lane lane = new Lane(record.topic(), record.partition(), record.key());
+        CompletableFuture<Void> tail = lanes.compute(lane, (ignored, previous) ->
+                (previous == null ? CompletableFuture.<Void>completedFuture(null) : previous)
+                        .thenRunAsync(() -> process(record, acknowledgment), workers));
+        // Drop the lane once it is idle so the map only holds keys that currently have work queued.
+        tail.whenComplete((ignored, ex) -> lanes.remove(lane, tail));
+    }
+
+    /**
+     * Called on each consumer thread as it starts (and again on idle checks); a restarted container gets a fresh executor.
+     */
+    @Override
+    public synchronized void registerSeekCallback(ConsumerSeekCallback callback) {
+        if (consumerThreads.add(Thread.currentThread()) && workers.isShutdown()) {
+            workers = newWorkers();
+        }
+    }
+
+    /**
+     * Called on each consumer thread as it stops; the last one drains every lane and closes the executor.
+     */
+    @Override
+    public synchronized void unregisterSeekCallback() {
+        if (!consumerThreads.remove(Thread.currentThread()) || !consumerThreads.isEmpty()) {
+            return;
+        }
+        // A closed executor would reject the rest of each lane's chain and leak its in-flight permits, so drain first.
+        CompletableFuture.allOf(lanes.values().toArray(CompletableFuture[]::new)).join();
+        workers.close();
+        log.info("event=parallel_listener_closed");
+    }
+
+    /**
+     * Whether the worker executor has been closed because every consumer thread stopped.
+     */
+    boolean isClosed() {
+        return workers.isTerminated();
+    }
+
+    /**
+     * Number of keys that currently have at least one record queued or running.
+     */
+    int activeLanes() {
+        return lanes.size();
+    }
+
+    private void process(ConsumerRecord<K, V> record, Acknowledgment acknowledgment) {
+        try {
+            // The real consumer stays on the container thread (it is not thread-safe), so consumer-aware delegates get null.
+            switch (delegateType) {
+                case SIMPLE -> delegate.onMessage(record);
+                case ACKNOWLEDGING -> delegate.onMessage(record, (Acknowledgment) null);
+                case CONSUMER_AWARE -> delegate.onMessage(record, (Consumer<?, ?>) null);
+                case ACKNOWLEDGING_CONSUMER_AWARE -> delegate.onMessage(record, null, null);
+            }
+        } catch (Exception ex) {
+            log.error("event=consume_failure pattern=parallel topic={} partition={} offset={} key={} errorType=unhandled error={}",
+                record.topic(),
+                record.partition(),
+                record.offset(),
+                record.key(),
+                ex.getMessage(),
+                ex);
+        } finally {
+            // Never let the chain complete exceptionally: thenRunAsync would skip every later record of this key.
+            try {
+                acknowledgment.acknowledge();
+            } catch (RuntimeException ex) {
+                log.warn("event=ack_failure pattern=parallel partition={} offset={} error={}", record.partition(), record.offset(), ex.getMessage());
+            } finally {
+                inFlight.release();
+            }
+        }
+    }
+
+    private static ExecutorService newWorkers() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("kafka-parallel-", 0).factory());
+    }
+
+    private record Lane(String topic, int partition, Object key) {
+
+        private Lane {
+            // Keyless records keep partition order; Kafka made no stronger promise for them anyway.
+            key = key == null ? NoKey.INSTANCE : key;
+        }
+    }
+
+    private enum NoKey {
+        INSTANCE
+    }
+}
@@ -0,0 +1,220 @@
+package io.github.serkutyildirim.kafka.consumer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Switches {@link SimpleConsumer} between its record listener and its catch-up batch listener based on consumer lag.
+ *
+ * <p><b>Pattern:</b> two listener containers in the same consumer group, only one running at a time. The record container
+ * ({@code kafkaListenerContainerFactory}) gives the lowest per-record latency; the batch container
+ * ({@code catchUpListenerContainerFactory}) polls larger batches and writes them in bulk, which drains a backlog faster.
+ * Both commit to the same group, so the one that takes over continues from the other's offsets.</p>
+ *
+ * <p><b>Hysteresis:</b> batch mode starts when any partition's lag exceeds {@code enter-lag}, and record mode returns only
+ * once every partition is below {@code exit-lag}. The gap between the two thresholds keeps a lag hovering around a single
+ * threshold from flapping the mode. Every switch costs a rebalance of the group.</p>
+ *
+ * <p><b>Lag source:</b> the {@code records-lag} fetch metric of the running container, per partition. Right after a switch the
+ * new container has not fetched yet and reports no lag; the controller keeps the current mode until it does.</p>
+ *
+ * <p><b>Metrics:</b> {@code kafka.consumer.catchup.mode} (0 record, 1 batch), {@code kafka.consumer.catchup.switches} (tagged
+ * with the target {@code mode}), {@code kafka.consumer.catchup.lag} (max partition lag) and
+ * {@code kafka.consumer.catchup.drain.rate} (records per second the total lag shrank since the previous check).</p>
+ */
+@Component
+@Slf4j
+public class LagAwareModeController {
+
+    enum Mode {
+        RECORD,
+        BATCH
+    }
+
+    private static final String LAG_METRIC = "records-lag";
+    private static final String FETCH_METRIC_GROUP = "consumer-fetch-manager-metrics";
+
+    @Value("${app.kafka.consumers.catch-up.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.kafka.consumers.catch-up.enter-lag:5000}")
+    private long enterLag = 5000;
+
+    @Value("${app.kafka.consumers.catch-up.exit-lag:500}")
+    private long exitLag = 500;
+
+    @Value("${app.kafka.consumers.catch-up.check-interval-ms:1000}")
+    private long checkIntervalMs = 1000;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry registry;
+
+    private volatile Mode mode = Mode.RECORD;
+    private volatile long maxLag;
+    private volatile double drainRate;
+    private long previousTotalLag = -1;
+    private long previousCheckNanos;
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void start() {
+        Gauge.builder("kafka.consumer.catchup.mode", this, controller -> controller.mode.ordinal())
+            .description("Consumption mode of the simple consumer: 0 record, 1 batch")
+            .tag("listener", SimpleConsumer.LISTENER_ID)
+            .register(Metrics.globalRegistry);
+        Gauge.builder("kafka.consumer.catchup.lag", this, controller -> controller.maxLag)
+            .description("Highest partition lag seen by the lag-aware mode controller")
+            .tag("listener", SimpleConsumer.LISTENER_ID)
+            .register(Metrics.globalRegistry);
+        Gauge.builder("kafka.consumer.catchup.drain.rate", this, controller -> controller.drainRate)
+            .description("Records per second by which the total lag shrank since the previous check")
+            .tag("listener", SimpleConsumer.LISTENER_ID)
+            .register(Metrics.globalRegistry);
+
+        if (!enabled) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("catch-up-mode-controller").daemon().factory());
+        scheduler.scheduleWithFixedDelay(this::checkSafely, checkIntervalMs, checkIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("event=catch_up_controller_started listenerId={} enterLag={} exitLag={} checkIntervalMs={}",
+            SimpleConsumer.LISTENER_ID,
+            enterLag,
+            exitLag,
+            checkIntervalMs);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Reads the lag of whichever container is running and switches containers when a threshold is crossed.
+     */
+    void check() {
+        MessageListenerContainer active = registry.getListenerContainer(listenerId(mode));
+        if (active == null || !active.isRunning()) {
+            // Stopped by an operator, by fan-out mode, or still switching over; the controller never starts listeners on its own.
+            return;
+        }
+
+        Map<String, Long> lagByPartition = partitionLag(active);
+        if (lagByPartition.isEmpty()) {
+            return;
+        }
+        long currentMax = 0;
+        long total = 0;
+        for (long lag : lagByPartition.values()) {
+            currentMax = Math.max(currentMax, lag);
+            total += lag;
+        }
+        recordDrainRate(total);
+        maxLag = currentMax;
+
+        Mode next = next(mode, currentMax);
+        if (next != mode) {
+            switchTo(next, active, currentMax);
+        }
+    }
+
+    /**
+     * Hysteresis rule: enter batch mode above {@code enterLag}, leave it only below {@code exitLag}.
+     */
+    Mode next(Mode current, long maxPartitionLag) {
+        if (current == Mode.RECORD && maxPartitionLag > enterLag) {
+            return Mode.BATCH;
+        }
+        if (current == Mode.BATCH && maxPartitionLag < exitLag) {
+            return Mode.RECORD;
+        }
+        return current;
+    }
+
+    Mode mode() {
+        return mode;
+    }
+
+    private void switchTo(Mode next, MessageListenerContainer active, long currentMax) {
+        MessageListenerContainer target = registry.getListenerContainer(listenerId(next));
+        if (target == null) {
+            return;
+        }
+        Mode previous = mode;
+        mode = next;
+        previousTotalLag = -1;
+        // Start only after the old container has left the group; running both at once would split the partitions between them.
+        active.stop(target::start);
+
+        Counter.builder("kafka.consumer.catchup.switches")
+            .description("Switches between record and batch consumption")
+            .tag("listener", SimpleConsumer.LISTENER_ID)
+            .tag("mode", next.name().toLowerCase())
+            .register(Metrics.globalRegistry)
+            .increment();
+        log.info("event=catch_up_mode_switch listenerId={} from={} to={} maxPartitionLag={} enterLag={} exitLag={}",
+            SimpleConsumer.LISTENER_ID,
+            previous,
+            next,
+            currentMax,
+            enterLag,
+            exitLag);
+    }
+
+    private Map<String, Long> partitionLag(MessageListenerContainer container) {
+        Map<String, Long> lagByPartition = new HashMap<>();
+        for (Map<MetricName, ? extends Metric> clientMetrics : container.metrics().values()) {
+            clientMetrics.forEach((name, metric) -> {
+                if (!LAG_METRIC.equals(name.name()) || !FETCH_METRIC_GROUP.equals(name.group()) || !name.tags().containsKey("partition")) {
+                    return;
+                }
+                // NaN until the partition has been fetched at least once.
+                if (metric.metricValue() instanceof Double lag && !lag.isNaN()) {
+                    lagByPartition.put(name.tags().get("topic") + "-" + name.tags().get("partition"), lag.longValue());
+                }
+            });
+        }
+        return lagByPartition;
+    }
+
+    private void recordDrainRate(long totalLag) {
+        long now = System.nanoTime();
+        if (previousTotalLag >= 0) {
+            double seconds = Math.max(1e-3, (now - previousCheckNanos) / 1e9);
+            drainRate = (previousTotalLag - totalLag) / seconds;
+        }
+        previousTotalLag = totalLag;
+        previousCheckNanos = now;
+    }
+
+    private void checkSafely() {
+        try {
+            check();
+        } catch (RuntimeException ex) {
+            // A failed check must not cancel the periodic task.
+            log.warn("event=catch_up_check_failed listenerId={} error={}", SimpleConsumer.LISTENER_ID, ex.getMessage(), ex);
+        }
+    }
+
+    private static String listenerId(Mode mode) {
+        return mode == Mode.BATCH ? SimpleConsumer.CATCH_UP_LISTENER_ID : SimpleConsumer.LISTENER_ID;
+    }
+}
@@ -3,16 +3,15 @@ package io.github.serkutyildirim.kafka.consumer;
 import io.github.serkutyildirim.kafka.config.KafkaTopicConfig;
 import io.github.serkutyildirim.kafka.model.DemoTransaction;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.kafka.support.serializer.DeserializationException;
 import org.springframework.stereotype.Component;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Manual acknowledgment consumer example.
@@ -20,19 +19,48 @@ import java.util.concurrent.atomic.AtomicInteger;
  * <p>This pattern keeps offset advancement under application control: receive the record, execute business logic, and acknowledge only after success.</p>
  *
  * <p><b>Why teams choose this:</b> it is the most approachable way to implement at-least-once delivery when message loss is unacceptable but full Kafka transactions are unnecessary.</p>
+ *
+ * <p><b>Retry with backoff:</b> with {@code app.kafka.consumers.manual-ack.pause-on-retry=true} (default) a failed record is
+ * retried in place. {@link PartitionPauseRetryScheduler} rewinds the partition to it and pauses that partition for an
+ * exponential backoff, so no consumer thread sleeps. Without it, skipping the ack alone does not cause a redelivery:
+ * the next acknowledged record in the partition commits past the failed one.</p>
+ *
+ * <p><b>Dead letters:</b> the original is acknowledged only once the broker confirmed the DLQ write.
+ * {@link ConfirmedAckPipeline} runs that acknowledgement when the send completes, in offset order with the acknowledgements
+ * behind it, so the consumer thread never waits for the DLQ.</p>
+ *
+ * <p><b>Duplicates:</b> a redelivered record whose {@code messageId} already succeeded on its partition is acknowledged
+ * without processing; {@link DuplicateDeliveryFilter} detects it with a Bloom filter in front of an exact recent-ID set.</p>
  */
 @Component
 @Slf4j
 public class ManualAckConsumer {
 
-    private static final String GROUP_ID = "manual-ack-group";
+    static final String GROUP_ID = "manual-ack-group";
+    private static final String LISTENER_ID = "manual-ack-consumer";
     private static final int MAX_RETRY_ATTEMPTS = 3;
-
-    private final KafkaTemplate<String, DemoTransaction> kafkaTemplate;
-    private final Map<String, AtomicInteger> retryCounters = new ConcurrentHashMap<>();
-
-    public ManualAckConsumer(KafkaTemplate<String, DemoTransaction> kafkaTemplate) {
-        this.kafkaTemplate = kafkaTemplate;
+    private static final long BASE_BACKOFF_MS = 250L;
+
+    private final DlqPublisher dlqPublisher;
+    private final PartitionPauseRetryScheduler retryScheduler;
+    private final PartitionRetryTracker retryTracker;
+    private final ConfirmedAckPipeline ackPipeline;
+    private final DuplicateDeliveryFilter duplicateFilter;
+
+    @Value("${app.kafka.consumers.manual-ack.pause-on-retry:true}")
+    private boolean pauseOnRetry = true;
+
+    public ManualAckConsumer(
+            DlqPublisher dlqPublisher,
+            PartitionPauseRetryScheduler retryScheduler,
+            PartitionRetryTracker retryTracker,
+            ConfirmedAckPipeline ackPipeline,
+            DuplicateDeliveryFilter duplicateFilter) {
+        this.dlqPublisher = dlqPublisher;
+        this.retryScheduler = retryScheduler;
+        this.retryTracker = retryTracker;
+        this.ackPipeline = ackPipeline;
+        this.duplicateFilter = duplicateFilter;
     }
 
     /**
@@ -44,17 +72,29 @@ public class ManualAckConsumer {
      * Idempotency requirement: Processing must be idempotent because an unacknowledged record will be redelivered.
      */
     @KafkaListener(
+        id = LISTENER_ID,
         topics = KafkaTopicConfig.DEMO_MESSAGES_TOPIC,
         groupId = GROUP_ID,
-        containerFactory = "manualAckListenerContainerFactory"
+        containerFactory = "manualAckListenerContainerFactory",
+        autoStartup = "#{!${app.kafka.consumers.fan-out.enabled:false}}"
     )
-    public void consume(ConsumerRecord<String, DemoTransaction> record, Acknowledgment ack) {
+    public void consume(ConsumerRecord<String, DemoTransaction> record, Acknowledgment ack, Consumer<?, ?> consumer) {
+        if (ackPipeline.rewindIfFailed(GROUP_ID, record, consumer) || retryScheduler.isRewound(record, consumer)) {
+            // Already fetched when an earlier record of this partition was rewound; the resume redelivers it in order.
+            return;
+        }
+
         long startTime = System.nanoTime();
         String memberId = currentMemberId();
-        String retryKey = retryKey(record);
 
         try {
             DemoTransaction message = requirePayload(record);
+            if (duplicateFilter.isDuplicate(GROUP_ID, record, message.getMessageId())) {
+                // Processed before and redelivered because its offset was not committed yet: acknowledge, do not repeat it.
+                ackPipeline.acknowledge(GROUP_ID, record, ack);
+                retryTracker.clear(GROUP_ID, record);
+                return;
+            }
             log.info("Processing message: {}", message);
             log.info("event=consume_start pattern=manual-ack groupId={} memberId={} topic={} partition={} offset={} key={} messageId={} attemptsSoFar={}",
                 GROUP_ID,
@@ -64,7 +104,7 @@ public class ManualAckConsumer {
                 record.offset(),
                 record.key(),
                 message.getMessageId(),
-                currentAttempts(retryKey));
+                retryTracker.attempts(GROUP_ID, record));
             log.info("event=message_details pattern=manual-ack groupId={} memberId={} sourceId={} targetId={} amount={}",
                 GROUP_ID,
                 memberId,
@@ -73,12 +113,13 @@ public class ManualAckConsumer {
                 message.getAmount());
 
             processBusinessLogic(message);
+            duplicateFilter.remember(GROUP_ID, record, message.getMessageId());
 
             // Acknowledge only after the business side-effect succeeds.
             // If we do not acknowledge, Kafka keeps the committed offset behind the current offset and redelivers later.
             // That is why idempotent writes and deduplication are so important in manual-ack consumers.
-            ack.acknowledge();
-            retryCounters.remove(retryKey);
+            ackPipeline.acknowledge(GROUP_ID, record, ack);
+            retryTracker.clear(GROUP_ID, record);
 
             log.info("event=consume_success pattern=manual-ack groupId={} memberId={} partition={} offset={} durationMs={} status=acknowledged",
                 GROUP_ID,
@@ -87,9 +128,9 @@ public class ManualAckConsumer {
                 record.offset(),
                 elapsedMillis(startTime));
         } catch (DeserializationException ex) {
-            handleNonRetryableFailure(record, ack, retryKey, memberId, startTime, "deserialization", ex);
+            handleNonRetryableFailure(record, ack, memberId, startTime, "deserialization", ex);
         } catch (Exception ex) {
-            int attempts = retryCounters.computeIfAbsent(retryKey, key -> new AtomicInteger()).incrementAndGet();
+            int attempts = retryTracker.recordFailure(GROUP_ID, record);
 
             log.error("event=consume_failure pattern=manual-ack groupId={} memberId={} partition={} offset={} durationMs={} attempt={} maxAttempts={} errorType=business error={}",
                 GROUP_ID,
@@ -103,12 +144,13 @@ public class ManualAckConsumer {
                 ex);
 
             // Retry vs DLQ decision:
-            // - below the threshold, do not acknowledge so the broker redelivers the same record.
+            // - below the threshold, do not acknowledge; rewind and pause the partition so the same record comes back after a backoff.
             // - at or above the threshold, route to DLQ and acknowledge the original so one poison pill does not stall the partition forever.
-            if (attempts >= MAX_RETRY_ATTEMPTS) {
-                sendToDlq(record, memberId, attempts, ex);
-                ack.acknowledge();
-                retryCounters.remove(retryKey);
+            if (attempts < MAX_RETRY_ATTEMPTS && pauseOnRetry) {
+                retryScheduler.retryLater(LISTENER_ID, record, consumer, exponentialBackoff(attempts));
+            } else if (attempts >= MAX_RETRY_ATTEMPTS) {
+                ackPipeline.acknowledgeWhen(GROUP_ID, record, ack, sendToDlq(record, memberId, attempts, ex));
+                retryTracker.clear(GROUP_ID, record);
                 log.warn("event=manual_ack_dlq groupId={} memberId={} partition={} offset={} attempts={} action=dlq_then_ack",
                     GROUP_ID,
                     memberId,
@@ -130,7 +172,6 @@ public class ManualAckConsumer {
     private void handleNonRetryableFailure(
             ConsumerRecord<String, DemoTransaction> record,
             Acknowledgment ack,
-            String retryKey,
             String memberId,
             long startTime,
             String errorType,
@@ -146,24 +187,13 @@ public class ManualAckConsumer {
             ex.getMessage(),
             ex);
 
-        sendToDlq(record, memberId, MAX_RETRY_ATTEMPTS, ex);
-        ack.acknowledge();
-        retryCounters.remove(retryKey);
+        ackPipeline.acknowledgeWhen(GROUP_ID, record, ack, sendToDlq(record, memberId, MAX_RETRY_ATTEMPTS, ex));
+        retryTracker.clear(GROUP_ID, record);
     }
 
-    private void sendToDlq(ConsumerRecord<String, DemoTransaction> record, String memberId, int attempts, Exception ex) {
-        if (record.value() == null) {
-            log.warn("event=dlq_skip pattern=manual-ack groupId={} memberId={} partition={} offset={} attempts={} reason=null_payload error={}",
-                GROUP_ID,
-                memberId,
-                record.partition(),
-                record.offset(),
-                attempts,
-                ex.getMessage());
-            return;
-        }
-
-        kafkaTemplate.send(KafkaTopicConfig.DEMO_DLQ_TOPIC, record.key(), record.value());
+    private CompletableFuture<?> sendToDlq(ConsumerRecord<String, DemoTransaction> record, String memberId, int attempts, Exception ex) {
+        // Forwards the bytes that were read, so records that never decoded reach the DLQ too.
+        CompletableFuture<?> sent = dlqPublisher.publish(record, GROUP_ID, attempts, ex);
         log.warn("event=dlq_send pattern=manual-ack groupId={} memberId={} dlqTopic={} partition={} offset={} attempts={} messageId={} error={}",
             GROUP_ID,
             memberId,
@@ -171,8 +201,9 @@ public class ManualAckConsumer {
             record.partition(),
             record.offset(),
             attempts,
-            record.value().getMessageId(),
+            record.value() == null ? null : record.value().getMessageId(),
             ex.getMessage());
+        return sent;
     }
 
     private DemoTransaction requirePayload(ConsumerRecord<String, DemoTransaction> record) {
@@ -182,12 +213,8 @@ public class ManualAckConsumer {
         return record.value();
     }
 
-    private String retryKey(ConsumerRecord<String, DemoTransaction> record) {
-        return record.topic() + '-' + record.partition() + '-' + record.offset();
-    }
-
-    private int currentAttempts(String retryKey) {
-        return retryCounters.getOrDefault(retryKey, new AtomicInteger(0)).get();
+    private long exponentialBackoff(int attempt) {
+        return Math.min(BASE_BACKOFF_MS * (1L << Math.max(0, attempt - 1)), 2_000L);
     }
 
     private String currentMemberId() {
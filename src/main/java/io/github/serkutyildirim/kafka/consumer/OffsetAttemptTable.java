@@ -0,0 +1,131 @@
+package io.github.serkutyildirim.kafka.consumer;
+
+import java.util.Arrays;
+
+/**
+ * Retry attempt counts for one partition, keyed by primitive offset.
+ *
+ * <p>Open addressing with linear probing over parallel {@code long[]}/{@code int[]} arrays: no boxing, no per-entry objects,
+ * and a miss allocates nothing. The table grows up to {@code maxEntries}; when full, the lowest offset is evicted,
+ * since it is the record most likely to have been committed past already.</p>
+ *
+ * <p>Not thread-safe. A partition is owned by exactly one consumer thread at a time, and that thread is the only writer.
+ * {@link #size()} may be read from other threads for metrics.</p>
+ */
+final class OffsetAttemptTable {
+
+    private static final long EMPTY = -1L;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int maxEntries;
+    private long[] offsets;
+    private int[] attempts;
+    private volatile int size;
+
+    OffsetAttemptTable(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.maxEntries = maxEntries;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * @return attempts recorded for {@code offset}, or 0 if none
+     */
+    int get(long offset) {
+        int slot = find(offset);
+        return offsets[slot] == offset ? attempts[slot] : 0;
+    }
+
+    /**
+     * Adds one attempt for {@code offset}.
+     *
+     * @return the attempt count including this one
+     */
+    int increment(long offset) {
+        int slot = find(offset);
+        if (offsets[slot] == offset) {
+            return ++attempts[slot];
+        }
+        if (size >= maxEntries) {
+            remove(lowestOffset());
+        } else if ((size + 1) * 2 > offsets.length) {
+            // Keep the load factor at or below 0.5 so probe chains stay short.
+            allocate(offsets.length * 2);
+        }
+        slot = find(offset);
+        offsets[slot] = offset;
+        attempts[slot] = 1;
+        size++;
+        return 1;
+    }
+
+    void remove(long offset) {
+        int slot = find(offset);
+        if (offsets[slot] != offset) {
+            return;
+        }
+        // Backward-shift deletion: pull later entries of the probe chain into the gap instead of leaving tombstones.
+        int mask = offsets.length - 1;
+        int gap = slot;
+        for (int next = (gap + 1) & mask; offsets[next] != EMPTY; next = (next + 1) & mask) {
+            int home = home(offsets[next]);
+            boolean reachable = gap <= next ? home <= gap || home > next : home <= gap && home > next;
+            if (reachable) {
+                offsets[gap] = offsets[next];
+                attempts[gap] = attempts[next];
+                gap = next;
+            }
+        }
+        offsets[gap] = EMPTY;
+        attempts[gap] = 0;
+        size--;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int find(long offset) {
+        int mask = offsets.length - 1;
+        int slot = home(offset);
+        while (offsets[slot] != EMPTY && offsets[slot] != offset) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int home(long offset) {
+        // Fibonacci hashing spreads consecutive offsets across the table.
+        return (int) ((offset * 0x9E3779B97F4A7C15L) >>> 32) & (offsets.length - 1);
+    }
+
+    private long lowestOffset() {
+        long lowest = Long.MAX_VALUE;
+        for (long offset : offsets) {
+            if (offset != EMPTY && offset < lowest) {
+                lowest = offset;
+            }
+        }
+        return lowest;
+    }
+
+    private void allocate(int capacity) {
+        long[] oldOffsets = offsets;
+        int[] oldAttempts = attempts;
+        offsets = new long[capacity];
+        attempts = new int[capacity];
+        Arrays.fill(offsets, EMPTY);
+        if (oldOffsets == null) {
+            return;
+        }
+        for (int i = 0; i < oldOffsets.length; i++) {
+            if (oldOffsets[i] != EMPTY) {
+                int slot = find(oldOffsets[i]);
+                offsets[slot] = oldOffsets[i];
+                attempts[slot] = oldAttempts[i];
+            }
+        }
+    }
+}
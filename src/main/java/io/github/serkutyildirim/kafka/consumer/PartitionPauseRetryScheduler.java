@@ -0,0 +1,126 @@
+package io.github.serkutyildirim.kafka.consumer;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * In-place retry with backoff that never sleeps on the consumer thread.
+ *
+ * <p><b>Pattern:</b> seek back, pause, resume later. When a record fails, the listener hands it to
+ * {@link #retryLater}: the partition is rewound to the failed offset, the container is asked to pause only that partition,
+ * and a {@link HashedTimerWheel} timeout resumes it when the backoff expires. The consumer thread goes straight back to
+ * polling, so other partitions keep flowing and {@code max.poll.interval.ms} is never at risk.</p>
+ *
+ * <p><b>When to use:</b> topics where extra retry topics are not allowed. Ordering within the partition is preserved,
+ * unlike retry topics, but the paused partition does wait for the failing record.</p>
+ *
+ * <p><b>Common pitfalls:</b></p>
+ * <ul>
+ *   <li>Records of the same partition that were already fetched in the current poll are still handed to the listener.
+ *       Listeners must drop them with {@link #isRewound}; they are redelivered after the resume.</li>
+ *   <li>Retry counters live in memory. After a rebalance the new owner starts counting from zero.</li>
+ *   <li>The listener needs an {@code id} on {@code @KafkaListener} so its container can be found in the registry.</li>
+ * </ul>
+ *
+ * <p><b>Metrics:</b> {@code kafka.consumer.retry.backoff} records every backoff, tagged with {@code listener} and
+ * {@code blocking}. {@code blocking=true} time was spent asleep on a consumer thread; {@code blocking=false} time was
+ * spent with only a partition paused.</p>
+ */
+@Component
+@Slf4j
+public class PartitionPauseRetryScheduler {
+
+    private static final long TICK_MS = 10;
+    private static final int WHEEL_SIZE = 512;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry registry;
+
+    private final HashedTimerWheel wheel = new HashedTimerWheel("retry-timer-wheel", TICK_MS, WHEEL_SIZE);
+
+    /**
+     * Rewinds the record's partition to the record, pauses that partition, and resumes it after {@code delayMs}.
+     * Must be called on the consumer thread, i.e. from inside the listener.
+     *
+     * @param listenerId {@code @KafkaListener} id of the calling listener
+     * @param consumer   the consumer passed to the listener method, or {@code null} when the caller does not own the fetch
+     *                   position (fan-out mode); the record then simply stays unacknowledged for the caller's group
+     */
+    public void retryLater(String listenerId, ConsumerRecord<?, ?> record, Consumer<?, ?> consumer, long delayMs) {
+        if (consumer == null) {
+            log.warn("event=retry_in_place_unavailable listenerId={} topic={} partition={} offset={} reason=shared_fetch",
+                listenerId,
+                record.topic(),
+                record.partition(),
+                record.offset());
+            return;
+        }
+        TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+        MessageListenerContainer container = registry.getListenerContainer(listenerId);
+        if (container == null) {
+            throw new IllegalStateException("No listener container registered with id " + listenerId);
+        }
+
+        consumer.seek(partition, record.offset());
+        // pausePartition is only a request; the container applies it on its own thread before the next poll.
+        container.pausePartition(partition);
+        wheel.schedule(delayMs, () -> {
+            container.resumePartition(partition);
+            log.debug("event=partition_resumed listenerId={} topic={} partition={} offset={}",
+                listenerId,
+                partition.topic(),
+                partition.partition(),
+                record.offset());
+        });
+        recordBackoff(listenerId, false, delayMs);
+
+        log.info("event=partition_paused listenerId={} topic={} partition={} offset={} backoffMs={} pendingResumes={}",
+            listenerId,
+            partition.topic(),
+            partition.partition(),
+            record.offset(),
+            delayMs,
+            wheel.pendingTimeouts());
+    }
+
+    /**
+     * Whether the record was fetched before its partition was rewound by {@link #retryLater}. Such records are
+     * leftovers of the current poll and will be redelivered after the resume, so the listener must skip them
+     * without acknowledging.
+     */
+    public boolean isRewound(ConsumerRecord<?, ?> record, Consumer<?, ?> consumer) {
+        if (consumer == null) {
+            return false;
+        }
+        // Normally the fetch position is already past every record being delivered; after a seek back it is not.
+        return record.offset() >= consumer.position(new TopicPartition(record.topic(), record.partition()));
+    }
+
+    /**
+     * Records a backoff for {@code kafka.consumer.retry.backoff}; listeners that still sleep call this with {@code blocking=true}.
+     */
+    public static void recordBackoff(String listenerId, boolean blocking, long backoffMs) {
+        Timer.builder("kafka.consumer.retry.backoff")
+            .description("Retry backoff time, split by whether a consumer thread was blocked")
+            .tag("listener", listenerId)
+            .tag("blocking", String.valueOf(blocking))
+            .register(Metrics.globalRegistry)
+            .record(Duration.ofMillis(backoffMs));
+    }
+
+    @PreDestroy
+    public void stop() {
+        wheel.close();
+    }
+}
@@ -0,0 +1,138 @@
+package io.github.serkutyildirim.kafka.consumer;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Retry attempt counters for manual-ack listeners, scoped to the partitions each consumer group currently owns.
+ *
+ * <p><b>Why per partition?</b> A flat map keyed by {@code topic-partition-offset} strings leaks every entry whose partition
+ * is revoked mid-retry, and builds a new key string per record. Here each assigned partition gets its own
+ * {@link OffsetAttemptTable} keyed by primitive offset. The table is created on assignment and dropped on revocation,
+ * so the heap stays flat for long-running consumers.</p>
+ *
+ * <p><b>How it is wired:</b> {@code KafkaConsumerConfig} registers this bean as the rebalance listener of
+ * {@code manualAckListenerContainerFactory}. Tables are keyed by group as well, because several listener containers
+ * share that factory and may consume the same partitions in different groups.</p>
+ *
+ * <p><b>Metrics:</b> {@code kafka.consumer.retry.state.entries} (offsets with a live attempt count) and
+ * {@code kafka.consumer.retry.state.partitions} (tables currently held).</p>
+ */
+@Component
+@Slf4j
+public class PartitionRetryTracker implements ConsumerAwareRebalanceListener {
+
+    @Value("${app.kafka.consumers.retry-state.max-entries-per-partition:1024}")
+    private int maxEntriesPerPartition = 1024;
+
+    private final Map<GroupPartition, OffsetAttemptTable> tables = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("kafka.consumer.retry.state.entries", this, PartitionRetryTracker::liveEntries)
+            .description("Offsets with a live retry attempt count across all owned partitions")
+            .register(Metrics.globalRegistry);
+        Gauge.builder("kafka.consumer.retry.state.partitions", tables, Map::size)
+            .description("Partitions that currently hold a retry table")
+            .register(Metrics.globalRegistry);
+    }
+
+    /**
+     * @return failed attempts recorded so far for the record
+     */
+    public int attempts(String groupId, ConsumerRecord<?, ?> record) {
+        OffsetAttemptTable table = tables.get(GroupPartition.of(groupId, record));
+        return table == null ? 0 : table.get(record.offset());
+    }
+
+    /**
+     * Records one more failed attempt for the record.
+     *
+     * @return failed attempts including this one
+     */
+    public int recordFailure(String groupId, ConsumerRecord<?, ?> record) {
+        // Created lazily too: the first poll can deliver records before a slow assignment callback ran for every group.
+        return tables.computeIfAbsent(GroupPartition.of(groupId, record), ignored -> new OffsetAttemptTable(maxEntriesPerPartition))
+            .increment(record.offset());
+    }
+
+    /**
+     * Forgets the record once it succeeded or was dead-lettered.
+     */
+    public void clear(String groupId, ConsumerRecord<?, ?> record) {
+        OffsetAttemptTable table = tables.get(GroupPartition.of(groupId, record));
+        if (table != null) {
+            table.remove(record.offset());
+        }
+    }
+
+    @Override
+    public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        String groupId = consumer.groupMetadata().groupId();
+        for (TopicPartition partition : partitions) {
+            tables.computeIfAbsent(new GroupPartition(groupId, partition), ignored -> new OffsetAttemptTable(maxEntriesPerPartition));
+        }
+        log.debug("event=retry_state_assigned groupId={} partitions={} tables={}", groupId, partitions, tables.size());
+    }
+
+    @Override
+    public void onPartitionsRevokedAfterCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        drop(consumer, partitions, "revoked");
+    }
+
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        drop(consumer, partitions, "lost");
+    }
+
+    /**
+     * Drops the tables of {@code groupId} for the given partitions. Containers that fetch on behalf of other groups
+     * (see {@link FanOutDispatcher}) call this from their own rebalance callbacks.
+     */
+    public void release(String groupId, Collection<TopicPartition> partitions) {
+        drop(groupId, partitions, "released");
+    }
+
+    private void drop(Consumer<?, ?> consumer, Collection<TopicPartition> partitions, String reason) {
+        drop(consumer.groupMetadata().groupId(), partitions, reason);
+    }
+
+    private void drop(String groupId, Collection<TopicPartition> partitions, String reason) {
+        int dropped = 0;
+        for (TopicPartition partition : partitions) {
+            OffsetAttemptTable table = tables.remove(new GroupPartition(groupId, partition));
+            if (table != null) {
+                dropped += table.size();
+            }
+        }
+        // The new owner starts counting from zero; the in-memory count was never a durable guarantee.
+        log.debug("event=retry_state_dropped groupId={} reason={} partitions={} droppedEntries={}", groupId, reason, partitions, dropped);
+    }
+
+    private double liveEntries() {
+        long entries = 0;
+        for (OffsetAttemptTable table : tables.values()) {
+            entries += table.size();
+        }
+        return entries;
+    }
+
+    private record GroupPartition(String groupId, TopicPartition partition) {
+
+        private static GroupPartition of(String groupId, ConsumerRecord<?, ?> record) {
+            return new GroupPartition(groupId, new TopicPartition(record.topic(), record.partition()));
+        }
+    }
+}
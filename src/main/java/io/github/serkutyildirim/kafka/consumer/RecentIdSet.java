@@ -0,0 +1,97 @@
+package io.github.serkutyildirim.kafka.consumer;
+
+/**
+ * Exact set of the last {@code capacity} message IDs of one partition, oldest evicted first.
+ *
+ * <p>IDs are kept as two {@code long}s in a ring buffer; an open-addressing {@code int[]} index maps each ID to its ring
+ * position. No per-entry objects, no boxing, and a lookup allocates nothing. When the ring is full, the oldest ID is removed
+ * from the index with backward-shift deletion (as in {@link OffsetAttemptTable}) and its ring slot reused.</p>
+ *
+ * <p>Not thread-safe; {@link DuplicateDeliveryFilter} guards each instance with its partition lane.</p>
+ */
+final class RecentIdSet {
+
+    private static final int EMPTY = 0;
+
+    private final long[] msbs;
+    private final long[] lsbs;
+    // Ring position + 1 of the ID stored in each slot, EMPTY for a free slot.
+    private final int[] index;
+    private int head;
+    private int size;
+
+    RecentIdSet(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 28) {
+            throw new IllegalArgumentException("capacity must be between 1 and 2^28");
+        }
+        msbs = new long[capacity];
+        lsbs = new long[capacity];
+        // Load factor at or below 0.5 keeps probe chains short.
+        index = new int[Integer.highestOneBit(capacity) << 2];
+    }
+
+    boolean contains(long msb, long lsb) {
+        return index[find(msb, lsb)] != EMPTY;
+    }
+
+    /**
+     * Adds the ID unless present, evicting the oldest one when full.
+     */
+    void add(long msb, long lsb) {
+        int slot = find(msb, lsb);
+        if (index[slot] != EMPTY) {
+            return;
+        }
+        if (size == msbs.length) {
+            remove(find(msbs[head], lsbs[head]));
+            slot = find(msb, lsb);
+        } else {
+            size++;
+        }
+        msbs[head] = msb;
+        lsbs[head] = lsb;
+        index[slot] = head + 1;
+        head = head + 1 == msbs.length ? 0 : head + 1;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long sizeInBytes() {
+        return (long) msbs.length * 2 * Long.BYTES + (long) index.length * Integer.BYTES;
+    }
+
+    private void remove(int slot) {
+        int mask = index.length - 1;
+        int gap = slot;
+        for (int next = (gap + 1) & mask; index[next] != EMPTY; next = (next + 1) & mask) {
+            int position = index[next] - 1;
+            int home = home(msbs[position], lsbs[position]);
+            boolean reachable = gap <= next ? home <= gap || home > next : home <= gap && home > next;
+            if (reachable) {
+                index[gap] = index[next];
+                gap = next;
+            }
+        }
+        index[gap] = EMPTY;
+    }
+
+    private int find(long msb, long lsb) {
+        int mask = index.length - 1;
+        int slot = home(msb, lsb);
+        while (index[slot] != EMPTY) {
+            int position = index[slot] - 1;
+            if (msbs[position] == msb && lsbs[position] == lsb) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int home(long msb, long lsb) {
+        // Fibonacci hashing of both halves; random UUIDs are already well spread, sequential ones are not.
+        return (int) (((msb ^ Long.rotateLeft(lsb, 17)) * 0x9E3779B97F4A7C15L) >>> 32) & (index.length - 1);
+    }
+}
@@ -0,0 +1,118 @@
+package io.github.serkutyildirim.kafka.consumer;
+
+import java.util.Arrays;
+
+/**
+ * Time-bucketed Bloom filter over 128-bit message IDs: answers "definitely not seen" with a few bit reads.
+ *
+ * <p>The filter is a ring of {@code generations} bit arrays. New IDs go into the current one; a lookup checks all of them.
+ * Every {@code generationMillis}, or sooner once the current array holds {@code idsPerGeneration} IDs, the oldest array
+ * is cleared and becomes the current one. Old IDs therefore age out in whole buckets without per-entry timestamps, and the
+ * false-positive rate stays at its sized value even when traffic bursts (the burst just shortens the memory).</p>
+ *
+ * <p>Bit positions use double hashing ({@code h1 + i·h2}) from one 64-bit mix of each UUID half, reduced to the array
+ * length by multiply-shift instead of division.</p>
+ *
+ * <p>Not thread-safe; {@link DuplicateDeliveryFilter} guards each instance with its partition lane.</p>
+ */
+final class RotatingBloomFilter {
+
+    private final long[][] generations;
+    private final long bitsPerGeneration;
+    private final int hashes;
+    private final int idsPerGeneration;
+    private final long generationMillis;
+    private int current;
+    private int insertedInCurrent;
+    private long currentStartedAt;
+
+    RotatingBloomFilter(int generations, int idsPerGeneration, double bitsPerId, int hashes, long generationMillis, long now) {
+        if (generations < 1 || idsPerGeneration < 1 || bitsPerId <= 0 || hashes < 1 || generationMillis < 1) {
+            throw new IllegalArgumentException("Invalid Bloom filter settings");
+        }
+        // Whole words; at most 2^31 bits so the multiply-shift reduction stays in range.
+        long words = Math.min((long) Math.ceil(idsPerGeneration * bitsPerId / Long.SIZE), (1L << 31) / Long.SIZE);
+        this.generations = new long[generations][(int) Math.max(1, words)];
+        this.bitsPerGeneration = this.generations[0].length * (long) Long.SIZE;
+        this.hashes = hashes;
+        this.idsPerGeneration = idsPerGeneration;
+        this.generationMillis = generationMillis;
+        this.currentStartedAt = now;
+    }
+
+    /**
+     * @return {@code false} if the ID was certainly not put within the retained generations
+     */
+    boolean mightContain(long msb, long lsb, long now) {
+        advance(now);
+        long h1 = mix(msb ^ Long.rotateLeft(lsb, 32));
+        long h2 = mix(lsb + 0x9E3779B97F4A7C15L) | 1L;
+        for (long[] bits : generations) {
+            if (allSet(bits, h1, h2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void put(long msb, long lsb, long now) {
+        advance(now);
+        long h1 = mix(msb ^ Long.rotateLeft(lsb, 32));
+        long h2 = mix(lsb + 0x9E3779B97F4A7C15L) | 1L;
+        long[] bits = generations[current];
+        for (int i = 0; i < hashes; i++) {
+            long index = index(h1 + i * h2);
+            bits[(int) (index >>> 6)] |= 1L << index;
+        }
+        if (++insertedInCurrent >= idsPerGeneration) {
+            rotate(now);
+        }
+    }
+
+    long sizeInBytes() {
+        return generations.length * bitsPerGeneration / Byte.SIZE;
+    }
+
+    private boolean allSet(long[] bits, long h1, long h2) {
+        for (int i = 0; i < hashes; i++) {
+            long index = index(h1 + i * h2);
+            if ((bits[(int) (index >>> 6)] & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void advance(long now) {
+        long elapsed = now - currentStartedAt;
+        if (elapsed < generationMillis) {
+            return;
+        }
+        // After a quiet period longer than the whole window every generation is stale; clearing each once is enough.
+        long steps = Math.min(generations.length, elapsed / generationMillis);
+        for (long i = 0; i < steps; i++) {
+            rotate(now);
+        }
+    }
+
+    private void rotate(long now) {
+        current = (current + 1) % generations.length;
+        Arrays.fill(generations[current], 0L);
+        insertedInCurrent = 0;
+        currentStartedAt = now;
+    }
+
+    private long index(long hash) {
+        return ((hash >>> 32) * bitsPerGeneration) >>> 32;
+    }
+
+    private static long mix(long h) {
+        // MurmurHash3 finalizer.
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
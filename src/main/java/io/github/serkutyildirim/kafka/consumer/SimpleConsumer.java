@@ -8,6 +8,8 @@ import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.serializer.DeserializationException;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 /**
  * Simple Kafka consumer implementation.
  *
@@ -21,13 +23,18 @@ import org.springframework.stereotype.Component;
  * TODO: Add error handling
  * TODO: Add message validation
  *
+ * <p><b>Catch-up mode:</b> {@link #consumeCatchUp} is a batch twin of {@link #consume} in the same group. It stays stopped
+ * until {@link LagAwareModeController} sees a backlog and swaps the two containers.</p>
+ *
  * @author Serkut Yıldırım
  */
 @Component
 @Slf4j
 public class SimpleConsumer {
 
-    private static final String GROUP_ID = "simple-consumer-group";
+    static final String GROUP_ID = "simple-consumer-group";
+    static final String LISTENER_ID = "simple-consumer";
+    static final String CATCH_UP_LISTENER_ID = "simple-consumer-catch-up";
 
     /**
      * Consume messages from demo-messages topic
@@ -37,9 +44,11 @@ public class SimpleConsumer {
      * @param message The consumed message
      */
     @KafkaListener(
+        id = LISTENER_ID,
         topics = KafkaTopicConfig.DEMO_MESSAGES_TOPIC,
         groupId = GROUP_ID,
-        containerFactory = "kafkaListenerContainerFactory"
+        containerFactory = "kafkaListenerContainerFactory",
+        autoStartup = "#{!${app.kafka.consumers.fan-out.enabled:false}}"
     )
     public void consume(ConsumerRecord<String, DemoTransaction> record) {
         long startTime = System.nanoTime();
@@ -102,6 +111,50 @@ public class SimpleConsumer {
         }
     }
 
+    /**
+     * Drains a backlog in bulk: one write per poll of up to 500 records instead of one per record.
+     * Started and stopped only by {@link LagAwareModeController}.
+     */
+    @KafkaListener(
+        id = CATCH_UP_LISTENER_ID,
+        topics = KafkaTopicConfig.DEMO_MESSAGES_TOPIC,
+        groupId = GROUP_ID,
+        containerFactory = "catchUpListenerContainerFactory",
+        autoStartup = "false"
+    )
+    public void consumeCatchUp(List<ConsumerRecord<String, DemoTransaction>> records) {
+        long startTime = System.nanoTime();
+        String memberId = currentMemberId();
+        int skipped = 0;
+
+        for (ConsumerRecord<String, DemoTransaction> record : records) {
+            if (record.value() == null) {
+                // Same outcome as the record listener: a bad payload is logged and skipped, never retried.
+                skipped++;
+                log.error("event=consume_failure pattern=simple-catch-up groupId={} memberId={} partition={} offset={} errorType=null_payload",
+                    GROUP_ID,
+                    memberId,
+                    record.partition(),
+                    record.offset());
+            }
+        }
+
+        try {
+            // One bulk write per batch replaces the per-record 100 ms write of the record listener.
+            Thread.sleep(Math.min(2L * records.size(), 500L));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Catch-up batch interrupted", ex);
+        }
+
+        log.info("event=catch_up_batch pattern=simple-catch-up groupId={} memberId={} batchSize={} skipped={} durationMs={}",
+            GROUP_ID,
+            memberId,
+            records.size(),
+            skipped,
+            elapsedMillis(startTime));
+    }
+
     private DemoTransaction requirePayload(ConsumerRecord<String, DemoTransaction> record) {
         if (record == null || record.value() == null) {
             throw new IllegalArgumentException("DemoTransaction payload is null. This often means deserialization failed before the listener could process a valid object.");
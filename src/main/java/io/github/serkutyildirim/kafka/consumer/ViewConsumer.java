@@ -0,0 +1,65 @@
+package io.github.serkutyildirim.kafka.consumer;
+
+import io.github.serkutyildirim.kafka.config.KafkaTopicConfig;
+import io.github.serkutyildirim.kafka.serialization.DemoTransactionView;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Flyweight consumer that reads binary-encoded transactions through {@link DemoTransactionView}.
+ *
+ * <p><b>Pattern name:</b> Zero-copy view consumer.</p>
+ * <p><b>Characteristics:</b> the listener receives a view over the record bytes and only decodes the fields it touches.
+ * Filtering on amount sign or description markers happens on raw bytes, so skipped records cost almost no allocation.</p>
+ * <p><b>Delivery guarantee:</b> auto-commit, same as {@link SimpleConsumer}.</p>
+ * <p><b>Use cases:</b> high-volume filters, routers, and counters that look at a handful of fields per record.</p>
+ *
+ * <p>The listener is disabled by default; set {@code app.kafka.consumers.view.enabled=true} together with
+ * {@code app.kafka.serialization.format=BINARY} on producers to try it.</p>
+ */
+@Component
+@Slf4j
+public class ViewConsumer {
+
+    private static final String GROUP_ID = "view-consumer-group";
+
+    @KafkaListener(
+        topics = KafkaTopicConfig.DEMO_MESSAGES_TOPIC,
+        groupId = GROUP_ID,
+        containerFactory = "viewListenerContainerFactory",
+        autoStartup = "${app.kafka.consumers.view.enabled:false}"
+    )
+    public void consume(ConsumerRecord<String, DemoTransactionView> record) {
+        DemoTransactionView view = record.value();
+        if (view == null) {
+            log.warn("event=consume_skipped pattern=view groupId={} partition={} offset={} reason=null_payload",
+                GROUP_ID,
+                record.partition(),
+                record.offset());
+            return;
+        }
+
+        // Both checks below read the raw bytes; no String, BigDecimal, or UUID is created for records that are filtered out.
+        if (view.amountSignum() <= 0 || view.descriptionContainsIgnoreCase("INVALID")) {
+            log.debug("event=consume_filtered pattern=view groupId={} partition={} offset={} sizeBytes={}",
+                GROUP_ID,
+                record.partition(),
+                record.offset(),
+                view.sizeInBytes());
+            return;
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("event=consume_success pattern=view groupId={} partition={} offset={} key={} sourceId={} amount={} sizeBytes={}",
+                GROUP_ID,
+                record.partition(),
+                record.offset(),
+                record.key(),
+                view.sourceId(),
+                view.amount(),
+                view.sizeInBytes());
+        }
+    }
+}
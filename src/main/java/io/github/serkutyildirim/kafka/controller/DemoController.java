@@ -1,6 +1,12 @@
 package io.github.serkutyildirim.kafka.controller;
 
 import io.github.serkutyildirim.kafka.model.DemoTransaction;
+import io.github.serkutyildirim.kafka.producer.BatchConfirmation;
+import io.github.serkutyildirim.kafka.producer.ProducerOverloadedException;
+import io.github.serkutyildirim.kafka.service.DlqReplayRequest;
+import io.github.serkutyildirim.kafka.service.DlqReplayService;
+import io.github.serkutyildirim.kafka.service.DlqReplayStatus;
+import io.github.serkutyildirim.kafka.service.DuplicateTransactionException;
 import io.github.serkutyildirim.kafka.service.KafkaService;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
@@ -9,6 +15,7 @@ import org.apache.kafka.clients.admin.AdminClientConfig;
 import org.apache.kafka.clients.admin.ListTopicsOptions;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.kafka.support.SendResult;
@@ -43,7 +50,10 @@ import java.util.stream.Collectors;
  *   <tr><td>POST /send-with-key</td><td>Key-based partitioning</td><td>Ordered per-entity streams</td></tr>
  *   <tr><td>GET  /transaction/{id}/status</td><td>Status query (mock)</td><td>Monitoring / polling</td></tr>
  *   <tr><td>GET  /health</td><td>Connectivity check</td><td>K8s readiness / liveness probes</td></tr>
- *   <tr><td>POST /generate-test-data</td><td>Bulk test data generation</td><td>Observing consumer behaviour</td></tr>
+ *   <tr><td>POST /generate-test-data</td><td>Batched confirmation (one deadline)</td><td>Observing consumer behaviour</td></tr>
+ *   <tr><td>POST /dlq/replay</td><td>Rate-limited DLQ replay</td><td>Re-processing dead letters after an incident</td></tr>
+ *   <tr><td>GET  /dlq/replay/{id}</td><td>Replay progress</td><td>Watching a running replay</td></tr>
+ *   <tr><td>POST /dlq/replay/{id}/stop</td><td>Checkpointed stop</td><td>Pausing a replay to resume later</td></tr>
  * </table>
  *
  * <h2>HTTP status code choices</h2>
@@ -52,9 +62,14 @@ import java.util.stream.Collectors;
  *       send-reliable, send-batch, send-with-key, generate-test-data). Signals that a new
  *       resource (the Kafka event) was created as a result of the request.</li>
  *   <li><b>202 Accepted</b> — used for send-async, where the HTTP response is returned before
- *       Kafka delivery is confirmed. The message is "accepted for processing".</li>
+ *       Kafka delivery is confirmed. The message is "accepted for processing". DLQ replay start and stop
+ *       return 202 as well, because the replay runs in the background.</li>
  *   <li><b>200 OK</b> — used for read-only queries (health, status lookup).</li>
  *   <li><b>400 Bad Request</b> — used for validation failures (constraint violations, empty key).</li>
+ *   <li><b>429 Too Many Requests</b> — used by send-simple and send-async when the adaptive
+ *       in-flight limit is reached; nothing was sent and the client should retry after a short pause.</li>
+ *   <li><b>404 Not Found</b> — used for an unknown DLQ replay ID.</li>
+ *   <li><b>409 Conflict</b> — used when a DLQ replay is started while another one is still running.</li>
  *   <li><b>500 Internal Server Error</b> — used when Kafka itself reports a failure.</li>
  *   <li><b>503 Service Unavailable</b> — used when the health check detects Kafka is unreachable.</li>
  * </ul>
@@ -95,6 +110,12 @@ import java.util.stream.Collectors;
  *
  * # 8. Check health:
  * curl http://localhost:8090/api/demo/health
+ *
+ * # 9. Replay validation failures from the DLQ at 200 records/s, then watch progress:
+ * curl -X POST http://localhost:8090/api/demo/dlq/replay \
+ *   -H "Content-Type: application/json" \
+ *   -d '{"exceptionTypes":["IllegalArgumentException"],"ratePerSecond":200}'
+ * curl http://localhost:8090/api/demo/dlq/replay/{replayId}
  * }</pre>
  *
  * <h2>Integration with Postman</h2>
@@ -124,6 +145,12 @@ public class DemoController {
     @Autowired
     private KafkaService kafkaService;
 
+    /**
+     * Background replay of {@code demo-dlq} records to their original topics.
+     */
+    @Autowired
+    private DlqReplayService dlqReplayService;
+
     /**
      * Kafka bootstrap servers, injected from application configuration.
      * Used exclusively by the health endpoint's {@link AdminClient} to verify connectivity.
@@ -150,10 +177,11 @@ public class DemoController {
      * (a new resource) was created as a result of the request.</p>
      *
      * <p><b>Error strategy:</b> {@link IllegalArgumentException} (validation failure) → 400;
-     * any other unexpected exception → 500.</p>
+     * producer saturated ({@link ProducerOverloadedException}) → 429; any other unexpected exception → 500.</p>
      *
      * @param transaction the transaction payload; validated with Bean Validation before sending
-     * @return 201 with {@code messageId}, 400 on validation failure, 500 on unexpected error
+     * @return 201 with {@code messageId}, 400 on validation failure, 409 for a duplicate {@code messageId}, 429 when
+     *         overloaded, 500 on unexpected error
      */
     @PostMapping("/send-simple")
     public ResponseEntity<Map<String, Object>> sendSimple(
@@ -172,6 +200,10 @@ public class DemoController {
             // 201: a Kafka event record was created
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
 
+        } catch (ProducerOverloadedException e) {
+            return tooManyRequests("/send-simple", e, response);
+        } catch (DuplicateTransactionException e) {
+            return conflict("/send-simple", e, response);
         } catch (Exception e) {
             log.error("POST /send-simple failed — {}", e.getMessage(), e);
             response.put("error", e.getMessage());
@@ -202,7 +234,7 @@ public class DemoController {
      *
      * @param transaction the transaction payload; validated with Bean Validation before sending
      * @return 201 with {@code messageId}, {@code partition}, and {@code offset};
-     *         500 on broker or thread-interruption error
+     *         409 for a duplicate {@code messageId}; 500 on broker or thread-interruption error
      */
     @PostMapping("/send-reliable")
     public ResponseEntity<Map<String, Object>> sendReliable(
@@ -223,6 +255,9 @@ public class DemoController {
             // 201: record is durably stored on the broker
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
 
+        } catch (DuplicateTransactionException e) {
+            return conflict("/send-reliable", e, response);
+
         } catch (ExecutionException e) {
             // Broker rejected the record or a timeout occurred during the blocking wait.
             log.error("POST /send-reliable — ExecutionException: {}", e.getMessage(), e);
@@ -260,11 +295,12 @@ public class DemoController {
      * enqueued for processing, but the final outcome (delivery confirmation) is not yet known.</p>
      *
      * <p><b>Error strategy:</b> Validation failures caught before the async dispatch → 500 is
-     * returned. Post-dispatch failures are handled entirely in the producer callback and are
-     * observable only through logs/metrics.</p>
+     * returned; a saturated producer ({@link ProducerOverloadedException}) → 429. Post-dispatch
+     * failures are handled entirely in the producer callback and are observable only through logs/metrics.</p>
      *
      * @param transaction the transaction payload; validated with Bean Validation before sending
-     * @return 202 Accepted with a "Processing asynchronously" message; 500 on pre-dispatch error
+     * @return 202 Accepted with a "Processing asynchronously" message; 409 for a duplicate {@code messageId};
+     *         429 when overloaded; 500 on pre-dispatch error
      */
     @PostMapping("/send-async")
     public ResponseEntity<Map<String, Object>> sendAsync(
@@ -284,6 +320,10 @@ public class DemoController {
             response.put("pattern", "async-callback");
             return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
 
+        } catch (ProducerOverloadedException e) {
+            return tooManyRequests("/send-async", e, response);
+        } catch (DuplicateTransactionException e) {
+            return conflict("/send-async", e, response);
         } catch (Exception e) {
             log.error("POST /send-async failed before dispatch — {}", e.getMessage(), e);
             response.put("error", e.getMessage());
@@ -373,7 +413,7 @@ public class DemoController {
      *                    must not be null or blank
      * @param transaction the transaction payload; validated with Bean Validation before sending
      * @return 201 with {@code messageId} and {@code key};
-     *         400 if the key is empty; 500 on unexpected error
+     *         400 if the key is empty; 409 for a duplicate {@code messageId}; 500 on unexpected error
      */
     @PostMapping("/send-with-key")
     public ResponseEntity<Map<String, Object>> sendWithKey(
@@ -401,6 +441,8 @@ public class DemoController {
             // 201: new Kafka event record created with explicit routing key
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
 
+        } catch (DuplicateTransactionException e) {
+            return conflict("/send-with-key", e, response);
         } catch (Exception e) {
             log.error("POST /send-with-key failed — key={} error={}", key, e.getMessage(), e);
             response.put("error", e.getMessage());
@@ -514,25 +556,21 @@ public class DemoController {
 
     /**
      * Generates a configurable number of sample {@link DemoTransaction} objects and sends them
-     * through a mix of producer patterns to exercise the full system.
+     * with per-message broker confirmation.
      *
      * <p><b>Use case:</b> Quickly populate a Kafka topic with realistic-looking transaction data
      * to observe consumer group behaviour, partition assignment, lag accumulation, or Kafka UI
      * dashboards without manually crafting individual curl commands.</p>
      *
-     * <p><b>Sending strategy:</b></p>
-     * <ul>
-     *   <li>First two transactions (if {@code count >= 2}) are sent with {@code sendReliable}
-     *       as a warm-up to confirm Kafka is reachable.</li>
-     *   <li>Remaining transactions are sent with {@code sendSimple} for speed.</li>
-     *   <li>Every 5th transaction (after the first two) is sent with {@code sendWithKey}
-     *       using the {@code sourceId} as the routing key to demonstrate partition routing.</li>
-     * </ul>
+     * <p><b>Sending strategy:</b> all transactions are generated first and handed to
+     * {@code sendAllReliable}, which sends them asynchronously and waits for every
+     * acknowledgement against one shared deadline. The response therefore reports how many records
+     * Kafka actually confirmed, at roughly the cost of a single round trip instead of one per record.</p>
      *
-     * <p><b>HTTP 201 Created</b> — transactions generated and dispatched successfully.</p>
+     * <p><b>HTTP 201 Created</b> — every generated transaction was confirmed by the broker.</p>
      *
      * @param count number of transactions to generate; defaults to 10
-     * @return 201 with {@code generatedCount}; 500 on unexpected error
+     * @return 201 with {@code generatedCount}; 500 with {@code failedCount} if any record was not confirmed
      */
     @PostMapping("/generate-test-data")
     public ResponseEntity<Map<String, Object>> generateTestData(
@@ -553,6 +591,7 @@ public class DemoController {
         int sent = 0;
 
         try {
+            List<DemoTransaction> transactions = new ArrayList<>(count);
             for (int i = 0; i < count; i++) {
                 // Build a realistic transaction with randomised but plausible field values.
                 String sourceId = "ACC" + String.format("%03d", random.nextInt(900) + 100);
@@ -561,32 +600,33 @@ public class DemoController {
                         .setScale(2, RoundingMode.HALF_UP);
                 String currency = currencies[random.nextInt(currencies.length)];
 
-                DemoTransaction transaction = kafkaService.createTransaction(
-                        sourceId, targetId, amount, currency);
-
-                if (i < 2) {
-                    // Send first two reliably as a connectivity warm-up.
-                    try {
-                        kafkaService.sendReliable(transaction);
-                    } catch (ExecutionException | InterruptedException ex) {
-                        log.warn("generate-test-data: reliable send #{} failed — {}", i, ex.getMessage());
-                        if (ex instanceof InterruptedException) Thread.currentThread().interrupt();
-                    }
-                } else if (i % 5 == 0) {
-                    // Every 5th message: key-based routing using sourceId for ordered delivery.
-                    kafkaService.sendWithKey(sourceId, transaction);
-                } else {
-                    // Remaining messages: fire-and-forget for maximum throughput.
-                    kafkaService.sendSimple(transaction);
-                }
-                sent++;
+                transactions.add(kafkaService.createTransaction(sourceId, targetId, amount, currency));
             }
 
+            // One deadline for the whole set; each record is still confirmed individually.
+            BatchConfirmation confirmation = kafkaService.sendAllReliable(transactions);
+            sent = confirmation.confirmedCount();
+
             response.put("generatedCount", sent);
             response.put("requestedCount", count);
+            List<BatchConfirmation.Confirmation> failures = confirmation.failures();
+            if (!failures.isEmpty()) {
+                log.warn("generate-test-data: {} of {} records were not confirmed — first error: {}",
+                        failures.size(), count, failures.get(0).failure().getMessage());
+                response.put("failedCount", failures.size());
+                response.put("error", failures.get(0).failure().getMessage());
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+            }
             // 201: test event records were created in Kafka
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
 
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("POST /generate-test-data interrupted while waiting for confirmations", e);
+            response.put("generatedCount", sent);
+            response.put("requestedCount", count);
+            response.put("error", "Interrupted while waiting for broker confirmations");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
         } catch (Exception e) {
             log.error("POST /generate-test-data failed after {} sends — {}", sent, e.getMessage(), e);
             response.put("generatedCount", sent);
@@ -596,6 +636,71 @@ public class DemoController {
         }
     }
 
+    // =========================================================================
+    // Endpoint 9 — POST /dlq/replay
+    // =========================================================================
+
+    /**
+     * Starts re-publishing {@code demo-dlq} records to the topics they originally failed on.
+     *
+     * <p><b>Use case:</b> after the cause of an incident is fixed, push the dead letters it produced back through the
+     * normal consumers without flooding them. Every filter is optional: {@code exceptionTypes}, {@code from}/{@code to}
+     * (ISO-8601 dead-letter time), and {@code messageIds}. {@code ratePerSecond} overrides the configured rate for this run.</p>
+     *
+     * <p><b>Behaviour:</b> one reader per DLQ partition, all sharing one token bucket; progress is checkpointed, so a
+     * later replay continues where a stopped one ended unless {@code restart} is {@code true}.</p>
+     *
+     * @param request filters and rate; an absent body replays everything after the checkpoint
+     * @return 202 with the replay status, 400 on an invalid request, 409 if a replay is already running
+     */
+    @PostMapping("/dlq/replay")
+    public ResponseEntity<Map<String, Object>> startDlqReplay(
+            @RequestBody(required = false) DlqReplayRequest request) {
+
+        log.info("POST /dlq/replay — request={}", request);
+        Map<String, Object> response = new LinkedHashMap<>();
+        try {
+            DlqReplayStatus status = dlqReplayService.start(request == null ? DlqReplayRequest.all() : request);
+            response.put("replay", status);
+            // 202: the replay runs in the background; poll GET /dlq/replay/{replayId} for progress
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+        } catch (IllegalStateException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
+    }
+
+    // =========================================================================
+    // Endpoint 10 — GET /dlq/replay/{replayId}
+    // =========================================================================
+
+    /**
+     * Reports the progress of a DLQ replay: counters, per-partition checkpoint and end offsets, and its state.
+     *
+     * @param replayId ID returned by {@code POST /dlq/replay}
+     * @return 200 with the replay status, 404 for an unknown ID
+     */
+    @GetMapping("/dlq/replay/{replayId}")
+    public ResponseEntity<Map<String, Object>> getDlqReplay(@PathVariable String replayId) {
+        return replayResponse(replayId, dlqReplayService.status(replayId), HttpStatus.OK);
+    }
+
+    // =========================================================================
+    // Endpoint 11 — POST /dlq/replay/{replayId}/stop
+    // =========================================================================
+
+    /**
+     * Stops a DLQ replay after the records already handed to the producer are confirmed and checkpointed.
+     *
+     * @param replayId ID returned by {@code POST /dlq/replay}
+     * @return 202 with the replay status (still {@code RUNNING} until the readers exit), 404 for an unknown ID
+     */
+    @PostMapping("/dlq/replay/{replayId}/stop")
+    public ResponseEntity<Map<String, Object>> stopDlqReplay(@PathVariable String replayId) {
+        log.info("POST /dlq/replay/{}/stop", replayId);
+        return replayResponse(replayId, dlqReplayService.stop(replayId), HttpStatus.ACCEPTED);
+    }
+
     // =========================================================================
     // Global exception handlers
     // =========================================================================
@@ -681,4 +786,47 @@ public class DemoController {
         body.put("validationErrors", fieldErrors);
         return ResponseEntity.badRequest().body(body);
     }
+
+    // =========================================================================
+    // Helpers
+    // =========================================================================
+
+    /**
+     * Wraps a replay status lookup: the status with HTTP {@code found}, or 404 when no replay has that ID.
+     */
+    private ResponseEntity<Map<String, Object>> replayResponse(String replayId, Optional<DlqReplayStatus> status, HttpStatus found) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        if (status.isEmpty()) {
+            response.put("error", "Unknown DLQ replay: " + replayId);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+        response.put("replay", status.get());
+        return ResponseEntity.status(found).body(response);
+    }
+
+    /**
+     * Builds the load-shedding response: nothing was handed to Kafka, so the client may retry after a short pause.
+     */
+    private ResponseEntity<Map<String, Object>> tooManyRequests(String endpoint, ProducerOverloadedException e,
+                                                                Map<String, Object> response) {
+        log.warn("POST {} rejected — {}", endpoint, e.getMessage());
+        response.put("error", e.getMessage());
+        response.put("limit", e.getLimit());
+        response.put("inFlight", e.getInFlight());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(response);
+    }
+
+    /**
+     * Builds the duplicate response: the messageId is being sent or was sent recently, so retrying it will not help.
+     */
+    private ResponseEntity<Map<String, Object>> conflict(String endpoint, DuplicateTransactionException e,
+                                                         Map<String, Object> response) {
+        log.warn("POST {} rejected — {}", endpoint, e.getMessage());
+        response.put("error", e.getMessage());
+        response.put("messageId", e.getMessageId());
+        response.put("state", e.getReservation());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
 }
@@ -0,0 +1,154 @@
+package io.github.serkutyildirim.kafka.producer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AIMD (additive increase, multiplicative decrease) limit on the number of non-transactional sends awaiting a broker acknowledgement.
+ *
+ * <p><b>Why limit in-flight sends?</b></p>
+ * <ul>
+ *   <li>Without a limit, a slow broker first fills {@code buffer.memory}; after that {@code send()} blocks the calling
+ *       Tomcat thread for up to {@code max.block.ms}. Every request thread ends up parked inside the producer.</li>
+ *   <li>With a limit, excess sends are rejected immediately with {@link ProducerOverloadedException} (HTTP 429),
+ *       so latency for accepted requests stays bounded and clients know to back off.</li>
+ * </ul>
+ *
+ * <p><b>How the limit adapts:</b> an acknowledgement faster than {@code latency-threshold-ms} while the limiter is at least
+ * half utilised grows the limit by one. A slow acknowledgement or a failed send shrinks it by {@code backoff-ratio},
+ * at most once per round trip: only a send that started after the last cut can cut again, so a burst of slow
+ * acknowledgements from one stalled round trip counts as a single congestion signal. The limit therefore tracks what
+ * the broker can currently absorb.</p>
+ *
+ * <p><b>Metrics:</b> {@code kafka.producer.limiter.limit}, {@code kafka.producer.limiter.inflight}, and
+ * {@code kafka.producer.limiter.rejected} on the global Micrometer registry (exported via actuator).</p>
+ */
+@Component
+@Slf4j
+public class AdaptiveConcurrencyLimiter {
+
+    @Value("${app.kafka.producer.limiter.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${app.kafka.producer.limiter.initial-limit:100}")
+    private int initialLimit = 100;
+
+    @Value("${app.kafka.producer.limiter.min-limit:10}")
+    private int minLimit = 10;
+
+    @Value("${app.kafka.producer.limiter.max-limit:1000}")
+    private int maxLimit = 1000;
+
+    @Value("${app.kafka.producer.limiter.latency-threshold-ms:250}")
+    private long latencyThresholdMs = 250;
+
+    @Value("${app.kafka.producer.limiter.backoff-ratio:0.9}")
+    private double backoffRatio = 0.9;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // Negative until the first adjustment: initial-limit is injected after field initialisation.
+    private volatile double limit = -1;
+    // Guarded by this; sends that started before the last cut were already in flight when it happened.
+    private long lastDecreaseNanos;
+    private boolean decreased;
+    private Counter rejected;
+
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("kafka.producer.limiter.limit", this, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current adaptive limit on unacknowledged producer sends")
+                .register(Metrics.globalRegistry);
+        Gauge.builder("kafka.producer.limiter.inflight", this, AdaptiveConcurrencyLimiter::getInFlight)
+                .description("Producer sends awaiting broker acknowledgement")
+                .register(Metrics.globalRegistry);
+        rejected = Counter.builder("kafka.producer.limiter.rejected")
+                .description("Sends rejected because the in-flight limit was reached")
+                .register(Metrics.globalRegistry);
+    }
+
+    /**
+     * Reserves an in-flight slot. Every successful call must be paired with exactly one of
+     * {@link #onSuccess(long)}, {@link #onDropped(long)}, or {@link #onIgnore()}.
+     *
+     * @return the start time to pass to {@link #onSuccess(long)} or {@link #onDropped(long)}
+     * @throws ProducerOverloadedException if the current limit is reached
+     */
+    public long acquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (enabled && current >= getLimit()) {
+                if (rejected != null) {
+                    rejected.increment();
+                }
+                log.debug("event=send_rejected reason=limiter inFlight={} limit={}", current, getLimit());
+                throw new ProducerOverloadedException(getLimit(), current);
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return System.nanoTime();
+    }
+
+    /**
+     * The broker acknowledged the send; grows the limit if the acknowledgement was fast and the limiter was busy.
+     */
+    public void onSuccess(long startNanos) {
+        int before = inFlight.getAndDecrement();
+        long latencyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        if (latencyMs > latencyThresholdMs) {
+            decrease(startNanos);
+        } else if (before * 2 >= getLimit()) {
+            // Only grow while the limit is actually the constraint; an idle limiter would otherwise creep to max-limit.
+            synchronized (this) {
+                limit = Math.min(maxLimit, currentLimit() + 1);
+            }
+        }
+    }
+
+    /**
+     * The send failed or timed out; treats it as a congestion signal.
+     */
+    public void onDropped(long startNanos) {
+        inFlight.decrementAndGet();
+        decrease(startNanos);
+    }
+
+    /**
+     * Releases the slot without adjusting the limit, e.g. after a serialization error that never reached the broker.
+     */
+    public void onIgnore() {
+        inFlight.decrementAndGet();
+    }
+
+    public int getLimit() {
+        return (int) currentLimit();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private void decrease(long startNanos) {
+        synchronized (this) {
+            if (decreased && startNanos - lastDecreaseNanos <= 0) {
+                // Same round trip as the last cut; cutting again for every ack of it would collapse the limit to min-limit.
+                return;
+            }
+            limit = Math.max(minLimit, currentLimit() * backoffRatio);
+            lastDecreaseNanos = System.nanoTime();
+            decreased = true;
+        }
+    }
+
+    private double currentLimit() {
+        double value = limit;
+        return value < 0 ? initialLimit : value;
+    }
+}
@@ -18,6 +18,8 @@ import java.util.concurrent.TimeoutException;
  * <p><b>When to use:</b> High-throughput message publishing where the caller should stay responsive but failures still need to be observed.</p>
  * <p><b>Performance:</b> Much faster than synchronous send because the calling thread does not block on broker acknowledgment.</p>
  * <p><b>Common pitfalls:</b> Teams sometimes forget to observe the returned future, which hides delivery failures and operational signals.</p>
+ * <p><b>Overload protection:</b> every send holds an {@link AdaptiveConcurrencyLimiter} slot until the broker answers;
+ * when the limit is reached the send is rejected with {@link ProducerOverloadedException} instead of blocking in {@code send()}.</p>
  *
  * <p><b>Example usage:</b></p>
  * <pre>{@code
@@ -34,20 +36,33 @@ public class AsyncProducer {
     @Autowired
     private KafkaTemplate<String, DemoTransaction> kafkaTemplate;
 
+    @Autowired
+    private AdaptiveConcurrencyLimiter limiter;
+
     /**
      * Pattern name: Asynchronous with Callback
      * Characteristics: Fast, non-blocking, reliable with callbacks
      * Use cases: High-throughput with error handling
      * Performance: ~50k msgs/sec
      * Latency: <1ms (non-blocking)
+     *
+     * @throws ProducerOverloadedException if too many sends are already awaiting acknowledgement
      */
     public CompletableFuture<SendResult<String, DemoTransaction>> sendAsync(DemoTransaction transaction) {
         // Async send returns immediately, so request threads stay free for more work.
         // Success and failure are handled in callbacks, which is the key difference from fire-and-forget.
         // Retry strategy note: let Kafka producer retries handle transient issues, then observe failures in the callback for alerting or compensation.
+        long startNanos = limiter.acquire();
         try {
             CompletableFuture<SendResult<String, DemoTransaction>> future = kafkaTemplate.send(TOPIC, transaction);
 
+            future.whenComplete((result, ex) -> {
+                if (ex == null) {
+                    limiter.onSuccess(startNanos);
+                } else {
+                    limiter.onDropped(startNanos);
+                }
+            });
             future.thenAccept(result -> log.info(
                     "Async message {} sent to partition {} at offset {}",
                     transaction.getMessageId(),
@@ -60,9 +75,11 @@ public class AsyncProducer {
 
             return future;
         } catch (SerializationException ex) {
+            limiter.onIgnore();
             log.error("Serialization failed for async messageId={}", transaction.getMessageId(), ex);
             return CompletableFuture.failedFuture(ex);
         } catch (RuntimeException ex) {
+            limiter.onDropped(startNanos);
             logAsyncFailure(transaction, ex);
             return CompletableFuture.failedFuture(ex);
         }
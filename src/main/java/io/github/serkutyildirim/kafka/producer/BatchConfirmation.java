@@ -0,0 +1,39 @@
+package io.github.serkutyildirim.kafka.producer;
+
+import org.apache.kafka.clients.producer.RecordMetadata;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Per-message broker confirmations for a batch sent with {@link ReliableProducer#sendAllWithConfirmation}.
+ *
+ * <p>Unlike a transactional batch, these records are independent: a failure of one message does not undo the others.</p>
+ *
+ * @param confirmations one entry per input message, in input order
+ */
+public record BatchConfirmation(List<Confirmation> confirmations) {
+
+    public List<Confirmation> failures() {
+        return confirmations.stream().filter(confirmation -> !confirmation.succeeded()).toList();
+    }
+
+    public int confirmedCount() {
+        return (int) confirmations.stream().filter(Confirmation::succeeded).count();
+    }
+
+    /**
+     * Broker confirmation for one message.
+     *
+     * @param index     position of the message in the input collection
+     * @param messageId message ID of the record
+     * @param metadata  partition and offset assigned by the broker, or {@code null} if the send failed
+     * @param failure   why the send failed or was not confirmed before the deadline, or {@code null} on success
+     */
+    public record Confirmation(int index, UUID messageId, RecordMetadata metadata, Throwable failure) {
+
+        public boolean succeeded() {
+            return failure == null;
+        }
+    }
+}
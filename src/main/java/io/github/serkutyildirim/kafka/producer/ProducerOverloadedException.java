@@ -0,0 +1,27 @@
+package io.github.serkutyildirim.kafka.producer;
+
+/**
+ * Thrown when {@link AdaptiveConcurrencyLimiter} sheds a send because too many records are already awaiting acknowledgement.
+ *
+ * <p>Nothing was handed to the Kafka producer, so the caller can safely retry later. {@code DemoController} maps it to
+ * HTTP 429 Too Many Requests.</p>
+ */
+public class ProducerOverloadedException extends RuntimeException {
+
+    private final int limit;
+    private final int inFlight;
+
+    public ProducerOverloadedException(int limit, int inFlight) {
+        super("Producer overloaded: " + inFlight + " sends in flight, current limit " + limit);
+        this.limit = limit;
+        this.inFlight = inFlight;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+}
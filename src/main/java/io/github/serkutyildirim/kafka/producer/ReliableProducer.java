@@ -1,6 +1,7 @@
 package io.github.serkutyildirim.kafka.producer;
 
 import io.github.serkutyildirim.kafka.model.DemoTransaction;
+import io.github.serkutyildirim.kafka.producer.BatchConfirmation.Confirmation;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.common.errors.SerializationException;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -8,6 +9,10 @@ import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -22,6 +27,8 @@ import java.util.concurrent.TimeoutException;
  * <p><b>Example usage:</b></p>
  * <pre>{@code
  * SendResult<String, DemoTransaction> result = reliableProducer.sendWithConfirmation(transaction);
+ *
+ * BatchConfirmation confirmations = reliableProducer.sendAllWithConfirmation(transactions);
  * }</pre>
  */
 @Component
@@ -72,4 +79,56 @@ public class ReliableProducer {
             throw ex;
         }
     }
+
+    /**
+     * Pattern name: Batched Synchronous Send
+     * Characteristics: Reliable, one deadline for the whole set instead of one blocking round trip per message
+     * Use cases: Bulk imports and test-data generation that still need per-message confirmation
+     * Guarantee: Each message is confirmed or reported as failed independently; there is no all-or-nothing semantics
+     *
+     * @return one {@link Confirmation} per input message, in iteration order
+     * @throws InterruptedException if the caller is interrupted while waiting for confirmations
+     */
+    public BatchConfirmation sendAllWithConfirmation(Collection<DemoTransaction> transactions) throws InterruptedException {
+        List<DemoTransaction> ordered = List.copyOf(transactions);
+        List<CompletableFuture<SendResult<String, DemoTransaction>>> futures = new ArrayList<>(ordered.size());
+        for (DemoTransaction transaction : ordered) {
+            try {
+                futures.add(kafkaTemplate.send(TOPIC, transaction));
+            } catch (RuntimeException ex) {
+                // Serialization errors are thrown synchronously; record them and keep sending the rest.
+                log.error("Serialization failed for batched synchronous messageId={}", transaction.getMessageId(), ex);
+                futures.add(CompletableFuture.failedFuture(ex));
+            }
+        }
+
+        // No flush: it blocks without a deadline. After linger.ms the sender drains the accumulator on its own, so the
+        // bounded wait below is the only place this method can block.
+        try {
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                    .get(SEND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException | TimeoutException ex) {
+            // Individual outcomes are read below; one failure must not hide the confirmations of the others.
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            log.error("Batched synchronous send interrupted with {} messages in flight", ordered.size(), ex);
+            throw ex;
+        }
+
+        List<Confirmation> confirmations = new ArrayList<>(ordered.size());
+        for (int i = 0; i < ordered.size(); i++) {
+            CompletableFuture<SendResult<String, DemoTransaction>> future = futures.get(i);
+            DemoTransaction transaction = ordered.get(i);
+            confirmations.add(switch (future.state()) {
+                case SUCCESS -> new Confirmation(i, transaction.getMessageId(), future.resultNow().getRecordMetadata(), null);
+                case FAILED -> new Confirmation(i, transaction.getMessageId(), null, future.exceptionNow());
+                default -> new Confirmation(i, transaction.getMessageId(), null,
+                        new TimeoutException("No broker acknowledgement within " + SEND_TIMEOUT_SECONDS + "s"));
+            });
+        }
+
+        BatchConfirmation result = new BatchConfirmation(confirmations);
+        log.info("Batched synchronous send confirmed {} of {} messages", result.confirmedCount(), ordered.size());
+        return result;
+    }
 }
@@ -13,6 +13,8 @@ import org.springframework.stereotype.Component;
  * <p><b>When to use:</b> Metrics, logs, telemetry, and other non-critical data where raw throughput matters more than delivery confirmation.</p>
  * <p><b>Performance:</b> Typically the fastest option because the caller does not wait for broker acknowledgments.</p>
  * <p><b>Common pitfalls:</b> Broker-side failures can happen after the method returns, so this pattern should not be used for money movement or other critical workflows.</p>
+ * <p><b>Overload protection:</b> the caller does not wait for the acknowledgement, but the record still holds an
+ * {@link AdaptiveConcurrencyLimiter} slot until it arrives, so a slow broker leads to fast rejections instead of a blocked {@code send()}.</p>
  *
  * <p><b>Example usage:</b></p>
  * <pre>{@code
@@ -28,25 +30,45 @@ public class SimpleProducer {
     @Autowired
     private KafkaTemplate<String, DemoTransaction> kafkaTemplate;
 
+    @Autowired
+    private AdaptiveConcurrencyLimiter limiter;
+
     /**
      * Pattern name: Fire-and-Forget
      * Characteristics: Fastest, least reliable
      * Use cases: Metrics, logs, non-critical data
      * Performance: ~100k msgs/sec
      * Reliability: Message might be lost
+     *
+     * @throws ProducerOverloadedException if too many sends are already awaiting acknowledgement
+     * @throws SerializationException if the record could not be serialized, so nothing was sent
+     * @throws RuntimeException if the record could not be handed to the producer, e.g. metadata or buffer timeouts
      */
     public void send(DemoTransaction transaction) {
         // This is the simplest producer pattern: enqueue the send request and return immediately.
-        // We intentionally do not attach a callback or wait for broker acknowledgment.
+        // We intentionally do not wait for broker acknowledgment or report broker failures to the caller.
         // That makes it very fast, but later network/broker failures may go unnoticed by this caller.
+        // A record that never reached the producer buffer is different: the caller must know nothing was sent.
+        long startNanos = limiter.acquire();
         try {
             log.info("Sending message: {}", transaction.getMessageId());
-            kafkaTemplate.send(TOPIC, transaction);
+            kafkaTemplate.send(TOPIC, transaction).whenComplete((result, ex) -> {
+                // The only callback: give the limiter slot back and feed it the acknowledgement latency.
+                if (ex == null) {
+                    limiter.onSuccess(startNanos);
+                } else {
+                    limiter.onDropped(startNanos);
+                }
+            });
             // Retry strategy note: fire-and-forget typically relies only on producer-level retries from configuration.
         } catch (SerializationException ex) {
+            limiter.onIgnore();
             log.error("Serialization failed for fire-and-forget messageId={}", transaction.getMessageId(), ex);
+            throw ex;
         } catch (RuntimeException ex) {
+            limiter.onDropped(startNanos);
             log.error("Unable to dispatch fire-and-forget messageId={} to topic={}", transaction.getMessageId(), TOPIC, ex);
+            throw ex;
         }
     }
 }
@@ -0,0 +1,190 @@
+package io.github.serkutyildirim.kafka.producer;
+
+import io.github.serkutyildirim.kafka.model.DemoTransaction;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces concurrent small transactional batches into one shared Kafka transaction (group commit).
+ *
+ * <p><b>Why group commit?</b></p>
+ * <ul>
+ *   <li>Every Kafka transaction pays for {@code AddPartitionsToTxn}, {@code EndTxn}, and one commit marker per partition.
+ *       For a 3-record HTTP batch that fixed cost is larger than the records themselves.</li>
+ *   <li>The coordinator thread takes the first waiting batch, keeps collecting for up to {@code max-wait-ms} or until
+ *       {@code max-records} are gathered, and commits everything in one pipelined transaction.</li>
+ * </ul>
+ *
+ * <p><b>Per-caller atomicity:</b> each caller's records are either committed together with the group or not at all.
+ * If a shared transaction aborts, the coordinator re-sends every caller's batch in its own transaction, so one
+ * caller's bad record never takes down another caller's batch.</p>
+ *
+ * <p><b>Common pitfalls:</b></p>
+ * <ul>
+ *   <li>Group commit trades latency for throughput: a lone request waits up to {@code max-wait-ms} before it is sent.</li>
+ *   <li>Batches at or above {@code max-records} bypass the queue; there is nothing left to amortize.</li>
+ *   <li>The feature is off by default ({@code app.kafka.producer.group-commit.enabled=false}); every call then opens its own transaction.</li>
+ * </ul>
+ */
+@Component
+@Slf4j
+public class TransactionGroupCommitter {
+
+    private static final long IDLE_POLL_MS = 100;
+
+    @Autowired
+    private TransactionalProducer transactionalProducer;
+
+    @Value("${app.kafka.producer.group-commit.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.kafka.producer.group-commit.max-wait-ms:5}")
+    private long maxWaitMs = 5;
+
+    @Value("${app.kafka.producer.group-commit.max-records:500}")
+    private int maxRecords = 500;
+
+    private final BlockingQueue<PendingBatch> queue = new LinkedBlockingQueue<>();
+    private volatile boolean running;
+    private Thread coordinator;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        coordinator = Thread.ofPlatform().name("txn-group-commit").daemon().start(this::run);
+        log.info("event=group_commit_started maxWaitMs={} maxRecords={}", maxWaitMs, maxRecords);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (coordinator == null) {
+            return;
+        }
+        // No interrupt: it would abort a group that is mid-commit. The coordinator notices within one idle poll.
+        running = false;
+        try {
+            coordinator.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        coordinator = null;
+        log.info("event=group_commit_stopped");
+    }
+
+    /**
+     * Sends the batch atomically and blocks until its transaction outcome is known.
+     *
+     * @return {@code true} if every record of this batch was committed
+     */
+    public boolean send(List<DemoTransaction> transactions) {
+        try {
+            return submit(transactions).get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for group commit", ex);
+        } catch (ExecutionException ex) {
+            log.error("event=group_commit_failure records={}", transactions.size(), ex.getCause());
+            return false;
+        }
+    }
+
+    /**
+     * Queues the batch for the next group commit, or sends it directly when group commit is disabled or the batch is large.
+     */
+    public CompletableFuture<Boolean> submit(List<DemoTransaction> transactions) {
+        if (!running || transactions.size() >= maxRecords) {
+            return CompletableFuture.completedFuture(transactionalProducer.sendTransactional(transactions));
+        }
+        PendingBatch pending = new PendingBatch(transactions, new CompletableFuture<>());
+        queue.add(pending);
+        if (!running && queue.remove(pending)) {
+            // Lost the race with stop(): the coordinator will not see this batch anymore.
+            return CompletableFuture.completedFuture(transactionalProducer.sendTransactional(transactions));
+        }
+        return pending.result();
+    }
+
+    private void run() {
+        List<PendingBatch> group = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingBatch first = queue.poll(IDLE_POLL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                int records = first.transactions().size();
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+                while (records < maxRecords) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingBatch next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    group.add(next);
+                    records += next.transactions().size();
+                }
+            } catch (InterruptedException ex) {
+                // Treat an interrupt as shutdown. The flag is not restored: the final commits below must be able to wait on futures.
+                running = false;
+                queue.drainTo(group);
+            }
+            if (!group.isEmpty()) {
+                commit(group);
+                group.clear();
+            }
+        }
+    }
+
+    private void commit(List<PendingBatch> group) {
+        List<DemoTransaction> combined = new ArrayList<>();
+        for (PendingBatch pending : group) {
+            combined.addAll(pending.transactions());
+        }
+
+        boolean committed;
+        try {
+            committed = transactionalProducer.sendTransactionalPipelined(combined).committed();
+        } catch (RuntimeException ex) {
+            log.error("event=group_commit_failure callers={} records={}", group.size(), combined.size(), ex);
+            committed = false;
+        }
+        log.debug("event=group_commit callers={} records={} committed={}", group.size(), combined.size(), committed);
+
+        if (committed || group.size() == 1) {
+            for (PendingBatch pending : group) {
+                pending.result().complete(committed);
+            }
+            return;
+        }
+
+        // Fallback: the shared transaction aborted, so nothing from the group is visible to read_committed consumers.
+        // Retry each caller alone to keep one caller's failure from failing the others.
+        log.warn("event=group_commit_fallback callers={} records={}", group.size(), combined.size());
+        for (PendingBatch pending : group) {
+            try {
+                pending.result().complete(transactionalProducer.sendTransactional(pending.transactions()));
+            } catch (RuntimeException ex) {
+                pending.result().completeExceptionally(ex);
+            }
+        }
+    }
+
+    private record PendingBatch(List<DemoTransaction> transactions, CompletableFuture<Boolean> result) {
+    }
+}
@@ -1,14 +1,21 @@
 package io.github.serkutyildirim.kafka.producer;
 
 import io.github.serkutyildirim.kafka.model.DemoTransaction;
+import io.github.serkutyildirim.kafka.producer.TransactionalSendResult.RecordOutcome;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.RecordMetadata;
 import org.apache.kafka.common.errors.SerializationException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -20,9 +27,17 @@ import java.util.concurrent.TimeoutException;
  * <p><b>Performance:</b> The slowest producer style here because Kafka coordinates transaction state and fencing.</p>
  * <p><b>Common pitfalls:</b> Consumers must use {@code isolation.level=read_committed}; otherwise they may still read aborted records.</p>
  *
+ * <p><b>Pipelined vs. sequential:</b> blocking on every send inside the transaction costs one broker round trip per record.
+ * The pipelined mode (default, {@code app.kafka.producer.transactional.pipelined=true}) hands every record to the producer
+ * first and then awaits all futures against a single deadline, so a 1000-record batch needs only as many
+ * round trips as there are producer batches. Set the property to {@code false} to fall back to the step-by-step loop.</p>
+ *
  * <p><b>Example usage:</b></p>
  * <pre>{@code
  * boolean committed = transactionalProducer.sendTransactional(List.of(transaction1, transaction2));
+ *
+ * TransactionalSendResult result = transactionalProducer.sendTransactionalPipelined(transactions);
+ * result.failures().forEach(failure -> log.warn("index={} error={}", failure.index(), failure.error()));
  * }</pre>
  */
 @Component
@@ -36,6 +51,9 @@ public class TransactionalProducer {
     @Qualifier("transactionalKafkaTemplate")
     private KafkaTemplate<String, DemoTransaction> transactionalKafkaTemplate;
 
+    @Value("${app.kafka.producer.transactional.pipelined:true}")
+    private boolean pipelined = true;
+
     /**
      * Pattern name: Transactional Send (Exactly-Once Semantics)
      * Characteristics: Atomic, all-or-nothing, slowest
@@ -48,6 +66,9 @@ public class TransactionalProducer {
             log.warn("Transactional send skipped because no messages were provided");
             return false;
         }
+        if (pipelined) {
+            return sendTransactionalPipelined(transactions).committed();
+        }
 
         try {
             log.info("Beginning Kafka transaction for {} messages", transactions.size());
@@ -96,4 +117,112 @@ public class TransactionalProducer {
             return false;
         }
     }
+
+    /**
+     * Pattern name: Pipelined Transactional Send
+     * Characteristics: Atomic, all-or-nothing, one deadline per batch instead of one round trip per record
+     * Use cases: Large transactional batches where per-record blocking dominates latency
+     * Guarantee: Either all messages are committed or none; the result reports which records caused an abort
+     *
+     * @return the commit flag plus one {@link RecordOutcome} per input record, in input order
+     */
+    public TransactionalSendResult sendTransactionalPipelined(List<DemoTransaction> transactions) {
+        if (transactions == null || transactions.isEmpty()) {
+            log.warn("Transactional send skipped because no messages were provided");
+            return new TransactionalSendResult(false, List.of());
+        }
+
+        RecordOutcome[] outcomes = new RecordOutcome[transactions.size()];
+        boolean committed;
+        try {
+            log.info("Beginning pipelined Kafka transaction for {} messages", transactions.size());
+
+            Boolean result = transactionalKafkaTemplate.executeInTransaction(operations -> {
+                // Issue every send before waiting on any of them. Same key choice as the sequential path:
+                // the source account keeps all events for one account on one partition, in order.
+                List<CompletableFuture<SendResult<String, DemoTransaction>>> futures = new ArrayList<>(transactions.size());
+                for (DemoTransaction transaction : transactions) {
+                    try {
+                        futures.add(operations.send(TOPIC, transaction.getSourceId(), transaction));
+                    } catch (RuntimeException ex) {
+                        // Serialization errors surface synchronously. The transaction is going to abort anyway,
+                        // so stop appending records that would only be thrown away.
+                        futures.add(CompletableFuture.failedFuture(ex));
+                        break;
+                    }
+                }
+
+                // No flush: it blocks without a deadline. linger.ms still sends every record promptly, and the await is bounded.
+                awaitAll(futures);
+
+                int failed = recordOutcomes(transactions, futures, outcomes);
+                if (failed > 0) {
+                    // Throwing makes Spring abort the Kafka transaction.
+                    throw new IllegalStateException(failed + " of " + transactions.size() + " transactional sends failed");
+                }
+                return Boolean.TRUE;
+            });
+            committed = Boolean.TRUE.equals(result);
+            log.info("Pipelined Kafka transaction committed for {} messages", transactions.size());
+        } catch (Exception ex) {
+            log.error("Pipelined Kafka transaction rolled back for firstMessageId={}", transactions.get(0).getMessageId(), ex);
+            committed = false;
+        }
+
+        for (int i = 0; i < outcomes.length; i++) {
+            if (outcomes[i] == null) {
+                outcomes[i] = RecordOutcome.failed(i, transactions.get(i).getMessageId(), "Not sent: transaction aborted first");
+            } else if (!committed && outcomes[i].succeeded()) {
+                // The broker acknowledged the record, but read_committed consumers will never see it.
+                outcomes[i] = RecordOutcome.failed(i, transactions.get(i).getMessageId(), "Aborted: sent, but the transaction did not commit");
+            }
+        }
+        return new TransactionalSendResult(committed, Arrays.asList(outcomes));
+    }
+
+    /**
+     * Waits for every future against one shared deadline. Individual failures are inspected afterwards,
+     * so an early failure does not cut the wait short for records that are still in flight.
+     */
+    private void awaitAll(List<CompletableFuture<SendResult<String, DemoTransaction>>> futures) {
+        try {
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                    .get(SEND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException | TimeoutException ex) {
+            // Per-record outcomes are examined by the caller.
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during pipelined transactional send", ex);
+        }
+    }
+
+    private int recordOutcomes(List<DemoTransaction> transactions,
+                               List<CompletableFuture<SendResult<String, DemoTransaction>>> futures,
+                               RecordOutcome[] outcomes) {
+        int failed = 0;
+        for (int i = 0; i < futures.size(); i++) {
+            CompletableFuture<SendResult<String, DemoTransaction>> future = futures.get(i);
+            DemoTransaction transaction = transactions.get(i);
+            outcomes[i] = switch (future.state()) {
+                case SUCCESS -> acknowledged(i, transaction, future.resultNow());
+                case FAILED -> {
+                    Throwable cause = future.exceptionNow();
+                    log.error("Transactional send failed for messageId={}", transaction.getMessageId(), cause);
+                    yield RecordOutcome.failed(i, transaction.getMessageId(), cause.getClass().getSimpleName() + ": " + cause.getMessage());
+                }
+                default -> RecordOutcome.failed(i, transaction.getMessageId(), "Timed out after " + SEND_TIMEOUT_SECONDS + "s");
+            };
+            if (!outcomes[i].succeeded()) {
+                failed++;
+            }
+        }
+        return failed;
+    }
+
+    private RecordOutcome acknowledged(int index, DemoTransaction transaction, SendResult<String, DemoTransaction> result) {
+        RecordMetadata metadata = result == null ? null : result.getRecordMetadata();
+        return metadata == null
+                ? RecordOutcome.acknowledged(index, transaction.getMessageId(), -1, -1L)
+                : RecordOutcome.acknowledged(index, transaction.getMessageId(), metadata.partition(), metadata.offset());
+    }
 }
@@ -0,0 +1,47 @@
+package io.github.serkutyildirim.kafka.producer;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Outcome of a pipelined transactional batch: whether the Kafka transaction committed, plus one entry per input record.
+ *
+ * <p>When {@link #committed()} is {@code false} the whole batch was aborted and every outcome is a failure: records whose own
+ * send succeeded report {@code "Aborted: ..."}, the others say why they failed or that they were never sent.</p>
+ *
+ * @param committed {@code true} only if the transaction commit succeeded
+ * @param outcomes  per-record outcomes in input order
+ */
+public record TransactionalSendResult(boolean committed, List<RecordOutcome> outcomes) {
+
+    /**
+     * Records whose send failed, timed out, was never attempted, or was aborted with the transaction.
+     */
+    public List<RecordOutcome> failures() {
+        return outcomes.stream().filter(outcome -> !outcome.succeeded()).toList();
+    }
+
+    /**
+     * Send outcome for one record of the batch.
+     *
+     * @param index     position of the record in the input list
+     * @param messageId message ID of the record
+     * @param partition partition the broker assigned, or {@code -1} if the send did not succeed
+     * @param offset    offset the broker assigned, or {@code -1} if the send did not succeed
+     * @param error     why the record is not committed, or {@code null} if the broker acknowledged it and the transaction committed
+     */
+    public record RecordOutcome(int index, UUID messageId, int partition, long offset, String error) {
+
+        static RecordOutcome acknowledged(int index, UUID messageId, int partition, long offset) {
+            return new RecordOutcome(index, messageId, partition, offset, null);
+        }
+
+        static RecordOutcome failed(int index, UUID messageId, String error) {
+            return new RecordOutcome(index, messageId, -1, -1L, error);
+        }
+
+        public boolean succeeded() {
+            return error == null;
+        }
+    }
+}
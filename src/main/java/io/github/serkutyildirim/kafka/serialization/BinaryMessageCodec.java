@@ -0,0 +1,400 @@
+package io.github.serkutyildirim.kafka.serialization;
+
+import io.github.serkutyildirim.kafka.model.BaseMessage;
+import io.github.serkutyildirim.kafka.model.DemoNotification;
+import io.github.serkutyildirim.kafka.model.DemoTransaction;
+import io.github.serkutyildirim.kafka.model.MessageStatus;
+import io.github.serkutyildirim.kafka.model.NotificationType;
+import io.github.serkutyildirim.kafka.model.Priority;
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Hand-rolled, versioned binary wire format for {@link DemoTransaction} and {@link DemoNotification}.
+ *
+ * <p><b>Layout (version 1):</b></p>
+ * <pre>
+ * byte    magic (0xB7)          never a valid first byte of a JSON document, so both formats can share a topic
+ * byte    version (1)
+ * byte    wire type id          see {@link WireMessageType}
+ * byte    presence flags        one bit per nullable field, in the field order below
+ * [16]    messageId             most significant long, least significant long
+ * [8]     timestamp             epoch microseconds
+ * ...     subtype fields        strings are varint length + UTF-8, enums are one ordinal byte,
+ *                               amounts are zigzag varint scale + varint length + two's complement unscaled value
+ * </pre>
+ *
+ * <p><b>Trade-offs compared with JSON:</b></p>
+ * <ul>
+ *   <li>No field names, a 16-byte UUID instead of a 36-character string, and no {@code type} discriminator text, so records are much smaller.</li>
+ *   <li>Payloads are no longer human-readable in Kafka UI tools, and every consumer must know this codec.</li>
+ *   <li>Timestamps are truncated to microseconds and enums are stored by ordinal, so enum constants may only be appended, never reordered.</li>
+ * </ul>
+ */
+public final class BinaryMessageCodec {
+
+    public static final byte MAGIC = (byte) 0xB7;
+    public static final byte VERSION = 1;
+
+    static final int HEADER_SIZE = 4;
+    static final int TYPE_OFFSET = 2;
+    static final int FLAGS_OFFSET = 3;
+    static final int UUID_SIZE = 16;
+    static final int TIMESTAMP_SIZE = 8;
+
+    static final int FLAG_MESSAGE_ID = 1;
+    static final int FLAG_TIMESTAMP = 1 << 1;
+
+    static final int FLAG_SOURCE_ID = 1 << 2;
+    static final int FLAG_TARGET_ID = 1 << 3;
+    static final int FLAG_AMOUNT = 1 << 4;
+    static final int FLAG_CURRENCY = 1 << 5;
+    static final int FLAG_STATUS = 1 << 6;
+    static final int FLAG_DESCRIPTION = 1 << 7;
+
+    static final int FLAG_RECIPIENT_ID = 1 << 2;
+    static final int FLAG_CONTENT = 1 << 3;
+    static final int FLAG_NOTIFICATION_TYPE = 1 << 4;
+    static final int FLAG_PRIORITY = 1 << 5;
+
+    private static final MessageStatus[] STATUSES = MessageStatus.values();
+    private static final NotificationType[] NOTIFICATION_TYPES = NotificationType.values();
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    private BinaryMessageCodec() {
+    }
+
+    /**
+     * Returns {@code true} when the payload starts with this codec's magic byte.
+     */
+    public static boolean isBinary(byte[] data) {
+        return data != null && data.length > 0 && data[0] == MAGIC;
+    }
+
+    public static byte[] encode(BaseMessage message) {
+        if (message instanceof DemoTransaction transaction) {
+            return encodeTransaction(transaction);
+        }
+        if (message instanceof DemoNotification notification) {
+            return encodeNotification(notification);
+        }
+        throw new SerializationException("Binary wire format does not support " + message.getClass().getName());
+    }
+
+    public static BaseMessage decode(byte[] data) {
+        return decode(ByteBuffer.wrap(data));
+    }
+
+    public static BaseMessage decode(ByteBuffer buffer) {
+        try {
+            int start = buffer.position();
+            int flags = readHeader(buffer);
+            WireMessageType type = WireMessageType.fromId(buffer.get(start + TYPE_OFFSET));
+            return switch (type) {
+                case DEMO_TRANSACTION -> decodeTransaction(buffer, flags);
+                case DEMO_NOTIFICATION -> decodeNotification(buffer, flags);
+            };
+        } catch (BufferUnderflowException | IndexOutOfBoundsException ex) {
+            throw new SerializationException("Truncated or malformed binary message payload", ex);
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Encoding
+    // -------------------------------------------------------------------------
+
+    private static byte[] encodeTransaction(DemoTransaction transaction) {
+        byte[] sourceId = utf8(transaction.getSourceId());
+        byte[] targetId = utf8(transaction.getTargetId());
+        byte[] currency = utf8(transaction.getCurrency());
+        byte[] description = utf8(transaction.getDescription());
+        BigDecimal amount = transaction.getAmount();
+        byte[] unscaled = amount == null ? null : amount.unscaledValue().toByteArray();
+
+        int flags = metadataFlags(transaction)
+                | flag(sourceId, FLAG_SOURCE_ID)
+                | flag(targetId, FLAG_TARGET_ID)
+                | flag(unscaled, FLAG_AMOUNT)
+                | flag(currency, FLAG_CURRENCY)
+                | flag(transaction.getStatus(), FLAG_STATUS)
+                | flag(description, FLAG_DESCRIPTION);
+
+        int size = metadataSize(flags)
+                + stringSize(sourceId)
+                + stringSize(targetId)
+                + (unscaled == null ? 0 : varintSize(zigZag(amount.scale())) + stringSize(unscaled))
+                + stringSize(currency)
+                + (transaction.getStatus() == null ? 0 : 1)
+                + stringSize(description);
+
+        Writer writer = new Writer(size);
+        writer.header(WireMessageType.DEMO_TRANSACTION, flags);
+        writer.metadata(transaction);
+        writer.bytes(sourceId);
+        writer.bytes(targetId);
+        if (unscaled != null) {
+            writer.varint(zigZag(amount.scale()));
+            writer.bytes(unscaled);
+        }
+        writer.bytes(currency);
+        if (transaction.getStatus() != null) {
+            writer.put((byte) transaction.getStatus().ordinal());
+        }
+        writer.bytes(description);
+        return writer.buffer;
+    }
+
+    private static byte[] encodeNotification(DemoNotification notification) {
+        byte[] recipientId = utf8(notification.getRecipientId());
+        byte[] content = utf8(notification.getContent());
+
+        int flags = metadataFlags(notification)
+                | flag(recipientId, FLAG_RECIPIENT_ID)
+                | flag(content, FLAG_CONTENT)
+                | flag(notification.getNotificationType(), FLAG_NOTIFICATION_TYPE)
+                | flag(notification.getPriority(), FLAG_PRIORITY);
+
+        int size = metadataSize(flags)
+                + stringSize(recipientId)
+                + stringSize(content)
+                + (notification.getNotificationType() == null ? 0 : 1)
+                + (notification.getPriority() == null ? 0 : 1);
+
+        Writer writer = new Writer(size);
+        writer.header(WireMessageType.DEMO_NOTIFICATION, flags);
+        writer.metadata(notification);
+        writer.bytes(recipientId);
+        writer.bytes(content);
+        if (notification.getNotificationType() != null) {
+            writer.put((byte) notification.getNotificationType().ordinal());
+        }
+        if (notification.getPriority() != null) {
+            writer.put((byte) notification.getPriority().ordinal());
+        }
+        return writer.buffer;
+    }
+
+    private static int metadataFlags(BaseMessage message) {
+        return flag(message.getMessageId(), FLAG_MESSAGE_ID) | flag(message.getTimestamp(), FLAG_TIMESTAMP);
+    }
+
+    private static int metadataSize(int flags) {
+        return HEADER_SIZE
+                + ((flags & FLAG_MESSAGE_ID) != 0 ? UUID_SIZE : 0)
+                + ((flags & FLAG_TIMESTAMP) != 0 ? TIMESTAMP_SIZE : 0);
+    }
+
+    private static int flag(Object value, int flag) {
+        return value == null ? 0 : flag;
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int stringSize(byte[] value) {
+        return value == null ? 0 : varintSize(value.length) + value.length;
+    }
+
+    // -------------------------------------------------------------------------
+    // Decoding
+    // -------------------------------------------------------------------------
+
+    private static int readHeader(ByteBuffer buffer) {
+        if (buffer.get() != MAGIC) {
+            throw new SerializationException("Payload does not start with the binary wire format magic byte");
+        }
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new SerializationException("Unsupported binary wire format version " + version + " (supported: " + VERSION + ")");
+        }
+        buffer.get();
+        return buffer.get() & 0xFF;
+    }
+
+    private static DemoTransaction decodeTransaction(ByteBuffer buffer, int flags) {
+        UUID messageId = readMessageId(buffer, flags);
+        Instant timestamp = readTimestamp(buffer, flags);
+        String sourceId = readString(buffer, flags, FLAG_SOURCE_ID);
+        String targetId = readString(buffer, flags, FLAG_TARGET_ID);
+        BigDecimal amount = null;
+        if ((flags & FLAG_AMOUNT) != 0) {
+            int scale = unZigZag(readVarint(buffer));
+            byte[] unscaled = new byte[readLength(buffer)];
+            buffer.get(unscaled);
+            amount = new BigDecimal(new BigInteger(unscaled), scale);
+        }
+        String currency = readString(buffer, flags, FLAG_CURRENCY);
+        MessageStatus status = (flags & FLAG_STATUS) != 0 ? STATUSES[buffer.get()] : null;
+        String description = readString(buffer, flags, FLAG_DESCRIPTION);
+
+        return DemoTransaction.builder()
+                .messageId(messageId)
+                .timestamp(timestamp)
+                .sourceId(sourceId)
+                .targetId(targetId)
+                .amount(amount)
+                .currency(currency)
+                .status(status)
+                .description(description)
+                .build();
+    }
+
+    private static DemoNotification decodeNotification(ByteBuffer buffer, int flags) {
+        UUID messageId = readMessageId(buffer, flags);
+        Instant timestamp = readTimestamp(buffer, flags);
+        String recipientId = readString(buffer, flags, FLAG_RECIPIENT_ID);
+        String content = readString(buffer, flags, FLAG_CONTENT);
+        NotificationType notificationType = (flags & FLAG_NOTIFICATION_TYPE) != 0 ? NOTIFICATION_TYPES[buffer.get()] : null;
+        Priority priority = (flags & FLAG_PRIORITY) != 0 ? PRIORITIES[buffer.get()] : null;
+
+        return DemoNotification.builder()
+                .messageId(messageId)
+                .timestamp(timestamp)
+                .recipientId(recipientId)
+                .content(content)
+                .notificationType(notificationType)
+                .priority(priority)
+                .build();
+    }
+
+    private static UUID readMessageId(ByteBuffer buffer, int flags) {
+        return (flags & FLAG_MESSAGE_ID) != 0 ? new UUID(buffer.getLong(), buffer.getLong()) : null;
+    }
+
+    private static Instant readTimestamp(ByteBuffer buffer, int flags) {
+        return (flags & FLAG_TIMESTAMP) != 0 ? fromEpochMicros(buffer.getLong()) : null;
+    }
+
+    private static String readString(ByteBuffer buffer, int flags, int flag) {
+        if ((flags & flag) == 0) {
+            return null;
+        }
+        int length = readLength(buffer);
+        if (buffer.hasArray()) {
+            String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+            return value;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // -------------------------------------------------------------------------
+    // Primitive helpers shared with the flyweight reader
+    // -------------------------------------------------------------------------
+
+    static long toEpochMicros(Instant instant) {
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000L), instant.getNano() / 1_000L);
+    }
+
+    static Instant fromEpochMicros(long micros) {
+        return Instant.ofEpochSecond(Math.floorDiv(micros, 1_000_000L), Math.floorMod(micros, 1_000_000L) * 1_000L);
+    }
+
+    static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    static int unZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    static int readVarint(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte current = buffer.get();
+            value |= (current & 0x7F) << shift;
+            if ((current & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new SerializationException("Malformed varint in binary message payload");
+    }
+
+    /**
+     * Reads a varint length prefix and checks it against the bytes left, so a corrupt length fails before any allocation.
+     */
+    static int readLength(ByteBuffer buffer) {
+        int length = readVarint(buffer);
+        if (length < 0 || length > buffer.remaining()) {
+            throw new SerializationException("Invalid length " + length + " in binary message payload ("
+                    + buffer.remaining() + " bytes remaining)");
+        }
+        return length;
+    }
+
+    /**
+     * Fixed-size writer: sizes are computed up front so encoding performs exactly one payload allocation.
+     */
+    private static final class Writer {
+
+        private final byte[] buffer;
+        private int position;
+
+        private Writer(int size) {
+            this.buffer = new byte[size];
+        }
+
+        private void header(WireMessageType type, int flags) {
+            put(MAGIC);
+            put(VERSION);
+            put(type.id());
+            put((byte) flags);
+        }
+
+        private void metadata(BaseMessage message) {
+            if (message.getMessageId() != null) {
+                putLong(message.getMessageId().getMostSignificantBits());
+                putLong(message.getMessageId().getLeastSignificantBits());
+            }
+            if (message.getTimestamp() != null) {
+                putLong(toEpochMicros(message.getTimestamp()));
+            }
+        }
+
+        private void put(byte value) {
+            buffer[position++] = value;
+        }
+
+        private void putLong(long value) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[position++] = (byte) (value >>> shift);
+            }
+        }
+
+        private void varint(int value) {
+            while ((value & ~0x7F) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        private void bytes(byte[] value) {
+            if (value == null) {
+                return;
+            }
+            varint(value.length);
+            System.arraycopy(value, 0, buffer, position, value.length);
+            position += value.length;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package io.github.serkutyildirim.kafka.serialization;
+
+import io.github.serkutyildirim.kafka.model.BaseMessage;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+import java.util.Map;
+
+/**
+ * Kafka {@link Deserializer} for the {@link BinaryMessageCodec} wire format with a JSON fallback.
+ *
+ * <p><b>Why the fallback?</b> Records written before a producer switched formats (or by producers that have not switched yet)
+ * are still JSON. The binary magic byte can never start a JSON document, so the first byte tells the two formats apart and
+ * a topic can be migrated without a flag day.</p>
+ *
+ * <p>The JSON delegate is configured from the same consumer properties as the standard {@link JsonDeserializer}
+ * (trusted packages, default value type), so fallback behaviour is identical to the JSON-only consumers.</p>
+ */
+public class BinaryMessageDeserializer implements Deserializer<BaseMessage> {
+
+    private final JsonDeserializer<BaseMessage> jsonFallback = new JsonDeserializer<>();
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        jsonFallback.configure(configs, isKey);
+    }
+
+    @Override
+    public BaseMessage deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        if (BinaryMessageCodec.isBinary(data)) {
+            return BinaryMessageCodec.decode(data);
+        }
+        return jsonFallback.deserialize(topic, data);
+    }
+
+    @Override
+    public BaseMessage deserialize(String topic, Headers headers, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        if (BinaryMessageCodec.isBinary(data)) {
+            return BinaryMessageCodec.decode(data);
+        }
+        return jsonFallback.deserialize(topic, headers, data);
+    }
+
+    @Override
+    public void close() {
+        jsonFallback.close();
+    }
+}
@@ -0,0 +1,23 @@
+package io.github.serkutyildirim.kafka.serialization;
+
+import io.github.serkutyildirim.kafka.model.BaseMessage;
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Kafka {@link Serializer} that writes {@link BaseMessage} payloads in the {@link BinaryMessageCodec} wire format.
+ *
+ * <p><b>When to use:</b> high-volume topics where broker disk, network, and per-record CPU matter more than
+ * being able to read payloads in a console consumer.</p>
+ * <p><b>Common pitfalls:</b> switch consumers to {@link BinaryMessageDeserializer} before (or together with) producers;
+ * the plain {@code JsonDeserializer} cannot read binary records.</p>
+ */
+public class BinaryMessageSerializer implements Serializer<BaseMessage> {
+
+    @Override
+    public byte[] serialize(String topic, BaseMessage data) {
+        if (data == null) {
+            return null;
+        }
+        return BinaryMessageCodec.encode(data);
+    }
+}
@@ -0,0 +1,352 @@
+package io.github.serkutyildirim.kafka.serialization;
+
+import io.github.serkutyildirim.kafka.model.DemoTransaction;
+import io.github.serkutyildirim.kafka.model.MessageStatus;
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.UUID;
+
+import static io.github.serkutyildirim.kafka.serialization.BinaryMessageCodec.FLAG_AMOUNT;
+import static io.github.serkutyildirim.kafka.serialization.BinaryMessageCodec.FLAG_CURRENCY;
+import static io.github.serkutyildirim.kafka.serialization.BinaryMessageCodec.FLAG_DESCRIPTION;
+import static io.github.serkutyildirim.kafka.serialization.BinaryMessageCodec.FLAG_MESSAGE_ID;
+import static io.github.serkutyildirim.kafka.serialization.BinaryMessageCodec.FLAG_SOURCE_ID;
+import static io.github.serkutyildirim.kafka.serialization.BinaryMessageCodec.FLAG_STATUS;
+import static io.github.serkutyildirim.kafka.serialization.BinaryMessageCodec.FLAG_TARGET_ID;
+import static io.github.serkutyildirim.kafka.serialization.BinaryMessageCodec.FLAG_TIMESTAMP;
+import static io.github.serkutyildirim.kafka.serialization.BinaryMessageCodec.HEADER_SIZE;
+import static io.github.serkutyildirim.kafka.serialization.BinaryMessageCodec.TIMESTAMP_SIZE;
+import static io.github.serkutyildirim.kafka.serialization.BinaryMessageCodec.UUID_SIZE;
+
+/**
+ * Read-only flyweight over a {@link BinaryMessageCodec} encoded {@link DemoTransaction}.
+ *
+ * <p><b>Why a view instead of a decoded object?</b></p>
+ * <ul>
+ *   <li>Decoding materializes a UUID, an Instant, a BigDecimal, and up to four Strings per record even when the listener reads one field.</li>
+ *   <li>The view keeps a reference to the record bytes and only decodes the fields that are actually accessed.</li>
+ *   <li>Predicates such as {@link #amountSignum()} and {@link #descriptionContainsIgnoreCase(String)} work on the raw bytes and allocate nothing.</li>
+ * </ul>
+ *
+ * <p><b>How it works:</b> the fixed-size header, message ID, and timestamp sit at known offsets. Variable-length fields are located by
+ * a single varint scan the first time any of them is accessed; the offsets are then cached on the view.</p>
+ *
+ * <p><b>Common pitfalls:</b></p>
+ * <ul>
+ *   <li>The view does not copy the payload. Never mutate the wrapped array while a view over it is in use.</li>
+ *   <li>Views are not thread-safe. Hand a decoded {@link #toTransaction()} to other threads instead of the view itself.</li>
+ *   <li>Only the binary format can be viewed; JSON records must be converted first (see {@link DemoTransactionViewDeserializer}).</li>
+ * </ul>
+ */
+public final class DemoTransactionView {
+
+    private static final MessageStatus[] STATUSES = MessageStatus.values();
+    private static final int ABSENT = -1;
+
+    private final byte[] data;
+    private final int start;
+    private final int limit;
+    private final int flags;
+
+    private boolean indexed;
+    private int sourceIdOffset = ABSENT;
+    private int targetIdOffset = ABSENT;
+    private int amountOffset = ABSENT;
+    private int currencyOffset = ABSENT;
+    private int statusOffset = ABSENT;
+    private int descriptionOffset = ABSENT;
+    private int cursor;
+
+    private DemoTransactionView(byte[] data, int start, int limit) {
+        if (limit - start < HEADER_SIZE || data[start] != BinaryMessageCodec.MAGIC) {
+            throw new SerializationException("Payload is not in the binary wire format");
+        }
+        byte version = data[start + 1];
+        if (version != BinaryMessageCodec.VERSION) {
+            throw new SerializationException("Unsupported binary wire format version " + version + " (supported: " + BinaryMessageCodec.VERSION + ")");
+        }
+        if (WireMessageType.fromId(data[start + BinaryMessageCodec.TYPE_OFFSET]) != WireMessageType.DEMO_TRANSACTION) {
+            throw new SerializationException("Binary payload does not contain a DemoTransaction");
+        }
+        this.data = data;
+        this.start = start;
+        this.limit = limit;
+        this.flags = data[start + BinaryMessageCodec.FLAGS_OFFSET] & 0xFF;
+        if (limit - start < HEADER_SIZE + (hasMessageId() ? UUID_SIZE : 0) + (hasTimestamp() ? TIMESTAMP_SIZE : 0)) {
+            throw new SerializationException("Truncated or malformed binary message payload");
+        }
+    }
+
+    /**
+     * Wraps a complete binary payload without copying it.
+     *
+     * @throws SerializationException if the header is not a version-1 DemoTransaction header
+     */
+    public static DemoTransactionView wrap(byte[] data) {
+        return new DemoTransactionView(data, 0, data.length);
+    }
+
+    /**
+     * Wraps the remaining bytes of a buffer. Heap buffers are viewed in place; direct buffers are copied once.
+     *
+     * @throws SerializationException if the header is not a version-1 DemoTransaction header
+     */
+    public static DemoTransactionView wrap(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            int offset = buffer.arrayOffset() + buffer.position();
+            return new DemoTransactionView(buffer.array(), offset, offset + buffer.remaining());
+        }
+        byte[] copy = new byte[buffer.remaining()];
+        buffer.duplicate().get(copy);
+        return wrap(copy);
+    }
+
+    // -------------------------------------------------------------------------
+    // Fixed-offset fields
+    // -------------------------------------------------------------------------
+
+    public boolean hasMessageId() {
+        return (flags & FLAG_MESSAGE_ID) != 0;
+    }
+
+    public UUID messageId() {
+        if (!hasMessageId()) {
+            return null;
+        }
+        int offset = start + HEADER_SIZE;
+        return new UUID(longAt(offset), longAt(offset + Long.BYTES));
+    }
+
+    public boolean hasTimestamp() {
+        return (flags & FLAG_TIMESTAMP) != 0;
+    }
+
+    /**
+     * Returns the timestamp as epoch microseconds, or {@link Long#MIN_VALUE} when the record has none.
+     */
+    public long timestampMicros() {
+        if (!hasTimestamp()) {
+            return Long.MIN_VALUE;
+        }
+        return longAt(start + HEADER_SIZE + (hasMessageId() ? UUID_SIZE : 0));
+    }
+
+    public Instant timestamp() {
+        return hasTimestamp() ? BinaryMessageCodec.fromEpochMicros(timestampMicros()) : null;
+    }
+
+    // -------------------------------------------------------------------------
+    // Variable-length fields
+    // -------------------------------------------------------------------------
+
+    public String sourceId() {
+        return stringAt(index().sourceIdOffset);
+    }
+
+    public String targetId() {
+        return stringAt(index().targetIdOffset);
+    }
+
+    public String currency() {
+        return stringAt(index().currencyOffset);
+    }
+
+    public String description() {
+        return stringAt(index().descriptionOffset);
+    }
+
+    public boolean hasDescription() {
+        return (flags & FLAG_DESCRIPTION) != 0;
+    }
+
+    public BigDecimal amount() {
+        int offset = index().amountOffset;
+        if (offset == ABSENT) {
+            return null;
+        }
+        cursor = offset;
+        int scale = BinaryMessageCodec.unZigZag(readVarint());
+        int length = readVarint();
+        return new BigDecimal(new BigInteger(data, cursor, length), scale);
+    }
+
+    /**
+     * Sign of the amount read straight from the two's complement bytes: -1, 0 or 1, and 0 when the amount is absent.
+     */
+    public int amountSignum() {
+        int offset = index().amountOffset;
+        if (offset == ABSENT) {
+            return 0;
+        }
+        cursor = offset;
+        readVarint();
+        int length = readVarint();
+        if (length == 0) {
+            return 0;
+        }
+        if (data[cursor] < 0) {
+            return -1;
+        }
+        for (int i = cursor; i < cursor + length; i++) {
+            if (data[i] != 0) {
+                return 1;
+            }
+        }
+        return 0;
+    }
+
+    public MessageStatus status() {
+        int offset = index().statusOffset;
+        if (offset == ABSENT) {
+            return null;
+        }
+        int ordinal = data[offset];
+        if (ordinal < 0 || ordinal >= STATUSES.length) {
+            throw new SerializationException("Unknown MessageStatus ordinal " + ordinal + " in binary message payload");
+        }
+        return STATUSES[ordinal];
+    }
+
+    /**
+     * Case-insensitive substring check on the UTF-8 description bytes without creating a String.
+     *
+     * <p>The marker must be ASCII (for example {@code "FAIL_MANUAL"}); ASCII bytes never occur inside multi-byte UTF-8
+     * sequences, so a byte-level match is also a character-level match.</p>
+     */
+    public boolean descriptionContainsIgnoreCase(String asciiMarker) {
+        int offset = index().descriptionOffset;
+        if (offset == ABSENT) {
+            return false;
+        }
+        cursor = offset;
+        int length = readVarint();
+        int from = cursor;
+        int markerLength = asciiMarker.length();
+        for (int i = from; i <= from + length - markerLength; i++) {
+            int matched = 0;
+            while (matched < markerLength && asciiUpper(data[i + matched]) == asciiUpper((byte) asciiMarker.charAt(matched))) {
+                matched++;
+            }
+            if (matched == markerLength) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Materializes the full object, for example before handing the payload to another thread or a DLQ producer.
+     */
+    public DemoTransaction toTransaction() {
+        return (DemoTransaction) BinaryMessageCodec.decode(ByteBuffer.wrap(data, start, limit - start));
+    }
+
+    /**
+     * Encoded size of the wrapped payload in bytes.
+     */
+    public int sizeInBytes() {
+        return limit - start;
+    }
+
+    @Override
+    public String toString() {
+        return "DemoTransactionView(messageId=" + messageId()
+                + ", sourceId=" + sourceId()
+                + ", targetId=" + targetId()
+                + ", amount=" + amount()
+                + ", currency=" + currency()
+                + ", status=" + status()
+                + ", description=" + description() + ")";
+    }
+
+    // -------------------------------------------------------------------------
+    // Internals
+    // -------------------------------------------------------------------------
+
+    private DemoTransactionView index() {
+        if (indexed) {
+            return this;
+        }
+        try {
+            cursor = start + HEADER_SIZE
+                    + (hasMessageId() ? UUID_SIZE : 0)
+                    + (hasTimestamp() ? TIMESTAMP_SIZE : 0);
+            sourceIdOffset = skipString(FLAG_SOURCE_ID);
+            targetIdOffset = skipString(FLAG_TARGET_ID);
+            if ((flags & FLAG_AMOUNT) != 0) {
+                amountOffset = cursor;
+                readVarint();
+                int length = readLength();
+                cursor += length;
+            }
+            currencyOffset = skipString(FLAG_CURRENCY);
+            if ((flags & FLAG_STATUS) != 0) {
+                statusOffset = cursor++;
+            }
+            descriptionOffset = skipString(FLAG_DESCRIPTION);
+        } catch (ArrayIndexOutOfBoundsException ex) {
+            throw new SerializationException("Truncated or malformed binary message payload", ex);
+        }
+        if (cursor > limit) {
+            throw new SerializationException("Truncated or malformed binary message payload");
+        }
+        indexed = true;
+        return this;
+    }
+
+    private int skipString(int flag) {
+        if ((flags & flag) == 0) {
+            return ABSENT;
+        }
+        int offset = cursor;
+        int length = readLength();
+        cursor += length;
+        return offset;
+    }
+
+    private String stringAt(int offset) {
+        if (offset == ABSENT) {
+            return null;
+        }
+        cursor = offset;
+        int length = readVarint();
+        return new String(data, cursor, length, StandardCharsets.UTF_8);
+    }
+
+    private int readVarint() {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte current = data[cursor++];
+            value |= (current & 0x7F) << shift;
+            if ((current & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new SerializationException("Malformed varint in binary message payload");
+    }
+
+    private int readLength() {
+        int length = readVarint();
+        if (length < 0 || length > limit - cursor) {
+            throw new SerializationException("Invalid length " + length + " in binary message payload");
+        }
+        return length;
+    }
+
+    private long longAt(int offset) {
+        long value = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            value = (value << 8) | (data[offset + i] & 0xFFL);
+        }
+        return value;
+    }
+
+    private static int asciiUpper(byte value) {
+        return value >= 'a' && value <= 'z' ? value - 32 : value;
+    }
+}
@@ -0,0 +1,68 @@
+package io.github.serkutyildirim.kafka.serialization;
+
+import io.github.serkutyildirim.kafka.model.BaseMessage;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+/**
+ * Kafka {@link Deserializer} that hands listeners a {@link DemoTransactionView} instead of a decoded object.
+ *
+ * <p><b>Binary records</b> are wrapped in place: the only per-record allocation is the small view object itself.</p>
+ * <p><b>JSON records</b> (written before producers switched to BINARY) are decoded with the standard {@link JsonDeserializer}
+ * and re-encoded, so a view listener keeps working during a migration. This path is slower than plain JSON consumption and
+ * should disappear once every producer on the topic writes the binary format.</p>
+ */
+public class DemoTransactionViewDeserializer implements Deserializer<DemoTransactionView> {
+
+    private final JsonDeserializer<BaseMessage> jsonFallback = new JsonDeserializer<>();
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        jsonFallback.configure(configs, isKey);
+    }
+
+    @Override
+    public DemoTransactionView deserialize(String topic, byte[] data) {
+        return deserialize(topic, null, data);
+    }
+
+    @Override
+    public DemoTransactionView deserialize(String topic, Headers headers, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        if (BinaryMessageCodec.isBinary(data)) {
+            return DemoTransactionView.wrap(data);
+        }
+        BaseMessage legacy = headers == null
+                ? jsonFallback.deserialize(topic, data)
+                : jsonFallback.deserialize(topic, headers, data);
+        return legacy == null ? null : DemoTransactionView.wrap(BinaryMessageCodec.encode(legacy));
+    }
+
+    /**
+     * Used by the Kafka client when this deserializer is configured directly (without {@code ErrorHandlingDeserializer}):
+     * heap buffers from the fetch response are viewed without the intermediate {@code byte[]} copy.
+     */
+    @Override
+    public DemoTransactionView deserialize(String topic, Headers headers, ByteBuffer data) {
+        if (data == null) {
+            return null;
+        }
+        if (data.remaining() > 0 && data.get(data.position()) == BinaryMessageCodec.MAGIC) {
+            return DemoTransactionView.wrap(data);
+        }
+        byte[] bytes = new byte[data.remaining()];
+        data.duplicate().get(bytes);
+        return deserialize(topic, headers, bytes);
+    }
+
+    @Override
+    public void close() {
+        jsonFallback.close();
+    }
+}
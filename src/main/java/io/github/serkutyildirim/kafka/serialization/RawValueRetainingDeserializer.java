@@ -0,0 +1,82 @@
+package io.github.serkutyildirim.kafka.serialization;
+
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.beans.BeanUtils;
+import org.springframework.util.ClassUtils;
+
+import java.util.Map;
+
+/**
+ * {@link Deserializer} decorator that keeps a reference to the undecoded value bytes on the record before delegating.
+ *
+ * <p><b>Why:</b> a record that fails in the listener has already been decoded, and the original bytes are gone. Forwarding it
+ * to a dead-letter topic would mean encoding the object again, which costs a second serialization and is not even possible
+ * when decoding failed. The Kafka client hands every record its own value array, so storing that array in the
+ * {@link #RAW_VALUE_HEADER} header costs one reference and no copy; a DLQ publisher can then send exactly what was read.</p>
+ *
+ * <p><b>Wiring:</b> configure it as the {@code ErrorHandlingDeserializer} delegate and name the real deserializer in
+ * {@link #DELEGATE_CLASS}. The header is local to the consuming process and must be removed before headers are forwarded.</p>
+ */
+public class RawValueRetainingDeserializer<T> implements Deserializer<T> {
+
+    /**
+     * Consumer config key naming the deserializer that does the actual decoding.
+     */
+    public static final String DELEGATE_CLASS = "raw.value.retaining.delegate.class";
+
+    /**
+     * Header holding the undecoded value bytes of the record.
+     */
+    public static final String RAW_VALUE_HEADER = "raw-value";
+
+    private Deserializer<T> delegate;
+
+    public RawValueRetainingDeserializer() {
+    }
+
+    public RawValueRetainingDeserializer(Deserializer<T> delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        if (delegate == null) {
+            Object configured = configs.get(DELEGATE_CLASS);
+            if (configured == null) {
+                throw new KafkaException(DELEGATE_CLASS + " must name the deserializer to delegate to");
+            }
+            try {
+                Class<?> delegateClass = configured instanceof Class<?> type
+                        ? type
+                        : ClassUtils.forName(configured.toString().trim(), ClassUtils.getDefaultClassLoader());
+                delegate = (Deserializer<T>) BeanUtils.instantiateClass(delegateClass);
+            } catch (ClassNotFoundException | LinkageError ex) {
+                throw new KafkaException("Cannot load delegate deserializer " + configured, ex);
+            }
+        }
+        delegate.configure(configs, isKey);
+    }
+
+    @Override
+    public T deserialize(String topic, byte[] data) {
+        return delegate.deserialize(topic, data);
+    }
+
+    @Override
+    public T deserialize(String topic, Headers headers, byte[] data) {
+        if (headers != null && data != null) {
+            headers.add(RAW_VALUE_HEADER, data);
+        }
+        return delegate.deserialize(topic, headers, data);
+    }
+
+    @Override
+    public void close() {
+        if (delegate != null) {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package io.github.serkutyildirim.kafka.serialization;
+
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+/**
+ * Value formats that producer and consumer factories can be switched between.
+ *
+ * <ul>
+ *   <li>{@link #JSON} keeps payloads readable and is the default for the learning project.</li>
+ *   <li>{@link #BINARY} uses {@link BinaryMessageCodec}; its deserializer still reads JSON records, which makes migrations safe.</li>
+ *   <li>{@link #TYPED_JSON} keeps the JSON payload but dispatches on a one-byte type header with pre-built Jackson readers and writers.</li>
+ * </ul>
+ */
+public enum SerializationFormat {
+
+    JSON(JsonSerializer.class, JsonDeserializer.class),
+    BINARY(BinaryMessageSerializer.class, BinaryMessageDeserializer.class),
+    TYPED_JSON(TypedJsonSerializer.class, TypedJsonDeserializer.class);
+
+    private final Class<? extends Serializer> serializerClass;
+    private final Class<? extends Deserializer> deserializerClass;
+
+    SerializationFormat(Class<? extends Serializer> serializerClass, Class<? extends Deserializer> deserializerClass) {
+        this.serializerClass = serializerClass;
+        this.deserializerClass = deserializerClass;
+    }
+
+    public Class<? extends Serializer> serializerClass() {
+        return serializerClass;
+    }
+
+    public Class<? extends Deserializer> deserializerClass() {
+        return deserializerClass;
+    }
+}
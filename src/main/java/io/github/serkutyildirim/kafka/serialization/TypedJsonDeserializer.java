@@ -0,0 +1,61 @@
+package io.github.serkutyildirim.kafka.serialization;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.github.serkutyildirim.kafka.model.BaseMessage;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * JSON {@link Deserializer} that dispatches on the {@link TypedJsonSerializer} type id header.
+ *
+ * <p><b>Why dispatch on a header?</b> With {@code @JsonTypeInfo} Jackson must locate the {@code type} property before it can pick a
+ * deserializer, buffering any properties that appear earlier. When the header is present this deserializer goes straight to a
+ * pre-built reader for the concrete subtype and skips the polymorphic machinery entirely.</p>
+ *
+ * <p><b>Compatibility:</b> records without the header (for example from {@code JsonSerializer} producers) are read with the regular
+ * polymorphic reader, so producers and consumers can be switched independently.</p>
+ */
+public class TypedJsonDeserializer implements Deserializer<BaseMessage> {
+
+    private final Map<WireMessageType, ObjectReader> readers = new EnumMap<>(WireMessageType.class);
+    private ObjectReader polymorphicReader;
+
+    public TypedJsonDeserializer() {
+        // Usable without configure(); the mappers come from a shared cache, so Kafka's later configure() builds none again.
+        configure(Map.of(), false);
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        ObjectMapper concreteMapper = TypedJsonSupport.concreteTypeMapper(configs);
+        for (WireMessageType type : WireMessageType.values()) {
+            readers.put(type, concreteMapper.readerFor(type.messageClass()));
+        }
+        polymorphicReader = TypedJsonSupport.baseMapper(configs).readerFor(BaseMessage.class);
+    }
+
+    @Override
+    public BaseMessage deserialize(String topic, byte[] data) {
+        return deserialize(topic, null, data);
+    }
+
+    @Override
+    public BaseMessage deserialize(String topic, Headers headers, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        WireMessageType type = TypedJsonSupport.typeFromHeaders(headers);
+        ObjectReader reader = type == null ? polymorphicReader : readers.get(type);
+        try {
+            return reader.readValue(data);
+        } catch (IOException ex) {
+            throw new SerializationException("Can't deserialize data from topic [" + topic + "] as " + (type == null ? "BaseMessage" : type), ex);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package io.github.serkutyildirim.kafka.serialization;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import io.github.serkutyildirim.kafka.model.BaseMessage;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.springframework.kafka.support.JacksonUtils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared mapper setup for {@link TypedJsonSerializer} and {@link TypedJsonDeserializer}.
+ */
+final class TypedJsonSupport {
+
+    /**
+     * Record header carrying the one-byte {@link WireMessageType} id.
+     */
+    static final String TYPE_ID_HEADER = "message-type-id";
+
+    // Mappers are thread-safe once configured, so every serializer instance shares the one built for its Blackbird setting.
+    private static final Map<Boolean, ObjectMapper> BASE_MAPPERS = new ConcurrentHashMap<>();
+    private static final Map<Boolean, ObjectMapper> CONCRETE_TYPE_MAPPERS = new ConcurrentHashMap<>();
+
+    private TypedJsonSupport() {
+    }
+
+    /**
+     * Same base mapper as Spring's {@code JsonSerializer}/{@code JsonDeserializer}, so the JSON stays byte-compatible.
+     */
+    static ObjectMapper baseMapper(Map<String, ?> configs) {
+        return BASE_MAPPERS.computeIfAbsent(blackbirdEnabled(configs), TypedJsonSupport::newBaseMapper);
+    }
+
+    /**
+     * Mapper for concrete subtypes: the {@code type} discriminator is still present in the payload for older readers,
+     * but type resolution is switched off and the property is simply skipped.
+     */
+    static ObjectMapper concreteTypeMapper(Map<String, ?> configs) {
+        return CONCRETE_TYPE_MAPPERS.computeIfAbsent(blackbirdEnabled(configs), blackbird -> newBaseMapper(blackbird)
+                .addMixIn(BaseMessage.class, NoTypeInfo.class)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES));
+    }
+
+    static WireMessageType typeFromHeaders(Headers headers) {
+        if (headers == null) {
+            return null;
+        }
+        Header header = headers.lastHeader(TYPE_ID_HEADER);
+        if (header == null || header.value() == null || header.value().length != 1) {
+            return null;
+        }
+        return WireMessageType.fromId(header.value()[0]);
+    }
+
+    private static ObjectMapper newBaseMapper(boolean blackbird) {
+        ObjectMapper mapper = JacksonUtils.enhancedObjectMapper();
+        if (blackbird) {
+            mapper.registerModule(new BlackbirdModule());
+        }
+        return mapper;
+    }
+
+    private static boolean blackbirdEnabled(Map<String, ?> configs) {
+        Object value = configs == null ? null : configs.get(TypedJsonSerializer.BLACKBIRD_ENABLED);
+        return value == null || Boolean.parseBoolean(value.toString());
+    }
+
+    @JsonTypeInfo(use = JsonTypeInfo.Id.NONE)
+    private abstract static class NoTypeInfo {
+    }
+}
@@ -0,0 +1,67 @@
+package io.github.serkutyildirim.kafka.serialization;
+
+import io.github.serkutyildirim.kafka.model.BaseMessage;
+import io.github.serkutyildirim.kafka.model.DemoNotification;
+import io.github.serkutyildirim.kafka.model.DemoTransaction;
+import org.apache.kafka.common.errors.SerializationException;
+
+/**
+ * Compact numeric identifiers for the message subtypes that travel on Kafka topics.
+ *
+ * <p><b>Why a numeric type id?</b></p>
+ * <ul>
+ *   <li>The JSON payload spells out {@code "type":"DEMO_TRANSACTION"} on every record; a single byte carries the same information.</li>
+ *   <li>Consumers can dispatch on the id without scanning the payload for a discriminator property.</li>
+ * </ul>
+ *
+ * <p><b>Evolution rule:</b> ids are part of the wire contract. Never reuse or renumber an id; add new subtypes with new ids.</p>
+ */
+public enum WireMessageType {
+
+    DEMO_TRANSACTION((byte) 1, DemoTransaction.class),
+    DEMO_NOTIFICATION((byte) 2, DemoNotification.class);
+
+    private final byte id;
+    private final Class<? extends BaseMessage> messageClass;
+
+    WireMessageType(byte id, Class<? extends BaseMessage> messageClass) {
+        this.id = id;
+        this.messageClass = messageClass;
+    }
+
+    public byte id() {
+        return id;
+    }
+
+    public Class<? extends BaseMessage> messageClass() {
+        return messageClass;
+    }
+
+    /**
+     * Resolves the wire type for a message instance.
+     *
+     * @throws SerializationException if the message class has no registered wire id
+     */
+    public static WireMessageType of(BaseMessage message) {
+        if (message instanceof DemoTransaction) {
+            return DEMO_TRANSACTION;
+        }
+        if (message instanceof DemoNotification) {
+            return DEMO_NOTIFICATION;
+        }
+        throw new SerializationException("No wire type id registered for " + message.getClass().getName());
+    }
+
+    /**
+     * Resolves the wire type for an id read from a payload or header.
+     *
+     * @throws SerializationException if the id is unknown, usually because a newer producer added a subtype
+     */
+    public static WireMessageType fromId(byte id) {
+        return switch (id) {
+            case 1 -> DEMO_TRANSACTION;
+            case 2 -> DEMO_NOTIFICATION;
+            default -> throw new SerializationException("Unknown wire message type id " + id);
+        };
+    }
+}
@@ -0,0 +1,266 @@
+package io.github.serkutyildirim.kafka.service;
+
+import io.github.serkutyildirim.kafka.model.DemoTransaction;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Single-pass validator for {@link DemoTransaction} compiled once from the model's Bean Validation annotations
+ * plus the service-layer business rules.
+ *
+ * <p><b>Why compile the rules?</b></p>
+ * <ul>
+ *   <li>{@code String.matches(...)} compiles a new regex on every call, and a full Bean Validation run builds
+ *       violation sets, paths, and message interpolators even when nothing is wrong.</li>
+ *   <li>Here the annotations are read by reflection exactly once and turned into a flat rule array with
+ *       pre-resolved getter handles. Validating a correct transaction is a loop over that array with no allocation.</li>
+ *   <li>The currency whitelist becomes a 26×26×26 lookup table, so the structural {@code [A-Z]{3}} check and the
+ *       whitelist check are one array read.</li>
+ * </ul>
+ *
+ * <p><b>Supported constraints:</b> {@code @NotNull}, {@code @NotBlank}, {@code @Size} on character sequences,
+ * {@code @Positive} on {@link BigDecimal}, and {@code @Pattern}. A {@code @Pattern} on the currency field is dropped
+ * at compile time when every whitelisted code satisfies it, because the lookup table is strictly narrower.
+ * Any other {@code @Pattern} falls back to a pre-compiled regex, which allocates a matcher per call.</p>
+ *
+ * <p><b>Common pitfalls:</b> only the constraint types listed above are understood. Adding a new annotation type to the
+ * model without teaching {@link #compile(Set)} about it fails fast at startup instead of being silently ignored.</p>
+ */
+@Slf4j
+public final class CompiledTransactionValidator {
+
+    private static final String CURRENCY_FIELD = "currency";
+    private static final int ALPHABET = 26;
+
+    private final Rule[] rules;
+    private final boolean[] supportedCurrencies;
+    private final Set<String> supportedCurrencyCodes;
+
+    private CompiledTransactionValidator(Rule[] rules, boolean[] supportedCurrencies, Set<String> supportedCurrencyCodes) {
+        this.rules = rules;
+        this.supportedCurrencies = supportedCurrencies;
+        this.supportedCurrencyCodes = supportedCurrencyCodes;
+    }
+
+    /**
+     * Reads the constraint annotations on {@link DemoTransaction} and builds the rule array.
+     *
+     * @param supportedCurrencies whitelist of 3-letter uppercase ISO 4217 codes
+     * @throws IllegalStateException if the model uses a constraint this validator cannot compile
+     */
+    public static CompiledTransactionValidator compile(Set<String> supportedCurrencies) {
+        boolean[] currencyTable = currencyTable(supportedCurrencies);
+        List<Rule> rules = new ArrayList<>();
+
+        for (Field field : DemoTransaction.class.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers())) {
+                continue;
+            }
+            MethodHandle getter = getter(field.getName(), field.getType());
+
+            NotNull notNull = field.getAnnotation(NotNull.class);
+            if (notNull != null) {
+                rules.add(new Rule(RuleKind.NOT_NULL, field.getName(), getter, notNull.message()));
+            }
+            NotBlank notBlank = field.getAnnotation(NotBlank.class);
+            if (notBlank != null) {
+                rules.add(new Rule(RuleKind.NOT_BLANK, field.getName(), getter, notBlank.message()));
+            }
+            Size size = field.getAnnotation(Size.class);
+            if (size != null) {
+                rules.add(new Rule(RuleKind.SIZE, field.getName(), getter, size.message(), size.min(), size.max(), null));
+            }
+            Positive positive = field.getAnnotation(Positive.class);
+            if (positive != null) {
+                requireType(field, BigDecimal.class, Positive.class);
+                rules.add(new Rule(RuleKind.POSITIVE, field.getName(), getter, positive.message()));
+            }
+            jakarta.validation.constraints.Pattern pattern = field.getAnnotation(jakarta.validation.constraints.Pattern.class);
+            if (pattern != null) {
+                Pattern compiled = Pattern.compile(pattern.regexp());
+                boolean impliedByWhitelist = CURRENCY_FIELD.equals(field.getName())
+                        && supportedCurrencies.stream().allMatch(code -> compiled.matcher(code).matches());
+                if (!impliedByWhitelist) {
+                    rules.add(new Rule(RuleKind.PATTERN, field.getName(), getter, pattern.message(), 0, 0, compiled));
+                }
+            }
+            if (CURRENCY_FIELD.equals(field.getName())) {
+                rules.add(new Rule(RuleKind.CURRENCY_WHITELIST, field.getName(), getter,
+                        "Currency is not in the supported list: " + supportedCurrencies));
+            }
+            rejectUnknownConstraints(field);
+        }
+
+        // Custom service-layer rule: BaseMessage auto-generates a UUID, so its absence indicates a construction error.
+        rules.add(new Rule(RuleKind.NOT_NULL, "messageId", getter("messageId", UUID.class),
+                "Message ID must be present; build transactions via the builder so metadata is auto-populated"));
+
+        log.debug("event=validator_compiled rules={} supportedCurrencies={}", rules.size(), supportedCurrencies);
+        return new CompiledTransactionValidator(rules.toArray(Rule[]::new), currencyTable, Set.copyOf(supportedCurrencies));
+    }
+
+    /**
+     * Runs every rule in declaration order and stops at the first violation.
+     *
+     * @return {@code null} when the transaction is valid, otherwise a message naming the field, the rule, and the rejected value
+     */
+    public String check(DemoTransaction transaction) {
+        if (transaction == null) {
+            return "Transaction must not be null";
+        }
+        for (Rule rule : rules) {
+            Object value = rule.read(transaction);
+            if (!passes(rule, value)) {
+                return "Transaction " + rule.field + " is invalid: " + rule.message + ". Received: [" + value + "]";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Structural and whitelist currency check in one table lookup; never allocates.
+     */
+    public boolean isSupportedCurrency(String currency) {
+        if (currency == null || currency.length() != 3) {
+            return false;
+        }
+        int index = currencyIndex(currency.charAt(0), currency.charAt(1), currency.charAt(2));
+        return index >= 0 && supportedCurrencies[index];
+    }
+
+    public Set<String> supportedCurrencies() {
+        return supportedCurrencyCodes;
+    }
+
+    private boolean passes(Rule rule, Object value) {
+        return switch (rule.kind) {
+            case NOT_NULL -> value != null;
+            case NOT_BLANK -> value != null && !isBlank((CharSequence) value);
+            case SIZE -> value == null || withinSize((CharSequence) value, rule.min, rule.max);
+            case POSITIVE -> value == null || ((BigDecimal) value).signum() > 0;
+            case PATTERN -> value == null || rule.pattern.matcher((CharSequence) value).matches();
+            case CURRENCY_WHITELIST -> value == null || isSupportedCurrency((String) value);
+        };
+    }
+
+    private static boolean isBlank(CharSequence value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (!Character.isWhitespace(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean withinSize(CharSequence value, int min, int max) {
+        int length = value.length();
+        return length >= min && length <= max;
+    }
+
+    private static boolean[] currencyTable(Set<String> supportedCurrencies) {
+        boolean[] table = new boolean[ALPHABET * ALPHABET * ALPHABET];
+        for (String code : supportedCurrencies) {
+            int index = code.length() == 3 ? currencyIndex(code.charAt(0), code.charAt(1), code.charAt(2)) : -1;
+            if (index < 0) {
+                throw new IllegalStateException("Supported currency [" + code + "] is not a 3-letter uppercase ISO 4217 code");
+            }
+            table[index] = true;
+        }
+        return table;
+    }
+
+    private static int currencyIndex(char first, char second, char third) {
+        int a = first - 'A';
+        int b = second - 'A';
+        int c = third - 'A';
+        if ((a | b | c) < 0 || a >= ALPHABET || b >= ALPHABET || c >= ALPHABET) {
+            return -1;
+        }
+        return (a * ALPHABET + b) * ALPHABET + c;
+    }
+
+    private static MethodHandle getter(String fieldName, Class<?> type) {
+        String name = "get" + Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
+        try {
+            return MethodHandles.publicLookup()
+                    .findVirtual(DemoTransaction.class, name, MethodType.methodType(type))
+                    .asType(MethodType.methodType(Object.class, DemoTransaction.class));
+        } catch (NoSuchMethodException | IllegalAccessException ex) {
+            throw new IllegalStateException("No public getter " + name + " for constrained field " + fieldName, ex);
+        }
+    }
+
+    private static void requireType(Field field, Class<?> expected, Class<?> annotation) {
+        if (!expected.isAssignableFrom(field.getType())) {
+            throw new IllegalStateException("@" + annotation.getSimpleName() + " is only compiled for " + expected.getSimpleName()
+                    + " fields, but " + field.getName() + " is " + field.getType().getSimpleName());
+        }
+    }
+
+    private static void rejectUnknownConstraints(Field field) {
+        for (var annotation : field.getAnnotations()) {
+            Class<?> type = annotation.annotationType();
+            boolean constraint = type.getPackageName().equals("jakarta.validation.constraints");
+            boolean supported = type == NotNull.class || type == NotBlank.class || type == Size.class
+                    || type == Positive.class || type == jakarta.validation.constraints.Pattern.class;
+            if (constraint && !supported) {
+                throw new IllegalStateException("Constraint @" + type.getSimpleName() + " on " + field.getName()
+                        + " is not supported by " + CompiledTransactionValidator.class.getSimpleName());
+            }
+        }
+    }
+
+    private enum RuleKind {
+        NOT_NULL, NOT_BLANK, SIZE, POSITIVE, PATTERN, CURRENCY_WHITELIST
+    }
+
+    private static final class Rule {
+
+        private final RuleKind kind;
+        private final String field;
+        private final MethodHandle getter;
+        private final String message;
+        private final int min;
+        private final int max;
+        private final Pattern pattern;
+
+        private Rule(RuleKind kind, String field, MethodHandle getter, String message) {
+            this(kind, field, getter, message, 0, 0, null);
+        }
+
+        private Rule(RuleKind kind, String field, MethodHandle getter, String message, int min, int max, Pattern pattern) {
+            this.kind = kind;
+            this.field = field;
+            this.getter = getter;
+            this.message = message;
+            this.min = min;
+            this.max = max;
+            this.pattern = pattern;
+        }
+
+        private Object read(DemoTransaction transaction) {
+            try {
+                return (Object) getter.invokeExact(transaction);
+            } catch (RuntimeException | Error ex) {
+                throw ex;
+            } catch (Throwable ex) {
+                throw new IllegalStateException("Failed to read " + field, ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package io.github.serkutyildirim.kafka.service;
+
+import java.time.Instant;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * What to replay from {@code demo-dlq}. Every filter is optional; a record is replayed only if it passes all that are set.
+ *
+ * @param exceptionTypes failure classes to replay, matched against {@code dlq-exception-class} by full or simple name
+ * @param from           earliest dead-letter time to replay (inclusive); also where reading starts, via the time index
+ * @param to             latest dead-letter time to replay (inclusive)
+ * @param messageIds     message IDs to replay; the only filter that needs the payload decoded
+ * @param ratePerSecond  replay rate for this run, or {@code null} for {@code app.kafka.dlq-replay.rate-per-second}
+ * @param restart        {@code true} to ignore the saved checkpoint and read each partition from its start
+ */
+public record DlqReplayRequest(
+        Set<String> exceptionTypes,
+        Instant from,
+        Instant to,
+        Set<UUID> messageIds,
+        Double ratePerSecond,
+        boolean restart) {
+
+    public DlqReplayRequest {
+        exceptionTypes = exceptionTypes == null ? Set.of() : Set.copyOf(exceptionTypes);
+        messageIds = messageIds == null ? Set.of() : Set.copyOf(messageIds);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the time range is inverted or the rate is not positive
+     */
+    void validate() {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("'from' must not be after 'to'");
+        }
+        if (ratePerSecond != null && ratePerSecond <= 0) {
+            throw new IllegalArgumentException("'ratePerSecond' must be positive");
+        }
+    }
+
+    /**
+     * Replays everything after the checkpoint at the configured rate.
+     */
+    public static DlqReplayRequest all() {
+        return new DlqReplayRequest(null, null, null, null, null, false);
+    }
+}
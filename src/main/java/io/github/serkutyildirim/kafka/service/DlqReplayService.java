@@ -0,0 +1,405 @@
+package io.github.serkutyildirim.kafka.service;
+
+import io.github.serkutyildirim.kafka.config.KafkaTopicConfig;
+import io.github.serkutyildirim.kafka.consumer.DlqPublisher;
+import io.github.serkutyildirim.kafka.model.BaseMessage;
+import io.github.serkutyildirim.kafka.model.DemoTransaction;
+import io.github.serkutyildirim.kafka.serialization.BinaryMessageDeserializer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Re-publishes records from {@code demo-dlq} to the topic they originally failed on.
+ *
+ * <p><b>Pattern:</b> one reader per DLQ partition, each on its own virtual thread with its own consumer and a manual
+ * assignment (no group membership, no rebalances). Readers forward key, value and headers as bytes through the byte-array
+ * DLQ template, so nothing is decoded unless a {@code messageIds} filter needs the payload. The target topic comes from the
+ * {@code dlq-original-topic} header written by {@link DlqPublisher}.</p>
+ *
+ * <p><b>Not overwhelming the main consumers:</b> all readers of a replay share one {@link TokenBucket}, so the replay adds at
+ * most {@code ratePerSecond} records per second to the original topics however many DLQ partitions there are. The rate
+ * defaults to {@code app.kafka.dlq-replay.rate-per-second} and is capped at {@code max-rate-per-second}.</p>
+ *
+ * <p><b>Checkpoints:</b> after each poll a reader waits for the broker to confirm that poll's sends, then commits the next
+ * offset for {@value #REPLAY_GROUP_ID}. A stopped or crashed replay resumes from there; records between the checkpoint and
+ * the crash are replayed again (at-least-once). The checkpoint is the same whatever the filters were, so use
+ * {@code restart} to re-scan records an earlier, narrower replay skipped. Each replay stops at the DLQ end offsets seen when
+ * it started, so records that fail again and return to the DLQ are not replayed in a loop.</p>
+ *
+ * <p><b>Headers:</b> {@code dlq-*} and {@code retry-*} headers are dropped, so the record starts its retry budget afresh;
+ * {@value #REPLAY_ID_HEADER} and {@value #REPLAY_SOURCE_OFFSET_HEADER} are added for tracing.</p>
+ *
+ * <p><b>Metrics:</b> {@code kafka.dlq.replay.records}, tagged with {@code outcome} ({@code replayed}, {@code filtered},
+ * {@code unroutable}).</p>
+ */
+@Service
+@Slf4j
+public class DlqReplayService {
+
+    public static final String REPLAY_GROUP_ID = "dlq-replay-group";
+    public static final String REPLAY_ID_HEADER = "dlq-replay-id";
+    public static final String REPLAY_SOURCE_OFFSET_HEADER = "dlq-replay-source-offset";
+
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+    private static final List<String> STRIPPED_HEADER_PREFIXES = List.of("dlq-", "retry-");
+    private static final int MAX_HISTORY = 32;
+
+    @Value("${app.kafka.dlq-replay.rate-per-second:500}")
+    private double defaultRatePerSecond = 500;
+
+    @Value("${app.kafka.dlq-replay.max-rate-per-second:5000}")
+    private double maxRatePerSecond = 5000;
+
+    @Value("${app.kafka.dlq-replay.burst:100}")
+    private int burst = 100;
+
+    private final ConsumerFactory<byte[], byte[]> consumerFactory;
+    private final KafkaTemplate<byte[], byte[]> replayTemplate;
+    private final BinaryMessageDeserializer payloadDecoder = new BinaryMessageDeserializer();
+    private final Map<String, Replay> replays = new ConcurrentHashMap<>();
+    private final AtomicReference<Replay> active = new AtomicReference<>();
+    private final ExecutorService readers = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("dlq-replay-", 0).factory());
+
+    public DlqReplayService(
+            @Qualifier("dlqReplayConsumerFactory") ConsumerFactory<byte[], byte[]> consumerFactory,
+            @Qualifier("dlqKafkaTemplate") KafkaTemplate<byte[], byte[]> replayTemplate) {
+        this.consumerFactory = consumerFactory;
+        this.replayTemplate = replayTemplate;
+        // Both formats decode: the binary codec is detected by its magic byte, anything else falls back to JSON.
+        payloadDecoder.configure(Map.of(
+            JsonDeserializer.TRUSTED_PACKAGES, "*",
+            JsonDeserializer.VALUE_DEFAULT_TYPE, DemoTransaction.class), false);
+    }
+
+    /**
+     * Starts a replay of every DLQ partition in the background.
+     *
+     * @throws IllegalArgumentException if the request is invalid
+     * @throws IllegalStateException    if another replay is still running; two replays would fight over one checkpoint
+     */
+    public synchronized DlqReplayStatus start(DlqReplayRequest request) {
+        request.validate();
+        Replay running = active.get();
+        if (running != null) {
+            throw new IllegalStateException("DLQ replay " + running.id + " is still running");
+        }
+
+        List<TopicPartition> partitions;
+        try (Consumer<byte[], byte[]> probe = consumerFactory.createConsumer(REPLAY_GROUP_ID, "-probe")) {
+            partitions = probe.partitionsFor(KafkaTopicConfig.DEMO_DLQ_TOPIC).stream()
+                .map(info -> new TopicPartition(info.topic(), info.partition()))
+                .toList();
+        }
+
+        double rate = Math.min(request.ratePerSecond() == null ? defaultRatePerSecond : request.ratePerSecond(), maxRatePerSecond);
+        Replay replay = new Replay(UUID.randomUUID().toString(), request, rate, new TokenBucket(rate, burst));
+        active.set(replay);
+        remember(replay);
+
+        CompletableFuture<?>[] readerFutures = partitions.stream()
+            .map(partition -> CompletableFuture.runAsync(() -> replayPartition(replay, partition), readers))
+            .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(readerFutures).whenComplete((ignored, ex) -> finish(replay));
+
+        log.info("event=dlq_replay_started replayId={} partitions={} ratePerSecond={} exceptionTypes={} from={} to={} messageIds={} restart={}",
+            replay.id,
+            partitions.size(),
+            rate,
+            request.exceptionTypes(),
+            request.from(),
+            request.to(),
+            request.messageIds().size(),
+            request.restart());
+        return replay.status();
+    }
+
+    public Optional<DlqReplayStatus> status(String replayId) {
+        return Optional.ofNullable(replays.get(replayId)).map(Replay::status);
+    }
+
+    /**
+     * Asks the readers to stop after their current record; each commits what the broker has confirmed before exiting.
+     */
+    public Optional<DlqReplayStatus> stop(String replayId) {
+        Replay replay = replays.get(replayId);
+        if (replay == null) {
+            return Optional.empty();
+        }
+        if (replay.finishedAt == null) {
+            replay.stopRequested = true;
+            log.info("event=dlq_replay_stop_requested replayId={}", replayId);
+        }
+        return Optional.of(replay.status());
+    }
+
+    /**
+     * Completes when every reader of the replay has finished.
+     */
+    CompletableFuture<DlqReplayStatus> completion(String replayId) {
+        Replay replay = replays.get(replayId);
+        return replay == null ? CompletableFuture.failedFuture(new IllegalArgumentException("Unknown replay " + replayId)) : replay.done;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        replays.values().forEach(replay -> replay.stopRequested = true);
+        readers.shutdown();
+    }
+
+    private void replayPartition(Replay replay, TopicPartition partition) {
+        try (Consumer<byte[], byte[]> consumer = consumerFactory.createConsumer(REPLAY_GROUP_ID, "-" + partition.partition())) {
+            consumer.assign(List.of(partition));
+            long end = consumer.endOffsets(List.of(partition)).get(partition);
+            long start = startOffset(consumer, partition, replay.request, end);
+            AtomicLong position = replay.track(partition.partition(), start, end);
+            consumer.seek(partition, start);
+
+            while (position.get() < end && !replay.stopRequested) {
+                List<ConsumerRecord<byte[], byte[]>> records = consumer.poll(POLL_TIMEOUT).records(partition);
+                List<CompletableFuture<?>> sends = new ArrayList<>(records.size());
+                long next = position.get();
+                boolean drained = true;
+                for (ConsumerRecord<byte[], byte[]> record : records) {
+                    if (record.offset() >= end || replay.stopRequested) {
+                        drained = false;
+                        break;
+                    }
+                    replayRecord(replay, record, sends);
+                    next = record.offset() + 1;
+                }
+                if (drained) {
+                    // Offsets can have gaps (compaction, transaction markers); the fetch position is past all of them.
+                    next = Math.max(next, Math.min(consumer.position(partition), end));
+                }
+
+                // Checkpoint only what the broker confirmed; a crash before the commit replays this poll again.
+                CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).join();
+                if (next > position.get()) {
+                    consumer.commitSync(Map.of(partition, new OffsetAndMetadata(next, "replay=" + replay.id)));
+                    position.set(next);
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            replay.stopRequested = true;
+        } catch (RuntimeException ex) {
+            replay.fail(ex);
+            log.error("event=dlq_replay_partition_failed replayId={} partition={} error={}", replay.id, partition.partition(), ex.getMessage(), ex);
+        }
+    }
+
+    private long startOffset(Consumer<byte[], byte[]> consumer, TopicPartition partition, DlqReplayRequest request, long end) {
+        long start = consumer.beginningOffsets(List.of(partition)).get(partition);
+        if (!request.restart()) {
+            OffsetAndMetadata checkpoint = consumer.committed(Set.of(partition)).get(partition);
+            if (checkpoint != null) {
+                // A checkpoint below the log start means the records it pointed to were deleted by retention.
+                start = Math.max(start, checkpoint.offset());
+            }
+        }
+        if (request.from() != null) {
+            // The time index skips everything dead-lettered before 'from' without reading it.
+            OffsetAndTimestamp first = consumer.offsetsForTimes(Map.of(partition, request.from().toEpochMilli())).get(partition);
+            start = Math.max(start, first == null ? end : first.offset());
+        }
+        return start;
+    }
+
+    private void replayRecord(Replay replay, ConsumerRecord<byte[], byte[]> record, List<CompletableFuture<?>> sends) throws InterruptedException {
+        replay.scanned.incrementAndGet();
+        if (!matches(replay.request, record)) {
+            replay.filtered.incrementAndGet();
+            count("filtered");
+            return;
+        }
+        String originalTopic = headerString(record.headers(), DlqPublisher.ORIGINAL_TOPIC_HEADER);
+        if (originalTopic == null) {
+            replay.unroutable.incrementAndGet();
+            count("unroutable");
+            log.warn("event=dlq_replay_unroutable replayId={} partition={} offset={} reason=missing_original_topic",
+                replay.id,
+                record.partition(),
+                record.offset());
+            return;
+        }
+
+        replay.bucket.acquire();
+        ProducerRecord<byte[], byte[]> replayed =
+            new ProducerRecord<>(originalTopic, null, record.key(), record.value(), replayHeaders(record, replay.id));
+        sends.add(replayTemplate.send(replayed).thenRun(() -> {
+            replay.replayed.incrementAndGet();
+            count("replayed");
+        }));
+    }
+
+    private boolean matches(DlqReplayRequest request, ConsumerRecord<byte[], byte[]> record) {
+        if (!request.exceptionTypes().isEmpty()) {
+            String exceptionClass = headerString(record.headers(), DlqPublisher.EXCEPTION_CLASS_HEADER);
+            if (exceptionClass == null
+                    || !(request.exceptionTypes().contains(exceptionClass)
+                        || request.exceptionTypes().contains(exceptionClass.substring(exceptionClass.lastIndexOf('.') + 1)))) {
+                return false;
+            }
+        }
+        if (request.from() != null && record.timestamp() < request.from().toEpochMilli()) {
+            return false;
+        }
+        if (request.to() != null && record.timestamp() > request.to().toEpochMilli()) {
+            return false;
+        }
+        if (!request.messageIds().isEmpty()) {
+            // Cheap header filters run first, so only candidates that passed them are decoded.
+            BaseMessage message = decode(record);
+            return message != null && request.messageIds().contains(message.getMessageId());
+        }
+        return true;
+    }
+
+    private BaseMessage decode(ConsumerRecord<byte[], byte[]> record) {
+        try {
+            return payloadDecoder.deserialize(record.topic(), record.headers(), record.value());
+        } catch (RuntimeException ex) {
+            // Undecodable dead letters have no message ID to match.
+            log.debug("event=dlq_replay_decode_failed partition={} offset={} error={}", record.partition(), record.offset(), ex.getMessage());
+            return null;
+        }
+    }
+
+    private Headers replayHeaders(ConsumerRecord<byte[], byte[]> record, String replayId) {
+        Headers headers = new RecordHeaders();
+        for (Header header : record.headers()) {
+            if (STRIPPED_HEADER_PREFIXES.stream().noneMatch(header.key()::startsWith)) {
+                headers.add(header);
+            }
+        }
+        headers.add(REPLAY_ID_HEADER, replayId.getBytes(StandardCharsets.UTF_8));
+        headers.add(REPLAY_SOURCE_OFFSET_HEADER, String.valueOf(record.offset()).getBytes(StandardCharsets.UTF_8));
+        return headers;
+    }
+
+    private void finish(Replay replay) {
+        replay.finishedAt = Instant.now();
+        active.compareAndSet(replay, null);
+        DlqReplayStatus status = replay.status();
+        replay.done.complete(status);
+        log.info("event=dlq_replay_finished replayId={} state={} scanned={} replayed={} filtered={} unroutable={} durationMs={}",
+            replay.id,
+            status.state(),
+            status.scanned(),
+            status.replayed(),
+            status.filtered(),
+            status.unroutable(),
+            Duration.between(replay.startedAt, replay.finishedAt).toMillis());
+    }
+
+    private void remember(Replay replay) {
+        replays.put(replay.id, replay);
+        if (replays.size() > MAX_HISTORY) {
+            replays.values().stream()
+                .filter(candidate -> candidate.finishedAt != null)
+                .min(Comparator.comparing(candidate -> candidate.startedAt))
+                .ifPresent(oldest -> replays.remove(oldest.id));
+        }
+    }
+
+    private static String headerString(Headers headers, String key) {
+        Header header = headers.lastHeader(key);
+        return header == null || header.value() == null ? null : new String(header.value(), StandardCharsets.UTF_8);
+    }
+
+    private static void count(String outcome) {
+        Counter.builder("kafka.dlq.replay.records")
+            .description("DLQ records handled by replays, by outcome")
+            .tag("outcome", outcome)
+            .register(Metrics.globalRegistry)
+            .increment();
+    }
+
+    private static final class Replay {
+
+        private final String id;
+        private final DlqReplayRequest request;
+        private final double ratePerSecond;
+        private final TokenBucket bucket;
+        private final Instant startedAt = Instant.now();
+        private final AtomicLong scanned = new AtomicLong();
+        private final AtomicLong replayed = new AtomicLong();
+        private final AtomicLong filtered = new AtomicLong();
+        private final AtomicLong unroutable = new AtomicLong();
+        private final Map<Integer, long[]> bounds = new ConcurrentHashMap<>();
+        private final Map<Integer, AtomicLong> positions = new ConcurrentHashMap<>();
+        private final AtomicReference<String> error = new AtomicReference<>();
+        private final CompletableFuture<DlqReplayStatus> done = new CompletableFuture<>();
+        private volatile boolean stopRequested;
+        private volatile Instant finishedAt;
+
+        private Replay(String id, DlqReplayRequest request, double ratePerSecond, TokenBucket bucket) {
+            this.id = id;
+            this.request = request;
+            this.ratePerSecond = ratePerSecond;
+            this.bucket = bucket;
+        }
+
+        private AtomicLong track(int partition, long start, long end) {
+            bounds.put(partition, new long[] {start, end});
+            return positions.computeIfAbsent(partition, ignored -> new AtomicLong(start));
+        }
+
+        private void fail(Exception ex) {
+            error.compareAndSet(null, ex.getMessage() == null ? ex.getClass().getName() : ex.getMessage());
+        }
+
+        private DlqReplayStatus status() {
+            Map<Integer, DlqReplayStatus.PartitionProgress> partitions = new TreeMap<>();
+            bounds.forEach((partition, range) ->
+                partitions.put(partition, new DlqReplayStatus.PartitionProgress(range[0], positions.get(partition).get(), range[1])));
+            DlqReplayStatus.State state;
+            if (finishedAt == null) {
+                state = DlqReplayStatus.State.RUNNING;
+            } else if (error.get() != null) {
+                state = DlqReplayStatus.State.FAILED;
+            } else if (stopRequested) {
+                state = DlqReplayStatus.State.STOPPED;
+            } else {
+                state = DlqReplayStatus.State.COMPLETED;
+            }
+            return new DlqReplayStatus(id, state, startedAt, finishedAt, ratePerSecond,
+                scanned.get(), replayed.get(), filtered.get(), unroutable.get(), partitions, error.get());
+        }
+    }
+}
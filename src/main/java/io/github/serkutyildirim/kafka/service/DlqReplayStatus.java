@@ -0,0 +1,48 @@
+package io.github.serkutyildirim.kafka.service;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Point-in-time progress of one DLQ replay.
+ *
+ * @param replayId      ID returned when the replay was started; also stored in the checkpoint metadata
+ * @param state         lifecycle state
+ * @param startedAt     when the replay was started
+ * @param finishedAt    when the last partition reader finished, or {@code null} while running
+ * @param ratePerSecond effective replay rate shared by all partition readers
+ * @param scanned       DLQ records read so far
+ * @param replayed      records the broker confirmed on their original topic
+ * @param filtered      records skipped by the request filters
+ * @param unroutable    records without a {@code dlq-original-topic} header, which cannot be replayed
+ * @param partitions    per DLQ partition: the checkpointed position and the end offset the replay stops at
+ * @param error         first send failure, or {@code null}
+ */
+public record DlqReplayStatus(
+        String replayId,
+        State state,
+        Instant startedAt,
+        Instant finishedAt,
+        double ratePerSecond,
+        long scanned,
+        long replayed,
+        long filtered,
+        long unroutable,
+        Map<Integer, PartitionProgress> partitions,
+        String error) {
+
+    public enum State {
+        RUNNING,
+        COMPLETED,
+        STOPPED,
+        FAILED
+    }
+
+    /**
+     * @param startOffset where this run started reading
+     * @param position    next offset to replay; committed as the checkpoint of {@code dlq-replay-group}
+     * @param endOffset   DLQ end offset when the replay started; records dead-lettered later are left for the next run
+     */
+    public record PartitionProgress(long startOffset, long position, long endOffset) {
+    }
+}
@@ -0,0 +1,30 @@
+package io.github.serkutyildirim.kafka.service;
+
+import java.util.UUID;
+
+/**
+ * Thrown by {@link MessageValidationService#checkDuplicateTransaction(UUID)} when a message ID is already being sent or was
+ * sent within the retention window of {@link IdempotencyStore}.
+ *
+ * <p>Nothing was handed to the Kafka producer. {@code DemoController} maps it to HTTP 409 Conflict.</p>
+ */
+public class DuplicateTransactionException extends IllegalStateException {
+
+    private final UUID messageId;
+    private final IdempotencyStore.Reservation reservation;
+
+    public DuplicateTransactionException(UUID messageId, IdempotencyStore.Reservation reservation) {
+        super("Duplicate transaction " + messageId + ": "
+                + (reservation == IdempotencyStore.Reservation.COMPLETED ? "already sent" : "send in progress"));
+        this.messageId = messageId;
+        this.reservation = reservation;
+    }
+
+    public UUID getMessageId() {
+        return messageId;
+    }
+
+    public IdempotencyStore.Reservation getReservation() {
+        return reservation;
+    }
+}
@@ -0,0 +1,331 @@
+package io.github.serkutyildirim.kafka.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded, lock-striped table of message IDs that are being processed or were processed recently; backs
+ * {@link MessageValidationService#checkDuplicateTransaction(UUID)}.
+ *
+ * <p><b>Why not a {@code ConcurrentHashMap<UUID, ...>}?</b> At hundreds of thousands of checks per second a map allocates a
+ * node, a key, and a value per ID, and needs a sweeper for expiry. Here every ID takes one 32-byte slot in a preallocated
+ * {@link LongBuffer} (two longs of UUID, expiry, state): nothing is allocated per check and memory is fixed at
+ * {@code capacity × 32} bytes.</p>
+ *
+ * <p><b>Reserve / complete:</b> {@link #reserve} atomically claims an ID for {@code reservation-ttl-ms}; a second caller
+ * gets {@link Reservation#IN_PROGRESS} while the first is still sending. {@link #complete} keeps the ID for
+ * {@code ttl-ms} so retries and replays within that window are rejected; {@link #release} drops the claim of a send that
+ * failed, so the caller can retry. A reservation whose owner died simply expires.</p>
+ *
+ * <p><b>Layout:</b> the table is split into {@code stripes} regions with one lock each, and an ID always lives in the region
+ * picked by its hash, so concurrent checks of different IDs rarely contend. Within a region, lookups probe linearly from
+ * the home slot for at most {@value #MAX_PROBES} slots and stop at the first never-used slot. Expired slots are reused in
+ * place, so no tombstones are needed. When every probed slot is still live, the one expiring first (completed IDs before
+ * reservations) is overwritten and counted in {@code kafka.idempotency.evictions}: the table forgets the oldest IDs instead
+ * of growing.</p>
+ *
+ * <p><b>Persistence:</b> with {@code app.idempotency.file} set, the table is a memory-mapped file instead of heap memory.
+ * Writes go to the page cache, so the IDs survive a process restart (not a host crash before the OS flushed them); the file
+ * is forced to disk on shutdown. Expiry uses wall-clock time for the same reason. A file created with a different capacity
+ * or stripe count is reset on startup. The file is mapped as one buffer, which limits it to 2^25 slots (1 GiB).</p>
+ *
+ * <p><b>Metrics:</b> {@code kafka.idempotency.reservations} (tagged with {@code outcome}) and
+ * {@code kafka.idempotency.evictions}.</p>
+ */
+@Component
+@Slf4j
+public class IdempotencyStore {
+
+    /**
+     * Result of {@link #reserve}.
+     */
+    public enum Reservation {
+        /** The caller owns the ID and must {@link #complete} or {@link #release} it. */
+        ACQUIRED,
+        /** Another caller holds a live reservation for the ID. */
+        IN_PROGRESS,
+        /** The ID was completed within the retention window. */
+        COMPLETED
+    }
+
+    static final int MAX_PROBES = 32;
+
+    private static final long MAGIC = 0x4B49444D5053_0001L;
+    private static final int HEADER_LONGS = 4;
+    private static final int SLOT_LONGS = 4;
+    private static final int MSB = 0;
+    private static final int LSB = 1;
+    private static final int EXPIRES = 2;
+    private static final int STATE = 3;
+    private static final long EMPTY = 0L;
+    private static final long RESERVED = 1L;
+    private static final long COMPLETED = 2L;
+    private static final int MAX_CAPACITY = 1 << 28;
+    // One MappedByteBuffer holds at most Integer.MAX_VALUE bytes: 2^25 slots of 32 bytes plus the header fit, 2^26 do not.
+    private static final int MAX_MAPPED_CAPACITY = 1 << 25;
+
+    private final int capacity;
+    private final int stripes;
+    private final int slotMask;
+    private final int probes;
+    private final long ttlMs;
+    private final long reservationTtlMs;
+    private final LongSupplier clock;
+    private final Object[] locks;
+    private final LongBuffer table;
+    private final MappedByteBuffer mapped;
+    private final FileChannel channel;
+    private final Counter[] outcomes;
+    private final Counter evictions;
+
+    @Autowired
+    public IdempotencyStore(
+            @Value("${app.idempotency.capacity:262144}") int capacity,
+            @Value("${app.idempotency.stripes:64}") int stripes,
+            @Value("${app.idempotency.ttl-ms:86400000}") long ttlMs,
+            @Value("${app.idempotency.reservation-ttl-ms:300000}") long reservationTtlMs,
+            @Value("${app.idempotency.file:}") String file) throws IOException {
+        this(capacity, stripes, ttlMs, reservationTtlMs, file == null || file.isBlank() ? null : Path.of(file),
+                System::currentTimeMillis);
+    }
+
+    IdempotencyStore(int capacity, int stripes, long ttlMs, long reservationTtlMs, Path file, LongSupplier clock)
+            throws IOException {
+        if (capacity < 1 || capacity > MAX_CAPACITY || stripes < 1 || ttlMs <= 0 || reservationTtlMs <= 0) {
+            throw new IllegalArgumentException("Invalid idempotency store settings: capacity=" + capacity + " stripes="
+                    + stripes + " ttlMs=" + ttlMs + " reservationTtlMs=" + reservationTtlMs);
+        }
+        this.capacity = powerOfTwoAtLeast(capacity);
+        if (file != null && this.capacity > MAX_MAPPED_CAPACITY) {
+            throw new IllegalArgumentException("Idempotency store capacity " + capacity + " (rounded to " + this.capacity
+                    + ") exceeds the file-backed maximum of " + MAX_MAPPED_CAPACITY + " slots; lower app.idempotency.capacity"
+                    + " or leave app.idempotency.file empty for the heap table");
+        }
+        this.stripes = Math.min(powerOfTwoAtLeast(stripes), this.capacity);
+        int slotsPerStripe = this.capacity / this.stripes;
+        this.slotMask = slotsPerStripe - 1;
+        this.probes = Math.min(MAX_PROBES, slotsPerStripe);
+        this.ttlMs = ttlMs;
+        this.reservationTtlMs = reservationTtlMs;
+        this.clock = clock;
+        this.locks = new Object[this.stripes];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+
+        int longs = HEADER_LONGS + this.capacity * SLOT_LONGS;
+        if (file == null) {
+            channel = null;
+            mapped = null;
+            table = LongBuffer.allocate(longs);
+            writeHeader();
+        } else {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            long bytes = (long) longs * Long.BYTES;
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            boolean resized = channel.size() != bytes;
+            if (channel.size() > bytes) {
+                channel.truncate(bytes);
+            }
+            mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            table = mapped.order(ByteOrder.nativeOrder()).asLongBuffer();
+            if (resized || table.get(0) != MAGIC || table.get(1) != this.capacity || table.get(2) != this.stripes) {
+                for (int i = 0; i < longs; i++) {
+                    table.put(i, 0L);
+                }
+                writeHeader();
+                log.warn("event=idempotency_store_reset file={} capacity={} stripes={}", file, this.capacity, this.stripes);
+            }
+        }
+
+        outcomes = new Counter[Reservation.values().length];
+        for (Reservation outcome : Reservation.values()) {
+            outcomes[outcome.ordinal()] = Counter.builder("kafka.idempotency.reservations")
+                    .description("Idempotency reservations by outcome")
+                    .tag("outcome", outcome.name().toLowerCase())
+                    .register(Metrics.globalRegistry);
+        }
+        evictions = Counter.builder("kafka.idempotency.evictions")
+                .description("Live IDs overwritten because their probe window was full")
+                .register(Metrics.globalRegistry);
+        log.info("event=idempotency_store_ready capacity={} stripes={} ttlMs={} reservationTtlMs={} file={}",
+                this.capacity, this.stripes, ttlMs, reservationTtlMs, file == null ? "heap" : file);
+    }
+
+    /**
+     * Atomically claims {@code id} unless it is reserved or was completed within the retention window.
+     */
+    public Reservation reserve(UUID id) {
+        long msb = id.getMostSignificantBits();
+        long lsb = id.getLeastSignificantBits();
+        long hash = hash(msb, lsb);
+        int stripe = stripeOf(hash);
+        long now = clock.getAsLong();
+        Reservation outcome;
+        synchronized (locks[stripe]) {
+            int slot = locate(stripe, hash, msb, lsb, now);
+            if (slot >= 0 && table.get(offset(slot) + EXPIRES) > now) {
+                outcome = table.get(offset(slot) + STATE) == COMPLETED ? Reservation.COMPLETED : Reservation.IN_PROGRESS;
+            } else {
+                write(slot >= 0 ? slot : -slot - 1, msb, lsb, RESERVED, now + reservationTtlMs);
+                outcome = Reservation.ACQUIRED;
+            }
+        }
+        outcomes[outcome.ordinal()].increment();
+        return outcome;
+    }
+
+    /**
+     * Marks {@code id} as processed for {@code ttl-ms}. Records the ID even if its reservation already expired or was evicted.
+     *
+     * @return {@code false} if the caller no longer held a live reservation
+     */
+    public boolean complete(UUID id) {
+        long msb = id.getMostSignificantBits();
+        long lsb = id.getLeastSignificantBits();
+        long hash = hash(msb, lsb);
+        int stripe = stripeOf(hash);
+        long now = clock.getAsLong();
+        synchronized (locks[stripe]) {
+            int slot = locate(stripe, hash, msb, lsb, now);
+            boolean held = slot >= 0
+                    && table.get(offset(slot) + STATE) == RESERVED
+                    && table.get(offset(slot) + EXPIRES) > now;
+            write(slot >= 0 ? slot : -slot - 1, msb, lsb, COMPLETED, now + ttlMs);
+            return held;
+        }
+    }
+
+    /**
+     * Drops a live reservation of {@code id} so it can be reserved again; completed IDs are kept.
+     */
+    public void release(UUID id) {
+        long msb = id.getMostSignificantBits();
+        long lsb = id.getLeastSignificantBits();
+        long hash = hash(msb, lsb);
+        int stripe = stripeOf(hash);
+        synchronized (locks[stripe]) {
+            int slot = locate(stripe, hash, msb, lsb, clock.getAsLong());
+            if (slot >= 0 && table.get(offset(slot) + STATE) == RESERVED) {
+                // An expired slot is free for reuse; the state stays non-empty so probe chains through it are not cut.
+                table.put(offset(slot) + EXPIRES, 0L);
+            }
+        }
+    }
+
+    /**
+     * Number of ID slots after rounding up to a power of two; memory is 32 bytes per slot.
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Flushes a file-backed table to disk.
+     */
+    @PreDestroy
+    public void close() throws IOException {
+        if (channel != null && channel.isOpen()) {
+            mapped.force();
+            channel.close();
+        }
+    }
+
+    /**
+     * Returns the slot holding the key (live or expired), or {@code -(slot + 1)} of the slot to write it to. Caller holds the
+     * stripe lock.
+     */
+    private int locate(int stripe, long hash, long msb, long lsb, long now) {
+        int base = stripe * (slotMask + 1);
+        int home = (int) hash & slotMask;
+        int free = -1;
+        int victim = -1;
+        long victimRank = Long.MAX_VALUE;
+        for (int i = 0; i < probes; i++) {
+            int slot = base + ((home + i) & slotMask);
+            int at = offset(slot);
+            long state = table.get(at + STATE);
+            if (state == EMPTY) {
+                // Never used: the key cannot be further along the chain.
+                return -(free >= 0 ? free : slot) - 1;
+            }
+            if (table.get(at + MSB) == msb && table.get(at + LSB) == lsb) {
+                return slot;
+            }
+            long expires = table.get(at + EXPIRES);
+            if (expires <= now) {
+                if (free < 0) {
+                    free = slot;
+                }
+            } else {
+                // Prefer evicting completed IDs over reservations whose send is still running.
+                long rank = state == COMPLETED ? expires - ttlMs : expires;
+                if (rank < victimRank) {
+                    victimRank = rank;
+                    victim = slot;
+                }
+            }
+        }
+        if (free >= 0) {
+            return -free - 1;
+        }
+        evictions.increment();
+        return -victim - 1;
+    }
+
+    private void write(int slot, long msb, long lsb, long state, long expiresAt) {
+        int at = offset(slot);
+        table.put(at + MSB, msb);
+        table.put(at + LSB, lsb);
+        table.put(at + EXPIRES, expiresAt);
+        table.put(at + STATE, state);
+    }
+
+    private void writeHeader() {
+        table.put(0, MAGIC);
+        table.put(1, capacity);
+        table.put(2, stripes);
+    }
+
+    private int stripeOf(long hash) {
+        return (int) (hash >>> 32) & (stripes - 1);
+    }
+
+    private static int offset(int slot) {
+        return HEADER_LONGS + slot * SLOT_LONGS;
+    }
+
+    private static long hash(long msb, long lsb) {
+        // MurmurHash3 finalizer: spreads name-based or sequential UUIDs as well as random ones.
+        long h = msb ^ Long.rotateLeft(lsb, 32);
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static int powerOfTwoAtLeast(int value) {
+        return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+}
@@ -3,9 +3,12 @@ package io.github.serkutyildirim.kafka.service;
 import io.github.serkutyildirim.kafka.model.DemoTransaction;
 import io.github.serkutyildirim.kafka.model.MessageStatus;
 import io.github.serkutyildirim.kafka.producer.AsyncProducer;
+import io.github.serkutyildirim.kafka.producer.BatchConfirmation;
 import io.github.serkutyildirim.kafka.producer.PartitionedProducer;
+import io.github.serkutyildirim.kafka.producer.ProducerOverloadedException;
 import io.github.serkutyildirim.kafka.producer.ReliableProducer;
 import io.github.serkutyildirim.kafka.producer.SimpleProducer;
+import io.github.serkutyildirim.kafka.producer.TransactionGroupCommitter;
 import io.github.serkutyildirim.kafka.producer.TransactionalProducer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,6 +21,7 @@ import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
 
 /**
  * Central service layer that orchestrates all Kafka producer interactions for the demo application.
@@ -61,7 +65,9 @@ import java.util.concurrent.ExecutionException;
  * producer restart). Idempotency keys (the {@code messageId} / UUID on every
  * {@link DemoTransaction}) allow consumers and downstream services to detect and discard duplicates.
  * Duplicate detection at the producer side is handled by
- * {@link MessageValidationService#checkDuplicateTransaction(String)}.</p>
+ * {@link MessageValidationService#checkDuplicateTransaction(UUID)}: the single-message send methods reserve the
+ * messageId before sending and reject a second send of it with {@link DuplicateTransactionException}. Batch sends are
+ * not checked.</p>
  *
  * <h2>TODO — Production enhancements</h2>
  * <ul>
@@ -85,6 +91,11 @@ import java.util.concurrent.ExecutionException;
 @Slf4j
 public class KafkaService {
 
+    /**
+     * Upper bound on how many batch violations are copied into an exception message; the count is always reported.
+     */
+    private static final int MAX_REPORTED_VIOLATIONS = 10;
+
     // -------------------------------------------------------------------------
     // Dependencies
     // -------------------------------------------------------------------------
@@ -117,6 +128,13 @@ public class KafkaService {
     @Autowired
     private TransactionalProducer transactionalProducer;
 
+    /**
+     * Group-commit front end for {@link #transactionalProducer}.
+     * Coalesces concurrent small batches into shared transactions when enabled; otherwise sends each batch directly.
+     */
+    @Autowired
+    private TransactionGroupCommitter groupCommitter;
+
     /**
      * Key-based partitioned producer: guarantees ordering per key.
      * Use when all events for the same entity (e.g., one account) must be processed in order.
@@ -161,14 +179,26 @@ public class KafkaService {
      *
      * @param transaction the transaction to send; must not be {@code null} and must pass validation
      * @throws IllegalArgumentException if the transaction fails business-rule validation
+     * @throws DuplicateTransactionException if the messageId is already being sent or was sent recently
+     * @throws ProducerOverloadedException if too many sends are awaiting acknowledgement
+     * @throws RuntimeException if the record could not be handed to the producer; the messageId may be sent again
      */
     public void sendSimple(DemoTransaction transaction) {
         // Validation happens here (service layer) so producers stay free of business logic.
-        // Idempotency consideration: if this call is retried by the caller after a timeout,
-        // checkDuplicateTransaction will catch it once a real implementation is in place.
+        // Idempotency: if this call is retried by the caller after a timeout, the reservation
+        // taken by checkDuplicateTransaction rejects the second attempt.
         validationService.validateTransaction(transaction);
-
-        simpleProducer.send(transaction);
+        validationService.checkDuplicateTransaction(transaction.getMessageId());
+
+        try {
+            simpleProducer.send(transaction);
+        } catch (RuntimeException e) {
+            // Never reached the producer buffer (serialization, metadata or buffer timeout): let the client retry.
+            validationService.releaseTransaction(transaction.getMessageId());
+            throw e;
+        }
+        // Fire-and-forget: being enqueued is all this path ever learns about the send.
+        validationService.completeTransaction(transaction.getMessageId());
 
         log.info("Sent message using simple producer: {}", transaction.getMessageId());
     }
@@ -194,6 +224,7 @@ public class KafkaService {
      * @param transaction the transaction to send; must not be {@code null} and must pass validation
      * @return the {@link SendResult} containing partition and offset metadata from the broker
      * @throws IllegalArgumentException if the transaction fails business-rule validation
+     * @throws DuplicateTransactionException if the messageId is already being sent or was sent recently
      * @throws ExecutionException       if the Kafka broker rejects the record or a timeout occurs
      * @throws InterruptedException     if the waiting thread is interrupted
      */
@@ -201,8 +232,17 @@ public class KafkaService {
             throws ExecutionException, InterruptedException {
         // Validate before blocking — no point waiting for a broker response for invalid data.
         validationService.validateTransaction(transaction);
-
-        SendResult<String, DemoTransaction> result = reliableProducer.sendWithConfirmation(transaction);
+        validationService.checkDuplicateTransaction(transaction.getMessageId());
+
+        SendResult<String, DemoTransaction> result;
+        try {
+            result = reliableProducer.sendWithConfirmation(transaction);
+        } catch (Exception e) {
+            // Not confirmed: let the client retry with the same messageId.
+            validationService.releaseTransaction(transaction.getMessageId());
+            throw e;
+        }
+        validationService.completeTransaction(transaction.getMessageId());
 
         log.info("Reliable send confirmed for messageId={}: partition={} offset={}",
                 transaction.getMessageId(),
@@ -212,6 +252,36 @@ public class KafkaService {
         return result;
     }
 
+    /**
+     * Sends many {@link DemoTransaction}s with broker confirmation while paying for only one shared deadline.
+     *
+     * <p>Every message is validated first; the set is rejected as a whole if any entry is invalid. After that the
+     * messages are independent: each one is confirmed or reported as failed on its own, without transactional rollback.</p>
+     *
+     * <p><b>When to use:</b> Bulk imports and test-data generation, where calling {@link #sendReliable} in a loop would
+     * block for one full {@code acks=all} round trip per message.</p>
+     *
+     * @param transactions the transactions to send; must not be empty
+     * @return per-message partition/offset or failure
+     * @throws IllegalArgumentException if the collection is empty or any transaction fails validation
+     * @throws InterruptedException     if the waiting thread is interrupted
+     */
+    public BatchConfirmation sendAllReliable(List<DemoTransaction> transactions) throws InterruptedException {
+        if (transactions == null || transactions.isEmpty()) {
+            throw new IllegalArgumentException("At least one transaction is required");
+        }
+        List<TransactionViolation> violations = validationService.validateBatch(transactions);
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException("Batch rejected: " + violations.size() + " of " + transactions.size()
+                    + " transactions are invalid " + violations.subList(0, Math.min(violations.size(), MAX_REPORTED_VIOLATIONS)));
+        }
+
+        BatchConfirmation result = reliableProducer.sendAllWithConfirmation(transactions);
+
+        log.info("Reliable batch send confirmed {} of {} messages", result.confirmedCount(), transactions.size());
+        return result;
+    }
+
     /**
      * Sends a {@link DemoTransaction} using the asynchronous callback producer pattern.
      *
@@ -232,13 +302,15 @@ public class KafkaService {
      * @return a {@link CompletableFuture} that completes with the {@link SendResult} on success
      *         or completes exceptionally on failure
      * @throws IllegalArgumentException if the transaction fails business-rule validation
+     * @throws DuplicateTransactionException if the messageId is already being sent or was sent recently
+     * @throws ProducerOverloadedException if too many async sends are awaiting acknowledgement
      */
     public CompletableFuture<SendResult<String, DemoTransaction>> sendAsync(DemoTransaction transaction) {
         // Validate synchronously before dispatching the async send.
         // Even though the send itself is non-blocking, validation is cheap and must happen first.
         validationService.validateTransaction(transaction);
 
-        return asyncProducer.sendAsync(transaction);
+        return sendOnce(transaction, () -> asyncProducer.sendAsync(transaction));
     }
 
     /**
@@ -269,7 +341,8 @@ public class KafkaService {
      * @param transactions the list of transactions to send atomically; must not be {@code null} or empty
      * @return {@code true} if the entire batch was committed successfully; {@code false} if the
      *         list is empty or if the transactional send fails
-     * @throws IllegalArgumentException if any transaction in the list fails business-rule validation
+     * @throws IllegalArgumentException if any transaction in the list fails business-rule validation; the message
+     *                                  lists the failing indices
      */
     public boolean sendBatch(List<DemoTransaction> transactions) {
         if (transactions == null || transactions.isEmpty()) {
@@ -278,14 +351,16 @@ public class KafkaService {
         }
 
         // Validate every transaction before attempting the transactional send.
-        // Fail fast: reject the whole batch if even one transaction is invalid,
-        // rather than discovering the problem mid-transaction and triggering an unnecessary rollback.
-        // TODO (production): consider validating in parallel with CompletableFuture for large batches.
-        for (DemoTransaction transaction : transactions) {
-            validationService.validateTransaction(transaction);
+        // Reject the whole batch if even one transaction is invalid, rather than discovering the problem
+        // mid-transaction and triggering an unnecessary rollback. All violations are collected in one pass
+        // (in parallel for large batches) so the caller can fix every bad record at once.
+        List<TransactionViolation> violations = validationService.validateBatch(transactions);
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException("Batch rejected: " + violations.size() + " of " + transactions.size()
+                    + " transactions are invalid " + violations.subList(0, Math.min(violations.size(), MAX_REPORTED_VIOLATIONS)));
         }
 
-        boolean success = transactionalProducer.sendTransactional(transactions);
+        boolean success = groupCommitter.send(transactions);
 
         // TODO (production): persist the batch result to a database for audit logging.
         // TODO (production): emit a Micrometer counter for batch send success/failure.
@@ -319,6 +394,7 @@ public class KafkaService {
      * @return a {@link CompletableFuture} that completes with the {@link SendResult} on success
      *         or completes exceptionally on failure
      * @throws IllegalArgumentException if the key is blank or if the transaction fails validation
+     * @throws DuplicateTransactionException if the messageId is already being sent or was sent recently
      */
     public CompletableFuture<SendResult<String, DemoTransaction>> sendWithKey(
             String key, DemoTransaction transaction) {
@@ -334,9 +410,37 @@ public class KafkaService {
                             + "Provide a meaningful entity ID (e.g., account ID) to ensure ordering.");
         }
 
+        CompletableFuture<SendResult<String, DemoTransaction>> future =
+                sendOnce(transaction, () -> partitionedProducer.sendWithKey(key, transaction));
+
         log.info("Message sent with key: {}", key);
 
-        return partitionedProducer.sendWithKey(key, transaction);
+        return future;
+    }
+
+    /**
+     * Reserves the transaction's messageId, starts the send, and completes or releases the reservation when the send does.
+     *
+     * @throws DuplicateTransactionException if the messageId is already being sent or was sent recently
+     */
+    private <T> CompletableFuture<T> sendOnce(DemoTransaction transaction, Supplier<CompletableFuture<T>> send) {
+        UUID messageId = transaction.getMessageId();
+        validationService.checkDuplicateTransaction(messageId);
+        CompletableFuture<T> future;
+        try {
+            future = send.get();
+        } catch (RuntimeException e) {
+            validationService.releaseTransaction(messageId);
+            throw e;
+        }
+        future.whenComplete((result, ex) -> {
+            if (ex == null) {
+                validationService.completeTransaction(messageId);
+            } else {
+                validationService.releaseTransaction(messageId);
+            }
+        });
+        return future;
     }
 
     /**
@@ -384,8 +488,8 @@ public class KafkaService {
 
         // Validate immediately after construction (fail fast).
         // This guarantees that callers always receive a usable object or a clear error.
-        // TODO (production): also call validationService.checkDuplicateTransaction(transaction.getMessageId())
-        //                    to prevent replaying the same logical operation.
+        // No duplicate check here: the messageId was just generated. The send methods reserve it
+        // via validationService.checkDuplicateTransaction, which rejects a replay of this transaction.
         validationService.validateTransaction(transaction);
 
         log.debug("Created and validated transaction messageId={} sourceId={} targetId={} amount={} currency={}",
@@ -2,10 +2,17 @@ package io.github.serkutyildirim.kafka.service;
 
 import io.github.serkutyildirim.kafka.model.DemoTransaction;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * Validation service responsible for enforcing business rules on Kafka message payloads
@@ -25,16 +32,17 @@ import java.util.Set;
  * </ul>
  *
  * <h2>Mock implementations</h2>
- * Several methods in this class contain stub/mock logic that always passes (e.g., balance check,
- * duplicate detection). These stubs exist so the learning project compiles and runs end-to-end
- * without external dependencies such as a relational database or an account microservice.
+ * Some methods in this class contain stub/mock logic that always passes (e.g., balance check).
+ * These stubs exist so the learning project compiles and runs end-to-end without external
+ * dependencies such as a relational database or an account microservice.
  * Each stub is clearly marked with a {@code TODO} comment that explains what a production
  * implementation should do instead.
  *
  * <h2>Production extension points</h2>
  * <ul>
  *   <li>Replace mock balance check with a call to an Account Service (REST / gRPC).</li>
- *   <li>Replace mock duplicate check with a Redis {@code SETNX} or a database unique-key query.</li>
+ *   <li>Back the in-process duplicate check with a shared store (Redis {@code SETNX}, a database unique key) when
+ *       running more than one instance.</li>
  *   <li>Expand the currency whitelist to a configurable property or an ISO 4217 library lookup.</li>
  *   <li>Add circuit-breaker / timeout wrapping around external service calls.</li>
  *   <li>Emit Micrometer metrics for validation pass/fail rates.</li>
@@ -55,6 +63,31 @@ public class MessageValidationService {
      */
     private static final Set<String> SUPPORTED_CURRENCIES = Set.of("USD", "EUR", "GBP", "JPY", "CHF");
 
+    /**
+     * Rules compiled once from the {@link DemoTransaction} constraint annotations plus the business checks in this class.
+     */
+    private static final CompiledTransactionValidator VALIDATOR = CompiledTransactionValidator.compile(SUPPORTED_CURRENCIES);
+
+    /**
+     * Smallest slice of a batch that a fork/join task validates on its own before it stops splitting.
+     */
+    private static final int PARALLEL_LEAF_SIZE = 1024;
+
+    /**
+     * Batches at or above this size are validated on the common {@link ForkJoinPool}; smaller ones stay on the caller thread.
+     *
+     * <p>Forking has a fixed cost (task objects, work stealing, result merging), so small batches are faster sequentially.
+     * The default was chosen from {@code BatchValidationBenchmark}; tune it per deployment.</p>
+     */
+    @Value("${app.validation.parallel-threshold:10000}")
+    private int parallelThreshold = 10_000;
+
+    /**
+     * Reservations of message IDs being sent and IDs sent recently; see {@link #checkDuplicateTransaction(UUID)}.
+     */
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
     // -------------------------------------------------------------------------
     // Core transaction validation
     // -------------------------------------------------------------------------
@@ -65,13 +98,18 @@ public class MessageValidationService {
      * <p>Validation order (fail-fast — first violation throws immediately):</p>
      * <ol>
      *   <li>Transaction object itself must not be {@code null}.</li>
-     *   <li>{@code sourceId} must not be blank.</li>
-     *   <li>{@code targetId} must not be blank.</li>
+     *   <li>{@code sourceId} must not be blank and at most 64 characters.</li>
+     *   <li>{@code targetId} must not be blank and at most 64 characters.</li>
      *   <li>{@code amount} must be a positive number.</li>
      *   <li>{@code currency} must be a valid ISO 4217 code from the supported whitelist.</li>
+     *   <li>{@code status} must be present and {@code description} at most 255 characters.</li>
      *   <li>{@code messageId} must be present (auto-generated by {@link io.github.serkutyildirim.kafka.model.BaseMessage}).</li>
      * </ol>
      *
+     * <p><b>Performance note:</b> the rules are compiled once by {@link CompiledTransactionValidator} from the
+     * constraint annotations on {@link DemoTransaction}, so this method runs on every send without regex
+     * compilation, Bean Validation bookkeeping, or allocation on the success path.</p>
+     *
      * <p><b>Why validate here AND in the model?</b><br>
      * Bean-Validation annotations on {@link DemoTransaction} describe the structural contract of
      * the message. This method adds <em>business</em> rules (e.g., currency whitelist, logical
@@ -95,51 +133,100 @@ public class MessageValidationService {
      *                                  indicating exactly which field failed and why
      */
     public void validateTransaction(DemoTransaction transaction) {
-        // 1. Null guard — must come first because subsequent checks dereference the object.
-        if (transaction == null) {
-            throw new IllegalArgumentException("Transaction must not be null");
+        // Null guard, field constraints from the model annotations, the currency whitelist, and the messageId check
+        // all run in one pass over the compiled rule array; nothing is allocated unless a rule fails.
+        String violation = VALIDATOR.check(transaction);
+        if (violation != null) {
+            throw new IllegalArgumentException(violation);
         }
 
-        log.debug("Validating transaction with messageId={}", transaction.getMessageId());
-
-        // 2. Source account — blank source means we cannot route the payment.
-        if (transaction.getSourceId() == null || transaction.getSourceId().isBlank()) {
-            throw new IllegalArgumentException(
-                    "Transaction sourceId must not be blank. Received: [" + transaction.getSourceId() + "]");
+        // Guarded so the five-argument varargs array is only built when someone is actually reading debug logs.
+        if (log.isDebugEnabled()) {
+            log.debug("Transaction validation passed for messageId={} sourceId={} targetId={} amount={} currency={}",
+                    transaction.getMessageId(),
+                    transaction.getSourceId(),
+                    transaction.getTargetId(),
+                    transaction.getAmount(),
+                    transaction.getCurrency());
         }
+    }
 
-        // 3. Target account — blank target means the funds have nowhere to go.
-        if (transaction.getTargetId() == null || transaction.getTargetId().isBlank()) {
-            throw new IllegalArgumentException(
-                    "Transaction targetId must not be blank. Received: [" + transaction.getTargetId() + "]");
+    /**
+     * Validates every transaction of a batch and reports all failures with their positions instead of stopping at the first.
+     *
+     * <p><b>Execution strategy:</b></p>
+     * <ul>
+     *   <li>Below {@code app.validation.parallel-threshold} the batch is validated in a plain loop on the caller thread.</li>
+     *   <li>At or above it the list is split recursively into slices of about {@value #PARALLEL_LEAF_SIZE} elements that run on the
+     *       common {@link ForkJoinPool}. Results are merged left to right, so violations are always ordered by index.</li>
+     * </ul>
+     *
+     * <p>The rules are the same as {@link #validateTransaction(DemoTransaction)}; only the first violation per transaction is
+     * reported. Nothing is allocated for a fully valid batch validated sequentially.</p>
+     *
+     * @param transactions the batch to validate; {@code null} elements are reported as violations
+     * @return violations ordered by index, or an empty list when every transaction is valid
+     */
+    public List<TransactionViolation> validateBatch(List<DemoTransaction> transactions) {
+        if (transactions.size() >= parallelThreshold) {
+            List<TransactionViolation> violations = ForkJoinPool.commonPool()
+                    .invoke(new BatchValidationTask(transactions, 0, transactions.size()));
+            log.debug("event=batch_validated mode=parallel size={} violations={}", transactions.size(), violations.size());
+            return violations;
         }
+        return validateRange(transactions, 0, transactions.size());
+    }
 
-        // 4. Amount — negative or zero amounts are semantically invalid for a transfer event.
-        if (transaction.getAmount() == null || transaction.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
-            throw new IllegalArgumentException(
-                    "Transaction amount must be a positive value. Received: " + transaction.getAmount());
+    private static List<TransactionViolation> validateRange(List<DemoTransaction> transactions, int from, int to) {
+        List<TransactionViolation> violations = null;
+        for (int i = from; i < to; i++) {
+            String violation = VALIDATOR.check(transactions.get(i));
+            if (violation != null) {
+                if (violations == null) {
+                    violations = new ArrayList<>();
+                }
+                violations.add(new TransactionViolation(i, violation));
+            }
         }
+        return violations == null ? List.of() : violations;
+    }
 
-        // 5. Currency — unknown codes would be silently misrouted by downstream consumers.
-        if (!isValidCurrency(transaction.getCurrency())) {
-            throw new IllegalArgumentException(
-                    "Transaction currency [" + transaction.getCurrency()
-                            + "] is not in the supported list: " + SUPPORTED_CURRENCIES);
-        }
+    /**
+     * Splits an index range in half until it is small enough to validate directly.
+     */
+    private static final class BatchValidationTask extends RecursiveTask<List<TransactionViolation>> {
 
-        // 6. Message ID — BaseMessage auto-generates a UUID; absence indicates a construction error.
-        if (transaction.getMessageId() == null) {
-            throw new IllegalArgumentException(
-                    "Transaction messageId must be present. "
-                            + "Ensure the object was constructed via the builder so metadata is auto-populated.");
+        private final List<DemoTransaction> transactions;
+        private final int from;
+        private final int to;
+
+        private BatchValidationTask(List<DemoTransaction> transactions, int from, int to) {
+            this.transactions = transactions;
+            this.from = from;
+            this.to = to;
         }
 
-        log.info("Transaction validation passed for messageId={} sourceId={} targetId={} amount={} currency={}",
-                transaction.getMessageId(),
-                transaction.getSourceId(),
-                transaction.getTargetId(),
-                transaction.getAmount(),
-                transaction.getCurrency());
+        @Override
+        protected List<TransactionViolation> compute() {
+            if (to - from <= PARALLEL_LEAF_SIZE) {
+                return validateRange(transactions, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            BatchValidationTask left = new BatchValidationTask(transactions, from, middle);
+            left.fork();
+            List<TransactionViolation> right = new BatchValidationTask(transactions, middle, to).compute();
+            List<TransactionViolation> leftResult = left.join();
+            if (right.isEmpty()) {
+                return leftResult;
+            }
+            if (leftResult.isEmpty()) {
+                return right;
+            }
+            List<TransactionViolation> merged = new ArrayList<>(leftResult.size() + right.size());
+            merged.addAll(leftResult);
+            merged.addAll(right);
+            return merged;
+        }
     }
 
     // -------------------------------------------------------------------------
@@ -177,15 +264,10 @@ public class MessageValidationService {
             return false;
         }
 
-        // Structural check: must consist solely of ASCII uppercase letters.
-        if (!currency.matches("[A-Z]{3}")) {
-            log.debug("Currency validation failed: code [{}] contains non-uppercase-letter characters", currency);
-            return false;
-        }
-
-        boolean supported = SUPPORTED_CURRENCIES.contains(currency);
+        // Structural [A-Z]{3} check and whitelist membership are a single lookup-table read; no regex is involved.
+        boolean supported = VALIDATOR.isSupportedCurrency(currency);
         if (!supported) {
-            log.debug("Currency [{}] is not in the supported whitelist {}", currency, SUPPORTED_CURRENCIES);
+            log.debug("Currency [{}] is not a supported uppercase ISO 4217 code {}", currency, SUPPORTED_CURRENCIES);
         }
         return supported;
     }
@@ -233,13 +315,12 @@ public class MessageValidationService {
     }
 
     // -------------------------------------------------------------------------
-    // Duplicate transaction detection (mock / stub for demo)
+    // Duplicate transaction detection (idempotency guard)
     // -------------------------------------------------------------------------
 
     /**
-     * Verifies that the given transaction ID has not been processed before (idempotency guard).
-     *
-     * <p><b>Current implementation:</b> This is a <em>mock stub</em> that always passes.</p>
+     * Reserves the given transaction ID in the {@link IdempotencyStore}, rejecting it if it is already being sent or was
+     * sent recently (idempotency guard).
      *
      * <p><b>Idempotency in distributed systems:</b><br>
      * In a distributed message-driven architecture, the same message can arrive more than once due to:
@@ -252,8 +333,14 @@ public class MessageValidationService {
      * incorrect balances. The idempotency key pattern (storing processed IDs and rejecting
      * duplicates) is the standard mitigation.</p>
      *
+     * <p><b>Reserve / complete:</b> like Redis {@code SET transactionId NX EX}, the check and the claim are one atomic step,
+     * so two concurrent requests with the same ID cannot both pass. The caller must then call
+     * {@link #completeTransaction(UUID)} once the send succeeded, or {@link #releaseTransaction(UUID)} if it failed so the
+     * client can retry. The store is in-process and bounded: IDs are remembered for {@code app.idempotency.ttl-ms} or until
+     * evicted by newer ones, and only on this instance.</p>
+     *
      * <p><b>TODO — Production integration:</b><br>
-     * Replace this stub with one of the following strategies:
+     * With several application instances the store must be shared:
      * <ul>
      *   <li><b>Redis SETNX:</b> {@code SET transactionId "processed" NX EX 86400} — atomic,
      *       fast, TTL-based expiry; suitable for high-throughput streams.</li>
@@ -267,24 +354,49 @@ public class MessageValidationService {
      * <p><b>Example usage:</b></p>
      * <pre>{@code
      * validationService.checkDuplicateTransaction(transaction.getMessageId());
-     * // Proceeds only if the ID has not been seen before
+     * try {
+     *     producer.send(transaction);
+     *     validationService.completeTransaction(transaction.getMessageId());
+     * } catch (RuntimeException e) {
+     *     validationService.releaseTransaction(transaction.getMessageId());
+     *     throw e;
+     * }
      * }</pre>
      *
      * @param transactionId the unique identifier of the transaction to check
-     * @throws IllegalStateException if the transaction ID has already been processed
-     *                               (not thrown in the current mock implementation)
+     * @throws DuplicateTransactionException if the transaction ID is reserved or has already been processed
+     */
+    public void checkDuplicateTransaction(UUID transactionId) {
+        IdempotencyStore.Reservation reservation = idempotencyStore.reserve(transactionId);
+        if (reservation != IdempotencyStore.Reservation.ACQUIRED) {
+            log.warn("event=duplicate_transaction messageId={} state={}", transactionId, reservation);
+            throw new DuplicateTransactionException(transactionId, reservation);
+        }
+    }
+
+    /**
+     * String form of {@link #checkDuplicateTransaction(UUID)} for IDs received as text.
+     *
+     * @throws IllegalArgumentException if {@code transactionId} is not a UUID
      */
     public void checkDuplicateTransaction(String transactionId) {
-        // TODO: Check against a persistent store (Redis / database) for duplicate transaction IDs.
-        //       Idempotency pattern in distributed systems:
-        //         1. Compute or receive a deterministic idempotency key (here: transactionId / messageId).
-        //         2. Before processing, try to atomically reserve the key (e.g., Redis SETNX).
-        //         3. If the key already exists, skip processing and return the cached result.
-        //         4. If the key is new, process and then persist the result alongside the key.
-        //       This pattern prevents double-processing under at-least-once delivery semantics.
-        log.info("Duplicate check for transaction: {} — MOCK: always passes in demo mode", transactionId);
+        checkDuplicateTransaction(UUID.fromString(transactionId));
+    }
+
+    /**
+     * Records a reserved transaction as sent, so later duplicates are rejected for {@code app.idempotency.ttl-ms}.
+     */
+    public void completeTransaction(UUID transactionId) {
+        if (!idempotencyStore.complete(transactionId)) {
+            log.warn("event=idempotency_reservation_lost messageId={}", transactionId);
+        }
+    }
 
-        // Mock implementation: always passes. In production this should query the idempotency store.
+    /**
+     * Drops the reservation of a transaction whose send failed, so the client can retry it.
+     */
+    public void releaseTransaction(UUID transactionId) {
+        idempotencyStore.release(transactionId);
     }
 
 }
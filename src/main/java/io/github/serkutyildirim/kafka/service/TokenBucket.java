@@ -0,0 +1,58 @@
+package io.github.serkutyildirim.kafka.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket shared by several threads: {@code ratePerSecond} tokens refill continuously, up to {@code burst} saved up.
+ *
+ * <p>{@link #reserve()} always takes a token and may drive the balance negative; the caller then waits until its token
+ * would have been refilled. Waiters are therefore served in reservation order, and the long-run rate never exceeds
+ * {@code ratePerSecond} no matter how many threads share the bucket.</p>
+ */
+final class TokenBucket {
+
+    private final double tokensPerNano;
+    private final double burst;
+    private final LongSupplier clock;
+    private double tokens;
+    private long lastRefillNanos;
+
+    TokenBucket(double ratePerSecond, int burst) {
+        this(ratePerSecond, burst, System::nanoTime);
+    }
+
+    TokenBucket(double ratePerSecond, int burst, LongSupplier clock) {
+        if (ratePerSecond <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("ratePerSecond and burst must be positive");
+        }
+        this.tokensPerNano = ratePerSecond / 1e9;
+        this.burst = burst;
+        this.clock = clock;
+        this.tokens = burst;
+        this.lastRefillNanos = clock.getAsLong();
+    }
+
+    /**
+     * Takes one token, sleeping until it is available.
+     */
+    void acquire() throws InterruptedException {
+        long waitNanos = reserve();
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Takes one token without waiting.
+     *
+     * @return how long the caller must wait before using the token, {@code 0} if it is available now
+     */
+    synchronized long reserve() {
+        long now = clock.getAsLong();
+        tokens = Math.min(burst, tokens + (now - lastRefillNanos) * tokensPerNano);
+        lastRefillNanos = now;
+        tokens -= 1;
+        return tokens >= 0 ? 0L : (long) Math.ceil(-tokens / tokensPerNano);
+    }
+}
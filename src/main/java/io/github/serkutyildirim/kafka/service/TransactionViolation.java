@@ -0,0 +1,15 @@
+package io.github.serkutyildirim.kafka.service;
+
+/**
+ * One failed transaction inside a validated batch.
+ *
+ * @param index   position of the transaction in the submitted list
+ * @param message the first rule the transaction violated, as produced by {@link CompiledTransactionValidator#check}
+ */
+public record TransactionViolation(int index, String message) {
+
+    @Override
+    public String toString() {
+        return "[" + index + "] " + message;
+    }
+}
@@ -3,26 +3,76 @@ package io.github.serkutyildirim.kafka.consumer;
 import io.github.serkutyildirim.kafka.config.KafkaTopicConfig;
 import io.github.serkutyildirim.kafka.model.DemoTransaction;
 import io.github.serkutyildirim.kafka.model.MessageStatus;
+import io.github.serkutyildirim.kafka.serialization.BinaryMessageCodec;
+import io.github.serkutyildirim.kafka.serialization.DemoTransactionView;
+import io.github.serkutyildirim.kafka.serialization.RawValueRetainingDeserializer;
+import io.github.serkutyildirim.kafka.serialization.SerializationFormat;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerGroupMetadata;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.ListenerExecutionFailedException;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.listener.MessageListener;
 import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anySet;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class ConsumerPatternsTest {
@@ -30,11 +80,29 @@ class ConsumerPatternsTest {
     @Mock
     private KafkaTemplate<String, DemoTransaction> kafkaTemplate;
 
+    @Mock
+    private KafkaTemplate<byte[], byte[]> dlqKafkaTemplate;
+
     @Mock
     private Acknowledgment acknowledgment;
 
+    @Mock
+    private Consumer<String, DemoTransaction> consumer;
+
+    @Mock
+    private KafkaListenerEndpointRegistry registry;
+
+    @Mock
+    private MessageListenerContainer container;
+
+    private PartitionPauseRetryScheduler retryScheduler;
+    private PartitionRetryTracker retryTracker;
+    private ConfirmedAckPipeline ackPipeline;
+    private DuplicateDeliveryFilter duplicateFilter;
+
     private SimpleConsumer simpleConsumer;
     private BatchConsumer batchConsumer;
+    private AdaptivePollSizer pollSizer;
     private GroupedConsumer groupedConsumer;
     private ManualAckConsumer manualAckConsumer;
     private ErrorHandlingConsumer errorHandlingConsumer;
@@ -43,10 +111,40 @@ class ConsumerPatternsTest {
     void setUp() {
         simpleConsumer = new SimpleConsumer();
         batchConsumer = new BatchConsumer();
+        DlqPublisher dlqPublisher = new DlqPublisher(dlqKafkaTemplate, SerializationFormat.JSON);
+        ReflectionTestUtils.setField(batchConsumer, "dlqPublisher", dlqPublisher);
         groupedConsumer = new GroupedConsumer();
-        manualAckConsumer = new ManualAckConsumer(kafkaTemplate);
+        retryScheduler = new PartitionPauseRetryScheduler();
+        ReflectionTestUtils.setField(retryScheduler, "registry", registry);
+        lenient().when(registry.getListenerContainer(any())).thenReturn(container);
+        // Fetch position past every test record: nothing has been rewound unless a test says so.
+        lenient().when(consumer.position(any(TopicPartition.class))).thenReturn(Long.MAX_VALUE);
+        // Sends are confirmed at once unless a test says otherwise, so acknowledgements are not held back.
+        lenient().when(dlqKafkaTemplate.send(any(ProducerRecord.class))).thenReturn(CompletableFuture.completedFuture(null));
+        lenient().when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(CompletableFuture.completedFuture(null));
+        retryTracker = new PartitionRetryTracker();
+        ackPipeline = new ConfirmedAckPipeline();
+        duplicateFilter = spy(new DuplicateDeliveryFilter());
+        manualAckConsumer = new ManualAckConsumer(dlqPublisher, retryScheduler, retryTracker, ackPipeline, duplicateFilter);
         errorHandlingConsumer = new ErrorHandlingConsumer();
         ReflectionTestUtils.setField(errorHandlingConsumer, "kafkaTemplate", kafkaTemplate);
+        ReflectionTestUtils.setField(errorHandlingConsumer, "dlqPublisher", dlqPublisher);
+        ReflectionTestUtils.setField(errorHandlingConsumer, "retryTracker", retryTracker);
+        ReflectionTestUtils.setField(errorHandlingConsumer, "retryScheduler", retryScheduler);
+        ReflectionTestUtils.setField(errorHandlingConsumer, "ackPipeline", ackPipeline);
+        ReflectionTestUtils.setField(errorHandlingConsumer, "duplicateFilter", duplicateFilter);
+        ReflectionTestUtils.setField(batchConsumer, "retryTracker", retryTracker);
+        pollSizer = new AdaptivePollSizer();
+        ReflectionTestUtils.setField(pollSizer, "registry", registry);
+        lenient().when(container.getContainerProperties()).thenReturn(new ContainerProperties(KafkaTopicConfig.DEMO_MESSAGES_TOPIC));
+        ReflectionTestUtils.setField(batchConsumer, "pollSizer", pollSizer);
+    }
+
+    @AfterEach
+    void tearDown() {
+        retryScheduler.stop();
+        pollSizer.stop();
+        batchConsumer.stop();
     }
 
     @Test
@@ -59,6 +157,90 @@ class ConsumerPatternsTest {
         assertDoesNotThrow(() -> groupedConsumer.consume(record(validTransaction("OK"), 1L)));
     }
 
+    @Test
+    void keyOrderedParallelListenerShouldKeepPerKeyOrderAndRunKeysConcurrently() {
+        CountDownLatch otherKeyProcessed = new CountDownLatch(1);
+        AtomicBoolean overlapped = new AtomicBoolean();
+        Map<String, List<Long>> processed = new ConcurrentHashMap<>();
+        MessageListener<String, DemoTransaction> delegate = record -> {
+            if ("ACC-A".equals(record.key()) && record.offset() == 0L) {
+                // Key A's first record waits for key B; that can only succeed if different keys run in parallel.
+                try {
+                    overlapped.set(otherKeyProcessed.await(5, TimeUnit.SECONDS));
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            processed.computeIfAbsent(record.key(), key -> new CopyOnWriteArrayList<>()).add(record.offset());
+            if ("ACC-B".equals(record.key())) {
+                otherKeyProcessed.countDown();
+            }
+        };
+        KeyOrderedParallelListener<String, DemoTransaction> listener = new KeyOrderedParallelListener<>(delegate, 16);
+
+        listener.onMessage(keyedRecord("ACC-A", 0L), acknowledgment, null);
+        listener.onMessage(keyedRecord("ACC-A", 1L), acknowledgment, null);
+        listener.onMessage(keyedRecord("ACC-B", 2L), acknowledgment, null);
+        listener.onMessage(keyedRecord("ACC-A", 3L), acknowledgment, null);
+
+        verify(acknowledgment, timeout(5_000).times(4)).acknowledge();
+        assertTrue(overlapped.get());
+        assertEquals(List.of(0L, 1L, 3L), processed.get("ACC-A"));
+        assertEquals(List.of(2L), processed.get("ACC-B"));
+    }
+
+    @Test
+    void keyOrderedParallelListenerShouldAcknowledgeAndContinueAfterListenerFailure() {
+        List<Long> processed = new CopyOnWriteArrayList<>();
+        MessageListener<String, DemoTransaction> delegate = record -> {
+            if (record.offset() == 0L) {
+                throw new IllegalStateException("poison record");
+            }
+            processed.add(record.offset());
+        };
+        KeyOrderedParallelListener<String, DemoTransaction> listener = new KeyOrderedParallelListener<>(delegate, 16);
+
+        listener.onMessage(keyedRecord("ACC-A", 0L), acknowledgment, null);
+        listener.onMessage(keyedRecord("ACC-A", 1L), acknowledgment, null);
+
+        verify(acknowledgment, timeout(5_000).times(2)).acknowledge();
+        assertEquals(List.of(1L), processed);
+    }
+
+    @Test
+    void keyOrderedParallelListenerShouldDrainAndCloseWhenTheLastConsumerThreadStops() throws Exception {
+        List<Long> processed = new CopyOnWriteArrayList<>();
+        MessageListener<String, DemoTransaction> delegate = record -> processed.add(record.offset());
+        KeyOrderedParallelListener<String, DemoTransaction> listener = new KeyOrderedParallelListener<>(delegate, 16);
+        ExecutorService otherConsumer = Executors.newSingleThreadExecutor();
+        otherConsumer.submit(() -> listener.registerSeekCallback(null)).get();
+
+        listener.registerSeekCallback(null);
+        listener.onMessage(keyedRecord("ACC-A", 0L), acknowledgment, null);
+        listener.onMessage(keyedRecord("ACC-A", 1L), acknowledgment, null);
+        listener.unregisterSeekCallback();
+        assertFalse(listener.isClosed());
+
+        otherConsumer.submit(listener::unregisterSeekCallback).get();
+        otherConsumer.shutdown();
+        assertTrue(listener.isClosed());
+        assertEquals(List.of(0L, 1L), processed);
+
+        // A restarted container registers again and gets a fresh executor.
+        listener.registerSeekCallback(null);
+        listener.onMessage(keyedRecord("ACC-A", 2L), acknowledgment, null);
+        verify(acknowledgment, timeout(5_000).times(3)).acknowledge();
+        assertFalse(listener.isClosed());
+    }
+
+    @Test
+    void viewConsumerShouldProcessBinaryRecord() {
+        DemoTransactionView view = DemoTransactionView.wrap(BinaryMessageCodec.encode(validTransaction("OK")));
+
+        assertDoesNotThrow(() -> new ViewConsumer().consume(
+            new ConsumerRecord<>(KafkaTopicConfig.DEMO_MESSAGES_TOPIC, 0, 2L, "key-2", view)));
+    }
+
     @Test
     void batchConsumerShouldProcessBatchSuccessfully() {
         List<ConsumerRecord<String, DemoTransaction>> records = List.of(
@@ -70,68 +252,746 @@ class ConsumerPatternsTest {
     }
 
     @Test
-    void batchConsumerShouldFailWholeBatchWhenOneRecordFails() {
+    void batchConsumerShouldReportFailingIndexWhenOneRecordFails() {
         List<ConsumerRecord<String, DemoTransaction>> records = List.of(
             record(validTransaction("BATCH-1"), 0L),
             record(validTransaction("FAIL_BATCH"), 1L)
         );
 
-        assertThrows(IllegalStateException.class, () -> batchConsumer.consumeBatch(records));
+        BatchListenerFailedException ex = assertThrows(BatchListenerFailedException.class, () -> batchConsumer.consumeBatch(records));
+
+        assertEquals(1, ex.getIndex());
+    }
+
+    @Test
+    void batchConsumerShouldReportIndexOfNullPayload() {
+        List<ConsumerRecord<String, DemoTransaction>> records = List.of(
+            record(validTransaction("BATCH-1"), 0L),
+            record(validTransaction("BATCH-2"), 1L),
+            new ConsumerRecord<>(KafkaTopicConfig.DEMO_MESSAGES_TOPIC, 0, 2L, "k", null)
+        );
+
+        BatchListenerFailedException ex = assertThrows(BatchListenerFailedException.class, () -> batchConsumer.consumeBatch(records));
+
+        assertEquals(2, ex.getIndex());
+    }
+
+    @Test
+    void batchConsumerShouldProcessSubBatchesInParallelAndSequentially() {
+        List<ConsumerRecord<String, DemoTransaction>> records = batchOf(60, -1);
+
+        ReflectionTestUtils.setField(batchConsumer, "subBatchParallelism", 3);
+        assertDoesNotThrow(() -> batchConsumer.consumeBatch(records));
+
+        ReflectionTestUtils.setField(batchConsumer, "subBatchParallelism", 1);
+        assertDoesNotThrow(() -> batchConsumer.consumeBatch(records));
+    }
+
+    @Test
+    void batchConsumerShouldReportFailingIndexWhenAnyParallelSubBatchFails() {
+        // 60 records form three sub-batches; the failing record sits in the last one.
+        List<ConsumerRecord<String, DemoTransaction>> records = batchOf(60, 55);
+        ReflectionTestUtils.setField(batchConsumer, "subBatchParallelism", 3);
+
+        BatchListenerFailedException ex = assertThrows(BatchListenerFailedException.class, () -> batchConsumer.consumeBatch(records));
+
+        assertEquals(55, ex.getIndex());
+    }
+
+    @Test
+    void batchConsumerShouldReportLowestFailingIndexAcrossParallelSubBatches() {
+        List<ConsumerRecord<String, DemoTransaction>> records = new ArrayList<>(batchOf(60, 55));
+        records.set(30, record(validTransaction("FAIL_BATCH"), 30L));
+        ReflectionTestUtils.setField(batchConsumer, "subBatchParallelism", 3);
+
+        BatchListenerFailedException ex = assertThrows(BatchListenerFailedException.class, () -> batchConsumer.consumeBatch(records));
+
+        // Records 0..29 may be committed; everything from 30 on must be redelivered.
+        assertEquals(30, ex.getIndex());
+    }
+
+    @Test
+    void batchConsumerShouldAccumulateAcrossPollsAndCommitOnlyAfterSizeFlush() {
+        enableAccumulation(4, 60_000L);
+        TopicPartition partition = new TopicPartition(KafkaTopicConfig.DEMO_MESSAGES_TOPIC, 0);
+
+        batchConsumer.consume(batchOf(2, -1), consumer);
+        verify(consumer, never()).commitSync(any(Map.class));
+
+        batchConsumer.consume(List.of(record(validTransaction("BATCH-2"), 2L), record(validTransaction("BATCH-3"), 3L)), consumer);
+        verify(consumer).commitSync(Map.of(partition, new OffsetAndMetadata(4L)));
+    }
+
+    @Test
+    void batchConsumerShouldFlushLingeringBufferOnIdleEvent() throws InterruptedException {
+        enableAccumulation(100, 1L);
+        TopicPartition partition = new TopicPartition(KafkaTopicConfig.DEMO_MESSAGES_TOPIC, 0);
+
+        batchConsumer.consume(batchOf(1, -1), consumer);
+        verify(consumer, never()).commitSync(any(Map.class));
+        Thread.sleep(5L);
+        batchConsumer.onIdle(new ListenerContainerIdleEvent(this, this, 5L, BatchConsumer.LISTENER_ID + "-0", List.of(partition), consumer, false));
+
+        verify(consumer).commitSync(Map.of(partition, new OffsetAndMetadata(1L)));
+    }
+
+    @Test
+    void batchConsumerShouldCommitPrefixRewindAndDeadLetterAfterFailedFlushes() {
+        enableAccumulation(2, 60_000L);
+        TopicPartition partition = new TopicPartition(KafkaTopicConfig.DEMO_MESSAGES_TOPIC, 0);
+        List<ConsumerRecord<String, DemoTransaction>> records = batchOf(3, 1);
+
+        batchConsumer.consume(records.subList(0, 2), consumer);
+        verify(consumer).commitSync(Map.of(partition, new OffsetAndMetadata(1L)));
+        verify(consumer).seek(partition, 1L);
+
+        // Redeliveries start at the failing record, as they would after the seek on a real consumer.
+        batchConsumer.consume(records.subList(1, 3), consumer);
+        batchConsumer.consume(records.subList(1, 3), consumer);
+
+        verify(consumer, times(2)).seek(partition, 1L);
+        verify(dlqKafkaTemplate).send(any(ProducerRecord.class));
+        verify(consumer).commitSync(Map.of(partition, new OffsetAndMetadata(2L)));
+        verify(consumer).seek(partition, 2L);
+    }
+
+    @Test
+    void batchConsumerShouldRewindInsteadOfCommittingPastAFailedDeadLetterWrite() {
+        enableAccumulation(2, 60_000L);
+        ReflectionTestUtils.setField(batchConsumer, "maxAttempts", 1);
+        when(dlqKafkaTemplate.send(any(ProducerRecord.class)))
+            .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("dlq unavailable")))
+            .thenReturn(CompletableFuture.completedFuture(null));
+        TopicPartition partition = new TopicPartition(KafkaTopicConfig.DEMO_MESSAGES_TOPIC, 0);
+        List<ConsumerRecord<String, DemoTransaction>> records = batchOf(3, 1);
+
+        batchConsumer.consume(records.subList(0, 2), consumer);
+
+        verify(dlqKafkaTemplate).send(any(ProducerRecord.class));
+        verify(consumer).commitSync(Map.of(partition, new OffsetAndMetadata(1L)));
+        verify(consumer).seek(partition, 1L);
+
+        // Redelivered after the seek: the DLQ write is retried and only a confirmed one lets the commit pass the record.
+        batchConsumer.consume(records.subList(1, 3), consumer);
+
+        verify(dlqKafkaTemplate, times(2)).send(any(ProducerRecord.class));
+        verify(consumer).commitSync(Map.of(partition, new OffsetAndMetadata(2L)));
+        verify(consumer).seek(partition, 2L);
     }
 
     @Test
     void manualAckConsumerShouldAcknowledgeAfterSuccessfulProcessing() {
-        manualAckConsumer.consume(record(validTransaction("OK"), 5L), acknowledgment);
+        manualAckConsumer.consume(record(validTransaction("OK"), 5L), acknowledgment, consumer);
 
         verify(acknowledgment).acknowledge();
-        verify(kafkaTemplate, never()).send(eq(KafkaTopicConfig.DEMO_DLQ_TOPIC), any(), any());
+        verify(dlqKafkaTemplate, never()).send(any(ProducerRecord.class));
+    }
+
+    @Test
+    void manualAckConsumerShouldAcknowledgeRedeliveredSuccessWithoutProcessingItAgain() {
+        DemoTransaction transaction = validTransaction("OK");
+        Acknowledgment redeliveryAck = mock(Acknowledgment.class);
+
+        manualAckConsumer.consume(record(transaction, 5L), acknowledgment, consumer);
+        // Same messageId again, e.g. the offset was not committed before a rebalance.
+        manualAckConsumer.consume(record(transaction, 5L), redeliveryAck, consumer);
+
+        verify(acknowledgment).acknowledge();
+        verify(redeliveryAck).acknowledge();
+        // Only a successful processing run remembers the ID; the redelivery was skipped before processing.
+        verify(duplicateFilter, times(1)).remember(eq(ManualAckConsumer.GROUP_ID), any(), eq(transaction.getMessageId()));
     }
 
     @Test
     void manualAckConsumerShouldRetryTwiceThenSendToDlq() {
         ConsumerRecord<String, DemoTransaction> failingRecord = record(validTransaction("FAIL_MANUAL"), 9L);
 
-        manualAckConsumer.consume(failingRecord, acknowledgment);
-        manualAckConsumer.consume(failingRecord, acknowledgment);
+        manualAckConsumer.consume(failingRecord, acknowledgment, consumer);
+        manualAckConsumer.consume(failingRecord, acknowledgment, consumer);
         verify(acknowledgment, never()).acknowledge();
 
-        manualAckConsumer.consume(failingRecord, acknowledgment);
+        manualAckConsumer.consume(failingRecord, acknowledgment, consumer);
 
         verify(acknowledgment, times(1)).acknowledge();
-        verify(kafkaTemplate, times(1)).send(KafkaTopicConfig.DEMO_DLQ_TOPIC, failingRecord.key(), failingRecord.value());
+        assertEquals(failingRecord.key(), new String(dlqRecord().key(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void errorHandlingConsumerShouldForwardUndecodableRecordAsRawBytesWithFailureHeaders() {
+        byte[] raw = "{not-json".getBytes(StandardCharsets.UTF_8);
+        ConsumerRecord<String, DemoTransaction> undecodable =
+            new ConsumerRecord<>(KafkaTopicConfig.DEMO_MESSAGES_TOPIC, 2, 42L, "ACC-009", null);
+        undecodable.headers()
+            .add("trace-id", "t-1".getBytes(StandardCharsets.UTF_8))
+            .add(RawValueRetainingDeserializer.RAW_VALUE_HEADER, raw);
+
+        errorHandlingConsumer.consume(undecodable, acknowledgment, consumer);
+
+        verify(acknowledgment).acknowledge();
+        ProducerRecord<byte[], byte[]> dead = dlqRecord();
+        assertEquals(KafkaTopicConfig.DEMO_DLQ_TOPIC, dead.topic());
+        assertSame(raw, dead.value());
+        assertEquals("ACC-009", new String(dead.key(), StandardCharsets.UTF_8));
+        assertEquals(IllegalArgumentException.class.getName(), header(dead, DlqPublisher.EXCEPTION_CLASS_HEADER));
+        assertEquals("3", header(dead, DlqPublisher.ATTEMPTS_HEADER));
+        assertEquals(KafkaTopicConfig.DEMO_MESSAGES_TOPIC, header(dead, DlqPublisher.ORIGINAL_TOPIC_HEADER));
+        assertEquals("2", header(dead, DlqPublisher.ORIGINAL_PARTITION_HEADER));
+        assertEquals("42", header(dead, DlqPublisher.ORIGINAL_OFFSET_HEADER));
+        assertEquals(ErrorHandlingConsumer.GROUP_ID, header(dead, DlqPublisher.GROUP_HEADER));
+        assertEquals("t-1", header(dead, "trace-id"));
+        assertNull(dead.headers().lastHeader(RawValueRetainingDeserializer.RAW_VALUE_HEADER));
+    }
+
+    @Test
+    void dlqPublisherShouldUnwrapListenerFailureAndReserializeOnlyWithoutRetainedBytes() throws Exception {
+        ConsumerRecord<String, DemoTransaction> record = record(validTransaction("FAIL_BATCH"), 7L);
+        DlqPublisher dlqPublisher = new DlqPublisher(dlqKafkaTemplate, SerializationFormat.JSON);
+
+        dlqPublisher.publish(record, BatchConsumer.GROUP_ID, 3,
+            new ListenerExecutionFailedException("listener failed", new IllegalStateException("boom")));
+
+        ProducerRecord<byte[], byte[]> dead = dlqRecord();
+        assertEquals(IllegalStateException.class.getName(), header(dead, DlqPublisher.EXCEPTION_CLASS_HEADER));
+        assertEquals("boom", header(dead, DlqPublisher.EXCEPTION_MESSAGE_HEADER));
+        try (JsonDeserializer<DemoTransaction> deserializer = new JsonDeserializer<>(DemoTransaction.class, false)) {
+            assertEquals(record.value().getMessageId(), deserializer.deserialize(dead.topic(), dead.value()).getMessageId());
+        }
     }
 
     @Test
     void errorHandlingConsumerShouldNotAcknowledgeRetryableFailureBeforeMaxRetries() {
+        ReflectionTestUtils.setField(errorHandlingConsumer, "retryMode", ErrorHandlingConsumer.RetryMode.BLOCKING);
         ConsumerRecord<String, DemoTransaction> retryableRecord = record(validTransaction("RETRY"), 11L);
 
-        errorHandlingConsumer.consume(retryableRecord, acknowledgment);
-        errorHandlingConsumer.consume(retryableRecord, acknowledgment);
+        errorHandlingConsumer.consume(retryableRecord, acknowledgment, consumer);
+        errorHandlingConsumer.consume(retryableRecord, acknowledgment, consumer);
 
         verify(acknowledgment, never()).acknowledge();
-        verify(kafkaTemplate, never()).send(eq(KafkaTopicConfig.DEMO_DLQ_TOPIC), any(), any());
+        verify(dlqKafkaTemplate, never()).send(any(ProducerRecord.class));
     }
 
     @Test
     void errorHandlingConsumerShouldSendRetryableFailureToDlqAfterThirdAttempt() {
+        ReflectionTestUtils.setField(errorHandlingConsumer, "retryMode", ErrorHandlingConsumer.RetryMode.BLOCKING);
         ConsumerRecord<String, DemoTransaction> retryableRecord = record(validTransaction("RETRY"), 12L);
 
-        errorHandlingConsumer.consume(retryableRecord, acknowledgment);
-        errorHandlingConsumer.consume(retryableRecord, acknowledgment);
-        errorHandlingConsumer.consume(retryableRecord, acknowledgment);
+        errorHandlingConsumer.consume(retryableRecord, acknowledgment, consumer);
+        errorHandlingConsumer.consume(retryableRecord, acknowledgment, consumer);
+        errorHandlingConsumer.consume(retryableRecord, acknowledgment, consumer);
 
         verify(acknowledgment, times(1)).acknowledge();
-        verify(kafkaTemplate, times(1)).send(KafkaTopicConfig.DEMO_DLQ_TOPIC, retryableRecord.key(), retryableRecord.value());
+        assertEquals(retryableRecord.key(), new String(dlqRecord().key(), StandardCharsets.UTF_8));
     }
 
     @Test
     void errorHandlingConsumerShouldDlqPermanentFailureImmediately() {
         ConsumerRecord<String, DemoTransaction> invalidRecord = record(validTransaction("INVALID"), 15L);
 
-        errorHandlingConsumer.consume(invalidRecord, acknowledgment);
+        errorHandlingConsumer.consume(invalidRecord, acknowledgment, consumer);
 
         verify(acknowledgment, times(1)).acknowledge();
-        verify(kafkaTemplate, times(1)).send(KafkaTopicConfig.DEMO_DLQ_TOPIC, invalidRecord.key(), invalidRecord.value());
+        assertEquals(invalidRecord.key(), new String(dlqRecord().key(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void errorHandlingConsumerShouldAcknowledgeDeadLetterOnlyOnceDlqSendIsConfirmed() {
+        CompletableFuture<SendResult<byte[], byte[]>> dlqSend = new CompletableFuture<>();
+        when(dlqKafkaTemplate.send(any(ProducerRecord.class))).thenReturn(dlqSend);
+        Acknowledgment deadLetterAck = mock(Acknowledgment.class);
+        Acknowledgment nextAck = mock(Acknowledgment.class);
+
+        errorHandlingConsumer.consume(record(validTransaction("INVALID"), 20L), deadLetterAck, consumer);
+        // The consumer thread moves on, but the healthy record behind the pending dead letter must not commit past it.
+        errorHandlingConsumer.consume(record(validTransaction("OK"), 21L), nextAck, consumer);
+        verify(deadLetterAck, never()).acknowledge();
+        verify(nextAck, never()).acknowledge();
+
+        dlqSend.complete(null);
+
+        InOrder acknowledgements = inOrder(deadLetterAck, nextAck);
+        acknowledgements.verify(deadLetterAck).acknowledge();
+        acknowledgements.verify(nextAck).acknowledge();
+    }
+
+    @Test
+    void manualAckConsumerShouldRewindToDeadLetterWhoseDlqSendFailed() {
+        CompletableFuture<SendResult<byte[], byte[]>> dlqSend = new CompletableFuture<>();
+        when(dlqKafkaTemplate.send(any(ProducerRecord.class))).thenReturn(dlqSend);
+        ReflectionTestUtils.setField(manualAckConsumer, "pauseOnRetry", false);
+        ConsumerRecord<String, DemoTransaction> failingRecord = record(validTransaction("FAIL_MANUAL"), 30L);
+        for (int attempt = 0; attempt < 3; attempt++) {
+            manualAckConsumer.consume(failingRecord, acknowledgment, consumer);
+        }
+        Acknowledgment nextAck = mock(Acknowledgment.class);
+        manualAckConsumer.consume(record(validTransaction("OK"), 31L), nextAck, consumer);
+
+        dlqSend.completeExceptionally(new IllegalStateException("broker unavailable"));
+        manualAckConsumer.consume(record(validTransaction("OK"), 32L), nextAck, consumer);
+
+        verify(acknowledgment, never()).acknowledge();
+        verify(nextAck, never()).acknowledge();
+        verify(consumer).seek(new TopicPartition(KafkaTopicConfig.DEMO_MESSAGES_TOPIC, 0), 30L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void errorHandlingConsumerShouldForwardRetryableFailureToFirstRetryTierWithoutBlocking() {
+        ConsumerRecord<String, DemoTransaction> retryableRecord = record(validTransaction("RETRY"), 13L);
+        ArgumentCaptor<ProducerRecord<String, DemoTransaction>> captor = ArgumentCaptor.forClass(ProducerRecord.class);
+
+        errorHandlingConsumer.consume(retryableRecord, acknowledgment, consumer);
+
+        verify(acknowledgment, times(1)).acknowledge();
+        verify(kafkaTemplate).send(captor.capture());
+        ProducerRecord<String, DemoTransaction> retry = captor.getValue();
+        assertEquals(KafkaTopicConfig.DEMO_RETRY_250MS_TOPIC, retry.topic());
+        assertEquals(retryableRecord.key(), retry.key());
+        assertEquals("1", header(retry, ErrorHandlingConsumer.RETRY_ATTEMPTS_HEADER));
+        assertEquals("13", header(retry, ErrorHandlingConsumer.RETRY_ORIGINAL_OFFSET_HEADER));
+        assertTrue(Long.parseLong(header(retry, ErrorHandlingConsumer.RETRY_DUE_AT_HEADER)) > System.currentTimeMillis());
+        verify(dlqKafkaTemplate, never()).send(any(ProducerRecord.class));
+    }
+
+    @Test
+    void errorHandlingConsumerShouldPauseRetryPartitionUntilRecordIsDue() {
+        ConsumerRecord<String, DemoTransaction> retryRecord = retryRecord(KafkaTopicConfig.DEMO_RETRY_250MS_TOPIC, 1, System.currentTimeMillis() + 5_000L);
+
+        errorHandlingConsumer.consumeRetry(retryRecord, acknowledgment, consumer);
+
+        TopicPartition partition = new TopicPartition(KafkaTopicConfig.DEMO_RETRY_250MS_TOPIC, 0);
+        verify(consumer).seek(partition, 0L);
+        verify(container).pausePartition(partition);
+        verify(container, never()).resumePartition(any());
+        verify(acknowledgment, never()).acknowledge();
+    }
+
+    @Test
+    void errorHandlingConsumerShouldSendDueRetryToDlqAfterLastTier() {
+        ConsumerRecord<String, DemoTransaction> retryRecord = retryRecord(KafkaTopicConfig.DEMO_RETRY_500MS_TOPIC, 2, System.currentTimeMillis() - 1L);
+        retryRecord.headers()
+            .add(ErrorHandlingConsumer.RETRY_ORIGINAL_TOPIC_HEADER, KafkaTopicConfig.DEMO_MESSAGES_TOPIC.getBytes(StandardCharsets.UTF_8))
+            .add(ErrorHandlingConsumer.RETRY_ORIGINAL_PARTITION_HEADER, "2".getBytes(StandardCharsets.UTF_8))
+            .add(ErrorHandlingConsumer.RETRY_ORIGINAL_OFFSET_HEADER, "41".getBytes(StandardCharsets.UTF_8));
+
+        errorHandlingConsumer.consumeRetry(retryRecord, acknowledgment, consumer);
+
+        verify(acknowledgment, times(1)).acknowledge();
+        ProducerRecord<byte[], byte[]> dead = dlqRecord();
+        assertEquals(retryRecord.key(), new String(dead.key(), StandardCharsets.UTF_8));
+        // The dead letter points at where the record was first consumed, not at the last retry tier.
+        assertEquals(KafkaTopicConfig.DEMO_MESSAGES_TOPIC, header(dead, DlqPublisher.ORIGINAL_TOPIC_HEADER));
+        assertEquals("2", header(dead, DlqPublisher.ORIGINAL_PARTITION_HEADER));
+        assertEquals("41", header(dead, DlqPublisher.ORIGINAL_OFFSET_HEADER));
+    }
+
+    @Test
+    void manualAckConsumerShouldPausePartitionAndResumeAfterBackoff() {
+        ConsumerRecord<String, DemoTransaction> failingRecord = record(validTransaction("FAIL_MANUAL"), 20L);
+        TopicPartition partition = new TopicPartition(KafkaTopicConfig.DEMO_MESSAGES_TOPIC, 0);
+
+        manualAckConsumer.consume(failingRecord, acknowledgment, consumer);
+
+        verify(consumer).seek(partition, 20L);
+        verify(container).pausePartition(partition);
+        verify(container, timeout(2_000L)).resumePartition(partition);
+        verify(acknowledgment, never()).acknowledge();
+    }
+
+    @Test
+    void manualAckConsumerShouldSkipRecordsFetchedBeforePartitionWasRewound() {
+        ConsumerRecord<String, DemoTransaction> leftover = record(validTransaction("OK"), 21L);
+        when(consumer.position(new TopicPartition(KafkaTopicConfig.DEMO_MESSAGES_TOPIC, 0))).thenReturn(20L);
+
+        manualAckConsumer.consume(leftover, acknowledgment, consumer);
+
+        verify(acknowledgment, never()).acknowledge();
+    }
+
+    @Test
+    void errorHandlingConsumerShouldRetryInPlaceWithoutSleepingInPauseMode() {
+        ReflectionTestUtils.setField(errorHandlingConsumer, "retryMode", ErrorHandlingConsumer.RetryMode.PAUSE);
+        ConsumerRecord<String, DemoTransaction> retryableRecord = record(validTransaction("RETRY"), 22L);
+        TopicPartition partition = new TopicPartition(KafkaTopicConfig.DEMO_MESSAGES_TOPIC, 0);
+
+        long start = System.nanoTime();
+        errorHandlingConsumer.consume(retryableRecord, acknowledgment, consumer);
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 250L);
+        verify(consumer).seek(partition, 22L);
+        verify(container).pausePartition(partition);
+        verify(acknowledgment, never()).acknowledge();
+        verify(kafkaTemplate, never()).send(any(ProducerRecord.class));
+    }
+
+    @Test
+    void partitionRetryTrackerShouldDropAttemptsWhenPartitionIsRevoked() {
+        ConsumerRecord<String, DemoTransaction> failingRecord = record(validTransaction("FAIL_MANUAL"), 30L);
+        TopicPartition partition = new TopicPartition(KafkaTopicConfig.DEMO_MESSAGES_TOPIC, 0);
+        when(consumer.groupMetadata()).thenReturn(new ConsumerGroupMetadata("manual-ack-group"));
+
+        retryTracker.onPartitionsAssigned(consumer, List.of(partition));
+        manualAckConsumer.consume(failingRecord, acknowledgment, consumer);
+        manualAckConsumer.consume(failingRecord, acknowledgment, consumer);
+        assertEquals(2, retryTracker.attempts("manual-ack-group", failingRecord));
+
+        retryTracker.onPartitionsRevokedAfterCommit(consumer, List.of(partition));
+
+        assertEquals(0, retryTracker.attempts("manual-ack-group", failingRecord));
+        assertEquals(0, retryTracker.attempts("error-handling-group", failingRecord));
+    }
+
+    @Test
+    void duplicateDeliveryFilterShouldSkipOnlyIdsConfirmedOnTheSamePartitionWithinTheWindow() {
+        long[] now = {0L};
+        DuplicateDeliveryFilter filter = new DuplicateDeliveryFilter();
+        ReflectionTestUtils.setField(filter, "clock", (LongSupplier) () -> now[0]);
+        DemoTransaction transaction = validTransaction("OK");
+        ConsumerRecord<String, DemoTransaction> first = record(transaction, 1L);
+        ConsumerRecord<String, DemoTransaction> otherPartition =
+            new ConsumerRecord<>(KafkaTopicConfig.DEMO_MESSAGES_TOPIC, 1, 1L, transaction.getSourceId(), transaction);
+
+        assertFalse(filter.isDuplicate("group-a", first, transaction.getMessageId()));
+        filter.remember("group-a", first, transaction.getMessageId());
+
+        assertTrue(filter.isDuplicate("group-a", record(transaction, 1L), transaction.getMessageId()));
+        assertFalse(filter.isDuplicate("group-a", otherPartition, transaction.getMessageId()));
+        assertFalse(filter.isDuplicate("group-b", first, transaction.getMessageId()));
+
+        // Four generations of 150 s: after the whole window every generation has been cleared.
+        now[0] += 600_000L;
+        assertFalse(filter.isDuplicate("group-a", first, transaction.getMessageId()));
+    }
+
+    @Test
+    void duplicateDeliveryFilterShouldNotSkipBloomHitsTheExactSetCannotConfirm() {
+        DuplicateDeliveryFilter filter = new DuplicateDeliveryFilter();
+        // One KB per million IDs: a 64-bit filter that answers "maybe" for almost anything, and an exact set of two IDs.
+        ReflectionTestUtils.setField(filter, "memoryPerMillionIdsKb", 1);
+        ReflectionTestUtils.setField(filter, "expectedIdsPerWindow", 1000);
+        ReflectionTestUtils.setField(filter, "recentIdsPerPartition", 2);
+        List<UUID> ids = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+        ConsumerRecord<String, DemoTransaction> record = record(validTransaction("OK"), 1L);
+        for (UUID id : ids) {
+            filter.remember("group-a", record, id);
+        }
+
+        assertFalse(filter.isDuplicate("group-a", record, ids.get(0)), "evicted from the exact set");
+        assertTrue(filter.isDuplicate("group-a", record, ids.get(1)));
+        assertTrue(filter.isDuplicate("group-a", record, ids.get(2)));
+        assertFalse(filter.isDuplicate("group-a", record, UUID.randomUUID()));
+    }
+
+    @Test
+    void rotatingBloomFilterShouldStayNearItsSizedFalsePositiveRate() {
+        Random random = new Random(42);
+        // Sized like the defaults: 1 % across 4 generations, 2 500 IDs per generation.
+        double bitsPerId = -Math.log(0.01 / 4) / (Math.log(2) * Math.log(2));
+        RotatingBloomFilter bloom = new RotatingBloomFilter(4, 2_500, bitsPerId, (int) Math.round(bitsPerId * Math.log(2)), 60_000L, 0L);
+        List<UUID> inserted = new ArrayList<>();
+        for (int i = 0; i < 9_999; i++) {
+            UUID id = new UUID(random.nextLong(), random.nextLong());
+            inserted.add(id);
+            bloom.put(id.getMostSignificantBits(), id.getLeastSignificantBits(), 0L);
+        }
+        for (UUID id : inserted.subList(2_500, inserted.size())) {
+            assertTrue(bloom.mightContain(id.getMostSignificantBits(), id.getLeastSignificantBits(), 0L));
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (bloom.mightContain(random.nextLong(), random.nextLong(), 0L)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+    }
+
+    @Test
+    void recentIdSetShouldKeepTheLastIdsAndSurviveEvictions() {
+        RecentIdSet set = new RecentIdSet(100);
+        for (long i = 0; i < 1_000; i++) {
+            set.add(i, ~i);
+        }
+
+        assertEquals(100, set.size());
+        for (long i = 900; i < 1_000; i++) {
+            assertTrue(set.contains(i, ~i), "id " + i);
+        }
+        assertFalse(set.contains(899, ~899L));
+        assertFalse(set.contains(0, ~0L));
+    }
+
+    @Test
+    void offsetAttemptTableShouldStayBoundedAndSurviveRemovals() {
+        OffsetAttemptTable table = new OffsetAttemptTable(64);
+        for (long offset = 0; offset < 64; offset++) {
+            table.increment(offset);
+        }
+        table.increment(10L);
+        for (long offset = 0; offset < 64; offset += 2) {
+            table.remove(offset);
+        }
+
+        assertEquals(32, table.size());
+        for (long offset = 1; offset < 64; offset += 2) {
+            assertEquals(1, table.get(offset), "offset " + offset);
+        }
+        assertEquals(0, table.get(10L));
+
+        for (long offset = 100; offset < 133; offset++) {
+            table.increment(offset);
+        }
+        // Full at 64 entries: the 65th insert evicted the lowest offset still tracked.
+        assertEquals(64, table.size());
+        assertEquals(0, table.get(1L));
+        assertEquals(1, table.get(3L));
+        assertEquals(1, table.get(132L));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void fanOutDispatcherShouldTrackEachGroupAndCommitLowestPositionWithMetadata() {
+        List<Long> recordsSeen = new CopyOnWriteArrayList<>();
+        List<Long> batchSeen = new CopyOnWriteArrayList<>();
+        FanOutDispatcher dispatcher = new FanOutDispatcher(List.of(
+            FanOutHandler.records("records-group", record -> recordsSeen.add(record.offset())),
+            // Leaves the last record unacknowledged, e.g. while it waits for a retry.
+            FanOutHandler.acknowledging("manual-group", (record, ack) -> {
+                if (record.offset() < 12L) {
+                    ack.acknowledge();
+                }
+            }),
+            FanOutHandler.batch("batch-group", records -> records.forEach(record -> batchSeen.add(record.offset())))));
+        TopicPartition partition = new TopicPartition(KafkaTopicConfig.DEMO_MESSAGES_TOPIC, 0);
+
+        dispatcher.dispatch(List.of(keyedRecord("k", 10L), keyedRecord("k", 11L), keyedRecord("k", 12L)), consumer);
+
+        assertEquals(List.of(10L, 11L, 12L), recordsSeen);
+        assertEquals(List.of(10L, 11L, 12L), batchSeen);
+        ArgumentCaptor<Map<TopicPartition, OffsetAndMetadata>> commit = ArgumentCaptor.forClass(Map.class);
+        verify(consumer).commitSync(commit.capture());
+        OffsetAndMetadata committed = commit.getValue().get(partition);
+        assertEquals(12L, committed.offset());
+        assertEquals("fanout-v1:records-group=13,manual-group=12,batch-group=13", committed.metadata());
+    }
+
+    @Test
+    void fanOutDispatcherShouldResumeEachGroupFromCommitMetadata() {
+        List<String> seen = new CopyOnWriteArrayList<>();
+        FanOutDispatcher dispatcher = new FanOutDispatcher(List.of(
+            FanOutHandler.records("records-group", record -> seen.add("records:" + record.offset())),
+            FanOutHandler.acknowledging("manual-group", (record, ack) -> {
+                seen.add("manual:" + record.offset());
+                ack.acknowledge();
+            })));
+        TopicPartition partition = new TopicPartition(KafkaTopicConfig.DEMO_MESSAGES_TOPIC, 0);
+        when(consumer.committed(anySet())).thenReturn(Map.of(partition, new OffsetAndMetadata(12L, "fanout-v1:records-group=13,manual-group=12")));
+
+        dispatcher.onPartitionsAssigned(consumer, List.of(partition));
+        dispatcher.dispatch(List.of(keyedRecord("k", 12L), keyedRecord("k", 13L)), consumer);
+
+        assertEquals(List.of("manual:12", "manual:13"), seen.stream().filter(entry -> entry.startsWith("manual")).toList());
+        assertEquals(List.of("records:13"), seen.stream().filter(entry -> entry.startsWith("records")).toList());
+        assertEquals(14L, dispatcher.position("records-group", partition));
+        assertEquals(14L, dispatcher.position("manual-group", partition));
+    }
+
+    @Test
+    void fanOutDispatcherShouldAdvanceFailedBatchOnlyUpToTheFailingRecord() throws Exception {
+        List<Acknowledgment> lateAcks = new CopyOnWriteArrayList<>();
+        FanOutDispatcher dispatcher = fanOutDispatcher(List.of(
+            FanOutHandler.batch("partial-group", records -> {
+                throw new BatchListenerFailedException("second record failed", 1);
+            }),
+            FanOutHandler.batch("broken-group", records -> {
+                throw new IllegalStateException("database down");
+            }),
+            // Acknowledges later, the way a confirmed DLQ send does from the producer thread.
+            FanOutHandler.acknowledging("manual-group", (record, ack) -> lateAcks.add(ack))));
+        TopicPartition partition = new TopicPartition(KafkaTopicConfig.DEMO_MESSAGES_TOPIC, 0);
+
+        dispatcher.dispatch(List.of(keyedRecord("k", 10L), keyedRecord("k", 11L), keyedRecord("k", 12L)), consumer);
+
+        assertEquals(11L, dispatcher.position("partial-group", partition));
+        assertEquals(10L, dispatcher.position("broken-group", partition));
+        assertEquals(10L, dispatcher.position("manual-group", partition));
+        verify(consumer).seek(partition, 10L);
+        CompletableFuture.runAsync(() -> lateAcks.forEach(Acknowledgment::acknowledge)).get(5, TimeUnit.SECONDS);
+        assertEquals(13L, dispatcher.position("manual-group", partition));
+    }
+
+    @Test
+    void fanOutDispatcherShouldRedeliverFailedBatchRecordsUntilTheyAreDeadLettered() {
+        List<Long> recordsSeen = new CopyOnWriteArrayList<>();
+        List<Long> manualSeen = new CopyOnWriteArrayList<>();
+        List<List<Long>> batchesSeen = new CopyOnWriteArrayList<>();
+        FanOutDispatcher dispatcher = fanOutDispatcher(List.of(
+            FanOutHandler.records("records-group", record -> recordsSeen.add(record.offset())),
+            FanOutHandler.acknowledging("manual-group", (record, ack) -> manualSeen.add(record.offset())),
+            FanOutHandler.batch("batch-group", records -> {
+                batchesSeen.add(records.stream().map(ConsumerRecord::offset).toList());
+                records.stream()
+                    .filter(record -> record.offset() == 11L)
+                    .findFirst()
+                    .ifPresent(record -> {
+                        throw new BatchListenerFailedException("poison record", record);
+                    });
+            })));
+        ReflectionTestUtils.setField(dispatcher, "batchMaxAttempts", 2);
+        TopicPartition partition = new TopicPartition(KafkaTopicConfig.DEMO_MESSAGES_TOPIC, 0);
+
+        dispatcher.dispatch(List.of(keyedRecord("k", 10L), keyedRecord("k", 11L), keyedRecord("k", 12L)), consumer);
+
+        assertEquals(11L, dispatcher.position("batch-group", partition));
+        verify(consumer).seek(partition, 11L);
+        verify(dlqKafkaTemplate, never()).send(any(ProducerRecord.class));
+
+        // The seek redelivers from the failing record; a later successful batch must not move past it unrecovered.
+        dispatcher.dispatch(List.of(keyedRecord("k", 11L), keyedRecord("k", 12L), keyedRecord("k", 13L)), consumer);
+
+        assertEquals(List.of(List.of(10L, 11L, 12L), List.of(11L, 12L, 13L)), batchesSeen);
+        assertEquals(List.of(10L, 11L, 12L, 13L), recordsSeen);
+        assertEquals(List.of(10L, 11L, 12L, 13L), manualSeen);
+        ArgumentCaptor<ProducerRecord<byte[], byte[]>> deadLetter = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(dlqKafkaTemplate).send(deadLetter.capture());
+        assertEquals("11", new String(deadLetter.getValue().headers().lastHeader(DlqPublisher.ORIGINAL_OFFSET_HEADER).value(), StandardCharsets.UTF_8));
+        // Only the dead-lettered record counts as consumed; 12 and 13 come back once more for the batch handler.
+        assertEquals(12L, dispatcher.position("batch-group", partition));
+        verify(consumer).seek(partition, 12L);
+    }
+
+    @Test
+    void adaptivePollSizerShouldTargetHeadroomOfPollInterval() {
+        // 1 s per record against the default 300 s max.poll.interval.ms and 0.5 headroom: 150 records per poll.
+        pollSizer.observe(BatchConsumer.LISTENER_ID, batchOf(10, -1), 10_000_000_000L);
+        assertEquals(150, pollSizer.targetRecords(BatchConsumer.LISTENER_ID));
+
+        // Fast records are capped at max-records instead of growing without bound.
+        for (int i = 0; i < 20; i++) {
+            pollSizer.observe(BatchConsumer.LISTENER_ID, batchOf(10, -1), 10_000L);
+        }
+        assertEquals(1000, pollSizer.targetRecords(BatchConsumer.LISTENER_ID));
+        // Disabled by default: sizes are tracked and exported, but never applied.
+        assertEquals(500, pollSizer.currentRecords(BatchConsumer.LISTENER_ID));
+        verify(container, never()).stop();
+    }
+
+    @Test
+    void adaptivePollSizerShouldRestartContainerWithNewPollSizeAfterWarmUp() {
+        ReflectionTestUtils.setField(pollSizer, "enabled", true);
+        ContainerProperties properties = new ContainerProperties(KafkaTopicConfig.DEMO_MESSAGES_TOPIC);
+        when(container.getContainerProperties()).thenReturn(properties);
+        when(container.isRunning()).thenReturn(true);
+
+        for (int i = 0; i < 5; i++) {
+            pollSizer.observe(BatchConsumer.LISTENER_ID, batchOf(10, -1), 10_000_000_000L);
+        }
+
+        verify(container, timeout(1000)).start();
+        verify(container).stop();
+        assertEquals("150", properties.getKafkaConsumerProperties().getProperty("max.poll.records"));
+        // The restarter records the new size right after start() returns, on its own thread.
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (pollSizer.currentRecords(BatchConsumer.LISTENER_ID) != 150 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertEquals(150, pollSizer.currentRecords(BatchConsumer.LISTENER_ID));
+    }
+
+    @Test
+    void lagAwareModeControllerShouldApplyHysteresis() {
+        LagAwareModeController controller = new LagAwareModeController();
+
+        assertEquals(LagAwareModeController.Mode.RECORD, controller.next(LagAwareModeController.Mode.RECORD, 4_000L));
+        assertEquals(LagAwareModeController.Mode.BATCH, controller.next(LagAwareModeController.Mode.RECORD, 6_000L));
+        // Between the thresholds the current mode wins, whichever it is.
+        assertEquals(LagAwareModeController.Mode.BATCH, controller.next(LagAwareModeController.Mode.BATCH, 1_000L));
+        assertEquals(LagAwareModeController.Mode.RECORD, controller.next(LagAwareModeController.Mode.BATCH, 400L));
+    }
+
+    @Test
+    void lagAwareModeControllerShouldSwapToCatchUpContainerWhenPartitionLagIsHigh() {
+        LagAwareModeController controller = new LagAwareModeController();
+        ReflectionTestUtils.setField(controller, "registry", registry);
+        MessageListenerContainer catchUpContainer = mock(MessageListenerContainer.class);
+        when(registry.getListenerContainer(SimpleConsumer.LISTENER_ID)).thenReturn(container);
+        when(registry.getListenerContainer(SimpleConsumer.CATCH_UP_LISTENER_ID)).thenReturn(catchUpContainer);
+        when(container.isRunning()).thenReturn(true);
+        Metric lag = mock(Metric.class);
+        when(lag.metricValue()).thenReturn(6_000.0);
+        MetricName lagName = new MetricName("records-lag", "consumer-fetch-manager-metrics", "",
+            Map.of("topic", KafkaTopicConfig.DEMO_MESSAGES_TOPIC, "partition", "0"));
+        doReturn(Map.of("consumer-simple-consumer-group-1", Map.of(lagName, lag))).when(container).metrics();
+
+        controller.check();
+
+        ArgumentCaptor<Runnable> afterStop = ArgumentCaptor.forClass(Runnable.class);
+        verify(container).stop(afterStop.capture());
+        verify(catchUpContainer, never()).start();
+        afterStop.getValue().run();
+        verify(catchUpContainer).start();
+        assertEquals(LagAwareModeController.Mode.BATCH, controller.mode());
+    }
+
+    @Test
+    void hashedTimerWheelShouldFireTimeoutsInDeadlineOrder() throws InterruptedException {
+        List<Integer> fired = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(3);
+        try (HashedTimerWheel wheel = new HashedTimerWheel("test-wheel", 5, 8)) {
+            // 120ms is several rotations of an 8-bucket, 5ms wheel, so it exercises the round counter too.
+            wheel.schedule(120, () -> { fired.add(3); done.countDown(); });
+            wheel.schedule(10, () -> { fired.add(1); done.countDown(); });
+            wheel.schedule(45, () -> { fired.add(2); done.countDown(); });
+
+            assertTrue(done.await(2, TimeUnit.SECONDS));
+            assertEquals(List.of(1, 2, 3), fired);
+            assertEquals(0, wheel.pendingTimeouts());
+        }
+    }
+
+    private ConsumerRecord<String, DemoTransaction> retryRecord(String topic, int attempts, long dueAt) {
+        DemoTransaction transaction = validTransaction("RETRY");
+        ConsumerRecord<String, DemoTransaction> retryRecord = new ConsumerRecord<>(topic, 0, 0L, transaction.getSourceId(), transaction);
+        retryRecord.headers()
+            .add(ErrorHandlingConsumer.RETRY_ATTEMPTS_HEADER, String.valueOf(attempts).getBytes(StandardCharsets.UTF_8))
+            .add(ErrorHandlingConsumer.RETRY_DUE_AT_HEADER, String.valueOf(dueAt).getBytes(StandardCharsets.UTF_8));
+        return retryRecord;
+    }
+
+    @SuppressWarnings("unchecked")
+    private ProducerRecord<byte[], byte[]> dlqRecord() {
+        ArgumentCaptor<ProducerRecord<byte[], byte[]>> captor = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(dlqKafkaTemplate).send(captor.capture());
+        return captor.getValue();
+    }
+
+    private String header(ProducerRecord<?, ?> record, String name) {
+        return new String(record.headers().lastHeader(name).value(), StandardCharsets.UTF_8);
+    }
+
+    private FanOutDispatcher fanOutDispatcher(List<FanOutHandler> handlers) {
+        FanOutDispatcher dispatcher = new FanOutDispatcher(handlers);
+        ReflectionTestUtils.setField(dispatcher, "retryTracker", retryTracker);
+        ReflectionTestUtils.setField(dispatcher, "dlqPublisher", new DlqPublisher(dlqKafkaTemplate, SerializationFormat.JSON));
+        return dispatcher;
+    }
+
+    private ConsumerRecord<String, DemoTransaction> keyedRecord(String key, long offset) {
+        return new ConsumerRecord<>(KafkaTopicConfig.DEMO_MESSAGES_TOPIC, 0, offset, key, validTransaction("OK"));
+    }
+
+    private void enableAccumulation(int targetSize, long maxLingerMs) {
+        ReflectionTestUtils.setField(batchConsumer, "accumulateEnabled", true);
+        ReflectionTestUtils.setField(batchConsumer, "accumulateTargetSize", targetSize);
+        ReflectionTestUtils.setField(batchConsumer, "accumulateMaxLingerMs", maxLingerMs);
+    }
+
+    private List<ConsumerRecord<String, DemoTransaction>> batchOf(int size, int failingIndex) {
+        List<ConsumerRecord<String, DemoTransaction>> records = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            records.add(record(validTransaction(i == failingIndex ? "FAIL_BATCH" : "BATCH-" + i), i));
+        }
+        return records;
     }
 
     private ConsumerRecord<String, DemoTransaction> record(DemoTransaction transaction, long offset) {
@@ -3,9 +3,11 @@ package io.github.serkutyildirim.kafka.producer;
 import io.github.serkutyildirim.kafka.model.DemoTransaction;
 import io.github.serkutyildirim.kafka.model.MessageStatus;
 import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.KafkaException;
 import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.errors.SerializationException;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.kafka.core.KafkaOperations;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
@@ -17,6 +19,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -25,6 +28,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -39,6 +43,7 @@ class ProducerPatternsTest {
 
         SimpleProducer producer = new SimpleProducer();
         ReflectionTestUtils.setField(producer, "kafkaTemplate", kafkaTemplate);
+        ReflectionTestUtils.setField(producer, "limiter", new AdaptiveConcurrencyLimiter());
 
         DemoTransaction transaction = sampleTransaction();
         assertDoesNotThrow(() -> producer.send(transaction));
@@ -46,6 +51,21 @@ class ProducerPatternsTest {
         verify(kafkaTemplate).send(eq("demo-messages"), eq(transaction));
     }
 
+    @Test
+    void simpleProducerShouldRethrowAndFreeTheSlotWhenTheRecordIsNotDispatched() {
+        KafkaTemplate<String, DemoTransaction> kafkaTemplate = mock(KafkaTemplate.class);
+        when(kafkaTemplate.send(anyString(), any(DemoTransaction.class)))
+                .thenThrow(new SerializationException("cannot serialize"));
+
+        SimpleProducer producer = new SimpleProducer();
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter();
+        ReflectionTestUtils.setField(producer, "kafkaTemplate", kafkaTemplate);
+        ReflectionTestUtils.setField(producer, "limiter", limiter);
+
+        assertThrows(SerializationException.class, () -> producer.send(sampleTransaction()));
+        assertEquals(0, limiter.getInFlight());
+    }
+
     @Test
     void reliableProducerShouldReturnBrokerConfirmation() throws Exception {
         KafkaTemplate<String, DemoTransaction> kafkaTemplate = mock(KafkaTemplate.class);
@@ -64,6 +84,33 @@ class ProducerPatternsTest {
         assertSame(sendResult, actual);
     }
 
+    @Test
+    void reliableProducerShouldConfirmEachMessageOfABatchWithoutFlushing() throws Exception {
+        KafkaTemplate<String, DemoTransaction> kafkaTemplate = mock(KafkaTemplate.class);
+        @SuppressWarnings("unchecked")
+        SendResult<String, DemoTransaction> sendResult = mock(SendResult.class);
+        RecordMetadata metadata = new RecordMetadata(new TopicPartition("demo-messages", 0), 0, 5, 0L, 0, 0);
+        when(sendResult.getRecordMetadata()).thenReturn(metadata);
+        when(kafkaTemplate.send(anyString(), any(DemoTransaction.class)))
+                .thenReturn(CompletableFuture.completedFuture(sendResult))
+                .thenThrow(new SerializationException("boom"))
+                .thenReturn(CompletableFuture.completedFuture(sendResult));
+
+        ReliableProducer producer = new ReliableProducer();
+        ReflectionTestUtils.setField(producer, "kafkaTemplate", kafkaTemplate);
+
+        BatchConfirmation confirmation = producer.sendAllWithConfirmation(
+                List.of(sampleTransaction(), sampleTransaction(), sampleTransaction()));
+
+        assertEquals(2, confirmation.confirmedCount());
+        assertSame(metadata, confirmation.confirmations().get(0).metadata());
+        assertEquals(1, confirmation.failures().size());
+        assertEquals(1, confirmation.failures().get(0).index());
+        assertTrue(confirmation.failures().get(0).failure() instanceof SerializationException);
+        verify(kafkaTemplate, times(3)).send(anyString(), any(DemoTransaction.class));
+        verify(kafkaTemplate, never()).flush();
+    }
+
     @Test
     void asyncProducerShouldReturnFailedFutureWhenSerializationFailsImmediately() {
         KafkaTemplate<String, DemoTransaction> kafkaTemplate = mock(KafkaTemplate.class);
@@ -72,6 +119,7 @@ class ProducerPatternsTest {
 
         AsyncProducer producer = new AsyncProducer();
         ReflectionTestUtils.setField(producer, "kafkaTemplate", kafkaTemplate);
+        ReflectionTestUtils.setField(producer, "limiter", new AdaptiveConcurrencyLimiter());
 
         CompletableFuture<SendResult<String, DemoTransaction>> future = producer.sendAsync(sampleTransaction());
 
@@ -79,6 +127,84 @@ class ProducerPatternsTest {
         assertThrows(ExecutionException.class, future::get);
     }
 
+    @Test
+    void asyncProducerShouldShedLoadWhenInFlightLimitIsReached() {
+        KafkaTemplate<String, DemoTransaction> kafkaTemplate = mock(KafkaTemplate.class);
+        CompletableFuture<SendResult<String, DemoTransaction>> pendingAck = new CompletableFuture<>();
+        when(kafkaTemplate.send(anyString(), any(DemoTransaction.class))).thenReturn(pendingAck);
+
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter();
+        ReflectionTestUtils.setField(limiter, "initialLimit", 1);
+        ReflectionTestUtils.setField(limiter, "minLimit", 1);
+        AsyncProducer producer = new AsyncProducer();
+        ReflectionTestUtils.setField(producer, "kafkaTemplate", kafkaTemplate);
+        ReflectionTestUtils.setField(producer, "limiter", limiter);
+
+        producer.sendAsync(sampleTransaction());
+        assertThrows(ProducerOverloadedException.class, () -> producer.sendAsync(sampleTransaction()));
+        verify(kafkaTemplate, times(1)).send(anyString(), any(DemoTransaction.class));
+
+        // The acknowledgement frees the slot, and a fast ack on a saturated limiter raises the limit.
+        pendingAck.complete(mock(SendResult.class));
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(2, limiter.getLimit());
+        assertDoesNotThrow(() -> producer.sendAsync(sampleTransaction()));
+    }
+
+    @Test
+    void adaptiveLimiterShouldBackOffMultiplicativelyOnFailures() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter();
+        ReflectionTestUtils.setField(limiter, "initialLimit", 100);
+        ReflectionTestUtils.setField(limiter, "minLimit", 10);
+
+        // Each send starts after the previous cut, so every failure is a new round trip.
+        for (int i = 0; i < 3; i++) {
+            limiter.onDropped(limiter.acquire());
+        }
+        assertEquals(72, limiter.getLimit());
+
+        for (int i = 0; i < 50; i++) {
+            limiter.onDropped(limiter.acquire());
+        }
+        assertEquals(10, limiter.getLimit());
+
+        // Slots released without a verdict (e.g. serialization errors) leave the limit untouched.
+        limiter.acquire();
+        limiter.onIgnore();
+        assertEquals(10, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void adaptiveLimiterShouldCutOnlyOncePerRoundTripForABurstOfSlowAcks() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter();
+        ReflectionTestUtils.setField(limiter, "initialLimit", 100);
+        ReflectionTestUtils.setField(limiter, "minLimit", 10);
+        // Every acknowledgement counts as slow.
+        ReflectionTestUtils.setField(limiter, "latencyThresholdMs", -1L);
+
+        long[] burst = new long[50];
+        for (int i = 0; i < burst.length; i++) {
+            burst[i] = limiter.acquire();
+        }
+        for (long startNanos : burst) {
+            limiter.onSuccess(startNanos);
+        }
+        // One stalled round trip is one congestion signal, not 50: 100 * 0.9.
+        assertEquals(90, limiter.getLimit());
+
+        // A failure of a send that was in flight during the cut belongs to the same round trip.
+        long inFlightDuringCut = burst[0];
+        limiter.acquire();
+        limiter.onDropped(inFlightDuringCut);
+        assertEquals(90, limiter.getLimit());
+
+        // A send issued after the cut is the next round trip and may cut again.
+        limiter.onSuccess(limiter.acquire());
+        assertEquals(81, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
     @Test
     void partitionedProducerShouldSendUsingProvidedKey() {
         KafkaTemplate<String, DemoTransaction> kafkaTemplate = mock(KafkaTemplate.class);
@@ -117,12 +243,171 @@ class ProducerPatternsTest {
         verify(operations, times(2)).send(eq("demo-messages"), anyString(), any(DemoTransaction.class));
     }
 
+    @Test
+    void pipelinedTransactionalSendShouldAwaitWithoutFlushingAndReportEveryRecord() {
+        KafkaTemplate<String, DemoTransaction> kafkaTemplate = mock(KafkaTemplate.class);
+        @SuppressWarnings("unchecked")
+        KafkaOperations<String, DemoTransaction> operations = mock(KafkaOperations.class);
+        RecordMetadata metadata = new RecordMetadata(new TopicPartition("demo-messages", 2), 0, 7, 0L, 0, 0);
+        @SuppressWarnings("unchecked")
+        SendResult<String, DemoTransaction> sendResult = mock(SendResult.class);
+        when(sendResult.getRecordMetadata()).thenReturn(metadata);
+        when(operations.send(anyString(), anyString(), any(DemoTransaction.class)))
+                .thenReturn(CompletableFuture.completedFuture(sendResult));
+        when(kafkaTemplate.executeInTransaction(any())).thenAnswer(invocation -> {
+            KafkaOperations.OperationsCallback<String, DemoTransaction, Boolean> callback = invocation.getArgument(0);
+            return callback.doInOperations(operations);
+        });
+
+        TransactionalProducer producer = new TransactionalProducer();
+        ReflectionTestUtils.setField(producer, "transactionalKafkaTemplate", kafkaTemplate);
+
+        TransactionalSendResult result = producer.sendTransactionalPipelined(
+                List.of(sampleTransaction(), sampleTransaction(), sampleTransaction()));
+
+        assertTrue(result.committed());
+        assertEquals(3, result.outcomes().size());
+        assertTrue(result.failures().isEmpty());
+        assertEquals(2, result.outcomes().get(0).partition());
+        assertEquals(7L, result.outcomes().get(2).offset());
+        verify(operations, times(3)).send(eq("demo-messages"), anyString(), any(DemoTransaction.class));
+        verify(operations, never()).flush();
+    }
+
+    @Test
+    void pipelinedTransactionalSendShouldAbortAndReportFailedRecord() {
+        KafkaTemplate<String, DemoTransaction> kafkaTemplate = mock(KafkaTemplate.class);
+        @SuppressWarnings("unchecked")
+        KafkaOperations<String, DemoTransaction> operations = mock(KafkaOperations.class);
+        when(operations.send(anyString(), anyString(), any(DemoTransaction.class)))
+                .thenReturn(CompletableFuture.completedFuture(mock(SendResult.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")))
+                .thenReturn(CompletableFuture.completedFuture(mock(SendResult.class)));
+        when(kafkaTemplate.executeInTransaction(any())).thenAnswer(invocation -> {
+            KafkaOperations.OperationsCallback<String, DemoTransaction, Boolean> callback = invocation.getArgument(0);
+            return callback.doInOperations(operations);
+        });
+
+        TransactionalProducer producer = new TransactionalProducer();
+        ReflectionTestUtils.setField(producer, "transactionalKafkaTemplate", kafkaTemplate);
+
+        TransactionalSendResult result = producer.sendTransactionalPipelined(
+                List.of(sampleTransaction(), sampleTransaction(), sampleTransaction()));
+
+        assertFalse(result.committed());
+        assertEquals(3, result.failures().size());
+        assertTrue(result.failures().get(0).error().startsWith("Aborted"));
+        assertTrue(result.failures().get(1).error().contains("broker down"));
+        assertTrue(result.failures().get(2).error().startsWith("Aborted"));
+    }
+
+    @Test
+    void pipelinedTransactionalSendShouldReportAcknowledgedRecordsAsAbortedWhenCommitFails() {
+        KafkaTemplate<String, DemoTransaction> kafkaTemplate = mock(KafkaTemplate.class);
+        @SuppressWarnings("unchecked")
+        KafkaOperations<String, DemoTransaction> operations = mock(KafkaOperations.class);
+        when(operations.send(anyString(), anyString(), any(DemoTransaction.class)))
+                .thenReturn(CompletableFuture.completedFuture(mock(SendResult.class)));
+        when(kafkaTemplate.executeInTransaction(any())).thenAnswer(invocation -> {
+            KafkaOperations.OperationsCallback<String, DemoTransaction, Boolean> callback = invocation.getArgument(0);
+            callback.doInOperations(operations);
+            throw new KafkaException("commit failed");
+        });
+
+        TransactionalProducer producer = new TransactionalProducer();
+        ReflectionTestUtils.setField(producer, "transactionalKafkaTemplate", kafkaTemplate);
+
+        TransactionalSendResult result = producer.sendTransactionalPipelined(List.of(sampleTransaction(), sampleTransaction()));
+
+        assertFalse(result.committed());
+        assertEquals(2, result.failures().size());
+        assertTrue(result.outcomes().stream().allMatch(outcome -> outcome.error().startsWith("Aborted") && outcome.offset() == -1L));
+    }
+
+    @Test
+    void transactionalProducerShouldStopSendingAfterSynchronousSerializationFailure() {
+        KafkaTemplate<String, DemoTransaction> kafkaTemplate = mock(KafkaTemplate.class);
+        @SuppressWarnings("unchecked")
+        KafkaOperations<String, DemoTransaction> operations = mock(KafkaOperations.class);
+        when(operations.send(anyString(), anyString(), any(DemoTransaction.class)))
+                .thenThrow(new SerializationException("boom"));
+        when(kafkaTemplate.executeInTransaction(any())).thenAnswer(invocation -> {
+            KafkaOperations.OperationsCallback<String, DemoTransaction, Boolean> callback = invocation.getArgument(0);
+            return callback.doInOperations(operations);
+        });
+
+        TransactionalProducer producer = new TransactionalProducer();
+        ReflectionTestUtils.setField(producer, "transactionalKafkaTemplate", kafkaTemplate);
+
+        TransactionalSendResult result = producer.sendTransactionalPipelined(List.of(sampleTransaction(), sampleTransaction()));
+
+        assertFalse(result.committed());
+        assertEquals(2, result.failures().size());
+        assertTrue(result.failures().get(1).error().startsWith("Not sent"));
+        verify(operations, times(1)).send(eq("demo-messages"), anyString(), any(DemoTransaction.class));
+    }
+
     @Test
     void transactionalProducerShouldRejectEmptyBatch() {
         TransactionalProducer producer = new TransactionalProducer();
         assertFalse(producer.sendTransactional(List.of()));
     }
 
+    @Test
+    void groupCommitterShouldCoalesceConcurrentBatchesIntoOneTransaction() {
+        TransactionalProducer transactionalProducer = mock(TransactionalProducer.class);
+        when(transactionalProducer.sendTransactionalPipelined(any()))
+                .thenReturn(new TransactionalSendResult(true, List.of()));
+        TransactionGroupCommitter committer = groupCommitter(transactionalProducer);
+
+        try {
+            CompletableFuture<Boolean> first = committer.submit(List.of(sampleTransaction(), sampleTransaction()));
+            CompletableFuture<Boolean> second = committer.submit(List.of(sampleTransaction()));
+
+            assertTrue(first.join());
+            assertTrue(second.join());
+        } finally {
+            committer.stop();
+        }
+
+        ArgumentCaptor<List<DemoTransaction>> combined = ArgumentCaptor.forClass(List.class);
+        verify(transactionalProducer, times(1)).sendTransactionalPipelined(combined.capture());
+        assertEquals(3, combined.getValue().size());
+        verify(transactionalProducer, never()).sendTransactional(any());
+    }
+
+    @Test
+    void groupCommitterShouldRetryEachCallerAloneWhenSharedTransactionAborts() {
+        TransactionalProducer transactionalProducer = mock(TransactionalProducer.class);
+        when(transactionalProducer.sendTransactionalPipelined(any()))
+                .thenReturn(new TransactionalSendResult(false, List.of()));
+        List<DemoTransaction> good = List.of(sampleTransaction());
+        List<DemoTransaction> bad = List.of(sampleTransaction(), sampleTransaction());
+        when(transactionalProducer.sendTransactional(good)).thenReturn(true);
+        when(transactionalProducer.sendTransactional(bad)).thenReturn(false);
+        TransactionGroupCommitter committer = groupCommitter(transactionalProducer);
+
+        try {
+            CompletableFuture<Boolean> goodResult = committer.submit(good);
+            CompletableFuture<Boolean> badResult = committer.submit(bad);
+
+            assertTrue(goodResult.join());
+            assertFalse(badResult.join());
+        } finally {
+            committer.stop();
+        }
+    }
+
+    private TransactionGroupCommitter groupCommitter(TransactionalProducer transactionalProducer) {
+        TransactionGroupCommitter committer = new TransactionGroupCommitter();
+        ReflectionTestUtils.setField(committer, "transactionalProducer", transactionalProducer);
+        ReflectionTestUtils.setField(committer, "enabled", true);
+        // Long enough that both submits in a test land in the same group, even on a slow CI runner.
+        ReflectionTestUtils.setField(committer, "maxWaitMs", 500L);
+        committer.start();
+        return committer;
+    }
+
     private DemoTransaction sampleTransaction() {
         return DemoTransaction.builder()
                 .sourceId("ACC-001")
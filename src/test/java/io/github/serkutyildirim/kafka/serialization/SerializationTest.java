@@ -0,0 +1,369 @@
+package io.github.serkutyildirim.kafka.serialization;
+
+import io.github.serkutyildirim.kafka.model.BaseMessage;
+import io.github.serkutyildirim.kafka.model.DemoNotification;
+import io.github.serkutyildirim.kafka.model.DemoTransaction;
+import io.github.serkutyildirim.kafka.model.MessageStatus;
+import io.github.serkutyildirim.kafka.model.NotificationType;
+import io.github.serkutyildirim.kafka.model.Priority;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SerializationTest {
+
+    private static final String TOPIC = "demo-messages";
+
+    @Test
+    void binaryTransactionShouldRoundTripAllFields() {
+        DemoTransaction transaction = sampleTransaction();
+
+        BaseMessage decoded = BinaryMessageCodec.decode(new BinaryMessageSerializer().serialize(TOPIC, transaction));
+
+        DemoTransaction result = assertInstanceOf(DemoTransaction.class, decoded);
+        assertEquals(transaction.getMessageId(), result.getMessageId());
+        assertEquals(transaction.getTimestamp().truncatedTo(ChronoUnit.MICROS), result.getTimestamp());
+        assertEquals("ACC-001", result.getSourceId());
+        assertEquals("ACC-002", result.getTargetId());
+        assertEquals(new BigDecimal("-1234.5600"), result.getAmount());
+        assertEquals("EUR", result.getCurrency());
+        assertEquals(MessageStatus.PROCESSING, result.getStatus());
+        assertEquals("Ödeme — order #12345", result.getDescription());
+        assertEquals("DEMO_TRANSACTION", result.getMessageType());
+    }
+
+    @Test
+    void binaryNotificationShouldRoundTripAllFields() {
+        DemoNotification notification = DemoNotification.builder()
+            .recipientId("user-123")
+            .content("Payment processed successfully")
+            .notificationType(NotificationType.PUSH)
+            .priority(Priority.HIGH)
+            .build();
+
+        DemoNotification result = assertInstanceOf(DemoNotification.class,
+            BinaryMessageCodec.decode(BinaryMessageCodec.encode(notification)));
+
+        assertEquals(notification.getMessageId(), result.getMessageId());
+        assertEquals("user-123", result.getRecipientId());
+        assertEquals("Payment processed successfully", result.getContent());
+        assertEquals(NotificationType.PUSH, result.getNotificationType());
+        assertEquals(Priority.HIGH, result.getPriority());
+    }
+
+    @Test
+    void binaryShouldPreserveNullFields() {
+        DemoTransaction transaction = DemoTransaction.builder()
+            .messageId(null)
+            .timestamp(null)
+            .sourceId("ACC-001")
+            .build();
+
+        DemoTransaction result = (DemoTransaction) BinaryMessageCodec.decode(BinaryMessageCodec.encode(transaction));
+
+        assertNull(result.getMessageId());
+        assertNull(result.getTimestamp());
+        assertEquals("ACC-001", result.getSourceId());
+        assertNull(result.getTargetId());
+        assertNull(result.getAmount());
+        assertNull(result.getCurrency());
+        assertNull(result.getStatus());
+        assertNull(result.getDescription());
+    }
+
+    @Test
+    void binaryShouldTruncateTimestampToMicroseconds() {
+        DemoTransaction transaction = sampleTransaction().toBuilder()
+            .timestamp(Instant.parse("2024-05-01T10:15:30.123456789Z"))
+            .build();
+
+        DemoTransaction result = (DemoTransaction) BinaryMessageCodec.decode(BinaryMessageCodec.encode(transaction));
+
+        assertEquals(Instant.parse("2024-05-01T10:15:30.123456Z"), result.getTimestamp());
+    }
+
+    @Test
+    void binaryPayloadShouldBeMuchSmallerThanJson() {
+        DemoTransaction transaction = sampleTransaction();
+
+        byte[] binary = BinaryMessageCodec.encode(transaction);
+        byte[] json;
+        try (JsonSerializer<DemoTransaction> serializer = new JsonSerializer<>()) {
+            json = serializer.serialize(TOPIC, transaction);
+        }
+
+        assertTrue(binary.length * 2 < json.length,
+            "binary=" + binary.length + " bytes should be less than half of json=" + json.length + " bytes");
+    }
+
+    @Test
+    void deserializerShouldFallBackToJsonForLegacyRecords() {
+        DemoTransaction transaction = sampleTransaction();
+        byte[] json;
+        try (JsonSerializer<DemoTransaction> serializer = new JsonSerializer<>()) {
+            json = serializer.serialize(TOPIC, transaction);
+        }
+
+        try (BinaryMessageDeserializer deserializer = new BinaryMessageDeserializer()) {
+            deserializer.configure(Map.of(
+                JsonDeserializer.TRUSTED_PACKAGES, "*",
+                JsonDeserializer.VALUE_DEFAULT_TYPE, DemoTransaction.class), false);
+
+            BaseMessage fromJson = deserializer.deserialize(TOPIC, json);
+            BaseMessage fromBinary = deserializer.deserialize(TOPIC, BinaryMessageCodec.encode(transaction));
+
+            assertEquals(transaction.getMessageId(), fromJson.getMessageId());
+            assertEquals(transaction.getMessageId(), fromBinary.getMessageId());
+            assertNull(deserializer.deserialize(TOPIC, null));
+        }
+    }
+
+    @Test
+    void decodeShouldRejectUnknownVersionAndTruncatedPayloads() {
+        byte[] payload = BinaryMessageCodec.encode(sampleTransaction());
+        byte[] futureVersion = payload.clone();
+        futureVersion[1] = (byte) (BinaryMessageCodec.VERSION + 1);
+
+        assertThrows(SerializationException.class, () -> BinaryMessageCodec.decode(futureVersion));
+        assertThrows(SerializationException.class, () -> BinaryMessageCodec.decode(Arrays.copyOf(payload, payload.length - 3)));
+        assertNull(new BinaryMessageSerializer().serialize(TOPIC, null));
+    }
+
+    @Test
+    void decodeShouldRejectCorruptLengthPrefixes() {
+        DemoTransaction transaction = DemoTransaction.builder().messageId(null).timestamp(null).sourceId("ACC-001").build();
+        byte[] payload = BinaryMessageCodec.encode(transaction);
+        byte[] negative = Arrays.copyOf(payload, BinaryMessageCodec.HEADER_SIZE + 5);
+        // Five-byte varint for -1.
+        System.arraycopy(new byte[] {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F}, 0, negative, BinaryMessageCodec.HEADER_SIZE, 5);
+        byte[] tooLong = payload.clone();
+        tooLong[BinaryMessageCodec.HEADER_SIZE] = 0x7F;
+
+        assertThrows(SerializationException.class, () -> BinaryMessageCodec.decode(negative));
+        assertThrows(SerializationException.class, () -> BinaryMessageCodec.decode(tooLong));
+        assertThrows(SerializationException.class, () -> BinaryMessageCodec.decode(ByteBuffer.allocateDirect(negative.length).put(negative).flip()));
+    }
+
+    @Test
+    void viewShouldExposeSameFieldsAsDecodedTransaction() {
+        DemoTransaction transaction = sampleTransaction();
+
+        DemoTransactionView view = DemoTransactionView.wrap(BinaryMessageCodec.encode(transaction));
+
+        assertEquals(transaction.getMessageId(), view.messageId());
+        assertEquals(transaction.getTimestamp().truncatedTo(ChronoUnit.MICROS), view.timestamp());
+        assertEquals("ACC-001", view.sourceId());
+        assertEquals("ACC-002", view.targetId());
+        assertEquals(new BigDecimal("-1234.5600"), view.amount());
+        assertEquals(-1, view.amountSignum());
+        assertEquals("EUR", view.currency());
+        assertEquals(MessageStatus.PROCESSING, view.status());
+        assertEquals("Ödeme — order #12345", view.description());
+        assertEquals(BinaryMessageCodec.decode(BinaryMessageCodec.encode(transaction)), view.toTransaction());
+    }
+
+    @Test
+    void viewPredicatesShouldWorkOnRawBytes() {
+        DemoTransaction transaction = sampleTransaction().toBuilder()
+            .amount(new BigDecimal("0.00"))
+            .description("retry then fail_manual please")
+            .build();
+
+        DemoTransactionView view = DemoTransactionView.wrap(BinaryMessageCodec.encode(transaction));
+
+        assertEquals(0, view.amountSignum());
+        assertTrue(view.descriptionContainsIgnoreCase("FAIL_MANUAL"));
+        assertFalse(view.descriptionContainsIgnoreCase("FAIL_BATCH"));
+        assertEquals(1, DemoTransactionView.wrap(BinaryMessageCodec.encode(
+            transaction.toBuilder().amount(new BigDecimal("256")).build())).amountSignum());
+    }
+
+    @Test
+    void viewShouldHandleAbsentFieldsAndBufferSlices() {
+        DemoTransaction transaction = DemoTransaction.builder()
+            .messageId(null)
+            .timestamp(null)
+            .description("FAIL_BATCH")
+            .build();
+        byte[] payload = BinaryMessageCodec.encode(transaction);
+        byte[] padded = new byte[payload.length + 10];
+        System.arraycopy(payload, 0, padded, 5, payload.length);
+
+        DemoTransactionView view = DemoTransactionView.wrap(ByteBuffer.wrap(padded, 5, payload.length).slice());
+
+        assertNull(view.messageId());
+        assertNull(view.timestamp());
+        assertNull(view.sourceId());
+        assertNull(view.amount());
+        assertEquals(0, view.amountSignum());
+        assertNull(view.status());
+        assertTrue(view.descriptionContainsIgnoreCase("fail_batch"));
+        assertEquals(payload.length, view.sizeInBytes());
+    }
+
+    @Test
+    void rawValueRetainingDeserializerShouldKeepOriginalBytesEvenWhenDecodingFails() {
+        byte[] json;
+        try (JsonSerializer<DemoTransaction> serializer = new JsonSerializer<>()) {
+            json = serializer.serialize(TOPIC, sampleTransaction());
+        }
+        byte[] malformed = "{not-json".getBytes(StandardCharsets.UTF_8);
+
+        try (ErrorHandlingDeserializer<Object> deserializer = new ErrorHandlingDeserializer<>()) {
+            deserializer.configure(Map.of(
+                ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, RawValueRetainingDeserializer.class,
+                RawValueRetainingDeserializer.DELEGATE_CLASS, JsonDeserializer.class,
+                JsonDeserializer.TRUSTED_PACKAGES, "*",
+                JsonDeserializer.VALUE_DEFAULT_TYPE, DemoTransaction.class), false);
+
+            Headers decoded = new RecordHeaders();
+            assertInstanceOf(DemoTransaction.class, deserializer.deserialize(TOPIC, decoded, json));
+            // The very array the client handed over, not a copy.
+            assertSame(json, decoded.lastHeader(RawValueRetainingDeserializer.RAW_VALUE_HEADER).value());
+
+            Headers failed = new RecordHeaders();
+            assertNull(deserializer.deserialize(TOPIC, failed, malformed));
+            assertSame(malformed, failed.lastHeader(RawValueRetainingDeserializer.RAW_VALUE_HEADER).value());
+            assertNotNull(failed.lastHeader(SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER));
+        }
+    }
+
+    @Test
+    void viewDeserializerShouldWrapBinaryAndConvertLegacyJson() {
+        DemoTransaction transaction = sampleTransaction();
+        byte[] json;
+        try (JsonSerializer<DemoTransaction> serializer = new JsonSerializer<>()) {
+            json = serializer.serialize(TOPIC, transaction);
+        }
+
+        try (DemoTransactionViewDeserializer deserializer = new DemoTransactionViewDeserializer()) {
+            deserializer.configure(Map.of(
+                JsonDeserializer.TRUSTED_PACKAGES, "*",
+                JsonDeserializer.VALUE_DEFAULT_TYPE, DemoTransaction.class), false);
+
+            assertEquals("ACC-001", deserializer.deserialize(TOPIC, BinaryMessageCodec.encode(transaction)).sourceId());
+            assertEquals("ACC-001", deserializer.deserialize(TOPIC, json).sourceId());
+            assertEquals("ACC-001", deserializer.deserialize(TOPIC, null, ByteBuffer.wrap(BinaryMessageCodec.encode(transaction))).sourceId());
+        }
+    }
+
+    @Test
+    void viewShouldRejectNonTransactionPayloads() {
+        DemoNotification notification = DemoNotification.builder().recipientId("user-123").build();
+
+        assertThrows(SerializationException.class, () -> DemoTransactionView.wrap(BinaryMessageCodec.encode(notification)));
+        assertThrows(SerializationException.class, () -> DemoTransactionView.wrap(new byte[] {'{', '}'}));
+    }
+
+    @Test
+    void viewShouldRejectCorruptStatusAndLengths() {
+        DemoTransaction transaction = DemoTransaction.builder()
+            .messageId(null)
+            .timestamp(null)
+            .sourceId("ACC-001")
+            .status(MessageStatus.PROCESSING)
+            .build();
+        byte[] payload = BinaryMessageCodec.encode(transaction);
+        byte[] badStatus = payload.clone();
+        badStatus[badStatus.length - 1] = (byte) MessageStatus.values().length;
+        byte[] negativeStatus = payload.clone();
+        negativeStatus[negativeStatus.length - 1] = -1;
+        byte[] badLength = payload.clone();
+        badLength[BinaryMessageCodec.HEADER_SIZE] = 0x7F;
+
+        assertThrows(SerializationException.class, () -> DemoTransactionView.wrap(badStatus).status());
+        assertThrows(SerializationException.class, () -> DemoTransactionView.wrap(negativeStatus).status());
+        assertThrows(SerializationException.class, () -> DemoTransactionView.wrap(badLength).sourceId());
+    }
+
+    @Test
+    void typedJsonShouldWriteTypeHeaderAndDispatchOnIt() {
+        DemoNotification notification = DemoNotification.builder()
+            .recipientId("user-123")
+            .content("Payment processed successfully")
+            .notificationType(NotificationType.EMAIL)
+            .priority(Priority.LOW)
+            .build();
+        RecordHeaders headers = new RecordHeaders();
+
+        byte[] payload = new TypedJsonSerializer().serialize(TOPIC, headers, notification);
+        BaseMessage result = new TypedJsonDeserializer().deserialize(TOPIC, headers, payload);
+
+        assertArrayEquals(new byte[] {WireMessageType.DEMO_NOTIFICATION.id()}, headers.lastHeader("message-type-id").value());
+        assertEquals(notification, result);
+    }
+
+    @Test
+    void typedJsonShouldNotNeedTypePropertyWhenHeaderIsPresent() {
+        RecordHeaders headers = new RecordHeaders();
+        headers.add("message-type-id", new byte[] {WireMessageType.DEMO_TRANSACTION.id()});
+
+        BaseMessage result = new TypedJsonDeserializer().deserialize(TOPIC, headers, "{\"sourceId\":\"ACC-001\"}".getBytes());
+
+        assertEquals("ACC-001", assertInstanceOf(DemoTransaction.class, result).getSourceId());
+    }
+
+    @Test
+    void typedJsonShouldStayCompatibleWithSpringJsonSerde() {
+        DemoTransaction transaction = sampleTransaction();
+        byte[] legacyJson;
+        try (JsonSerializer<DemoTransaction> serializer = new JsonSerializer<>()) {
+            legacyJson = serializer.serialize(TOPIC, transaction);
+        }
+        byte[] typedJson = new TypedJsonSerializer().serialize(TOPIC, new RecordHeaders(), transaction);
+
+        assertEquals(transaction, new TypedJsonDeserializer().deserialize(TOPIC, new RecordHeaders(), legacyJson));
+        try (JsonDeserializer<BaseMessage> deserializer = new JsonDeserializer<>(BaseMessage.class, false)) {
+            deserializer.addTrustedPackages("*");
+            assertEquals(transaction, deserializer.deserialize(TOPIC, typedJson));
+        }
+    }
+
+    @Test
+    void typedJsonShouldWorkWithoutBlackbird() {
+        DemoTransaction transaction = sampleTransaction();
+        TypedJsonSerializer serializer = new TypedJsonSerializer();
+        TypedJsonDeserializer deserializer = new TypedJsonDeserializer();
+        serializer.configure(Map.of(TypedJsonSerializer.BLACKBIRD_ENABLED, "false"), false);
+        deserializer.configure(Map.of(TypedJsonSerializer.BLACKBIRD_ENABLED, "false"), false);
+        RecordHeaders headers = new RecordHeaders();
+
+        assertEquals(transaction, deserializer.deserialize(TOPIC, headers, serializer.serialize(TOPIC, headers, transaction)));
+    }
+
+    @Test
+    void typedJsonMappersShouldBeBuiltOncePerBlackbirdSetting() {
+        Map<String, Object> disabled = Map.of(TypedJsonSerializer.BLACKBIRD_ENABLED, false);
+
+        assertSame(TypedJsonSupport.baseMapper(Map.of()), TypedJsonSupport.baseMapper(Map.of(TypedJsonSerializer.BLACKBIRD_ENABLED, "true")));
+        assertSame(TypedJsonSupport.concreteTypeMapper(disabled), TypedJsonSupport.concreteTypeMapper(disabled));
+        assertNotSame(TypedJsonSupport.baseMapper(Map.of()), TypedJsonSupport.baseMapper(disabled));
+        assertNotSame(TypedJsonSupport.baseMapper(disabled), TypedJsonSupport.concreteTypeMapper(disabled));
+    }
+
+    private DemoTransaction sampleTransaction() {
+        return DemoTransaction.builder()
+            .sourceId("ACC-001")
+            .targetId("ACC-002")
+            .amount(new BigDecimal("-1234.5600"))
+            .currency("EUR")
+            .status(MessageStatus.PROCESSING)
+            .description("Ödeme — order #12345")
+            .build();
+    }
+}
@@ -0,0 +1,223 @@
+package io.github.serkutyildirim.kafka.service;
+
+import io.github.serkutyildirim.kafka.config.KafkaTopicConfig;
+import io.github.serkutyildirim.kafka.consumer.DlqPublisher;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link DlqReplayService} against Kafka's {@link MockConsumer}: filters, checkpoints, and the rate limit.
+ */
+@ExtendWith(MockitoExtension.class)
+class DlqReplayServiceTest {
+
+    private static final TopicPartition DLQ_PARTITION = new TopicPartition(KafkaTopicConfig.DEMO_DLQ_TOPIC, 0);
+
+    @Mock
+    private ConsumerFactory<byte[], byte[]> consumerFactory;
+
+    @Mock
+    private KafkaTemplate<byte[], byte[]> replayTemplate;
+
+    private ReplayReader reader;
+    private DlqReplayService service;
+
+    @BeforeEach
+    void setUp() {
+        MockConsumer<byte[], byte[]> probe = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        probe.updatePartitions(KafkaTopicConfig.DEMO_DLQ_TOPIC,
+            List.of(new PartitionInfo(KafkaTopicConfig.DEMO_DLQ_TOPIC, 0, null, null, null)));
+        reader = new ReplayReader();
+        reader.updateBeginningOffsets(Map.of(DLQ_PARTITION, 0L));
+        reader.updateEndOffsets(Map.of(DLQ_PARTITION, 4L));
+        lenient().when(consumerFactory.createConsumer(DlqReplayService.REPLAY_GROUP_ID, "-probe")).thenReturn(probe);
+        lenient().when(consumerFactory.createConsumer(DlqReplayService.REPLAY_GROUP_ID, "-0")).thenReturn(reader);
+        lenient().when(replayTemplate.send(any(ProducerRecord.class))).thenReturn(CompletableFuture.completedFuture(null));
+        service = new DlqReplayService(consumerFactory, replayTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void replayShouldRepublishMatchingRecordsToOriginalTopicAndCheckpoint() throws Exception {
+        deadLetters(
+            deadLetter(0, IllegalArgumentException.class.getName(), KafkaTopicConfig.DEMO_MESSAGES_TOPIC),
+            deadLetter(1, IllegalStateException.class.getName(), KafkaTopicConfig.DEMO_MESSAGES_TOPIC),
+            deadLetter(2, IllegalArgumentException.class.getName(), null),
+            deadLetter(3, IllegalArgumentException.class.getName(), KafkaTopicConfig.DEMO_MESSAGES_TOPIC));
+
+        DlqReplayStatus started = service.start(
+            new DlqReplayRequest(Set.of("IllegalArgumentException"), null, null, null, 1000.0, false));
+        DlqReplayStatus finished = service.completion(started.replayId()).get(5, TimeUnit.SECONDS);
+
+        assertEquals(DlqReplayStatus.State.COMPLETED, finished.state());
+        assertEquals(4, finished.scanned());
+        assertEquals(2, finished.replayed());
+        assertEquals(1, finished.filtered());
+        assertEquals(1, finished.unroutable());
+        assertEquals(new DlqReplayStatus.PartitionProgress(0L, 4L, 4L), finished.partitions().get(0));
+
+        ArgumentCaptor<ProducerRecord<byte[], byte[]>> captor = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(replayTemplate, atLeastOnce()).send(captor.capture());
+        ProducerRecord<byte[], byte[]> first = captor.getAllValues().get(0);
+        assertEquals(KafkaTopicConfig.DEMO_MESSAGES_TOPIC, first.topic());
+        assertArrayEquals("payload-0".getBytes(StandardCharsets.UTF_8), first.value());
+        // Failure and retry bookkeeping is dropped so the record gets a fresh retry budget; tracing headers are added.
+        assertNull(first.headers().lastHeader(DlqPublisher.EXCEPTION_CLASS_HEADER));
+        assertNull(first.headers().lastHeader("retry-attempts"));
+        assertNotNull(first.headers().lastHeader("trace-id"));
+        assertEquals(started.replayId(), new String(first.headers().lastHeader(DlqReplayService.REPLAY_ID_HEADER).value(), StandardCharsets.UTF_8));
+
+        OffsetAndMetadata checkpoint = reader.committed(Set.of(DLQ_PARTITION)).get(DLQ_PARTITION);
+        assertEquals(4L, checkpoint.offset());
+        assertEquals("replay=" + started.replayId(), checkpoint.metadata());
+    }
+
+    @Test
+    void replayShouldResumeFromCheckpoint() throws Exception {
+        reader.commitSync(Map.of(DLQ_PARTITION, new OffsetAndMetadata(2L)));
+        deadLetters(
+            deadLetter(0, IllegalArgumentException.class.getName(), KafkaTopicConfig.DEMO_MESSAGES_TOPIC),
+            deadLetter(1, IllegalArgumentException.class.getName(), KafkaTopicConfig.DEMO_MESSAGES_TOPIC),
+            deadLetter(2, IllegalArgumentException.class.getName(), KafkaTopicConfig.DEMO_MESSAGES_TOPIC),
+            deadLetter(3, IllegalArgumentException.class.getName(), KafkaTopicConfig.DEMO_MESSAGES_TOPIC));
+
+        DlqReplayStatus started = service.start(DlqReplayRequest.all());
+        DlqReplayStatus finished = service.completion(started.replayId()).get(5, TimeUnit.SECONDS);
+
+        assertEquals(2, finished.scanned());
+        assertEquals(2, finished.replayed());
+        assertEquals(new DlqReplayStatus.PartitionProgress(2L, 4L, 4L), finished.partitions().get(0));
+    }
+
+    @Test
+    void replayShouldRejectSecondStartAndCheckpointOnlyConfirmedRecordsWhenStopped() throws Exception {
+        deadLetters(
+            deadLetter(0, IllegalArgumentException.class.getName(), KafkaTopicConfig.DEMO_MESSAGES_TOPIC),
+            deadLetter(1, IllegalArgumentException.class.getName(), KafkaTopicConfig.DEMO_MESSAGES_TOPIC),
+            deadLetter(2, IllegalArgumentException.class.getName(), KafkaTopicConfig.DEMO_MESSAGES_TOPIC),
+            deadLetter(3, IllegalArgumentException.class.getName(), KafkaTopicConfig.DEMO_MESSAGES_TOPIC));
+        // Burst 1 at 2 records/s: the second record waits half a second, long enough to stop the replay.
+        ReflectionTestUtils.setField(service, "burst", 1);
+
+        DlqReplayStatus started = service.start(new DlqReplayRequest(null, null, null, null, 2.0, false));
+        assertThrows(IllegalStateException.class, () -> service.start(DlqReplayRequest.all()));
+        // The second record is scanned just before its reader waits for a token.
+        while (service.status(started.replayId()).orElseThrow().scanned() < 2) {
+            Thread.sleep(5);
+        }
+        service.stop(started.replayId());
+        DlqReplayStatus finished = service.completion(started.replayId()).get(5, TimeUnit.SECONDS);
+
+        assertEquals(DlqReplayStatus.State.STOPPED, finished.state());
+        assertEquals(2, finished.replayed());
+        assertEquals(2L, reader.committed(Set.of(DLQ_PARTITION)).get(DLQ_PARTITION).offset());
+    }
+
+    @Test
+    void tokenBucketShouldSpendBurstThenSpaceReservationsAtTheRate() {
+        long[] now = {0L};
+        TokenBucket bucket = new TokenBucket(100, 2, () -> now[0]);
+
+        assertEquals(0L, bucket.reserve());
+        assertEquals(0L, bucket.reserve());
+        // 100 tokens/s means one token every 10 ms; queued reservations wait one interval longer each.
+        assertEquals(10_000_000, bucket.reserve(), 1);
+        assertEquals(20_000_000, bucket.reserve(), 1);
+
+        now[0] = 40_000_000L;
+        assertEquals(0L, bucket.reserve());
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, 1));
+    }
+
+    @SafeVarargs
+    private void deadLetters(ConsumerRecord<byte[], byte[]>... records) {
+        // Added on the first poll, once the reader has assigned the partition.
+        reader.schedulePollTask(() -> {
+            for (ConsumerRecord<byte[], byte[]> record : records) {
+                reader.addRecord(record);
+            }
+        });
+    }
+
+    private ConsumerRecord<byte[], byte[]> deadLetter(long offset, String exceptionClass, String originalTopic) {
+        ConsumerRecord<byte[], byte[]> record = new ConsumerRecord<>(KafkaTopicConfig.DEMO_DLQ_TOPIC, 0, offset,
+            ("key-" + offset).getBytes(StandardCharsets.UTF_8), ("payload-" + offset).getBytes(StandardCharsets.UTF_8));
+        record.headers()
+            .add("trace-id", "t-1".getBytes(StandardCharsets.UTF_8))
+            .add("retry-attempts", "2".getBytes(StandardCharsets.UTF_8))
+            .add(DlqPublisher.EXCEPTION_CLASS_HEADER, exceptionClass.getBytes(StandardCharsets.UTF_8));
+        if (originalTopic != null) {
+            record.headers().add(DlqPublisher.ORIGINAL_TOPIC_HEADER, originalTopic.getBytes(StandardCharsets.UTF_8));
+        }
+        return record;
+    }
+
+    /**
+     * Keeps commits across {@code assign} like the broker does for a group (MockConsumer clears them), and stays usable after
+     * the service closes it so the test can read the checkpoint.
+     */
+    private static final class ReplayReader extends MockConsumer<byte[], byte[]> {
+
+        private final Map<TopicPartition, OffsetAndMetadata> checkpoints = new HashMap<>();
+
+        private ReplayReader() {
+            super(OffsetResetStrategy.EARLIEST);
+        }
+
+        @Override
+        public synchronized void assign(Collection<TopicPartition> partitions) {
+            super.assign(partitions);
+            super.commitSync(checkpoints);
+        }
+
+        @Override
+        public synchronized void commitSync(Map<TopicPartition, OffsetAndMetadata> offsets) {
+            checkpoints.putAll(offsets);
+            super.commitSync(offsets);
+        }
+
+        @Override
+        public synchronized void close() {
+        }
+    }
+}
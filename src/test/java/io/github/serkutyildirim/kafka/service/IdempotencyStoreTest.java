@@ -0,0 +1,162 @@
+package io.github.serkutyildirim.kafka.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for {@link IdempotencyStore}: the reserve/complete/release cycle, expiry, bounded eviction, the memory-mapped
+ * file, and concurrent reservations.
+ */
+class IdempotencyStoreTest {
+
+    private static final long TTL_MS = 10_000L;
+    private static final long RESERVATION_TTL_MS = 1_000L;
+
+    @TempDir
+    Path tempDir;
+
+    private final long[] now = {1_000_000L};
+
+    @Test
+    void reserveShouldGrantOneOwnerUntilCompletedOrReleased() throws Exception {
+        IdempotencyStore store = heapStore(1024, 4);
+        UUID sent = UUID.randomUUID();
+        UUID failed = UUID.randomUUID();
+
+        assertEquals(IdempotencyStore.Reservation.ACQUIRED, store.reserve(sent));
+        assertEquals(IdempotencyStore.Reservation.IN_PROGRESS, store.reserve(sent));
+        assertTrue(store.complete(sent));
+        assertEquals(IdempotencyStore.Reservation.COMPLETED, store.reserve(sent));
+
+        assertEquals(IdempotencyStore.Reservation.ACQUIRED, store.reserve(failed));
+        store.release(failed);
+        assertEquals(IdempotencyStore.Reservation.ACQUIRED, store.reserve(failed));
+        // Releasing never forgets a completed ID.
+        store.release(sent);
+        assertEquals(IdempotencyStore.Reservation.COMPLETED, store.reserve(sent));
+    }
+
+    @Test
+    void entriesShouldExpireAfterTheirTtl() throws Exception {
+        IdempotencyStore store = heapStore(1024, 4);
+        UUID abandoned = UUID.randomUUID();
+        UUID sent = UUID.randomUUID();
+        store.reserve(abandoned);
+        store.reserve(sent);
+        store.complete(sent);
+
+        now[0] += RESERVATION_TTL_MS;
+        // The owner of an expired reservation is told it lost it, but the completion is still recorded.
+        assertEquals(IdempotencyStore.Reservation.ACQUIRED, store.reserve(abandoned));
+        now[0] += RESERVATION_TTL_MS;
+        assertFalse(store.complete(abandoned));
+        assertEquals(IdempotencyStore.Reservation.COMPLETED, store.reserve(abandoned));
+
+        assertEquals(IdempotencyStore.Reservation.COMPLETED, store.reserve(sent));
+        now[0] += TTL_MS;
+        assertEquals(IdempotencyStore.Reservation.ACQUIRED, store.reserve(sent));
+    }
+
+    @Test
+    void fullTableShouldEvictOldestCompletedIdsInsteadOfGrowing() throws Exception {
+        IdempotencyStore store = heapStore(16, 1);
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            UUID id = UUID.randomUUID();
+            ids.add(id);
+            assertEquals(IdempotencyStore.Reservation.ACQUIRED, store.reserve(id));
+            store.complete(id);
+            now[0]++;
+        }
+        UUID reserved = UUID.randomUUID();
+        store.reserve(reserved);
+
+        assertEquals(16, store.capacity());
+        // The newest IDs survive; the oldest were overwritten.
+        assertEquals(IdempotencyStore.Reservation.COMPLETED, store.reserve(ids.get(99)));
+        assertEquals(IdempotencyStore.Reservation.ACQUIRED, store.reserve(ids.get(0)));
+        // A live reservation is evicted only after every completed ID in its window.
+        assertEquals(IdempotencyStore.Reservation.IN_PROGRESS, store.reserve(reserved));
+    }
+
+    @Test
+    void fileBackedStoreShouldKeepIdsAcrossRestartsAndResetOnLayoutChange() throws Exception {
+        Path file = tempDir.resolve("idempotency/ids.dat");
+        UUID sent = UUID.randomUUID();
+        IdempotencyStore first = new IdempotencyStore(1024, 4, TTL_MS, RESERVATION_TTL_MS, file, () -> now[0]);
+        first.reserve(sent);
+        first.complete(sent);
+        first.close();
+
+        IdempotencyStore reopened = new IdempotencyStore(1024, 4, TTL_MS, RESERVATION_TTL_MS, file, () -> now[0]);
+        assertEquals(IdempotencyStore.Reservation.COMPLETED, reopened.reserve(sent));
+        reopened.close();
+
+        IdempotencyStore resized = new IdempotencyStore(2048, 4, TTL_MS, RESERVATION_TTL_MS, file, () -> now[0]);
+        assertEquals(IdempotencyStore.Reservation.ACQUIRED, resized.reserve(sent));
+        resized.close();
+    }
+
+    @Test
+    void concurrentReservationsShouldGrantEachIdExactlyOnce() throws Exception {
+        IdempotencyStore store = heapStore(8192, 16);
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            ids.add(UUID.randomUUID());
+        }
+        AtomicInteger acquired = new AtomicInteger();
+        List<Callable<Void>> workers = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            workers.add(() -> {
+                for (UUID id : ids) {
+                    if (store.reserve(id) == IdempotencyStore.Reservation.ACQUIRED) {
+                        acquired.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            for (Future<Void> future : pool.invokeAll(workers)) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(ids.size(), acquired.get());
+    }
+
+    @Test
+    void invalidSettingsShouldBeRejected() {
+        assertThrows(IllegalArgumentException.class, () -> heapStore(0, 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> new IdempotencyStore(16, 1, 0, RESERVATION_TTL_MS, null, () -> now[0]));
+        // Rounds up to 2^26 slots, which no longer fits one memory-mapped buffer; nothing is created on disk.
+        Path file = tempDir.resolve("too-large.dat");
+        assertThrows(IllegalArgumentException.class,
+                () -> new IdempotencyStore((1 << 25) + 1, 1, TTL_MS, RESERVATION_TTL_MS, file, () -> now[0]));
+        assertFalse(Files.exists(file));
+    }
+
+    private IdempotencyStore heapStore(int capacity, int stripes) throws Exception {
+        return new IdempotencyStore(capacity, stripes, TTL_MS, RESERVATION_TTL_MS, null, () -> now[0]);
+    }
+}
@@ -3,12 +3,15 @@ package io.github.serkutyildirim.kafka.service;
 import io.github.serkutyildirim.kafka.model.DemoTransaction;
 import io.github.serkutyildirim.kafka.model.MessageStatus;
 import io.github.serkutyildirim.kafka.producer.AsyncProducer;
+import io.github.serkutyildirim.kafka.producer.BatchConfirmation;
 import io.github.serkutyildirim.kafka.producer.PartitionedProducer;
 import io.github.serkutyildirim.kafka.producer.ReliableProducer;
 import io.github.serkutyildirim.kafka.producer.SimpleProducer;
+import io.github.serkutyildirim.kafka.producer.TransactionGroupCommitter;
 import io.github.serkutyildirim.kafka.producer.TransactionalProducer;
 import org.apache.kafka.clients.producer.RecordMetadata;
 import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.SerializationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -32,6 +35,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -46,8 +50,10 @@ import static org.mockito.Mockito.when;
  * <p><b>What is tested:</b></p>
  * <ul>
  *   <li>{@link KafkaService#sendSimple} — delegates to {@link SimpleProducer} after validation</li>
+ *   <li>{@link KafkaService#sendSimple} — releases the messageId when the record was not dispatched</li>
  *   <li>{@link KafkaService#sendSimple} — rejects invalid transaction before calling producer</li>
  *   <li>{@link KafkaService#sendReliable} — returns broker {@link SendResult} on success</li>
+ *   <li>{@link KafkaService#sendReliable} — rejects a duplicate messageId unless the earlier send failed</li>
  *   <li>{@link KafkaService#sendAsync} — returns {@link CompletableFuture} from {@link AsyncProducer}</li>
  *   <li>{@link KafkaService#sendBatch} — returns {@code true} on successful transactional commit</li>
  *   <li>{@link KafkaService#sendBatch} — returns {@code false} for empty list</li>
@@ -76,15 +82,21 @@ class KafkaServiceTest {
     private KafkaService kafkaService;
 
     @BeforeEach
-    void setUp() {
-        // Real validation service — no mocking needed, it has no external dependencies.
+    void setUp() throws Exception {
+        // Real validation service with a small in-memory idempotency store — no mocking needed.
         MessageValidationService validationService = new MessageValidationService();
+        ReflectionTestUtils.setField(validationService, "idempotencyStore",
+                new IdempotencyStore(1024, 4, 60_000L, 1_000L, ""));
 
         kafkaService = new KafkaService();
         ReflectionTestUtils.setField(kafkaService, "simpleProducer", simpleProducer);
         ReflectionTestUtils.setField(kafkaService, "reliableProducer", reliableProducer);
         ReflectionTestUtils.setField(kafkaService, "asyncProducer", asyncProducer);
         ReflectionTestUtils.setField(kafkaService, "transactionalProducer", transactionalProducer);
+        // Group commit disabled (the default): every batch goes straight to the transactional producer.
+        TransactionGroupCommitter groupCommitter = new TransactionGroupCommitter();
+        ReflectionTestUtils.setField(groupCommitter, "transactionalProducer", transactionalProducer);
+        ReflectionTestUtils.setField(kafkaService, "groupCommitter", groupCommitter);
         ReflectionTestUtils.setField(kafkaService, "partitionedProducer", partitionedProducer);
         ReflectionTestUtils.setField(kafkaService, "validationService", validationService);
     }
@@ -102,6 +114,21 @@ class KafkaServiceTest {
         verify(simpleProducer).send(transaction);
     }
 
+    @Test
+    void sendSimpleShouldReleaseMessageIdWhenTheRecordWasNotDispatched() {
+        DemoTransaction transaction = validTransaction();
+        doThrow(new SerializationException("cannot serialize"))
+                .doNothing()
+                .when(simpleProducer).send(transaction);
+
+        assertThrows(SerializationException.class, () -> kafkaService.sendSimple(transaction));
+        // Nothing reached Kafka, so the client's retry with the same messageId must not get "already sent".
+        assertDoesNotThrow(() -> kafkaService.sendSimple(transaction));
+        assertThrows(DuplicateTransactionException.class, () -> kafkaService.sendSimple(transaction));
+
+        verify(simpleProducer, org.mockito.Mockito.times(2)).send(transaction);
+    }
+
     @Test
     void sendSimpleShouldRejectInvalidTransactionBeforeCallingProducer() {
         DemoTransaction invalid = invalidTransaction();
@@ -130,6 +157,25 @@ class KafkaServiceTest {
         assertEquals(10, actual.getRecordMetadata().offset());
     }
 
+    @Test
+    void sendReliableShouldRejectDuplicateMessageIdUnlessTheSendFailed() throws Exception {
+        @SuppressWarnings("unchecked")
+        SendResult<String, DemoTransaction> sendResult = org.mockito.Mockito.mock(SendResult.class);
+        when(sendResult.getRecordMetadata())
+                .thenReturn(new RecordMetadata(new TopicPartition("demo-messages", 0), 0, 10, 0L, 0, 0));
+        when(reliableProducer.sendWithConfirmation(any()))
+                .thenThrow(new ExecutionException(new RuntimeException("broker down")))
+                .thenReturn(sendResult);
+        DemoTransaction transaction = validTransaction();
+
+        // A failed send releases the messageId so the client can retry it; a confirmed one keeps it.
+        assertThrows(ExecutionException.class, () -> kafkaService.sendReliable(transaction));
+        assertSame(sendResult, kafkaService.sendReliable(transaction));
+        assertThrows(DuplicateTransactionException.class, () -> kafkaService.sendReliable(transaction));
+
+        verify(reliableProducer, org.mockito.Mockito.times(2)).sendWithConfirmation(transaction);
+    }
+
     @Test
     void sendReliableShouldRejectInvalidTransactionBeforeCallingProducer() throws Exception {
         try {
@@ -168,6 +214,24 @@ class KafkaServiceTest {
     // sendBatch
     // -------------------------------------------------------------------------
 
+    @Test
+    void sendAllReliableShouldDelegateValidBatchToReliableProducer() throws Exception {
+        List<DemoTransaction> transactions = List.of(validTransaction(), validTransaction());
+        BatchConfirmation confirmation = new BatchConfirmation(List.of());
+        when(reliableProducer.sendAllWithConfirmation(transactions)).thenReturn(confirmation);
+
+        assertSame(confirmation, kafkaService.sendAllReliable(transactions));
+    }
+
+    @Test
+    void sendAllReliableShouldRejectBatchContainingInvalidTransaction() throws Exception {
+        List<DemoTransaction> transactions = List.of(validTransaction(), invalidTransaction());
+
+        assertThrows(IllegalArgumentException.class, () -> kafkaService.sendAllReliable(transactions));
+
+        verify(reliableProducer, never()).sendAllWithConfirmation(any());
+    }
+
     @Test
     void sendBatchShouldReturnTrueWhenTransactionalProducerCommits() {
         when(transactionalProducer.sendTransactional(any())).thenReturn(true);
@@ -202,6 +266,16 @@ class KafkaServiceTest {
         verify(transactionalProducer, never()).sendTransactional(any());
     }
 
+    @Test
+    void sendBatchShouldReportEveryInvalidIndex() {
+        List<DemoTransaction> mixedBatch = List.of(invalidTransaction(), validTransaction(), invalidTransaction());
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> kafkaService.sendBatch(mixedBatch));
+
+        assertTrue(ex.getMessage().contains("2 of 3"));
+        assertTrue(ex.getMessage().contains("[0]") && ex.getMessage().contains("[2]"));
+    }
+
     // -------------------------------------------------------------------------
     // sendWithKey
     // -------------------------------------------------------------------------
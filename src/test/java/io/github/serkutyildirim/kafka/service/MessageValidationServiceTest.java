@@ -4,11 +4,18 @@ import io.github.serkutyildirim.kafka.model.DemoTransaction;
 import io.github.serkutyildirim.kafka.model.MessageStatus;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -27,7 +34,8 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
  *   <li>Unsupported / malformed currency rejection</li>
  *   <li>Full happy-path acceptance</li>
  *   <li>Currency whitelist logic ({@code isValidCurrency})</li>
- *   <li>Mock stubs ({@code validateBalance}, {@code checkDuplicateTransaction}) run without throwing</li>
+ *   <li>Mock stub {@code validateBalance} runs without throwing</li>
+ *   <li>{@code checkDuplicateTransaction} rejects a reserved or completed ID until it is released</li>
  * </ul>
  */
 class MessageValidationServiceTest {
@@ -35,8 +43,10 @@ class MessageValidationServiceTest {
     private MessageValidationService validationService;
 
     @BeforeEach
-    void setUp() {
+    void setUp() throws Exception {
         validationService = new MessageValidationService();
+        ReflectionTestUtils.setField(validationService, "idempotencyStore",
+                new IdempotencyStore(1024, 4, 60_000L, 1_000L, ""));
     }
 
     // -------------------------------------------------------------------------
@@ -116,6 +126,45 @@ class MessageValidationServiceTest {
         assertDoesNotThrow(() -> validationService.validateTransaction(validTransaction()));
     }
 
+    @Test
+    void validateTransactionShouldApplyModelAnnotationConstraints() {
+        assertThrows(IllegalArgumentException.class,
+                () -> validationService.validateTransaction(baseBuilder().status(null).build()));
+        assertThrows(IllegalArgumentException.class,
+                () -> validationService.validateTransaction(baseBuilder().sourceId("A".repeat(65)).build()));
+        assertThrows(IllegalArgumentException.class,
+                () -> validationService.validateTransaction(baseBuilder().description("x".repeat(256)).build()));
+        assertThrows(IllegalArgumentException.class,
+                () -> validationService.validateTransaction(baseBuilder().messageId(null).build()));
+    }
+
+    @Test
+    void compiledValidatorShouldNameFailingFieldAndAcceptValidTransaction() {
+        CompiledTransactionValidator validator = CompiledTransactionValidator.compile(Set.of("USD", "EUR"));
+
+        assertNull(validator.check(validTransaction()));
+        assertTrue(validator.check(baseBuilder().currency("GBP").build()).contains("currency"));
+        assertTrue(validator.check(baseBuilder().amount(null).build()).contains("amount"));
+        assertFalse(validator.isSupportedCurrency("U$D"));
+        assertFalse(validator.isSupportedCurrency("usd"));
+    }
+
+    @Test
+    void validateBatchShouldReturnSameViolationsSequentiallyAndInParallel() {
+        List<DemoTransaction> batch = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            batch.add(i % 1_000 == 7 ? baseBuilder().currency("XYZ").build() : validTransaction());
+        }
+
+        List<TransactionViolation> sequential = validationService.validateBatch(batch);
+        ReflectionTestUtils.setField(validationService, "parallelThreshold", 1);
+        List<TransactionViolation> parallel = validationService.validateBatch(batch);
+
+        assertEquals(List.of(7, 1_007, 2_007, 3_007, 4_007), sequential.stream().map(TransactionViolation::index).toList());
+        assertEquals(sequential, parallel);
+        assertTrue(validationService.validateBatch(List.of(validTransaction())).isEmpty());
+    }
+
     // -------------------------------------------------------------------------
     // isValidCurrency
     // -------------------------------------------------------------------------
@@ -165,13 +214,33 @@ class MessageValidationServiceTest {
     }
 
     // -------------------------------------------------------------------------
-    // checkDuplicateTransaction — mock stub, must not throw
+    // checkDuplicateTransaction — idempotency reservation
     // -------------------------------------------------------------------------
 
     @Test
-    void checkDuplicateTransactionShouldNotThrowInMockImplementation() {
-        assertDoesNotThrow(() ->
-                validationService.checkDuplicateTransaction("some-uuid-1234"));
+    void checkDuplicateTransactionShouldRejectReservedAndCompletedIds() {
+        UUID id = UUID.randomUUID();
+
+        assertDoesNotThrow(() -> validationService.checkDuplicateTransaction(id.toString()));
+        DuplicateTransactionException inProgress = assertThrows(DuplicateTransactionException.class,
+                () -> validationService.checkDuplicateTransaction(id));
+        assertEquals(IdempotencyStore.Reservation.IN_PROGRESS, inProgress.getReservation());
+
+        validationService.completeTransaction(id);
+        DuplicateTransactionException completed = assertThrows(DuplicateTransactionException.class,
+                () -> validationService.checkDuplicateTransaction(id));
+        assertEquals(IdempotencyStore.Reservation.COMPLETED, completed.getReservation());
+    }
+
+    @Test
+    void releasedTransactionShouldBeAcceptedAgain() {
+        UUID id = UUID.randomUUID();
+        validationService.checkDuplicateTransaction(id);
+
+        validationService.releaseTransaction(id);
+
+        assertDoesNotThrow(() -> validationService.checkDuplicateTransaction(id));
+        assertThrows(IllegalArgumentException.class, () -> validationService.checkDuplicateTransaction("some-uuid-1234"));
     }
 
     // -------------------------------------------------------------------------